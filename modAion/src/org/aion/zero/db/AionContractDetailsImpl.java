@@ -98,19 +98,24 @@ public class AionContractDetailsImpl extends AbstractContractDetails<IDataWord>
         if (value.isZero()) {
             storageTrie.delete(key.getData());
         } else {
-            boolean isDouble = value.getData().length == DoubleDataWord.BYTES;
-            byte[] data =
-                    (isDouble)
-                            ? RLP.encodeElement(value.getData())
-                            : RLP.encodeElement(value.getNoLeadZeroesData());
-
-            storageTrie.update(key.getData(), data);
+            storageTrie.update(key.getData(), encodeValue(value));
         }
 
         this.setDirty(true);
         this.rlpEncoded = null;
     }
 
+    /** @return the encoding of the value stored in the storage trie, empty for zero values */
+    private static byte[] encodeValue(IDataWord value) {
+        if (value.isZero()) {
+            return EMPTY_BYTE_ARRAY;
+        }
+        boolean isDouble = value.getData().length == DoubleDataWord.BYTES;
+        return (isDouble)
+                ? RLP.encodeElement(value.getData())
+                : RLP.encodeElement(value.getNoLeadZeroesData());
+    }
+
     /**
      * Returns the value associated with key if it exists, otherwise returns a DataWord consisting
      * entirely of zero bytes.
@@ -269,9 +274,19 @@ public class AionContractDetailsImpl extends AbstractContractDetails<IDataWord>
      */
     @Override
     public void setStorage(Map<IDataWord, IDataWord> storage) {
-        for (IDataWord key : storage.keySet()) {
-            put(key, storage.get(key));
+        if (storage.isEmpty()) {
+            return;
         }
+
+        // applied as a batch to allow hashing the storage trie in parallel
+        Map<ByteArrayWrapper, byte[]> updates = new HashMap<>();
+        for (Map.Entry<IDataWord, IDataWord> entry : storage.entrySet()) {
+            updates.put(wrap(entry.getKey().getData()), encodeValue(entry.getValue()));
+        }
+        storageTrie.updateBatch(updates);
+
+        this.setDirty(true);
+        this.rlpEncoded = null;
     }
 
     /**
@@ -319,13 +334,35 @@ public class AionContractDetailsImpl extends AbstractContractDetails<IDataWord>
      */
     private IByteArrayKeyValueStore getExternalStorageDataSource() {
         if (externalStorageDataSource == null) {
-            externalStorageDataSource =
-                    new XorDataSource(
-                            dataSource, h256(("details-storage/" + address.toString()).getBytes()));
+            externalStorageDataSource = createExternalStorageDataSource(dataSource, address);
         }
         return externalStorageDataSource;
     }
 
+    /**
+     * Returns a view of the given storage data source holding the external storage of the contract
+     * with the given address.
+     *
+     * @param dataSource the data source shared by all the contracts
+     * @param address the address of the contract
+     * @return the external storage data source of the contract
+     */
+    public static IByteArrayKeyValueStore createExternalStorageDataSource(
+            IByteArrayKeyValueStore dataSource, Address address) {
+        return new XorDataSource(
+                dataSource, h256(("details-storage/" + address.toString()).getBytes()));
+    }
+
+    /**
+     * Returns the trie holding the contract storage. When the storage is kept inside the encoding
+     * of the details, its nodes are only available from the cache of this trie.
+     *
+     * @return the storage trie.
+     */
+    public SecureTrie getStorageTrie() {
+        return storageTrie;
+    }
+
     /**
      * Sets the external storage data source to dataSource.
      *
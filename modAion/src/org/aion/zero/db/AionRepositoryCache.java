@@ -70,6 +70,14 @@ public class AionRepositoryCache extends AbstractRepositoryCache<IBlockStoreBase
                     cleanedCacheAccounts.put(entry.getKey(), entry.getValue());
                 }
             }
+            // the storage tries of different contracts are independent, so their updates are
+            // applied and hashed in parallel
+            cachedDetails
+                    .values()
+                    .parallelStream()
+                    .filter(ctd -> ctd instanceof ContractDetailsCacheImpl)
+                    .forEach(ctd -> ((ContractDetailsCacheImpl) ctd).commit());
+
             // determine which contracts should get stored
             for (Map.Entry<Address, IContractDetails<IDataWord>> entry : cachedDetails.entrySet()) {
                 IContractDetails<IDataWord> ctd = entry.getValue();
@@ -77,7 +85,6 @@ public class AionRepositoryCache extends AbstractRepositoryCache<IBlockStoreBase
                 // different ContractDetails implementation
                 if (ctd != null && ctd instanceof ContractDetailsCacheImpl) {
                     ContractDetailsCacheImpl contractDetailsCache = (ContractDetailsCacheImpl) ctd;
-                    contractDetailsCache.commit();
 
                     if (contractDetailsCache.origContract == null
                             && repository.hasContractDetails(entry.getKey())) {
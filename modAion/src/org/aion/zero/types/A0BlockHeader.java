@@ -36,8 +36,8 @@ import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Utils;
 import org.aion.crypto.HashUtil;
 import org.aion.mcf.types.AbstractBlockHeader;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.exceptions.HeaderStructureException;
 import org.json.JSONObject;
 
@@ -87,77 +87,58 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public A0BlockHeader(byte[] encoded) {
-        this((RLPList) RLP.decode2(encoded).get(0));
+        this(RLPView.wrap(encoded));
     }
 
-    public A0BlockHeader(RLPList rlpHeader) {
+    public A0BlockHeader(RLPView rlpHeader) {
 
         // Version
-        byte[] versionBytes = rlpHeader.get(RPL_BH_VERSION).getRLPData();
-        this.version = versionBytes.length == 1 ? versionBytes[0] : 1;
+        RLPView versionRlp = rlpHeader.get(RPL_BH_VERSION);
+        this.version = versionRlp.getLength() == 1 ? versionRlp.getByte() : 1;
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
-        this.number = nrBytes == null ? 0 : (new BigInteger(1, nrBytes)).longValue();
+        this.number = rlpHeader.get(RPL_BH_NUMBER).getLong();
 
         // ParentHash
-        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getRLPData();
+        this.parentHash = rlpHeader.get(RPL_BH_PARENTHASH).getBytes();
 
         // CoinBase
-        byte[] data = rlpHeader.get(RPL_BH_COINBASE).getRLPData();
-        this.coinbase =
-                (data == null)
-                        ? Address.EMPTY_ADDRESS()
-                        : Address.wrap(rlpHeader.get(RPL_BH_COINBASE).getRLPData());
+        this.coinbase = Address.wrap(rlpHeader.get(RPL_BH_COINBASE).getBytes());
 
         // StateRoot
-        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getRLPData();
+        this.stateRoot = rlpHeader.get(RPL_BH_STATEROOT).getBytes();
 
         // TxTrieRoot
-        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
-        if (this.txTrieRoot == null) {
-            this.txTrieRoot = EMPTY_TRIE_HASH;
-        }
+        this.txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getBytes();
 
         // ReceiptTrieRoot
-        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
-        if (this.receiptTrieRoot == null) {
-            this.receiptTrieRoot = EMPTY_TRIE_HASH;
-        }
+        this.receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getBytes();
 
         // LogsBloom
-        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData();
+        this.logsBloom = rlpHeader.get(RPL_BH_LOGSBLOOM).getBytes();
 
         // Difficulty
-        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData();
+        this.difficulty = rlpHeader.get(RPL_BH_DIFFICULTY).getBytes();
 
         // ExtraData
-        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getRLPData();
+        this.extraData = rlpHeader.get(RPL_BH_EXTRADATA).getBytes();
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
-        this.energyConsumed =
-                energyConsumedBytes == null
-                        ? 0
-                        : (new BigInteger(1, energyConsumedBytes).longValue());
+        this.energyConsumed = rlpHeader.get(RPL_BH_NRG_CONSUMED).getLong();
 
         // Energy Limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
-        this.energyLimit =
-                energyLimitBytes == null ? 0 : (new BigInteger(1, energyLimitBytes).longValue());
+        this.energyLimit = rlpHeader.get(RPL_BH_NRG_LIMIT).getLong();
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
-
         // TODO: not a huge concern, but how should we handle possible
         // overflows?
-        this.timestamp = tsBytes == null ? 0 : (new BigInteger(1, tsBytes)).longValue();
+        this.timestamp = rlpHeader.get(RPL_BH_TIMESTAMP).getLong();
 
         // Nonce
-        this.nonce = rlpHeader.get(RPL_BH_NONCE).getRLPData();
+        this.nonce = rlpHeader.get(RPL_BH_NONCE).getBytes();
 
         // Solution
-        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getRLPData();
+        this.solution = rlpHeader.get(RPL_BH_SOLUTION).getBytes();
     }
 
     /**
@@ -255,7 +236,8 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public byte[] getHash() {
-        return HashUtil.h256(getEncoded());
+        // hashed straight from the writer, the encoding itself is not kept
+        return HashUtil.h256(writeHeader(true));
     }
 
     public byte[] getEncoded() {
@@ -267,69 +249,56 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public byte[] getEncoded(boolean withNonce) {
+        return writeHeader(withNonce).toByteArray();
+    }
 
-        byte[] versionBytes = {this.version};
-
-        byte[] RLPversion = RLP.encodeElement(versionBytes);
-        byte[] number = RLP.encodeBigInteger(BigInteger.valueOf(this.number));
-        byte[] parentHash = RLP.encodeElement(this.parentHash);
-        byte[] coinbase = RLP.encodeElement(this.coinbase.toBytes());
-        byte[] stateRoot = RLP.encodeElement(this.stateRoot);
-
+    /** Writes the header fields in the order of the encoding with or without the nonce. */
+    private RLPWriter writeHeader(boolean withNonce) {
         if (txTrieRoot == null) {
             this.txTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] txTrieRoot = RLP.encodeElement(this.txTrieRoot);
-
         if (receiptTrieRoot == null) {
             this.receiptTrieRoot = EMPTY_TRIE_HASH;
         }
-        byte[] receiptTrieRoot = RLP.encodeElement(this.receiptTrieRoot);
-        byte[] logsBloom = RLP.encodeElement(this.logsBloom);
-        byte[] difficulty = RLP.encodeElement(this.difficulty);
-        byte[] extraData = RLP.encodeElement(this.extraData);
-        byte[] energyConsumed = RLP.encodeBigInteger(BigInteger.valueOf(this.energyConsumed));
-        byte[] energyLimit = RLP.encodeBigInteger(BigInteger.valueOf(this.energyLimit));
 
-        byte[] timestamp = RLP.encodeBigInteger(BigInteger.valueOf(this.timestamp));
-
-        byte[] solution = RLP.encodeElement(this.solution);
+        byte[] versionBytes = {this.version};
+        BigInteger number = BigInteger.valueOf(this.number);
+        BigInteger energyConsumed = BigInteger.valueOf(this.energyConsumed);
+        BigInteger energyLimit = BigInteger.valueOf(this.energyLimit);
+        BigInteger timestamp = BigInteger.valueOf(this.timestamp);
 
+        RLPWriter writer = new RLPWriter(16).beginList().writeElement(versionBytes);
         if (withNonce) {
-            byte[] nonce = RLP.encodeElement(this.nonce);
-            return RLP.encodeList(
-                    RLPversion,
-                    number,
-                    parentHash,
-                    coinbase,
-                    stateRoot,
-                    txTrieRoot,
-                    receiptTrieRoot,
-                    logsBloom,
-                    difficulty,
-                    extraData,
-                    energyConsumed,
-                    energyLimit,
-                    timestamp,
-                    nonce,
-                    solution);
+            writer.writeBigInteger(number)
+                    .writeElement(this.parentHash)
+                    .writeElement(this.coinbase.toBytes())
+                    .writeElement(this.stateRoot)
+                    .writeElement(this.txTrieRoot)
+                    .writeElement(this.receiptTrieRoot)
+                    .writeElement(this.logsBloom)
+                    .writeElement(this.difficulty)
+                    .writeElement(this.extraData)
+                    .writeBigInteger(energyConsumed)
+                    .writeBigInteger(energyLimit)
+                    .writeBigInteger(timestamp)
+                    .writeElement(this.nonce)
+                    .writeElement(this.solution);
         } else {
-            return RLP.encodeList(
-                    RLPversion,
-                    parentHash,
-                    coinbase,
-                    stateRoot,
-                    txTrieRoot,
-                    receiptTrieRoot,
-                    logsBloom,
-                    difficulty,
-                    number,
-                    timestamp,
-                    extraData,
-                    solution,
-                    energyConsumed,
-                    energyLimit);
-        }
+            writer.writeElement(this.parentHash)
+                    .writeElement(this.coinbase.toBytes())
+                    .writeElement(this.stateRoot)
+                    .writeElement(this.txTrieRoot)
+                    .writeElement(this.receiptTrieRoot)
+                    .writeElement(this.logsBloom)
+                    .writeElement(this.difficulty)
+                    .writeBigInteger(number)
+                    .writeBigInteger(timestamp)
+                    .writeElement(this.extraData)
+                    .writeElement(this.solution)
+                    .writeBigInteger(energyConsumed)
+                    .writeBigInteger(energyLimit);
+        }
+        return writer.endList();
     }
 
     public String toString() {
@@ -490,7 +459,7 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
     }
 
     public static A0BlockHeader fromRLP(byte[] rawData, boolean isUnsafe) throws Exception {
-        return fromRLP((RLPList) RLP.decode2(rawData).get(0), isUnsafe);
+        return fromRLP(RLPView.wrap(rawData), isUnsafe);
     }
 
     /**
@@ -500,75 +469,75 @@ public class A0BlockHeader extends AbstractBlockHeader implements IPowBlockHeade
      * @param isUnsafe
      * @return
      */
-    public static A0BlockHeader fromRLP(RLPList rlpHeader, boolean isUnsafe) throws Exception {
+    public static A0BlockHeader fromRLP(RLPView rlpHeader, boolean isUnsafe) throws Exception {
         Builder builder = new Builder();
         if (isUnsafe) {
             builder.fromUnsafeSource();
         }
 
         // Version
-        byte[] version = rlpHeader.get(RPL_BH_VERSION).getRLPData();
+        byte[] version = rlpHeader.get(RPL_BH_VERSION).getBytes();
         if (version != null && version.length == 1) builder.withVersion(version[0]);
 
         // Number
-        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getRLPData();
+        byte[] nrBytes = rlpHeader.get(RPL_BH_NUMBER).getBytes();
         if (nrBytes != null) {
             builder.withNumber(nrBytes);
         }
 
         // Parent Hash
-        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getRLPData());
+        builder.withParentHash(rlpHeader.get(RPL_BH_PARENTHASH).getBytes());
 
         // Coinbase (miner)
-        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).getRLPData()));
+        builder.withCoinbase(new Address(rlpHeader.get(RPL_BH_COINBASE).getBytes()));
 
         // State root
-        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getRLPData());
+        builder.withStateRoot(rlpHeader.get(RPL_BH_STATEROOT).getBytes());
 
         // TxTrie root
-        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getRLPData();
+        byte[] txTrieRoot = rlpHeader.get(RPL_BH_TXTRIE).getBytes();
         if (txTrieRoot != null) {
             builder.withTxTrieRoot(txTrieRoot);
         }
 
         // Receipt Trie root
-        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getRLPData();
+        byte[] receiptTrieRoot = rlpHeader.get(RPL_BH_RECEIPTTRIE).getBytes();
         if (receiptTrieRoot != null) {
             builder.withReceiptTrieRoot(receiptTrieRoot);
         }
 
         // LogsBloom
-        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getRLPData());
+        builder.withLogsBloom(rlpHeader.get(RPL_BH_LOGSBLOOM).getBytes());
 
         // Difficulty
-        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getRLPData());
+        builder.withDifficulty(rlpHeader.get(RPL_BH_DIFFICULTY).getBytes());
 
         // ExtraData
-        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getRLPData());
+        builder.withExtraData(rlpHeader.get(RPL_BH_EXTRADATA).getBytes());
 
         // Energy Consumed
-        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getRLPData();
+        byte[] energyConsumedBytes = rlpHeader.get(RPL_BH_NRG_CONSUMED).getBytes();
         if (energyConsumedBytes != null) {
             builder.withEnergyConsumed(energyConsumedBytes);
         }
 
         // Energy limit
-        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getRLPData();
+        byte[] energyLimitBytes = rlpHeader.get(RPL_BH_NRG_LIMIT).getBytes();
         if (energyLimitBytes != null) {
             builder.withEnergyLimit(energyLimitBytes);
         }
 
         // Timestamp
-        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getRLPData();
+        byte[] tsBytes = rlpHeader.get(RPL_BH_TIMESTAMP).getBytes();
         if (tsBytes != null) {
             builder.withTimestamp(tsBytes);
         }
 
         // Nonce
-        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getRLPData());
+        builder.withNonce(rlpHeader.get(RPL_BH_NONCE).getBytes());
 
         // Solution
-        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getRLPData());
+        builder.withSolution(rlpHeader.get(RPL_BH_SOLUTION).getBytes());
 
         return builder.build();
     }
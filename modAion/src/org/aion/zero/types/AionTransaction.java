@@ -38,8 +38,8 @@ import org.aion.crypto.SignatureFac;
 import org.aion.mcf.types.AbstractTransaction;
 import org.aion.mcf.vm.Constants;
 import org.aion.mcf.vm.types.DataWord;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 
 /** Aion transaction class. */
 public class AionTransaction extends AbstractTransaction {
@@ -133,25 +133,18 @@ public class AionTransaction extends AbstractTransaction {
 
     public void rlpParse() {
 
-        RLPList decodedTxList = RLP.decode2(rlpEncoded);
-        RLPList tx = (RLPList) decodedTxList.get(0);
+        RLPView tx = RLPView.wrap(rlpEncoded);
 
-        this.nonce = tx.get(RLP_TX_NONCE).getRLPData();
-        this.value = tx.get(RLP_TX_VALUE).getRLPData();
-        this.data = tx.get(RLP_TX_DATA).getRLPData();
+        this.nonce = tx.get(RLP_TX_NONCE).getBytes();
+        this.value = tx.get(RLP_TX_VALUE).getBytes();
+        this.data = tx.get(RLP_TX_DATA).getBytes();
+        this.to = Address.wrap(tx.get(RLP_TX_TO).getBytes());
+        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).getBytes();
+        this.nrg = tx.get(RLP_TX_NRG).getLong();
+        this.nrgPrice = tx.get(RLP_TX_NRGPRICE).getLong();
+        this.type = tx.get(RLP_TX_TYPE).getByte();
 
-        if (tx.get(RLP_TX_TO).getRLPData() == null) {
-            this.to = null;
-        } else {
-            this.to = Address.wrap(tx.get(RLP_TX_TO).getRLPData());
-        }
-
-        this.timeStamp = tx.get(RLP_TX_TIMESTAMP).getRLPData();
-        this.nrg = new BigInteger(1, tx.get(RLP_TX_NRG).getRLPData()).longValue();
-        this.nrgPrice = new BigInteger(1, tx.get(RLP_TX_NRGPRICE).getRLPData()).longValue();
-        this.type = new BigInteger(1, tx.get(RLP_TX_TYPE).getRLPData()).byteValue();
-
-        byte[] sigs = tx.get(RLP_TX_SIG).getRLPData();
+        byte[] sigs = tx.get(RLP_TX_SIG).getBytes();
         if (sigs != null) {
             // Singature Factory will decode the signature based on the algo
             // presetted in main() entry.
@@ -193,8 +186,11 @@ public class AionTransaction extends AbstractTransaction {
         if (!parsed) {
             rlpParse();
         }
-        byte[] plainMsg = this.getEncodedRaw();
-        return HashUtil.h256(plainMsg);
+        if (rlpRaw != null) {
+            return HashUtil.h256(rlpRaw);
+        }
+        // the raw encoding is only needed for its hash here, so it is not kept
+        return HashUtil.h256(writeFields(new RLPWriter(10)).endList());
     }
 
     public byte[] getNonce() {
@@ -387,23 +383,7 @@ public class AionTransaction extends AbstractTransaction {
             return rlpRaw;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
-
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
-
-        rlpRaw = RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type);
+        rlpRaw = writeFields(new RLPWriter(10)).endList().toByteArray();
         return rlpRaw;
     }
 
@@ -413,37 +393,34 @@ public class AionTransaction extends AbstractTransaction {
             return rlpEncoded;
         }
 
-        byte[] nonce = RLP.encodeElement(this.nonce);
-
-        byte[] to;
-        if (this.to == null) {
-            to = RLP.encodeElement(null);
-        } else {
-            to = RLP.encodeElement(this.to.toBytes());
-        }
-
-        byte[] value = RLP.encodeElement(this.value);
-        byte[] data = RLP.encodeElement(this.data);
-        byte[] timeStamp = RLP.encodeElement(this.timeStamp);
-        byte[] nrg = RLP.encodeLong(this.nrg);
-        byte[] nrgPrice = RLP.encodeLong(this.nrgPrice);
-        byte[] type = RLP.encodeByte(this.type);
-
-        byte[] sigs;
-
         if (signature == null) {
             LOG.error("Encoded transaction has no signature!");
             return null;
         }
 
-        sigs = RLP.encodeElement(signature.toBytes());
         this.rlpEncoded =
-                RLP.encodeList(nonce, to, value, data, timeStamp, nrg, nrgPrice, type, sigs);
+                writeFields(new RLPWriter(10))
+                        .writeElement(signature.toBytes())
+                        .endList()
+                        .toByteArray();
         this.hash = this.getHash();
 
         return rlpEncoded;
     }
 
+    /** Starts the transaction list and writes all the fields except for the signature. */
+    private RLPWriter writeFields(RLPWriter writer) {
+        return writer.beginList()
+                .writeElement(this.nonce)
+                .writeElement(this.to == null ? null : this.to.toBytes())
+                .writeElement(this.value)
+                .writeElement(this.data)
+                .writeElement(this.timeStamp)
+                .writeLong(this.nrg)
+                .writeLong(this.nrgPrice)
+                .writeByte(this.type);
+    }
+
     @Override
     public int hashCode() {
 
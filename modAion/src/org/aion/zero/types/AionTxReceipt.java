@@ -23,22 +23,16 @@
 
 package org.aion.zero.types;
 
-import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
-import static org.apache.commons.lang3.ArrayUtils.nullToEmpty;
-
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Hex;
 import org.aion.mcf.types.AbstractTxReceipt;
 import org.aion.mcf.vm.types.Bloom;
 import org.aion.mcf.vm.types.Log;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPItem;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 
 /** aion transaction receipt class. */
 public class AionTxReceipt extends AbstractTxReceipt<AionTransaction> {
@@ -49,30 +43,21 @@ public class AionTxReceipt extends AbstractTxReceipt<AionTransaction> {
 
     public AionTxReceipt(byte[] rlp) {
 
-        RLPList params = RLP.decode2(rlp);
-        RLPList receipt = (RLPList) params.get(0);
-
-        RLPItem postTxStateRLP = (RLPItem) receipt.get(0);
-        RLPItem bloomRLP = (RLPItem) receipt.get(1);
-        RLPList logs = (RLPList) receipt.get(2);
-        RLPItem result = (RLPItem) receipt.get(3);
+        RLPView receipt = RLPView.wrap(rlp);
+        RLPView logs = receipt.get(2);
 
-        postTxState = nullToEmpty(postTxStateRLP.getRLPData());
-        bloomFilter = new Bloom(bloomRLP.getRLPData());
-        executionResult =
-                (executionResult = result.getRLPData()) == null
-                        ? EMPTY_BYTE_ARRAY
-                        : executionResult;
-        energyUsed = ByteUtil.byteArrayToLong(receipt.get(4).getRLPData());
+        postTxState = receipt.get(0).getBytes();
+        bloomFilter = new Bloom(receipt.get(1).getBytes());
+        executionResult = receipt.get(3).getBytes();
+        energyUsed = receipt.get(4).getLong();
 
         if (receipt.size() > 5) {
-            byte[] errBytes = receipt.get(5).getRLPData();
-            error = errBytes != null ? new String(errBytes, StandardCharsets.UTF_8) : "";
+            byte[] errBytes = receipt.get(5).getBytes();
+            error = new String(errBytes, StandardCharsets.UTF_8);
         }
 
-        for (RLPElement log : logs) {
-            Log logInfo = new Log(log.getRLPData());
-            logInfoList.add(logInfo);
+        for (int i = 0; i < logs.size(); i++) {
+            logInfoList.add(new Log(logs.get(i)));
         }
 
         rlpEncoded = rlp;
@@ -126,33 +111,26 @@ public class AionTxReceipt extends AbstractTxReceipt<AionTransaction> {
      * @return {@code rlpEncoded} byte array representing the receipt
      */
     private byte[] getEncoded(boolean receiptTrie) {
+        RLPWriter writer =
+                new RLPWriter(10 + (logInfoList == null ? 0 : logInfoList.size()))
+                        .beginList()
+                        .writeElement(this.postTxState)
+                        .writeElement(this.bloomFilter.data);
 
-        byte[] postTxStateRLP = RLP.encodeElement(this.postTxState);
-        byte[] bloomRLP = RLP.encodeElement(this.bloomFilter.data);
-
-        final byte[] logInfoListRLP;
+        writer.beginList();
         if (logInfoList != null) {
-            byte[][] logInfoListE = new byte[logInfoList.size()][];
-
-            int i = 0;
             for (Log logInfo : logInfoList) {
-                logInfoListE[i] = logInfo.getEncoded();
-                ++i;
+                writer.writeEncoded(logInfo.getEncoded());
             }
-            logInfoListRLP = RLP.encodeList(logInfoListE);
-        } else {
-            logInfoListRLP = RLP.encodeList();
         }
+        writer.endList();
 
-        return receiptTrie
-                ? RLP.encodeList(postTxStateRLP, bloomRLP, logInfoListRLP)
-                : RLP.encodeList(
-                        postTxStateRLP,
-                        bloomRLP,
-                        logInfoListRLP,
-                        RLP.encodeElement(executionResult),
-                        RLP.encodeLong(energyUsed),
-                        RLP.encodeElement(error.getBytes(StandardCharsets.UTF_8)));
+        if (!receiptTrie) {
+            writer.writeElement(executionResult)
+                    .writeLong(energyUsed)
+                    .writeElement(error.getBytes(StandardCharsets.UTF_8));
+        }
+        return writer.endList().toByteArray();
     }
 
     /** TODO: check that this is valid, should null == valid? */
@@ -5,5 +5,6 @@ module aion.base {
     exports org.aion.base.vm;
     exports org.aion.base.db;
     exports org.aion.base.io;
+    exports org.aion.base.metrics;
     exports org.aion.base;
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.base.db;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Iterator over the entries of a {@link IByteArrayKeyValueStore} in ascending unsigned
+ * lexicographic order of the keys.
+ *
+ * <p>The iterator may hold resources of the underlying data store and must be closed after use,
+ * preferably through a try-with-resources statement. It is not thread safe.
+ *
+ * @implNote The persistent implementations iterate over an implicit snapshot of the data taken
+ *     when the iterator is created, therefore updates made to the data store during the iteration
+ *     are not visible to the iterator.
+ */
+public interface IByteArrayKeyValueIterator
+        extends Iterator<Map.Entry<byte[], byte[]>>, AutoCloseable {
+
+    /**
+     * Releases the resources held by the iterator. Calls to {@link #hasNext()} return {@code false}
+     * after the iterator was closed.
+     */
+    @Override
+    void close();
+
+    /**
+     * Creates an iterator over the given entries, which do not hold any resources.
+     *
+     * @param entries the entries to iterate over, expected in ascending order of their keys
+     * @return an iterator over the given entries
+     */
+    static IByteArrayKeyValueIterator of(Iterator<Map.Entry<byte[], byte[]>> entries) {
+        return new IByteArrayKeyValueIterator() {
+            private boolean closed = false;
+
+            @Override
+            public boolean hasNext() {
+                return !closed && entries.hasNext();
+            }
+
+            @Override
+            public Map.Entry<byte[], byte[]> next() {
+                return entries.next();
+            }
+
+            @Override
+            public void close() {
+                closed = true;
+            }
+        };
+    }
+}
@@ -35,4 +35,84 @@
 
 package org.aion.base.db;
 
-public interface IByteArrayKeyValueStore extends IKeyValueStore<byte[], byte[]> {}
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import org.aion.base.util.ByteArrayWrapper;
+
+public interface IByteArrayKeyValueStore extends IKeyValueStore<byte[], byte[]> {
+
+    /**
+     * Returns an iterator over the entries with keys in the range {@code [from, to)}, in ascending
+     * unsigned lexicographic order of the keys. Unlike {@link #keys()}, the entries are read
+     * lazily, so iterating over a large key space does not load it into memory.
+     *
+     * @param from the inclusive lower bound of the keys, or {@code null} to start from the first
+     *     key
+     * @param to the exclusive upper bound of the keys, or {@code null} to end with the last key
+     * @return an iterator over the entries in the range, which must be closed after use
+     * @throws RuntimeException if the data store is closed
+     */
+    IByteArrayKeyValueIterator iterator(byte[] from, byte[] to);
+
+    /**
+     * Returns an iterator over all the entries of the data store.
+     *
+     * @throws RuntimeException if the data store is closed
+     * @see #iterator(byte[], byte[])
+     */
+    default IByteArrayKeyValueIterator iterator() {
+        return iterator(null, null);
+    }
+
+    /**
+     * Returns an iterator over the entries with keys starting with the given prefix.
+     *
+     * @throws RuntimeException if the data store is closed
+     * @throws IllegalArgumentException if the prefix is null
+     * @see #iterator(byte[], byte[])
+     */
+    default IByteArrayKeyValueIterator prefixIterator(byte[] prefix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("The prefix cannot be null.");
+        }
+        return iterator(prefix, prefixUpperBound(prefix));
+    }
+
+    /**
+     * Retrieves the values for the given keys in a single operation, which the implementations
+     * may batch to reduce the number of accesses to the underlying storage.
+     *
+     * @param keys the keys of the values to be retrieved
+     * @return the values of the keys present in the data store, the missing keys are omitted
+     * @throws RuntimeException if the data store is closed
+     * @throws IllegalArgumentException if the collection contains a null key
+     */
+    Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys);
+
+    /**
+     * Computes the smallest key greater than all the keys starting with the given prefix.
+     *
+     * @return the exclusive upper bound of the keys with the given prefix, or {@code null} when
+     *     the range is unbounded because the prefix contains only {@code 0xff} bytes
+     */
+    static byte[] prefixUpperBound(byte[] prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            if (prefix[i] != (byte) 0xff) {
+                byte[] bound = Arrays.copyOf(prefix, i + 1);
+                bound[i]++;
+                return bound;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if the given key is inside the range {@code [from, to)}, where {@code null} bounds
+     * are unbounded.
+     */
+    static boolean isInRange(byte[] key, byte[] from, byte[] to) {
+        return (from == null || Arrays.compareUnsigned(key, from) >= 0)
+                && (to == null || Arrays.compareUnsigned(key, to) < 0);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.base.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A monotonically increasing count, safe to increment concurrently without locking. */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {}
+
+    public void inc() {
+        count.increment();
+    }
+
+    public void inc(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Counters can only be increased.");
+        }
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
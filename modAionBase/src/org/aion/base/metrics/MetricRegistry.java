@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.base.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Holds the kernel metrics and writes them in the Prometheus text exposition format.
+ *
+ * <p>Metrics are identified by a name and an optional list of label name and value pairs. Asking
+ * twice for the same name and labels returns the same metric, so call sites may look their metrics
+ * up once and keep them in fields. Durations are recorded in nanoseconds by the histograms created
+ * with {@link #timer} and exposed in seconds as summaries.
+ */
+public final class MetricRegistry {
+
+    /** The content type of the text exposition format. */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final MetricRegistry INSTANCE = new MetricRegistry();
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double SECONDS_PER_NANO = 1e-9;
+
+    private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private enum Type {
+        COUNTER,
+        GAUGE,
+        SUMMARY
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final double scale;
+
+        // metrics by their formatted labels
+        private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, Type type, double scale) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.scale = scale;
+        }
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+    private volatile boolean enabled = false;
+
+    MetricRegistry() {}
+
+    public static MetricRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns whether the metrics are exposed. Instrumentation with a measurable cost, such as
+     * timing every database operation, is only set up when enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the counter with the given name and labels, creating it if needed.
+     *
+     * @param labels label names, each followed by its value
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter)
+                family(name, help, Type.COUNTER, 1)
+                        .metrics
+                        .computeIfAbsent(formatLabels(labels), k -> new Counter());
+    }
+
+    /**
+     * Returns the histogram of durations in nanoseconds with the given name and labels, creating
+     * it if needed. The name should end with {@code _seconds}, the unit of the exposed values.
+     *
+     * @param labels label names, each followed by its value
+     */
+    public Histogram timer(String name, String help, String... labels) {
+        return (Histogram)
+                family(name, help, Type.SUMMARY, SECONDS_PER_NANO)
+                        .metrics
+                        .computeIfAbsent(formatLabels(labels), k -> new Histogram());
+    }
+
+    /**
+     * Returns the histogram of unitless values with the given name and labels, creating it if
+     * needed.
+     *
+     * @param labels label names, each followed by its value
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram)
+                family(name, help, Type.SUMMARY, 1)
+                        .metrics
+                        .computeIfAbsent(formatLabels(labels), k -> new Histogram());
+    }
+
+    /**
+     * Registers a gauge reading its value when the metrics are written. A later registration with
+     * the same name and labels replaces the earlier one.
+     *
+     * @param labels label names, each followed by its value
+     */
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        if (value == null) {
+            throw new NullPointerException("The gauge value supplier cannot be null.");
+        }
+        family(name, help, Type.GAUGE, 1).metrics.put(formatLabels(labels), value);
+    }
+
+    private Family family(String name, String help, Type type, double scale) {
+        Family family =
+                families.computeIfAbsent(
+                        name,
+                        n -> {
+                            if (!METRIC_NAME.matcher(n).matches()) {
+                                throw new IllegalArgumentException("Invalid metric name: " + n);
+                            }
+                            return new Family(n, help, type, scale);
+                        });
+        if (family.type != type || family.scale != scale) {
+            throw new IllegalArgumentException(
+                    "The metric " + name + " is already registered with another type.");
+        }
+        return family;
+    }
+
+    private static String formatLabels(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Each label name must be followed by a value.");
+        }
+
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!LABEL_NAME.matcher(labels[i]).matches()) {
+                throw new IllegalArgumentException("Invalid label name: " + labels[i]);
+            }
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            escape(sb, String.valueOf(labels[i + 1]), true);
+            sb.append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void escape(StringBuilder sb, String value, boolean quotes) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                sb.append("\\\\");
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c == '"' && quotes) {
+                sb.append("\\\"");
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    /** @return all the metrics in the text exposition format, sorted by name and labels */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        for (Family family : new TreeMap<>(families).values()) {
+            sb.append("# HELP ").append(family.name).append(' ');
+            escape(sb, family.help, false);
+            sb.append('\n');
+            sb.append("# TYPE ")
+                    .append(family.name)
+                    .append(' ')
+                    .append(family.type.name().toLowerCase())
+                    .append('\n');
+
+            for (Map.Entry<String, Object> e : new TreeMap<>(family.metrics).entrySet()) {
+                switch (family.type) {
+                    case COUNTER:
+                        writeSample(sb, family.name, e.getKey(), ((Counter) e.getValue()).get());
+                        break;
+                    case GAUGE:
+                        long value;
+                        try {
+                            value = ((LongSupplier) e.getValue()).getAsLong();
+                        } catch (RuntimeException ex) {
+                            // the gauge cannot be read at the moment, leave it out
+                            continue;
+                        }
+                        writeSample(sb, family.name, e.getKey(), value);
+                        break;
+                    case SUMMARY:
+                        writeSummary(sb, family, e.getKey(), (Histogram) e.getValue());
+                        break;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void writeSample(StringBuilder sb, String name, String labels, Object value) {
+        sb.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private static void writeSummary(
+            StringBuilder sb, Family family, String labels, Histogram histogram) {
+        long[] counts = histogram.snapshot();
+        for (double q : QUANTILES) {
+            String quantileLabel = "quantile=\"" + q + "\"";
+            String withQuantile =
+                    labels.isEmpty()
+                            ? "{" + quantileLabel + "}"
+                            : labels.substring(0, labels.length() - 1) + "," + quantileLabel + "}";
+            writeSample(
+                    sb,
+                    family.name,
+                    withQuantile,
+                    Histogram.quantile(counts, q) * family.scale);
+        }
+
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        writeSample(sb, family.name + "_sum", labels, histogram.getSum() * family.scale);
+        writeSample(sb, family.name + "_count", labels, count);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.base.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testBucketBounds() {
+        for (int bucket = 0; bucket < Histogram.BUCKETS; bucket++) {
+            long low = Histogram.lowestValueOf(bucket);
+            long high = Histogram.highestValueOf(bucket);
+            assertTrue(low <= high);
+            assertEquals(bucket, Histogram.bucketOf(low));
+            assertEquals(bucket, Histogram.bucketOf(high));
+            if (bucket > 0) {
+                assertEquals(Histogram.highestValueOf(bucket - 1) + 1, low);
+            }
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueOf(Histogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10, histogram.getCount());
+        assertEquals(55, histogram.getSum());
+        assertEquals(5, histogram.getMean());
+        assertEquals(5, histogram.getQuantile(0.5));
+        assertEquals(10, histogram.getQuantile(1));
+        assertEquals(1, histogram.getQuantile(0));
+    }
+
+    @Test
+    public void testQuantileRelativeError() {
+        Histogram histogram = new Histogram();
+        Random random = new Random(0);
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000 + random.nextInt(1_000_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[] {0.5, 0.9, 0.99}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long reported = histogram.getQuantile(q);
+            assertTrue(reported >= exact);
+            assertTrue(reported <= exact + exact / 16);
+        }
+    }
+
+    @Test
+    public void testEmptyAndNegative() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getQuantile(0.99));
+        assertEquals(0, histogram.getMean());
+
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getQuantile(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidQuantile() {
+        new Histogram().getQuantile(1.5);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.base.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MetricRegistryTest {
+
+    @Test
+    public void testSameMetricForSameLabels() {
+        MetricRegistry registry = new MetricRegistry();
+
+        Counter counter = registry.counter("test_total", "help", "db", "state");
+        assertSame(counter, registry.counter("test_total", "help", "db", "state"));
+        assertTrue(counter != registry.counter("test_total", "help", "db", "block"));
+
+        Histogram timer = registry.timer("test_seconds", "help");
+        assertSame(timer, registry.timer("test_seconds", "help"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("test", "help");
+        registry.timer("test", "help");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidName() {
+        new MetricRegistry().counter("test-total", "help");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnpairedLabel() {
+        new MetricRegistry().counter("test_total", "help", "db");
+    }
+
+    @Test
+    public void testTextFormat() {
+        MetricRegistry registry = new MetricRegistry();
+        registry.counter("b_total", "A counter.", "db", "st\"ate").inc(3);
+        registry.gauge("a_size", "A gauge.", () -> 7);
+        registry.gauge(
+                "c_broken",
+                "A gauge that fails.",
+                () -> {
+                    throw new IllegalStateException();
+                });
+        Histogram timer = registry.timer("d_seconds", "A timer.", "method", "eth_call");
+        timer.record(2_000_000_000L);
+
+        String expected =
+                "# HELP a_size A gauge.\n"
+                        + "# TYPE a_size gauge\n"
+                        + "a_size 7\n"
+                        + "# HELP b_total A counter.\n"
+                        + "# TYPE b_total counter\n"
+                        + "b_total{db=\"st\\\"ate\"} 3\n"
+                        + "# HELP c_broken A gauge that fails.\n"
+                        + "# TYPE c_broken gauge\n"
+                        + "# HELP d_seconds A timer.\n"
+                        + "# TYPE d_seconds summary\n";
+        String text = registry.toText();
+        assertTrue(text, text.startsWith(expected));
+
+        String median = "d_seconds{method=\"eth_call\",quantile=\"0.5\"}";
+        double reported = Double.parseDouble(value(text, median));
+        assertTrue(reported >= 2.0 && reported < 2.0 * 17 / 16);
+        assertEquals("2.0", value(text, "d_seconds_sum{method=\"eth_call\"}"));
+        assertEquals("1", value(text, "d_seconds_count{method=\"eth_call\"}"));
+    }
+
+    private static String value(String text, String sample) {
+        for (String line : text.split("\n")) {
+            if (line.startsWith(sample + " ")) {
+                return line.substring(sample.length() + 1);
+            }
+        }
+        throw new AssertionError("Missing sample " + sample + " in\n" + text);
+    }
+}
@@ -57,4 +57,12 @@ public interface A0BCConfig {
 
     /** Retrieves the selected energy strategy algorithm */
     AbstractEnergyStrategyLimit getEnergyLimitStrategy();
+
+    /**
+     * Retrieves whether the transaction senders and touched accounts are loaded in parallel before
+     * executing a block.
+     *
+     * @see TransactionPreloader
+     */
+    boolean getParallelTxPreload();
 }
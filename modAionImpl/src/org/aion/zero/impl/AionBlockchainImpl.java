@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -50,6 +51,9 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
+import org.aion.base.metrics.Counter;
+import org.aion.base.metrics.Histogram;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.base.type.Address;
 import org.aion.base.type.Hash256;
 import org.aion.base.util.ByteArrayWrapper;
@@ -120,6 +124,31 @@ public class AionBlockchainImpl implements IAionBlockchain {
     private static final int THOUSAND_MS = 1000;
     private static final int DIFFICULTY_BYTES = 16;
 
+    private static final String IMPORT_STAGE_METRIC = "aion_block_import_stage_seconds";
+    private static final String IMPORT_STAGE_HELP = "Time spent in each stage of a block import.";
+    private static final Histogram IMPORT_TIME =
+            MetricRegistry.getInstance()
+                    .timer("aion_block_import_seconds", "Time spent importing a block.");
+    private static final Histogram VALIDATE_TIME = importStageTimer("validate");
+    private static final Histogram EXECUTE_TIME = importStageTimer("execute");
+    private static final Histogram STORE_TIME = importStageTimer("store");
+    private static final Histogram FLUSH_TIME = importStageTimer("flush");
+    private static final Map<ImportResult, Counter> IMPORT_RESULTS =
+            new EnumMap<>(ImportResult.class);
+
+    static {
+        for (ImportResult result : ImportResult.values()) {
+            IMPORT_RESULTS.put(
+                    result,
+                    MetricRegistry.getInstance()
+                            .counter(
+                                    "aion_block_import_total",
+                                    "Blocks given for import by result.",
+                                    "result",
+                                    result.name().toLowerCase()));
+        }
+    }
+
     private A0BCConfig config;
     private long exitOn = Long.MAX_VALUE;
 
@@ -161,6 +190,12 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     private AbstractEnergyStrategyLimit energyLimitStrategy;
 
+    /** Used only when parallel preloading is enabled, {@code null} otherwise. */
+    private final TransactionPreloader txPreloader;
+
+    /** Keeps the executed state of the current mining template between refreshes. */
+    private final BlockTemplateBuilder templateBuilder;
+
     /**
      * Chain configuration class, because chain configuration may change dependant on the block
      * being executed. This is simple for now but in the future we may have to create a "chain
@@ -212,6 +247,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
                         cfgAion.getConsensus().getEnergyStrategy(),
                         config);
             }
+
+            @Override
+            public boolean getParallelTxPreload() {
+                return cfgAion.getSync().getParallelTxPreload();
+            }
         };
     }
 
@@ -261,6 +301,16 @@ public class AionBlockchainImpl implements IAionBlockchain {
                     this.chainConfiguration.getConstants().getMaximumExtraDataSize());
         }
         this.energyLimitStrategy = config.getEnergyLimitStrategy();
+
+        if (config.getParallelTxPreload()) {
+            this.txPreloader =
+                    new TransactionPreloader(Runtime.getRuntime().availableProcessors());
+            LOG.info("Parallel transaction preloading ENABLED.");
+        } else {
+            this.txPreloader = null;
+        }
+
+        this.templateBuilder = new BlockTemplateBuilder(this, repository);
     }
 
     /**
@@ -415,7 +465,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return hashes;
     }
 
-    private static byte[] calcTxTrie(List<AionTransaction> transactions) {
+    static byte[] calcTxTrie(List<AionTransaction> transactions) {
 
         Trie txsState = new TrieImpl(null);
 
@@ -541,7 +591,62 @@ public class AionBlockchainImpl implements IAionBlockchain {
     }
 
     public synchronized ImportResult tryToConnect(final AionBlock block) {
-        return tryToConnectInternal(block, System.currentTimeMillis() / THOUSAND_MS);
+        long start = System.nanoTime();
+        ImportResult result = tryToConnectInternal(block, System.currentTimeMillis() / THOUSAND_MS);
+        IMPORT_TIME.recordSince(start);
+        IMPORT_RESULTS.get(result).inc();
+        return result;
+    }
+
+    /**
+     * Appends a block to the chain without executing its transactions. Used by fast sync for the
+     * blocks up to the pivot, whose world state is downloaded from peers instead of being
+     * computed. The state root of the stored blocks is therefore not available locally.
+     *
+     * @param block a block extending the current best block
+     * @return {@link ImportResult#IMPORTED_BEST} when stored, {@link ImportResult#NO_PARENT} when
+     *     the block does not extend the best block
+     */
+    public synchronized ImportResult tryToStoreWithoutExecution(final AionBlock block) {
+        if (getBlockStore().getMaxNumber() >= block.getNumber()
+                && getBlockStore().isBlockExist(block.getHash())) {
+            return EXIST;
+        }
+
+        if (!bestBlock.isParentOf(block)) {
+            return NO_PARENT;
+        }
+
+        if (!isValid(block.getHeader())
+                || !Arrays.equals(
+                        block.getTxTrieRoot(), calcTxTrie(block.getTransactionsList()))) {
+            LOG.warn(
+                    "Invalid block received during fast sync: number: {}, hash: {}",
+                    block.getNumber(),
+                    block.getShortHash());
+            return INVALID_BLOCK;
+        }
+
+        updateTotalDifficulty(block);
+        getBlockStore().saveBlock(block, totalDifficulty, true);
+        getBlockStore().flush();
+
+        setBestBlock(block);
+        pubBestBlock = bestBlock;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Block stored without execution: number: {}, hash: {}, TD: {}",
+                    block.getNumber(),
+                    block.getShortHash(),
+                    totalDifficulty);
+        }
+        return IMPORTED_BEST;
+    }
+
+    private static Histogram importStageTimer(String stage) {
+        return MetricRegistry.getInstance()
+                .timer(IMPORT_STAGE_METRIC, IMPORT_STAGE_HELP, "stage", stage);
     }
 
     public synchronized void compactState() {
@@ -694,6 +799,61 @@ public class AionBlockchainImpl implements IAionBlockchain {
             List<AionTransaction> txs,
             boolean waitUntilBlockTime,
             long currTimeSeconds) {
+        AionBlock block = createUnsealedBlock(parent, txs, waitUntilBlockTime, currTimeSeconds);
+
+        /*
+         * Begin execution phase
+         */
+        pushState(parent.getHash());
+
+        track = repository.startTracking();
+
+        RetValidPreBlock preBlock = generatePreBlock(block);
+
+        /*
+         * Calculate the gas used for the included transactions
+         */
+        long totalEnergyUsed = 0;
+        BigInteger totalTransactionFee = BigInteger.ZERO;
+        for (AionTxExecSummary summary : preBlock.summaries) {
+            totalEnergyUsed = totalEnergyUsed + summary.getNrgUsed().longValueExact();
+            totalTransactionFee = totalTransactionFee.add(summary.getFee());
+        }
+
+        byte[] stateRoot = getRepository().getRoot();
+        popState();
+
+        /*
+         * End execution phase
+         */
+        Bloom logBloom = new Bloom();
+        for (AionTxReceipt receipt : preBlock.receipts) {
+            logBloom.or(receipt.getBloomFilter());
+        }
+
+        block.seal(
+                preBlock.txs,
+                calcTxTrie(preBlock.txs),
+                stateRoot,
+                logBloom.getData(),
+                calcReceiptsTrie(preBlock.receipts),
+                totalEnergyUsed);
+
+        // derive base block reward
+        BigInteger baseBlockReward =
+                this.chainConfiguration.getRewardsCalculator().calculateReward(block.getHeader());
+        return new BlockContext(block, baseBlockReward, totalTransactionFee);
+    }
+
+    /**
+     * Creates a block on top of the given parent with the header fields derived from the parent
+     * and the miner settings, before any transactions are executed.
+     */
+    AionBlock createUnsealedBlock(
+            AionBlock parent,
+            List<AionTransaction> txs,
+            boolean waitUntilBlockTime,
+            long currTimeSeconds) {
         long time = currTimeSeconds;
 
         if (parent.getTimestamp() >= time) {
@@ -737,48 +897,21 @@ public class AionBlockchainImpl implements IAionBlockchain {
                                                         ? null
                                                         : grandParent.getHeader()),
                                 DIFFICULTY_BYTES));
-        /*
-         * Begin execution phase
-         */
-        pushState(parent.getHash());
-
-        track = repository.startTracking();
-
-        RetValidPreBlock preBlock = generatePreBlock(block);
-
-        /*
-         * Calculate the gas used for the included transactions
-         */
-        long totalEnergyUsed = 0;
-        BigInteger totalTransactionFee = BigInteger.ZERO;
-        for (AionTxExecSummary summary : preBlock.summaries) {
-            totalEnergyUsed = totalEnergyUsed + summary.getNrgUsed().longValueExact();
-            totalTransactionFee = totalTransactionFee.add(summary.getFee());
-        }
-
-        byte[] stateRoot = getRepository().getRoot();
-        popState();
-
-        /*
-         * End execution phase
-         */
-        Bloom logBloom = new Bloom();
-        for (AionTxReceipt receipt : preBlock.receipts) {
-            logBloom.or(receipt.getBloomFilter());
-        }
-
-        block.seal(
-                preBlock.txs,
-                calcTxTrie(preBlock.txs),
-                stateRoot,
-                logBloom.getData(),
-                calcReceiptsTrie(preBlock.receipts),
-                totalEnergyUsed);
+        return block;
+    }
 
-        // derive base block reward
-        BigInteger baseBlockReward =
-                this.chainConfiguration.getRewardsCalculator().calculateReward(block.getHeader());
-        return new BlockContext(block, baseBlockReward, totalTransactionFee);
+    /**
+     * Creates a new block template for mining without taking the blockchain lock. Transactions
+     * already executed for the previous template on the same parent are kept along with their
+     * state and receipts, and only the newly given transactions are executed.
+     *
+     * @param parent the block to mine on top of
+     * @param txs the pending transactions, in the order in which they should be included
+     * @return the block template
+     */
+    @Override
+    public AionBlock createNewBlockTemplate(AionBlock parent, List<AionTransaction> txs) {
+        return templateBuilder.build(parent, txs).block;
     }
 
     @Override
@@ -792,9 +925,13 @@ public class AionBlockchainImpl implements IAionBlockchain {
             updateTotalDifficulty(block);
             summary.setTotalDifficulty(block.getCumulativeDifficulty());
 
+            long start = System.nanoTime();
             storeBlock(block, receipts);
+            STORE_TIME.recordSince(start);
 
+            start = System.nanoTime();
             flush();
+            FLUSH_TIME.recordSince(start);
         }
 
         return summary;
@@ -802,7 +939,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     public synchronized AionBlockSummary add(AionBlock block, boolean rebuild) {
 
-        if (!isValid(block)) {
+        long start = System.nanoTime();
+        boolean valid = isValid(block);
+        VALIDATE_TIME.recordSince(start);
+
+        if (!valid) {
             LOG.error("Attempting to add {} block.", (block == null ? "NULL" : "INVALID"));
             return null;
         }
@@ -816,7 +957,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
             return null;
         }
 
+        start = System.nanoTime();
         AionBlockSummary summary = processBlock(block);
+        EXECUTE_TIME.recordSince(start);
         List<AionTxReceipt> receipts = summary.getReceipts();
 
         // Sanity checks
@@ -906,7 +1049,7 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return getRuntime().freeMemory() < (getRuntime().totalMemory() * (1 - maxMemoryPercents));
     }
 
-    private static byte[] calcReceiptsTrie(List<AionTxReceipt> receipts) {
+    static byte[] calcReceiptsTrie(List<AionTxReceipt> receipts) {
         Trie receiptsTrie = new TrieImpl(null);
 
         if (receipts == null || receipts.isEmpty()) {
@@ -1006,9 +1149,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
                 Map<Address, BigInteger> nonceCache = new HashMap<>();
 
-                if (txs.parallelStream().anyMatch(tx -> !TXValidator.isValid(tx))) {
-                    LOG.error("Some transactions in the block are invalid");
-                    return false;
+                for (boolean valid : TXValidator.isValid(txs)) {
+                    if (!valid) {
+                        LOG.error("Some transactions in the block are invalid");
+                        return false;
+                    }
                 }
 
                 for (AionTransaction tx : txs) {
@@ -1086,6 +1231,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
         List<AionTxExecSummary> summaries = new ArrayList<>();
         List<AionTransaction> transactions = new ArrayList<>();
 
+        if (txPreloader != null) {
+            txPreloader.preload(block, repository, repository.getRoot());
+        }
+
         long energyRemaining = block.getNrgLimit();
         for (AionTransaction tx : block.getTransactionsList()) {
             TransactionExecutor executor =
@@ -1125,6 +1274,10 @@ public class AionBlockchainImpl implements IAionBlockchain {
         List<AionTxReceipt> receipts = new ArrayList<>();
         List<AionTxExecSummary> summaries = new ArrayList<>();
 
+        if (txPreloader != null) {
+            txPreloader.preload(block, repository, repository.getRoot());
+        }
+
         for (AionTransaction tx : block.getTransactionsList()) {
             TransactionExecutor executor = new TransactionExecutor(tx, block, track, LOGGER_VM);
             executor.setExecutorProvider(AionExecutorProvider.getInstance());
@@ -1288,6 +1441,9 @@ public class AionBlockchainImpl implements IAionBlockchain {
 
     @Override
     public synchronized void close() {
+        if (txPreloader != null) {
+            txPreloader.shutdown();
+        }
         getBlockStore().close();
     }
 
@@ -1360,6 +1516,29 @@ public class AionBlockchainImpl implements IAionBlockchain {
         return headers;
     }
 
+    @Override
+    public List<byte[]> getListOfEncodedHeadersStartFrom(long blockNumber, int limit) {
+        if (blockNumber > bestBlock.getNumber()) {
+            return emptyList();
+        }
+
+        int qty = getQty(blockNumber, bestBlock.getNumber(), limit);
+
+        // the index lookup avoids decoding the last block
+        byte[] startHash = getBlockStore().getBlockHashByNumber(blockNumber + qty - 1);
+
+        if (startHash == null) {
+            return emptyList();
+        }
+
+        List<byte[]> headers = getBlockStore().getListEncodedHeadersEndWith(startHash, qty);
+
+        // blocks come with decreasing numbers
+        Collections.reverse(headers);
+
+        return headers;
+    }
+
     /**
      * Finds up to limit blocks starting from blockNumber on main chain
      *
@@ -1571,11 +1750,11 @@ public class AionBlockchainImpl implements IAionBlockchain {
         List<byte[]> bodies = new ArrayList<>(hashes.size());
 
         for (byte[] hash : hashes) {
-            AionBlock block = getBlockStore().getBlockByHash(hash);
+            byte[] block = getBlockStore().getEncodedBlockByHash(hash);
             if (block == null) {
                 break;
             }
-            bodies.add(block.getEncodedBody());
+            bodies.add(AionBlock.sliceEncodedBody(block));
         }
 
         return bodies;
@@ -52,6 +52,7 @@ import org.aion.zero.impl.blockchain.ChainConfiguration;
 import org.aion.zero.impl.config.CfgAion;
 import org.aion.zero.impl.core.IAionBlockchain;
 import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.db.BloomBitsIndexer;
 import org.aion.zero.impl.db.RecoveryUtils;
 import org.aion.zero.impl.pow.AionPoW;
 import org.aion.zero.impl.sync.SyncMgr;
@@ -61,9 +62,11 @@ import org.aion.zero.impl.sync.handler.BroadcastTxHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ReqBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ReqStatusHandler;
+import org.aion.zero.impl.sync.handler.ReqTrieDataHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksBodiesHandler;
 import org.aion.zero.impl.sync.handler.ResBlocksHeadersHandler;
 import org.aion.zero.impl.sync.handler.ResStatusHandler;
+import org.aion.zero.impl.sync.handler.ResTrieDataHandler;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
@@ -92,6 +95,8 @@ public class AionHub {
 
     private IEventMgr eventMgr;
 
+    private BloomBitsIndexer bloomBitsIndexer;
+
     private AionPoW pow;
 
     private AtomicBoolean start = new AtomicBoolean(true);
@@ -179,7 +184,8 @@ public class AionHub {
                         cfgNetP2p.getMaxTempNodes(),
                         cfgNetP2p.getMaxActiveNodes(),
                         cfgNetP2p.getBootlistSyncOnly(),
-                        cfgNetP2p.getErrorTolerance());
+                        cfgNetP2p.getErrorTolerance(),
+                        cfgNetP2p.useSelectorLoop());
 
         this.syncMgr = SyncMgr.inst();
         this.syncMgr.init(
@@ -188,7 +194,9 @@ public class AionHub {
                 eventMgr,
                 cfg.getSync().getBlocksQueueMax(),
                 cfg.getSync().getShowStatus(),
-                cfg.getSync().getShowStatistics());
+                cfg.getSync().getShowStatistics(),
+                cfg.getSync().getParallelDownload(),
+                cfg.getSync().getFastSync());
 
         ChainConfiguration chainConfig = new ChainConfiguration();
         this.propHandler =
@@ -209,6 +217,13 @@ public class AionHub {
 
         this.pow = new AionPoW();
         this.pow.init(blockchain, mempool, eventMgr);
+
+        if (!forTest) {
+            this.bloomBitsIndexer =
+                    new BloomBitsIndexer(
+                            this.repository.getBloomBitsIndex(), this.repository.getBlockStore());
+            this.bloomBitsIndexer.start(eventMgr, this.blockchain.getBestBlock());
+        }
     }
 
     static AionHub createForTesting(
@@ -233,6 +248,8 @@ public class AionHub {
         cbs.add(new ResBlocksHeadersHandler(syncLOG, syncMgr, p2pMgr));
         cbs.add(new ReqBlocksBodiesHandler(syncLOG, blockchain, syncMgr, p2pMgr, inSyncOnlyMode));
         cbs.add(new ResBlocksBodiesHandler(syncLOG, syncMgr, p2pMgr));
+        cbs.add(new ReqTrieDataHandler(syncLOG, repository, p2pMgr, inSyncOnlyMode));
+        cbs.add(new ResTrieDataHandler(syncLOG, syncMgr, p2pMgr));
         cbs.add(new BroadcastTxHandler(syncLOG, mempool, p2pMgr, inSyncOnlyMode));
         cbs.add(new BroadcastNewBlockHandler(syncLOG, propHandler, p2pMgr));
         this.p2pMgr.register(cbs);
@@ -249,7 +266,7 @@ public class AionHub {
 
         Properties prop = new Properties();
         // TODO : move module name to config file
-        prop.put(EventMgrModule.MODULENAME, "org.aion.evtmgr.impl.mgr.EventMgrA0");
+        prop.put(EventMgrModule.MODULENAME, "org.aion.evtmgr.impl.mgr.EventMgrRing");
         try {
             this.eventMgr = EventMgrModule.getSingleton(prop).getEventMgr();
         } catch (Exception e) {
@@ -517,6 +534,10 @@ public class AionHub {
         pow.shutdown();
         genLOG.info("shutdown consensus... Done!");
 
+        if (bloomBitsIndexer != null) {
+            bloomBitsIndexer.shutdown();
+        }
+
         if (repository != null) {
             genLOG.info("shutting down DB...");
             repository.close();
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.vm.types.Bloom;
+import org.aion.vm.TransactionExecutor;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.impl.vm.AionExecutorProvider;
+import org.aion.zero.types.A0BlockHeader;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.AionTxExecSummary;
+import org.aion.zero.types.AionTxReceipt;
+import org.slf4j.Logger;
+
+/**
+ * Builds mining block templates incrementally. The transactions executed for the current template
+ * are kept together with their state changes and receipts, so a refresh on the same parent only
+ * executes the transactions that arrived since. The template is rebuilt from scratch when the
+ * parent changes.
+ *
+ * <p>Execution happens against a snapshot of the parent state and is guarded by the monitor of
+ * the builder, so template refreshes never hold the blockchain lock during block imports. The
+ * snapshot is private: it keeps the updated contract details in memory, so the template never
+ * writes to the databases shared with block import.
+ */
+final class BlockTemplateBuilder {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.CONS.name());
+    private static final Logger LOGGER_VM = AionLoggerFactory.getLogger(LogEnum.VM.toString());
+
+    private final AionBlockchainImpl blockchain;
+    private final AionRepositoryImpl repository;
+
+    // the state of the current template, guarded by this
+    private AionBlock parent = null;
+    private AionBlock block;
+    private AionRepositoryImpl state;
+    private final List<AionTransaction> transactions = new ArrayList<>();
+    private final List<AionTxReceipt> receipts = new ArrayList<>();
+    private final Set<ByteArrayWrapper> included = new HashSet<>();
+    private long energyRemaining;
+    private long energyUsed;
+    private BigInteger transactionFee;
+
+    /**
+     * @param blockchain the chain providing the header rules and miner settings
+     * @param repository the main repository from which parent states are taken
+     */
+    BlockTemplateBuilder(AionBlockchainImpl blockchain, AionRepositoryImpl repository) {
+        this.blockchain = blockchain;
+        this.repository = repository;
+    }
+
+    /**
+     * Returns a template on top of the given parent that includes the transactions of the previous
+     * template followed by the given transactions that were not executed yet.
+     */
+    synchronized BlockContext build(AionBlock parent, List<AionTransaction> txs) {
+        if (this.parent == null || !Arrays.equals(this.parent.getHash(), parent.getHash())) {
+            reset(parent);
+        }
+
+        int executed = 0;
+        for (AionTransaction tx : txs) {
+            if (!included.contains(ByteArrayWrapper.wrap(tx.getHash()))) {
+                execute(tx);
+                executed++;
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Block template #{} executed {} new txs, {} included.",
+                    block.getNumber(),
+                    executed,
+                    transactions.size());
+        }
+        return seal();
+    }
+
+    /** Discards the current template and starts an empty one on top of the given parent. */
+    private void reset(AionBlock parent) {
+        this.parent = parent;
+        this.block =
+                blockchain.createUnsealedBlock(
+                        parent, new ArrayList<>(), false, System.currentTimeMillis() / 1000L);
+        this.state = repository.getPrivateSnapshotTo(parent.getStateRoot());
+        transactions.clear();
+        receipts.clear();
+        included.clear();
+        energyRemaining = block.getNrgLimit();
+        energyUsed = 0;
+        transactionFee = BigInteger.ZERO;
+    }
+
+    /** Executes the transaction and keeps its state changes only if it was not rejected. */
+    private void execute(AionTransaction tx) {
+        IRepositoryCache track = state.startTracking();
+        TransactionExecutor executor =
+                new TransactionExecutor(tx, block, track, false, energyRemaining, LOGGER_VM);
+        executor.setExecutorProvider(AionExecutorProvider.getInstance());
+        AionTxExecSummary summary = executor.execute();
+
+        if (summary.isRejected()) {
+            track.rollback();
+            return;
+        }
+        track.flush();
+
+        AionTxReceipt receipt = summary.getReceipt();
+        receipt.setPostTxState(state.getRoot());
+        receipt.setTransaction(tx);
+
+        transactions.add(tx);
+        receipts.add(receipt);
+        included.add(ByteArrayWrapper.wrap(tx.getHash()));
+        energyRemaining -= receipt.getEnergyUsed();
+        energyUsed += summary.getNrgUsed().longValueExact();
+        transactionFee = transactionFee.add(summary.getFee());
+    }
+
+    /**
+     * Seals a copy of the template. The miner reward is applied to obtain the state root and then
+     * reverted, so that later transactions execute on the state without it, as during import.
+     */
+    private BlockContext seal() {
+        byte[] root = state.getRoot();
+        Address coinbase = block.getCoinbase();
+        BigInteger reward =
+                blockchain
+                        .getChainConfiguration()
+                        .getRewardsCalculator()
+                        .calculateReward(block.getHeader());
+        boolean existed = state.hasAccountState(coinbase);
+
+        IRepositoryCache track = state.startTracking();
+        track.addBalance(coinbase, reward);
+        track.flush();
+        byte[] stateRoot = state.getRoot();
+
+        track = state.startTracking();
+        if (existed) {
+            track.addBalance(coinbase, reward.negate());
+        } else {
+            track.deleteAccount(coinbase);
+        }
+        track.flush();
+
+        if (!Arrays.equals(root, state.getRoot())) {
+            // cannot append to this state anymore, start over on the next refresh
+            LOG.warn("Block template state changed after reverting the reward, rebuilding.");
+            this.parent = null;
+        }
+
+        Bloom logBloom = new Bloom();
+        for (AionTxReceipt receipt : receipts) {
+            logBloom.or(receipt.getBloomFilter());
+        }
+
+        List<AionTransaction> txs = new ArrayList<>(transactions);
+        AionBlock template = new AionBlock(new A0BlockHeader(block.getHeader()), txs);
+        template.seal(
+                txs,
+                AionBlockchainImpl.calcTxTrie(txs),
+                stateRoot,
+                logBloom.getData(),
+                AionBlockchainImpl.calcReceiptsTrie(receipts),
+                energyUsed);
+        return new BlockContext(template, reward, transactionFee);
+    }
+}
@@ -141,6 +141,8 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
 
         private IRepositoryConfig repoConfig;
 
+        private boolean parallelTxPreload = false;
+
         public static final int INITIAL_ACC_LEN = 10;
         public static final BigInteger DEFAULT_BALANCE =
                 new BigInteger("1000000000000000000000000");
@@ -190,6 +192,12 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
             return this;
         }
 
+        /** Has no effect when a custom {@link A0BCConfig} is provided. */
+        public Builder withParallelTxPreload(boolean enabled) {
+            this.parallelTxPreload = enabled;
+            return this;
+        }
+
         public Builder withChainConfig(ChainConfiguration chainConfig) {
             if (this.validatorType != null) {
                 throw new IllegalArgumentException("cannot set chainConfig after setting type");
@@ -269,6 +277,11 @@ public class StandaloneBlockchain extends AionBlockchainImpl {
                                                     .getEnergyDivisorLimitLong(),
                                             10_000_000L);
                                 }
+
+                                @Override
+                                public boolean getParallelTxPreload() {
+                                    return parallelTxPreload;
+                                }
                             }
                             : this.a0Config;
 
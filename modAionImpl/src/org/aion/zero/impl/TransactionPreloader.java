@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.base.db.IRepository;
+import org.aion.base.type.Address;
+import org.aion.log.LogEnum;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.types.AionTransaction;
+import org.aion.zero.types.IAionBlock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Prepares the transactions of a block for execution by doing the work that does not depend on
+ * execution order on a pool of worker threads.
+ *
+ * <p>Transactions must still be executed one after another: the virtual machine is guarded by a
+ * global lock, every transaction pays its fee to the block coinbase and each receipt records the
+ * state root obtained after the transaction. What can be done concurrently is the recovery of the
+ * transaction senders and the reads of the accounts touched by the block. The reads go through
+ * independent snapshots of the repository at the given state root, so they take neither the
+ * repository lock nor the world state trie lock, and leave the trie nodes, account details and
+ * contract code in the database caches for the sequential execution that follows.
+ *
+ * <p>The preloading is read-only, hence the execution results (receipts, logs and state roots) are
+ * identical with and without it.
+ */
+public class TransactionPreloader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LogEnum.CONS.name());
+
+    /** Blocks with fewer transactions are executed directly. */
+    static final int MIN_TRANSACTIONS = 4;
+
+    private final ExecutorService workers;
+    private final int threads;
+
+    public TransactionPreloader(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+        this.threads = threads;
+
+        AtomicInteger count = new AtomicInteger(0);
+        this.workers =
+                Executors.newFixedThreadPool(
+                        threads,
+                        r -> {
+                            Thread t = new Thread(r, "tx-preload-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        });
+    }
+
+    /**
+     * Recovers the senders of all transactions in the block and loads the state of all the
+     * accounts they touch. Returns once all the workers are done.
+     *
+     * @param block the block about to be executed
+     * @param repository the repository against which the block will be executed
+     * @param stateRoot the state root on top of which the block will be executed
+     * @return the number of distinct accounts that were loaded
+     */
+    public int preload(IAionBlock block, AionRepositoryImpl repository, byte[] stateRoot) {
+        List<AionTransaction> txs = block.getTransactionsList();
+        if (txs.size() < MIN_TRANSACTIONS) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+
+        // stage 1: signature recovery, cached inside each transaction
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (List<AionTransaction> slice : partition(txs, threads)) {
+            tasks.add(
+                    () -> {
+                        for (AionTransaction tx : slice) {
+                            tx.getFrom();
+                            tx.getHash();
+                        }
+                        return null;
+                    });
+        }
+        if (!runAll(tasks)) {
+            return 0;
+        }
+
+        // stage 2: the accounts read during execution, in block order
+        Set<Address> accounts = new LinkedHashSet<>();
+        accounts.add(block.getCoinbase());
+        for (AionTransaction tx : txs) {
+            Address from = tx.getFrom();
+            if (from != null) {
+                accounts.add(from);
+            }
+            Address to = tx.isContractCreation() ? tx.getContractAddress() : tx.getTo();
+            if (to != null) {
+                accounts.add(to);
+            }
+        }
+
+        // stage 3: concurrent reads, each worker through its own snapshot
+        tasks.clear();
+        for (List<Address> slice : partition(new ArrayList<>(accounts), threads)) {
+            tasks.add(
+                    () -> {
+                        IRepository snapshot = repository.getSnapshotTo(stateRoot);
+                        for (Address address : slice) {
+                            if (snapshot.hasAccountState(address)) {
+                                snapshot.getCode(address);
+                            }
+                        }
+                        return null;
+                    });
+        }
+        if (!runAll(tasks)) {
+            return 0;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Preloaded {} accounts for {} transactions of block {} in {} ms.",
+                    accounts.size(),
+                    txs.size(),
+                    block.getNumber(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        return accounts.size();
+    }
+
+    /**
+     * Executes the given tasks and waits for all of them to complete. Failures are only logged
+     * since the preloading is an optimization, the execution itself reads everything it needs.
+     */
+    private boolean runAll(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> result : workers.invokeAll(tasks)) {
+                result.get();
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            LOG.warn("Transaction preloading failed.", e.getCause());
+            return false;
+        }
+    }
+
+    /** Splits the list into at most {@code count} contiguous slices of similar size. */
+    static <T> List<List<T>> partition(List<T> list, int count) {
+        List<List<T>> slices = new ArrayList<>(count);
+        int size = list.size();
+        int slice = (size + count - 1) / count;
+        for (int i = 0; i < size; i += slice) {
+            slices.add(list.subList(i, Math.min(size, i + slice)));
+        }
+        return slices;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -43,6 +43,7 @@ import org.aion.mcf.mine.IMineRunner;
 import org.aion.vm.TransactionExecutor;
 import org.aion.zero.impl.AionHub;
 import org.aion.zero.impl.config.CfgAion;
+import org.aion.zero.impl.db.AionRepositoryImpl;
 import org.aion.zero.impl.tx.TxCollector;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.vm.AionExecutorProvider;
@@ -151,8 +152,7 @@ public class AionImpl implements IAionChain {
             tx.sign(ECKeyFac.inst().fromPrivate(new byte[64]));
         }
 
-        IRepositoryCache repository =
-                aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
+        IRepositoryCache repository = getReadSnapshot(block.getStateRoot()).startTracking();
 
         try {
             TransactionExecutor executor =
@@ -171,8 +171,7 @@ public class AionImpl implements IAionChain {
             tx.sign(ECKeyFac.inst().fromPrivate(new byte[64]));
         }
 
-        IRepositoryCache repository =
-                aionHub.getRepository().getSnapshotTo(block.getStateRoot()).startTracking();
+        IRepositoryCache repository = getReadSnapshot(block.getStateRoot()).startTracking();
 
         try {
             TransactionExecutor executor =
@@ -202,6 +201,11 @@ public class AionImpl implements IAionChain {
         return snapshot;
     }
 
+    @Override
+    public IRepository<?, ?, ?> getReadSnapshot(byte[] root) {
+        return ((AionRepositoryImpl) aionHub.getRepository()).getReadSnapshot(root);
+    }
+
     @Override
     public List<AionTransaction> getWireTransactions() {
         return aionHub.getPendingState().getPendingTransactions();
@@ -290,11 +294,7 @@ public class AionImpl implements IAionChain {
             byte[] stateRoot =
                     this.aionHub.getBlockStore().getChainBlockByNumber(blockNumber).getStateRoot();
             AccountState account =
-                    (AccountState)
-                            this.aionHub
-                                    .getRepository()
-                                    .getSnapshotTo(stateRoot)
-                                    .getAccountState(address);
+                    (AccountState) getReadSnapshot(stateRoot).getAccountState(address);
 
             if (account == null) return Optional.empty();
 
@@ -312,11 +312,7 @@ public class AionImpl implements IAionChain {
             byte[] stateRoot =
                     this.aionHub.getBlockchain().getBlockByHash(blockHash).getStateRoot();
             AccountState account =
-                    (AccountState)
-                            this.aionHub
-                                    .getRepository()
-                                    .getSnapshotTo(stateRoot)
-                                    .getAccountState(address);
+                    (AccountState) getReadSnapshot(stateRoot).getAccountState(address);
 
             if (account == null) return Optional.empty();
 
@@ -332,11 +328,7 @@ public class AionImpl implements IAionChain {
         try {
             byte[] stateRoot = this.aionHub.getBlockchain().getBestBlock().getStateRoot();
             AccountState account =
-                    (AccountState)
-                            this.aionHub
-                                    .getRepository()
-                                    .getSnapshotTo(stateRoot)
-                                    .getAccountState(address);
+                    (AccountState) getReadSnapshot(stateRoot).getAccountState(address);
 
             if (account == null) return Optional.empty();
 
@@ -27,6 +27,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -46,6 +47,9 @@ import java.util.stream.Stream;
 import org.aion.base.Constant;
 import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
+import org.aion.base.metrics.Counter;
+import org.aion.base.metrics.Histogram;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.base.type.Address;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.FastByteComparisons;
@@ -111,6 +115,27 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
     private static final int MAX_VALIDATED_PENDING_TXS = 8192;
 
+    private static final Histogram ADMISSION_TIME =
+            MetricRegistry.getInstance()
+                    .timer(
+                            "aion_txpool_admission_seconds",
+                            "Time spent adding a list of transactions to the pending state.");
+    private static final Map<TxResponse, Counter> ADMISSION_RESPONSES =
+            new EnumMap<>(TxResponse.class);
+
+    static {
+        for (TxResponse response : TxResponse.values()) {
+            ADMISSION_RESPONSES.put(
+                    response,
+                    MetricRegistry.getInstance()
+                            .counter(
+                                    "aion_txpool_admission_total",
+                                    "Transactions given to the pending state by response.",
+                                    "response",
+                                    response.name().toLowerCase()));
+        }
+    }
+
     private final int MAX_TXCACHE_FLUSH_SIZE = MAX_VALIDATED_PENDING_TXS >> 2;
 
     private IAionBlockchain blockchain;
@@ -313,7 +338,9 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
 
             Properties prop = new Properties();
 
-            prop.put(TxPoolModule.MODULENAME, "org.aion.txpool.zero.TxPoolA0");
+            prop.put(
+                    TxPoolModule.MODULENAME,
+                    "org.aion.txpool.zero." + _cfgAion.getTx().getPoolImpl());
             // The BlockEnergyLimit will be updated when the best block found.
             prop.put(
                     ITxPool.PROP_BLOCK_NRG_LIMIT,
@@ -330,6 +357,11 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
                 LOGGER_TX.error("TxPoolModule getTxPool fail!", e);
             }
 
+            MetricRegistry.getInstance()
+                    .gauge(
+                            "aion_txpool_size",
+                            "Number of transactions in the pending pool.",
+                            this::getPendingTxSize);
         } else {
             LOGGER_TX.info("Seed mode is enable");
         }
@@ -454,11 +486,27 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     @Override
     public synchronized List<TxResponse> addPendingTransactions(
             List<AionTransaction> transactions) {
+        long start = System.nanoTime();
+        List<TxResponse> txResponses = addPendingTransactionsInternal(transactions);
+        ADMISSION_TIME.recordSince(start);
+
+        for (TxResponse response : txResponses) {
+            ADMISSION_RESPONSES.get(response).inc();
+        }
+        return txResponses;
+    }
+
+    private List<TxResponse> addPendingTransactionsInternal(List<AionTransaction> transactions) {
 
         if ((isSeed || !closeToNetworkBest) && !loadPendingTx) {
             return seedProcess(transactions);
         }
 
+        if (transactions.size() > 1) {
+            // verify the signatures as a batch, the results are cached for the checks below
+            TXValidator.isValid(transactions);
+        }
+
         List<AionTransaction> newPending = new ArrayList<>();
         List<AionTransaction> newLargeNonceTx = new ArrayList<>();
         List<TxResponse> txResponses = new ArrayList<>();
@@ -628,8 +676,10 @@ public class AionPendingStateImpl implements IPendingStateInternal<AionBlock, Ai
     private List<TxResponse> seedProcess(List<AionTransaction> transactions) {
         List<AionTransaction> newTx = new ArrayList<>();
         List<TxResponse> txResponses = new ArrayList<>();
-        for (AionTransaction tx : transactions) {
-            if (TXValidator.isValid(tx)) {
+        boolean[] valid = TXValidator.isValid(transactions);
+        for (int i = 0; i < transactions.size(); i++) {
+            AionTransaction tx = transactions.get(i);
+            if (valid[i]) {
                 newTx.add(tx);
                 txResponses.add(TxResponse.SUCCESS);
             } else {
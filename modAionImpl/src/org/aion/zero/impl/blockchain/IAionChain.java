@@ -56,6 +56,15 @@ public interface IAionChain extends IChainInstancePOW, QueryInterface {
 
     IRepository<?, ?, ?> getSnapshotTo(byte[] root);
 
+    /**
+     * Retrieves a read-only view of a committed state for answering queries without contending
+     * with block import.
+     *
+     * @param root the state root of a stored block
+     * @return the shared read-only view of the state at the given root
+     */
+    IRepository<?, ?, ?> getReadSnapshot(byte[] root);
+
     List<AionTransaction> getWireTransactions();
 
     List<AionTransaction> getPendingStateTransactions();
@@ -160,6 +160,21 @@ public class Arguments {
             description = "if using leveldb, it triggers its database compaction processes")
     private boolean dbCompact;
 
+    @Option(
+            names = {"--check-flat-state"},
+            description = "verifies the flat state against the state trie of the best block")
+    private boolean checkFlatState;
+
+    @Option(
+            names = {"--build-bloom-bits"},
+            description = "builds the missing sections of the log bloom index used by eth_getLogs")
+    private boolean buildBloomBits;
+
+    @Option(
+            names = {"--migrate-block-segments"},
+            description = "moves the finalized blocks from the block database to the block segments")
+    private boolean migrateBlockSegments;
+
     /** Compacts the account options into specific commands. */
     public static String[] preProcess(String[] arguments) {
         List<String> list = new ArrayList<>();
@@ -259,4 +274,16 @@ public class Arguments {
     public boolean isDbCompact() {
         return dbCompact;
     }
+
+    public boolean isCheckFlatState() {
+        return checkFlatState;
+    }
+
+    public boolean isBuildBloomBits() {
+        return buildBloomBits;
+    }
+
+    public boolean isMigrateBlockSegments() {
+        return migrateBlockSegments;
+    }
 }
@@ -101,7 +101,10 @@ public class Cli {
         DUMP_STATE_SIZE,
         DUMP_STATE,
         DUMP_BLOCKS,
-        DB_COMPACT
+        DB_COMPACT,
+        CHECK_FLAT_STATE,
+        BUILD_BLOOM_BITS,
+        MIGRATE_BLOCK_SEGMENTS
     }
 
     @SuppressWarnings("ResultOfMethodCallIgnored")
@@ -446,6 +449,21 @@ public class Cli {
                 return EXIT;
             }
 
+            if (options.isCheckFlatState()) {
+                RecoveryUtils.checkFlatState();
+                return EXIT;
+            }
+
+            if (options.isBuildBloomBits()) {
+                RecoveryUtils.buildBloomBits();
+                return EXIT;
+            }
+
+            if (options.isMigrateBlockSegments()) {
+                RecoveryUtils.migrateBlockSegments();
+                return EXIT;
+            }
+
             // if no return happened earlier, run the kernel
             return RUN;
         } catch (Exception e) {
@@ -841,6 +859,15 @@ public class Cli {
         if (options.isDbCompact()) {
             return TaskPriority.DB_COMPACT;
         }
+        if (options.isCheckFlatState()) {
+            return TaskPriority.CHECK_FLAT_STATE;
+        }
+        if (options.isBuildBloomBits()) {
+            return TaskPriority.BUILD_BLOOM_BITS;
+        }
+        if (options.isMigrateBlockSegments()) {
+            return TaskPriority.MIGRATE_BLOCK_SEGMENTS;
+        }
         return TaskPriority.NONE;
     }
 
@@ -914,6 +941,18 @@ public class Cli {
         if (breakingTaskPriority.compareTo(TaskPriority.DB_COMPACT) < 0 && options.isDbCompact()) {
             skippedTasks.add("--db-compact");
         }
+        if (breakingTaskPriority.compareTo(TaskPriority.CHECK_FLAT_STATE) < 0
+                && options.isCheckFlatState()) {
+            skippedTasks.add("--check-flat-state");
+        }
+        if (breakingTaskPriority.compareTo(TaskPriority.BUILD_BLOOM_BITS) < 0
+                && options.isBuildBloomBits()) {
+            skippedTasks.add("--build-bloom-bits");
+        }
+        if (breakingTaskPriority.compareTo(TaskPriority.MIGRATE_BLOCK_SEGMENTS) < 0
+                && options.isMigrateBlockSegments()) {
+            skippedTasks.add("--migrate-block-segments");
+        }
         return skippedTasks;
     }
 
@@ -43,6 +43,12 @@ public interface IAionBlockchain
     BlockContext createNewBlockContext(
             AionBlock parent, List<AionTransaction> transactions, boolean waitUntilBlockTime);
 
+    /**
+     * Creates a block template for mining, reusing the transactions already executed for the
+     * previous template on the same parent.
+     */
+    AionBlock createNewBlockTemplate(AionBlock parent, List<AionTransaction> transactions);
+
     AionBlock getBestBlock();
 
     AionBlock getBlockByNumber(long num);
@@ -61,6 +67,15 @@ public interface IAionBlockchain
      */
     boolean recoverIndexEntry(IRepository repository, AionBlock block);
 
+    /**
+     * Returns up to limit encoded headers of the main chain starting from the given block number
+     * without decoding the blocks.
+     *
+     * @return the encoded headers ordered by increasing block number or an empty list if the
+     *     block number is not on the main chain
+     */
+    List<byte[]> getListOfEncodedHeadersStartFrom(long blockNumber, int limit);
+
     /**
      * Heuristic for skipping the call to tryToConnect with very large or very small block number.
      */
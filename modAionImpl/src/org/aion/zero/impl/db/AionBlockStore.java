@@ -39,6 +39,7 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -67,8 +68,26 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /** Maximum size of the encoded blocks kept in memory for serving peers. */
+    private static final long ENCODED_BLOCK_CACHE_SIZE = 32L * 1024 * 1024;
+
+    /**
+     * Number of levels below the best block after which main chain blocks are considered final
+     * and moved to the segment store.
+     */
+    public static final long FINALITY_DEPTH = 256;
+
+    /** Maximum number of blocks moved to the segment store by a single flush. */
+    private static final int MAX_FINALIZED_PER_FLUSH = 10_000;
+
     private DataSourceArray<List<BlockInfo>> index;
     private ObjectDataSource<AionBlock> blocks;
+    private IByteArrayKeyValueDatabase blocksDatabase;
+    private final EncodedBlockCache encodedBlocks = new EncodedBlockCache(ENCODED_BLOCK_CACHE_SIZE);
+
+    // Storage for the finalized main chain blocks, null when disabled.
+    private BlockSegmentStore segments;
+    private long finalityDepth = FINALITY_DEPTH;
 
     private boolean checkIntegrity = true;
 
@@ -88,10 +107,32 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         this.checkIntegrity = checkIntegrity;
     }
 
+    /**
+     * Creates a block store that keeps the main chain blocks deeper than the given finality depth
+     * in the segment store instead of the blocks database.
+     *
+     * @param segments the storage for the finalized blocks, or {@code null} to keep all the blocks
+     *     in the blocks database
+     * @param finalityDepth the number of levels below the best block after which the main chain
+     *     blocks are moved to the segment store
+     */
+    public AionBlockStore(
+            IByteArrayKeyValueDatabase index,
+            IByteArrayKeyValueDatabase blocks,
+            boolean checkIntegrity,
+            BlockSegmentStore segments,
+            long finalityDepth) {
+        this(index, blocks, checkIntegrity);
+        this.segments = segments;
+        this.finalityDepth = finalityDepth;
+    }
+
     private void init(IByteArrayKeyValueDatabase index, IByteArrayKeyValueDatabase blocks) {
 
         this.index = new DataSourceArray<>(new ObjectDataSource<>(index, BLOCK_INFO_SERIALIZER));
 
+        this.blocksDatabase = blocks;
+
         this.blocks =
                 new ObjectDataSource<>(
                         blocks,
@@ -140,6 +181,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             if (blockNumber < 0L || blockNumber >= index.size()) {
                 return null;
             }
+            if (isFinalized(blockNumber)) {
+                return segments.getHash(blockNumber);
+            }
 
             List<BlockInfo> blockInfos = index.get(blockNumber);
 
@@ -159,6 +203,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     public void flush() {
         lock.writeLock().lock();
         try {
+            if (segments != null) {
+                finalizeBlocks(MAX_FINALIZED_PER_FLUSH);
+            }
             blocks.flush();
             index.flush();
         } finally {
@@ -166,6 +213,109 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         }
     }
 
+    /**
+     * Moves the main chain blocks deeper than the finality depth from the blocks database to the
+     * segment store. Used to migrate an existing database.
+     *
+     * @param maxBlocks the maximum number of blocks to move
+     * @return the number of blocks moved, which is zero when all the final blocks are already in
+     *     the segment store
+     */
+    public long moveFinalizedBlocks(int maxBlocks) {
+        if (segments == null) {
+            return 0;
+        }
+
+        lock.writeLock().lock();
+        try {
+            long moved = finalizeBlocks(maxBlocks);
+            blocks.flush();
+            return moved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** @return the number of blocks in the segment store */
+    public long getFinalizedBlockCount() {
+        return segments == null ? 0 : segments.size();
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private long finalizeBlocks(int maxBlocks) {
+        long last = index.size() - 1 - finalityDepth;
+        long number = segments.size();
+
+        List<byte[]> moved = new ArrayList<>();
+        while (number <= last && moved.size() < maxBlocks) {
+            byte[] hash = getBlockHashByNumber(number);
+            byte[] encoded = hash == null ? null : blocksDatabase.get(hash).orElse(null);
+            if (encoded == null) {
+                LOG.error(
+                        "Missing main chain block at level {}. Cannot move further blocks to the segment store.",
+                        number);
+                break;
+            }
+            segments.append(number, hash, encoded);
+            moved.add(hash);
+            number++;
+        }
+
+        if (!moved.isEmpty()) {
+            // the blocks are deleted only after they are safely stored in the segments
+            segments.flush();
+            blocksDatabase.deleteBatch(moved);
+            LOG.debug(
+                    "Moved {} blocks to the segment store up to level {}.",
+                    moved.size(),
+                    number - 1);
+        }
+        return moved.size();
+    }
+
+    /**
+     * Moves the finalized blocks starting at the given level back to the blocks database. Must be
+     * called before changing the main chain at finalized levels.
+     *
+     * @implNote The method calling this method must handle the locking.
+     */
+    private void unfinalize(long level) {
+        if (segments == null || level >= segments.size()) {
+            return;
+        }
+        level = Math.max(level, 0);
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (long number = level; number < segments.size(); number++) {
+            batch.put(segments.getHash(number), segments.get(number));
+        }
+        blocksDatabase.putBatch(batch);
+        blocks.flush();
+
+        segments.truncate(level);
+        LOG.info(
+                "Moved {} finalized blocks from level {} back to the blocks database.",
+                batch.size(),
+                level);
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private boolean isFinalized(long number) {
+        return segments != null && number < segments.size();
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private AionBlock getBlockInner(byte[] hash) {
+        AionBlock block = blocks.get(hash);
+        if (block == null && segments != null) {
+            byte[] encoded = segments.get(hash);
+            if (encoded != null) {
+                block = new AionBlock(encoded);
+            }
+        }
+        return block;
+    }
+
     @Override
     public void saveBlock(AionBlock block, BigInteger cummDifficulty, boolean mainChain) {
         lock.writeLock().lock();
@@ -220,7 +370,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             for (BlockInfo blockInfo : blockInfos) {
 
                 byte[] hash = blockInfo.getHash();
-                AionBlock block = blocks.get(hash);
+                AionBlock block = getBlockInner(hash);
 
                 result.add(
                         Map.entry(
@@ -243,6 +393,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             if (number < 0L || number >= size) {
                 return null;
             }
+            if (isFinalized(number)) {
+                return new AionBlock(segments.get(number));
+            }
 
             List<BlockInfo> blockInfos = index.get(number);
 
@@ -253,7 +406,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             for (BlockInfo blockInfo : blockInfos) {
                 if (blockInfo.isMainChain()) {
                     byte[] hash = blockInfo.getHash();
-                    return blocks.get(hash);
+                    return getBlockInner(hash);
                 }
             }
 
@@ -278,7 +431,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             for (BlockInfo blockInfo : blockInfos) {
                 if (blockInfo.isMainChain()) {
                     byte[] hash = blockInfo.getHash();
-                    return Map.entry(blocks.get(hash), blockInfo.getCummDifficulty());
+                    return Map.entry(getBlockInner(hash), blockInfo.getCummDifficulty());
                 }
             }
 
@@ -292,10 +445,64 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     public AionBlock getBlockByHash(byte[] hash) {
         lock.readLock().lock();
         try {
-            return blocks.get(hash);
+            return getBlockInner(hash);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retrieves the encoding of the block with the given hash without decoding it. Recently
+     * requested encodings are served from memory and finalized blocks are copied directly out of
+     * the segment store.
+     *
+     * @param hash the hash of the block
+     * @return the block encoding, as returned by {@link AionBlock#getEncoded()}, or {@code null}
+     *     if the block is not stored
+     */
+    public byte[] getEncodedBlockByHash(byte[] hash) {
+        byte[] encoded = encodedBlocks.get(hash);
+        if (encoded != null) {
+            return encoded;
+        }
+
+        lock.readLock().lock();
+        try {
+            encoded = blocksDatabase.get(hash).orElse(null);
+            if (encoded == null && segments != null) {
+                encoded = segments.get(hash);
+            }
         } finally {
             lock.readLock().unlock();
         }
+        if (encoded != null) {
+            encodedBlocks.put(hash, encoded);
+        }
+        return encoded;
+    }
+
+    /**
+     * Retrieves the encoded headers of the block with the given hash and its ancestors without
+     * decoding the blocks.
+     *
+     * @param hash the hash of the last block
+     * @param qty the maximum number of headers
+     * @return the encoded headers ordered by decreasing block number
+     */
+    public List<byte[]> getListEncodedHeadersEndWith(byte[] hash, long qty) {
+        List<byte[]> headers = new ArrayList<>((int) qty);
+
+        for (int i = 0; i < qty && hash != null; ++i) {
+            byte[] block = getEncodedBlockByHash(hash);
+            if (block == null) {
+                break;
+            }
+            byte[] header = AionBlock.sliceEncodedHeader(block);
+            headers.add(header);
+            hash = AionBlock.sliceParentHash(header);
+        }
+
+        return headers;
     }
 
     @Override
@@ -419,7 +626,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
     /** @implNote The method calling this method must handle the locking. */
     private List<AionBlock> getListBlocksEndWithInner(byte[] hash, long qty) {
         // locks acquired by calling method
-        AionBlock block = this.blocks.get(hash);
+        AionBlock block = getBlockInner(hash);
 
         if (block == null) {
             return new ArrayList<>();
@@ -429,7 +636,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
         for (int i = 0; i < qty; ++i) {
             blocks.add(block);
-            block = this.blocks.get(block.getParentHash());
+            block = getBlockInner(block.getParentHash());
             if (block == null) {
                 break;
             }
@@ -497,7 +704,10 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             }
 
             // 2. Loop back on each level until common block
-            loopBackToCommonBlock(bestLine, forkLine);
+            long commonLevel = loopBackToCommonBlock(bestLine, forkLine);
+
+            // 3. The main chain changed above the common block
+            unfinalize(commonLevel + 1);
 
             logBranchingDetails();
 
@@ -531,13 +741,16 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         preBranchingBlk.clear();
     }
 
-    /** @implNote The method calling this method must handle the locking. */
-    private void loopBackToCommonBlock(IAionBlock bestLine, IAionBlock forkLine) {
+    /**
+     * @return the level of the common block
+     * @implNote The method calling this method must handle the locking.
+     */
+    private long loopBackToCommonBlock(IAionBlock bestLine, IAionBlock forkLine) {
         long currentLevel = bestLine.getNumber();
 
         if (forkLine.getNumber() != currentLevel) {
             LOG.error("Illegal parameters for loopBackToCommonBlock method.");
-            return;
+            return currentLevel;
         }
 
         while (!bestLine.isEqual(forkLine)) {
@@ -584,6 +797,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                     forkLine.getNumber(),
                     Hex.toHexString(forkLine.getHash()));
         }
+        return currentLevel;
     }
 
     @Override
@@ -600,6 +814,9 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 return;
             }
 
+            // the reverted blocks are deleted from the blocks database
+            unfinalize(previousLevel + 1);
+
             // walk back removing blocks greater than the given level value
             IAionBlock bestLine = bestBlock;
             while (currentLevel > previousLevel) {
@@ -608,6 +825,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 List<BlockInfo> currentLevelBlocks = getBlockInfoForLevel(currentLevel);
                 if (currentLevelBlocks == null || currentLevelBlocks.size() == 0) {
                     blocks.delete(bestLine.getHash());
+                    encodedBlocks.remove(bestLine.getHash());
                     LOG.error(
                             "Null block information found at "
                                     + currentLevel
@@ -615,6 +833,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                 } else {
                     for (BlockInfo bk_info : currentLevelBlocks) {
                         blocks.delete(bk_info.getHash());
+                        encodedBlocks.remove(bk_info.getHash());
                     }
                 }
 
@@ -672,7 +891,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
 
                     // 2. Loop back on each level until common block
                     IAionBlock forkLine = getBlockByHash(maxTDInfo.getHash());
-                    loopBackToCommonBlock(bestLine, forkLine);
+                    unfinalize(loopBackToCommonBlock(bestLine, forkLine) + 1);
                 }
             }
         } finally {
@@ -747,6 +966,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
         // deleting incorrect parallel blocks
         for (BlockInfo wrongBlock : levelBlocks) {
             blocks.delete(wrongBlock.getHash());
+            encodedBlocks.remove(wrongBlock.getHash());
         }
 
         // set new block info with total difficulty = block difficulty
@@ -954,6 +1174,7 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
                             currentBlock.getNumber());
 
                     // fix the info for the current block
+                    unfinalize(currentBlock.getNumber());
                     infos.remove(thisBlockInfo);
                     thisBlockInfo.setMainChain(true);
                     infos.add(thisBlockInfo);
@@ -1316,7 +1537,15 @@ public class AionBlockStore extends AbstractPowBlockstore<AionBlock, A0BlockHead
             } catch (Exception e) {
                 LOG.error("Not able to close the blocks database:", e);
             } finally {
-                lock.writeLock().unlock();
+                try {
+                    if (segments != null) {
+                        segments.close();
+                    }
+                } catch (Exception e) {
+                    LOG.error("Not able to close the block segments:", e);
+                } finally {
+                    lock.writeLock().unlock();
+                }
             }
         }
     }
@@ -25,32 +25,55 @@ package org.aion.zero.impl.db;
 
 import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.aion.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.aion.crypto.HashUtil.h256;
 import static org.aion.zero.impl.AionHub.INIT_ERROR_EXIT_CODE;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.File;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
+import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.db.IContractDetails;
 import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryCache;
 import org.aion.base.db.IRepositoryConfig;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.Hex;
 import org.aion.base.vm.IDataWord;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.aion.mcf.config.CfgDb.Names;
 import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.AbstractRepository;
+import org.aion.mcf.db.BloomBitsIndex;
 import org.aion.mcf.db.ContractDetailsCacheImpl;
+import org.aion.mcf.db.FlatStateStore;
 import org.aion.mcf.db.TransactionStore;
+import org.aion.mcf.trie.ImmutableTrie;
+import org.aion.mcf.trie.NodeCache;
 import org.aion.mcf.trie.SecureTrie;
 import org.aion.mcf.trie.Trie;
+import org.aion.mcf.trie.TrieImpl;
+import org.aion.rlp.Value;
+import org.aion.mcf.vm.types.DataWord;
+import org.aion.mcf.vm.types.DoubleDataWord;
+import org.aion.zero.db.AionContractDetailsImpl;
 import org.aion.zero.db.AionRepositoryCache;
 import org.aion.zero.impl.config.CfgAion;
+import org.aion.zero.impl.sync.DatabaseType;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.impl.types.AionTxInfo;
 import org.aion.zero.types.A0BlockHeader;
@@ -66,6 +89,31 @@ public class AionRepositoryImpl
     // pending block store
     private PendingBlockStore pendingStore;
 
+    // root of the world state as seen by the flat state, maintained only when it is enabled
+    private byte[] flatStateRoot = EMPTY_TRIE_HASH;
+
+    // maximum number of read snapshots kept for reuse
+    private static final int READ_SNAPSHOT_COUNT = 16;
+
+    // read snapshots of recently queried roots, null for snapshots
+    private Cache<ByteArrayWrapper, AionRepositoryImpl> readSnapshots;
+
+    // lock-free view of the world state, set only for read snapshots
+    private ImmutableTrie stateView;
+
+    // contract details updated through a private snapshot, kept out of the shared details data
+    // store; null for the repository and the snapshots writing through to it
+    private Map<ByteArrayWrapper, IContractDetails<IDataWord>> snapshotDetails;
+
+    // prunes the state and extracts the archived states in the background, null if pruning is
+    // disabled
+    private StatePruner pruner;
+
+    // marks the details index as complete, cannot collide with the 32 byte address hashes
+    private static final byte[] DETAILS_INDEXED_KEY = "detailsIndexed".getBytes();
+    // number of addresses written at once while building the details index
+    private static final int DETAILS_INDEX_BATCH = 10_000;
+
     /**
      * used by getSnapShotTo
      *
@@ -76,6 +124,7 @@ public class AionRepositoryImpl
 
     protected AionRepositoryImpl(IRepositoryConfig repoConfig) {
         this.cfg = repoConfig;
+        this.readSnapshots = CacheBuilder.newBuilder().maximumSize(READ_SNAPSHOT_COUNT).build();
         init();
     }
 
@@ -102,6 +151,7 @@ public class AionRepositoryImpl
     private void init() {
         try {
             initializeDatabasesAndCaches();
+            indexContractDetails();
 
             // Setup the cache for transaction data source.
             this.transactionStore =
@@ -109,12 +159,55 @@ public class AionRepositoryImpl
                             transactionDatabase, AionTransactionStoreSerializer.serializer);
 
             // Setup block store.
-            this.blockStore = new AionBlockStore(indexDatabase, blockDatabase, checkIntegrity);
+            BlockSegmentStore blockSegments = null;
+            File segmentsDir = new File(cfg.getDbPath(), Names.BLOCK_SEGMENTS);
+            if (Boolean.valueOf(
+                    cfg.getDatabaseConfig(Names.DEFAULT).getProperty(Props.BLOCK_SEGMENTS))) {
+                blockSegments = new BlockSegmentStore(segmentsDir);
+                LOGGEN.info("Block segments ENABLED.");
+            } else if (BlockSegmentStore.containsBlocks(segmentsDir)) {
+                // the finalized blocks are no longer in the block database
+                LOGGEN.error(
+                        "The database at {} keeps finalized blocks in {}. "
+                                + "Block segments cannot be disabled for this database.",
+                        cfg.getDbPath(),
+                        segmentsDir);
+                throw new IllegalStateException("Block segments disabled for " + segmentsDir);
+            }
+            this.blockStore =
+                    new AionBlockStore(
+                            indexDatabase,
+                            blockDatabase,
+                            checkIntegrity,
+                            blockSegments,
+                            AionBlockStore.FINALITY_DEPTH);
 
             this.pendingStore = new PendingBlockStore(pendingStoreProperties);
 
             // Setup world trie.
             worldState = createStateTrie();
+
+            if (pruneEnabled) {
+                pruner = new StatePruner(stateDSPrune, detailsDS.getStorageDSPrune(), blockStore);
+
+                MetricRegistry metrics = MetricRegistry.getInstance();
+                metrics.gauge(
+                        "aion_prune_backlog_blocks",
+                        "Blocks waiting for their state changes to be pruned.",
+                        pruner::getBacklog);
+                metrics.gauge(
+                        "aion_prune_journal_blocks",
+                        "Blocks with state changes kept in the prune journal.",
+                        stateDSPrune::getJournalSize);
+                metrics.gauge(
+                        "aion_prune_refcount_bytes",
+                        "Estimated heap used by the reference counts of the prune journal.",
+                        stateDSPrune::getRefCountFootprint);
+                metrics.gauge(
+                        "aion_prune_refcount_entries",
+                        "Keys with reference counts tracked by the prune journal.",
+                        stateDSPrune::getRefCountSize);
+            }
         } catch (Exception e) {
             LOGGEN.error("Shutdown due to failure to initialize repository.");
             // the above message does not get logged without the printStackTrace below
@@ -140,9 +233,17 @@ public class AionRepositoryImpl
     public void updateBatch(
             Map<Address, AccountState> stateCache,
             Map<Address, IContractDetails<IDataWord>> detailsCache) {
+        if (stateView != null) {
+            throw new UnsupportedOperationException("Read snapshots cannot be updated.");
+        }
         rwLock.writeLock().lock();
 
         try {
+            Map<ByteArrayWrapper, byte[]> flatChanges =
+                    flatState == null ? null : new HashMap<>();
+            // account updates applied to the world state in a single batch
+            Map<ByteArrayWrapper, byte[]> stateUpdates = new HashMap<>();
+
             for (Map.Entry<Address, AccountState> entry : stateCache.entrySet()) {
                 Address address = entry.getKey();
                 AccountState accountState = entry.getValue();
@@ -156,6 +257,10 @@ public class AionRepositoryImpl
                         LOG.error("key deleted exception [{}]", e.toString());
                     }
                     LOG.debug("key deleted <key={}>", Hex.toHexString(address.toBytes()));
+
+                    if (flatChanges != null) {
+                        flatChanges.put(address.toByteArrayWrapper(), EMPTY_BYTE_ARRAY);
+                    }
                 } else {
 
                     if (!contractDetails.isDirty()) {
@@ -164,7 +269,13 @@ public class AionRepositoryImpl
                         // TODO: issue above will be solved with the conversion to a
                         // ContractState class
                         if (accountState.isDirty()) {
-                            updateAccountState(address, accountState);
+                            stateUpdates.put(
+                                    address.toByteArrayWrapper(), accountState.getEncoded());
+
+                            if (flatChanges != null) {
+                                flatChanges.put(
+                                        address.toByteArrayWrapper(), accountState.getEncoded());
+                            }
 
                             if (LOG.isTraceEnabled()) {
                                 LOG.trace(
@@ -202,7 +313,11 @@ public class AionRepositoryImpl
                         accountState.setStateRoot(contractDetails.getStorageHash());
                     }
 
-                    updateAccountState(address, accountState);
+                    stateUpdates.put(address.toByteArrayWrapper(), accountState.getEncoded());
+
+                    if (flatChanges != null) {
+                        flatChanges.put(address.toByteArrayWrapper(), accountState.getEncoded());
+                    }
 
                     if (LOG.isTraceEnabled()) {
                         LOG.trace(
@@ -215,6 +330,16 @@ public class AionRepositoryImpl
                 }
             }
 
+            worldState.updateBatch(stateUpdates);
+
+            if (flatChanges != null) {
+                byte[] rootBefore = flatStateRoot;
+                flatStateRoot = worldState.getRootHash();
+                if (!isSnapshot) {
+                    flatState.update(rootBefore, flatStateRoot, flatChanges);
+                }
+            }
+
             LOG.trace("updated: detailsCache.size: {}", detailsCache.size());
             stateCache.clear();
             detailsCache.clear();
@@ -227,7 +352,48 @@ public class AionRepositoryImpl
     private void updateContractDetails(
             final Address address, final IContractDetails<IDataWord> contractDetails) {
         // locked by calling method
+        if (snapshotDetails != null) {
+            // speculative changes must not overwrite the details written by block import
+            contractDetails.setAddress(address);
+            snapshotDetails.put(address.toByteArrayWrapper(), contractDetails);
+            return;
+        }
         detailsDS.update(address, contractDetails);
+        detailsIndexDatabase.put(h256(address.toBytes()), address.toBytes());
+    }
+
+    /**
+     * Indexes the addresses of the contract details stored before the index existed. The index is
+     * built only once; afterwards it is kept up to date by {@link #updateContractDetails}.
+     */
+    private void indexContractDetails() {
+        if (detailsIndexDatabase.get(DETAILS_INDEXED_KEY).isPresent()) {
+            return;
+        }
+
+        long count = 0;
+        Map<byte[], byte[]> batch = new HashMap<>();
+        try (IByteArrayKeyValueIterator itr = detailsDatabase.iterator()) {
+            while (itr.hasNext()) {
+                byte[] address = itr.next().getKey();
+                batch.put(h256(address), address);
+                if (batch.size() >= DETAILS_INDEX_BATCH) {
+                    detailsIndexDatabase.putBatch(batch);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        batch.put(DETAILS_INDEXED_KEY, new byte[] {1});
+        detailsIndexDatabase.putBatch(batch);
+        count += batch.size() - 1;
+        if (!detailsIndexDatabase.isAutoCommitEnabled()) {
+            detailsIndexDatabase.commit();
+        }
+
+        if (count > 0) {
+            LOGGEN.info("Indexed the addresses of {} stored contracts.", count);
+        }
     }
 
     @Override
@@ -246,9 +412,20 @@ public class AionRepositoryImpl
             LOG.info("flush all databases");
 
             if (databaseGroup != null) {
-                for (IByteArrayKeyValueDatabase db : databaseGroup) {
-                    if (!db.isAutoCommitEnabled()) {
-                        db.commit();
+                // the pruner updates the state and storage databases from its own thread
+                Lock pruneLock = pruner == null ? null : pruner.getLock();
+                if (pruneLock != null) {
+                    pruneLock.lock();
+                }
+                try {
+                    for (IByteArrayKeyValueDatabase db : databaseGroup) {
+                        if (!db.isAutoCommitEnabled()) {
+                            db.commit();
+                        }
+                    }
+                } finally {
+                    if (pruneLock != null) {
+                        pruneLock.unlock();
                     }
                 }
             } else {
@@ -256,6 +433,15 @@ public class AionRepositoryImpl
             }
 
             LOG.info("RepositoryImpl.flush took " + (System.currentTimeMillis() - s) + " ms");
+            if (LOG.isDebugEnabled()) {
+                if (stateDSPrune.getNodeCache() != null) {
+                    LOG.debug(stateDSPrune.getNodeCache().toString());
+                }
+                LOG.debug(rwLock.toString());
+                if (flatState != null) {
+                    LOG.debug(flatState.toString());
+                }
+            }
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -291,6 +477,7 @@ public class AionRepositoryImpl
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            moveFlatState(root);
         } finally {
             rwLock.writeLock().unlock();
         }
@@ -318,6 +505,33 @@ public class AionRepositoryImpl
 
     @Override
     public IDataWord getStorageValue(Address address, IDataWord key) {
+        if (flatState != null) {
+            AccountState account = getAccountState(address);
+            if (account != null) {
+                byte[] storageRoot = account.getStateRoot();
+                byte[] flat = flatState.getStorage(address.toBytes(), storageRoot, key.getData());
+
+                if (flat == null) {
+                    IDataWord value = getStorageValueFromDetails(address, key);
+                    flatState.putStorage(
+                            address.toBytes(),
+                            storageRoot,
+                            key.getData(),
+                            value == null ? EMPTY_BYTE_ARRAY : value.getData());
+                    return value;
+                } else if (flat.length == 0) {
+                    return null;
+                } else {
+                    return flat.length == DoubleDataWord.BYTES
+                            ? new DoubleDataWord(flat)
+                            : new DataWord(flat);
+                }
+            }
+        }
+        return getStorageValueFromDetails(address, key);
+    }
+
+    private IDataWord getStorageValueFromDetails(Address address, IDataWord key) {
         IContractDetails<IDataWord> details = getContractDetails(address);
         IDataWord value = (details == null) ? null : details.get(key);
         if (value == null) {
@@ -331,12 +545,9 @@ public class AionRepositoryImpl
 
         List<byte[]> rtn = new ArrayList<>();
         rwLock.readLock().lock();
-        try {
-            Set<byte[]> keySet = txPoolDatabase.keys();
-            for (byte[] b : keySet) {
-                if (txPoolDatabase.get(b).isPresent()) {
-                    rtn.add(txPoolDatabase.get(b).get());
-                }
+        try (IByteArrayKeyValueIterator itr = txPoolDatabase.iterator()) {
+            while (itr.hasNext()) {
+                rtn.add(itr.next().getValue());
             }
         } finally {
             rwLock.readLock().unlock();
@@ -350,12 +561,9 @@ public class AionRepositoryImpl
 
         List<byte[]> rtn = new ArrayList<>();
         rwLock.readLock().lock();
-        try {
-            Set<byte[]> keySet = pendingTxCacheDatabase.keys();
-            for (byte[] b : keySet) {
-                if (pendingTxCacheDatabase.get(b).isPresent()) {
-                    rtn.add(pendingTxCacheDatabase.get(b).get());
-                }
+        try (IByteArrayKeyValueIterator itr = pendingTxCacheDatabase.iterator()) {
+            while (itr.hasNext()) {
+                rtn.add(itr.next().getValue());
             }
         } finally {
             rwLock.readLock().unlock();
@@ -390,12 +598,6 @@ public class AionRepositoryImpl
         return (account == null) ? BigInteger.ZERO : account.getNonce();
     }
 
-    /** @implNote The method calling this method must handle the locking. */
-    private void updateAccountState(Address address, AccountState accountState) {
-        // locked by calling method
-        worldState.update(address.toBytes(), accountState.getEncoded());
-    }
-
     /**
      * @inheritDoc
      * @implNote Any other method calling this can rely on the fact that the contract details
@@ -405,6 +607,20 @@ public class AionRepositoryImpl
      */
     @Override
     public IContractDetails<IDataWord> getContractDetails(Address address) {
+        if (stateView != null) {
+            // read snapshots are immutable and need no locking
+            AccountState accountState = getAccountState(address);
+            IContractDetails<IDataWord> details = detailsDS.read(address.toBytes());
+            if (details != null) {
+                details =
+                        details.getSnapshotTo(
+                                accountState == null
+                                        ? EMPTY_TRIE_HASH
+                                        : accountState.getStateRoot());
+            }
+            return details;
+        }
+
         rwLock.readLock().lock();
 
         try {
@@ -419,7 +635,13 @@ public class AionRepositoryImpl
                 storageRoot = getAccountState(address).getStateRoot();
             }
 
-            details = detailsDS.get(address.toBytes());
+            details =
+                    snapshotDetails == null
+                            ? null
+                            : snapshotDetails.get(address.toByteArrayWrapper());
+            if (details == null) {
+                details = detailsDS.get(address.toBytes());
+            }
 
             if (details != null) {
                 details = details.getSnapshotTo(storageRoot);
@@ -432,8 +654,16 @@ public class AionRepositoryImpl
 
     @Override
     public boolean hasContractDetails(Address address) {
+        if (stateView != null) {
+            return detailsDS.read(address.toBytes()) != null;
+        }
+
         rwLock.readLock().lock();
         try {
+            if (snapshotDetails != null
+                    && snapshotDetails.containsKey(address.toByteArrayWrapper())) {
+                return true;
+            }
             return detailsDS.get(address.toBytes()) != null;
         } finally {
             rwLock.readLock().unlock();
@@ -448,12 +678,28 @@ public class AionRepositoryImpl
      */
     @Override
     public AccountState getAccountState(Address address) {
+        if (stateView != null) {
+            // read snapshots are immutable and need no locking
+            byte[] accountData = stateView.get(address.toBytes());
+            return accountData.length == 0 ? null : new AccountState(accountData);
+        }
+
         rwLock.readLock().lock();
 
         AccountState result = null;
 
         try {
-            byte[] accountData = worldState.get(address.toBytes());
+            byte[] accountData;
+
+            if (flatState == null) {
+                accountData = worldState.get(address.toBytes());
+            } else {
+                accountData = flatState.getAccount(flatStateRoot, address.toBytes());
+                if (accountData == null) {
+                    accountData = worldState.get(address.toBytes());
+                    flatState.putAccount(flatStateRoot, address.toBytes(), accountData);
+                }
+            }
 
             if (accountData.length != 0) {
                 result = new AccountState(accountData);
@@ -506,15 +752,34 @@ public class AionRepositoryImpl
         rwLock.writeLock().lock();
         try {
             worldState.setRoot(root);
+            moveFlatState(root);
         } finally {
             rwLock.writeLock().unlock();
         }
     }
 
+    /** @implNote The method calling this method must handle the locking. */
+    private void moveFlatState(byte[] root) {
+        if (flatState != null) {
+            flatStateRoot = root;
+            if (!isSnapshot) {
+                flatState.moveTo(root);
+            }
+        }
+    }
+
     public long getPruneBlockCount() {
         return this.pruneBlockCount;
     }
 
+    /** Waits until the pruning and archiving of the committed blocks has completed. */
+    @VisibleForTesting
+    void awaitPruning() throws InterruptedException {
+        if (pruner != null) {
+            pruner.awaitPending();
+        }
+    }
+
     public void commitBlock(A0BlockHeader blockHeader) {
         rwLock.writeLock().lock();
 
@@ -525,8 +790,7 @@ public class AionRepositoryImpl
             if (pruneEnabled) {
                 if (stateDSPrune.isArchiveEnabled() && blockHeader.getNumber() % archiveRate == 0) {
                     // archive block
-                    worldState.saveDiffStateToDatabase(
-                            blockHeader.getStateRoot(), stateDSPrune.getArchiveSource());
+                    pruner.archive(blockHeader.getStateRoot());
                 }
                 stateDSPrune.storeBlockChanges(blockHeader.getHash(), blockHeader.getNumber());
                 detailsDS
@@ -544,12 +808,7 @@ public class AionRepositoryImpl
             // pruning only on increasing blocks
             long pruneBlockNumber = curBlock.getNumber() - pruneBlockCount;
             if (pruneBlockNumber >= 0) {
-                byte[] pruneBlockHash = blockStore.getBlockHashByNumber(pruneBlockNumber);
-                if (pruneBlockHash != null) {
-                    A0BlockHeader header = blockStore.getBlockByHash(pruneBlockHash).getHeader();
-                    stateDSPrune.prune(header.getHash(), header.getNumber());
-                    detailsDS.getStorageDSPrune().prune(header.getHash(), header.getNumber());
-                }
+                pruner.prune(pruneBlockNumber);
             }
         }
         bestBlockNumber = curBlock.getNumber();
@@ -572,33 +831,99 @@ public class AionRepositoryImpl
         rwLock.readLock().lock();
 
         try {
-            AionRepositoryImpl repo = new AionRepositoryImpl();
-            repo.blockStore = blockStore;
-            repo.cfg = cfg;
-            repo.stateDatabase = this.stateDatabase;
-            repo.stateWithArchive = this.stateWithArchive;
-            repo.stateDSPrune = this.stateDSPrune;
-
-            // pruning config
-            repo.pruneEnabled = this.pruneEnabled;
-            repo.pruneBlockCount = this.pruneBlockCount;
-            repo.archiveRate = this.archiveRate;
-
-            repo.detailsDS = this.detailsDS;
-            repo.isSnapshot = true;
-
-            repo.worldState = repo.createStateTrie();
-            repo.worldState.setRoot(root);
+            return createSnapshot(root);
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
 
-            // gives snapshots access to the pending store
-            repo.pendingStore = this.pendingStore;
+    /**
+     * Returns a snapshot that keeps the contract details it updates in memory instead of writing
+     * them and their storage to the details data store shared with the repository. Used for
+     * speculative execution, such as building block templates, that runs concurrently with block
+     * import and whose changes are never committed.
+     *
+     * @param root the state root of the snapshot
+     * @return a snapshot whose contract details changes stay private
+     */
+    public AionRepositoryImpl getPrivateSnapshotTo(byte[] root) {
+        rwLock.readLock().lock();
 
+        try {
+            AionRepositoryImpl repo = createSnapshot(root);
+            repo.snapshotDetails = new HashMap<>();
             return repo;
         } finally {
             rwLock.readLock().unlock();
         }
     }
 
+    /**
+     * Returns an immutable view of the committed state with the given root for answering queries.
+     * Unlike {@link #getSnapshotTo(byte[])}, the view is obtained without taking the repository
+     * lock and reads the accounts and contract details without locking any structure used by
+     * block import. Views are shared by all callers querying the same root, therefore they must
+     * only be modified through {@link #startTracking()} followed by a rollback.
+     *
+     * @param root the state root of a stored block
+     * @return a read-only view of the state at the given root
+     * @implNote The view bypasses the flat state, which is locked while importing blocks, and reads
+     *     the trie nodes through the {@link NodeCache} of the state database.
+     */
+    public IRepository getReadSnapshot(byte[] root) {
+        if (readSnapshots == null) {
+            return createReadSnapshot(root);
+        }
+
+        ByteArrayWrapper key = ByteArrayWrapper.wrap(root);
+        AionRepositoryImpl view = readSnapshots.getIfPresent(key);
+        if (view == null) {
+            // concurrent callers may both create a view, which is harmless
+            view = createReadSnapshot(root);
+            readSnapshots.put(key, view);
+        }
+        return view;
+    }
+
+    private AionRepositoryImpl createReadSnapshot(byte[] root) {
+        AionRepositoryImpl repo = createSnapshot(root);
+        repo.stateView =
+                new ImmutableTrie(stateDSPrune.getSrc(), stateDSPrune.getNodeCache(), root, true);
+        repo.flatState = null;
+        return repo;
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private AionRepositoryImpl createSnapshot(byte[] root) {
+        AionRepositoryImpl repo = new AionRepositoryImpl();
+        repo.blockStore = blockStore;
+        repo.cfg = cfg;
+        repo.stateDatabase = this.stateDatabase;
+        repo.stateWithArchive = this.stateWithArchive;
+        repo.stateDSPrune = this.stateDSPrune;
+
+        // pruning config
+        repo.pruneEnabled = this.pruneEnabled;
+        repo.pruneBlockCount = this.pruneBlockCount;
+        repo.archiveRate = this.archiveRate;
+
+        repo.detailsDS = this.detailsDS;
+        repo.pruner = this.pruner;
+        repo.isSnapshot = true;
+
+        repo.worldState = repo.createStateTrie();
+        repo.worldState.setRoot(root);
+
+        // snapshots only read from the flat state
+        repo.flatState = this.flatState;
+        repo.flatStateRoot = root;
+
+        // gives snapshots access to the pending store
+        repo.pendingStore = this.pendingStore;
+
+        return repo;
+    }
+
     @Override
     public void addTxBatch(Map<byte[], byte[]> pendingTx, boolean isPool) {
 
@@ -637,11 +962,157 @@ public class AionRepositoryImpl
         }
     }
 
+    /**
+     * Retrieves an entry requested by a fast syncing peer.
+     *
+     * @param key the hash of the trie node, or the hash of the contract address for details
+     * @param dbType the database holding the entry
+     * @param owner the contract address for storage nodes, ignored for the other types
+     * @return the encoding of the entry or {@code null} if it is not stored
+     */
+    public byte[] getTrieNode(byte[] key, DatabaseType dbType, byte[] owner) {
+        rwLock.readLock().lock();
+        try {
+            switch (dbType) {
+                case STATE:
+                    return stateDSPrune.get(key).orElse(null);
+                case STORAGE:
+                    Value node = getStorageTrie(key, owner).getCache().get(key);
+                    return node == null ? null : node.encode();
+                default:
+                    byte[] address = detailsIndexDatabase.get(key).orElse(null);
+                    return address == null ? null : detailsDatabase.get(address).orElse(null);
+            }
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Collects the trie nodes below the given node for a fast syncing peer.
+     *
+     * @param value the encoding of a state or storage trie node
+     * @param limit the maximum number of nodes to collect
+     * @param dbType the database holding the trie
+     * @param owner the contract address for storage nodes, ignored for the other types
+     * @return the encodings of the collected nodes by their hash, empty for contract details
+     */
+    public Map<ByteArrayWrapper, byte[]> getReferencedTrieNodes(
+            byte[] value, int limit, DatabaseType dbType, byte[] owner) {
+        rwLock.readLock().lock();
+        try {
+            switch (dbType) {
+                case STATE:
+                    return worldState.getReferencedTrieNodes(value, limit);
+                case STORAGE:
+                    return getStorageTrie(h256(value), owner).getReferencedTrieNodes(value, limit);
+                default:
+                    return Collections.emptyMap();
+            }
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if a state or storage trie node is already stored.
+     *
+     * @param key the hash of the trie node
+     * @param dbType either {@link DatabaseType#STATE} or {@link DatabaseType#STORAGE}
+     * @param owner the contract address for storage nodes, ignored for state nodes
+     * @return {@code true} if the node is stored, {@code false} otherwise
+     */
+    public boolean hasTrieNode(byte[] key, DatabaseType dbType, byte[] owner) {
+        rwLock.readLock().lock();
+        try {
+            if (dbType == DatabaseType.STORAGE) {
+                return getStorageSource(storageDatabase, owner).get(key).isPresent();
+            } else {
+                return stateDatabase.get(key).isPresent();
+            }
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores entries downloaded during fast sync in a single batch.
+     *
+     * @param entries trie nodes by their hash, or encoded contract details by the contract address
+     * @param dbType the database holding the entries
+     * @param owner the contract address for storage nodes, ignored for the other types
+     */
+    public void importTrieNodes(
+            Map<ByteArrayWrapper, byte[]> entries, DatabaseType dbType, byte[] owner) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : entries.entrySet()) {
+            batch.put(entry.getKey().getData(), entry.getValue());
+        }
+
+        rwLock.writeLock().lock();
+        try {
+            switch (dbType) {
+                case STATE:
+                    stateDatabase.putBatch(batch);
+                    break;
+                case STORAGE:
+                    getStorageSource(storageDatabase, owner).putBatch(batch);
+                    break;
+                default:
+                    detailsDatabase.putBatch(batch);
+                    Map<byte[], byte[]> index = new HashMap<>();
+                    for (byte[] address : batch.keySet()) {
+                        index.put(h256(address), address);
+                    }
+                    detailsIndexDatabase.putBatch(index);
+                    break;
+            }
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the storage trie of the given contract holding the given node, which is either the
+     * external storage or the storage kept inside the encoding of the contract details.
+     */
+    private TrieImpl getStorageTrie(byte[] key, byte[] owner) {
+        TrieImpl trie = new TrieImpl(getStorageSource(detailsDS.getStorageDSPrune(), owner));
+        if (!trie.getCache().contains(key)) {
+            IContractDetails<IDataWord> details = detailsDS.read(owner);
+            if (details instanceof AionContractDetailsImpl) {
+                return ((AionContractDetailsImpl) details).getStorageTrie();
+            }
+        }
+        return trie;
+    }
+
+    private static IByteArrayKeyValueStore getStorageSource(
+            IByteArrayKeyValueStore storageSource, byte[] owner) {
+        return AionContractDetailsImpl.createExternalStorageDataSource(
+                storageSource, Address.wrap(owner));
+    }
+
     /** This function cannot for any reason fail, otherwise we may have dangling file IO locks */
     @Override
     public void close() {
         rwLock.writeLock().lock();
         try {
+            if (readSnapshots != null) {
+                readSnapshots.invalidateAll();
+            }
+
+            if (pruner != null && !isSnapshot) {
+                // completes the pending pruning before closing the databases
+                pruner.close();
+                LOGGEN.info("State pruner stopped.");
+                pruner = null;
+            }
+
             try {
                 if (detailsDS != null) {
                     detailsDS.close();
@@ -652,6 +1123,16 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the details data source.", e);
             }
 
+            try {
+                if (detailsIndexDatabase != null) {
+                    detailsIndexDatabase.close();
+                    LOGGEN.info("Details index database closed.");
+                    detailsIndexDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the details index database.", e);
+            }
+
             try {
                 if (stateDatabase != null) {
                     stateDatabase.close();
@@ -662,6 +1143,38 @@ public class AionRepositoryImpl
                 LOGGEN.error("Exception occurred while closing the state database.", e);
             }
 
+            try {
+                if (flatStateDatabase != null) {
+                    flatStateDatabase.close();
+                    LOGGEN.info("Flat state database closed.");
+                    flatStateDatabase = null;
+                    flatState = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the flat state database.", e);
+            }
+
+            try {
+                if (bloomBitsDatabase != null) {
+                    bloomBitsDatabase.close();
+                    LOGGEN.info("Bloom bits database closed.");
+                    bloomBitsDatabase = null;
+                    bloomBits = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the bloom bits database.", e);
+            }
+
+            try {
+                if (pruneJournalDatabase != null) {
+                    pruneJournalDatabase.close();
+                    LOGGEN.info("Prune journal database closed.");
+                    pruneJournalDatabase = null;
+                }
+            } catch (Exception e) {
+                LOGGEN.error("Exception occurred while closing the prune journal database.", e);
+            }
+
             try {
                 if (stateArchiveDatabase != null) {
                     stateArchiveDatabase.close();
@@ -757,6 +1270,85 @@ public class AionRepositoryImpl
         return this.detailsDatabase;
     }
 
+    /** @return the index of the block log blooms */
+    public BloomBitsIndex getBloomBitsIndex() {
+        return this.bloomBits;
+    }
+
+    /** @return the flat view of the state or {@code null} when it is disabled */
+    public FlatStateStore getFlatState() {
+        return this.flatState;
+    }
+
+    /**
+     * Compares the valid entries of the flat state with the values read from the state trie at the
+     * current root.
+     *
+     * @return the number of inconsistent entries
+     */
+    public long checkFlatState() {
+        rwLock.readLock().lock();
+        try {
+            if (flatState == null) {
+                return 0;
+            }
+
+            long errors = 0;
+            byte[] root = worldState.getRootHash();
+            if (!Arrays.equals(root, flatState.getRoot())) {
+                LOG.error(
+                        "Flat state root={} does not match the state root={}.",
+                        flatState.getRoot() == null ? "null" : Hex.toHexString(flatState.getRoot()),
+                        Hex.toHexString(root));
+                return 1;
+            }
+
+            for (Map.Entry<ByteArrayWrapper, byte[]> e : flatState.getAccounts().entrySet()) {
+                if (!Arrays.equals(e.getValue(), worldState.get(e.getKey().getData()))) {
+                    LOG.error("Inconsistent flat state for account={}.", e.getKey());
+                    errors++;
+                }
+            }
+
+            for (Map.Entry<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> e :
+                    flatState.getStorageEntries().entrySet()) {
+                byte[] accountData = worldState.get(e.getKey().getData());
+                if (accountData.length == 0) {
+                    continue;
+                }
+                Address address = Address.wrap(e.getKey().getData());
+                byte[] storageRoot = new AccountState(accountData).getStateRoot();
+
+                for (Map.Entry<ByteArrayWrapper, byte[]> entry : e.getValue().entrySet()) {
+                    // entries tagged with other storage roots are never used
+                    if (!Arrays.equals(
+                            storageRoot, FlatStateStore.getStorageRootTag(entry.getValue()))) {
+                        continue;
+                    }
+                    byte[] key = entry.getKey().getData();
+                    IDataWord value =
+                            getStorageValueFromDetails(
+                                    address,
+                                    key.length == DoubleDataWord.BYTES
+                                            ? new DoubleDataWord(key)
+                                            : new DataWord(key));
+                    byte[] expected = value == null ? EMPTY_BYTE_ARRAY : value.getData();
+                    if (!Arrays.equals(
+                            expected, FlatStateStore.getStorageValue(entry.getValue()))) {
+                        LOG.error(
+                                "Inconsistent flat state for account={} storage key={}.",
+                                e.getKey(),
+                                entry.getKey());
+                        errors++;
+                    }
+                }
+            }
+            return errors;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
     /** For testing. */
     public IByteArrayKeyValueDatabase getBlockDatabase() {
         return this.blockDatabase;
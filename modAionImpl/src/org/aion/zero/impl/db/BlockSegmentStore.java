@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.db;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+/**
+ * Append-only storage for the encoded main chain blocks that are deep enough to never change.
+ *
+ * <p>The blocks are appended in number order, starting with the genesis block, to fixed size
+ * memory-mapped segment files as {@code [int length][encoded block]} records. The number index is
+ * a memory-mapped file holding the total number of stored blocks followed by one {@code [hash][long
+ * offset]} entry per block number, where the offset combines the segment (upper 32 bits) and the
+ * position inside the segment (lower 32 bits). The hash index is a compact open addressing table
+ * kept in memory that maps block hashes to numbers. It is rebuilt from the number index on startup.
+ *
+ * <p>Reads return slices of the mapped segments without copying the data.
+ *
+ * @implNote The stored block count is written to disk only by {@link #flush()}, after the appended
+ *     data. Blocks appended after the last flush are ignored on restart.
+ */
+public class BlockSegmentStore {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** Default size of a segment file. */
+    public static final int DEFAULT_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+    private static final String INDEX_FILE = "numbers.idx";
+    private static final String SEGMENT_FILE = "segment-%05d.dat";
+
+    private static final int HASH_LENGTH = 32;
+    private static final int ENTRY_SIZE = HASH_LENGTH + Long.BYTES;
+    private static final int HEADER_SIZE = Long.BYTES;
+    private static final int CHUNK_ENTRIES = 1 << 16;
+    private static final int MIN_TABLE_SIZE = 1 << 16;
+
+    private final File dir;
+    private final int segmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private long count;
+    private int writeSegment;
+    private int writePosition;
+    private int flushedSegment;
+
+    // block number + 1 for each used slot, indexed by the first bytes of the block hash
+    private int[] table;
+
+    public BlockSegmentStore(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the segment store in the given directory, creating it when missing.
+     *
+     * @param dir the directory holding the segment and index files
+     * @param segmentSize the size of each segment file, which limits the size of a single block
+     * @throws IOException when the files cannot be created or mapped
+     */
+    public BlockSegmentStore(File dir, int segmentSize) throws IOException {
+        if (segmentSize <= Integer.BYTES) {
+            throw new IllegalArgumentException("Invalid segment size " + segmentSize + ".");
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create the directory " + dir + ".");
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+
+        header = map(new File(dir, INDEX_FILE), 0, HEADER_SIZE);
+        count = header.getLong(0);
+        if (count < 0) {
+            throw new IOException("Corrupted block count " + count + " in " + INDEX_FILE + ".");
+        }
+        while ((long) chunks.size() * CHUNK_ENTRIES < count) {
+            mapChunk();
+        }
+
+        if (count > 0) {
+            long offset = getOffset(count - 1);
+            writeSegment = (int) (offset >>> 32);
+            for (int i = 0; i <= writeSegment; i++) {
+                if (!new File(dir, String.format(SEGMENT_FILE, i)).exists()) {
+                    throw new IOException("Missing block segment " + i + " in " + dir + ".");
+                }
+                mapSegment();
+            }
+            int position = (int) offset;
+            writePosition = position + Integer.BYTES + segments.get(writeSegment).getInt(position);
+        }
+        flushedSegment = writeSegment;
+
+        rebuildTable();
+
+        LOG.info("Opened the block segments in {} with {} blocks.", dir, count);
+    }
+
+    /** @return the number of stored blocks, which is also the number of the next block to append */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends the block with the next number.
+     *
+     * @param number the block number, which must be equal to {@link #size()}
+     * @param hash the block hash
+     * @param encoded the block encoding
+     * @throws IllegalArgumentException when the block is out of order or larger than a segment
+     * @throws UncheckedIOException when a new segment cannot be mapped
+     */
+    public void append(long number, byte[] hash, byte[] encoded) {
+        if (hash == null || hash.length != HASH_LENGTH) {
+            throw new IllegalArgumentException("Invalid block hash.");
+        }
+        if (encoded.length > segmentSize - Integer.BYTES) {
+            throw new IllegalArgumentException(
+                    "Block #" + number + " is larger than the segment size " + segmentSize + ".");
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (number != count) {
+                throw new IllegalArgumentException(
+                        "Block #"
+                                + number
+                                + " cannot be appended after block #"
+                                + (count - 1)
+                                + ".");
+            }
+            if (number >= Integer.MAX_VALUE - 1) {
+                throw new IllegalStateException("The segment store is limited to 2^31 blocks.");
+            }
+
+            int length = Integer.BYTES + encoded.length;
+            if (writePosition > segmentSize - length) {
+                writeSegment++;
+                writePosition = 0;
+            }
+            while (segments.size() <= writeSegment) {
+                mapSegment();
+            }
+            ByteBuffer segment = segments.get(writeSegment).duplicate();
+            segment.position(writePosition);
+            segment.putInt(encoded.length);
+            segment.put(encoded);
+
+            while ((long) chunks.size() * CHUNK_ENTRIES <= number) {
+                mapChunk();
+            }
+            ByteBuffer entry = chunks.get((int) (number / CHUNK_ENTRIES)).duplicate();
+            entry.position((int) (number % CHUNK_ENTRIES) * ENTRY_SIZE);
+            entry.put(hash);
+            entry.putLong(((long) writeSegment << 32) | writePosition);
+
+            writePosition += length;
+            count++;
+
+            if (count * 2 > table.length) {
+                rebuildTable();
+            } else {
+                insert(hash, number);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return a read-only view of the encoding of the block with the given number, or {@code null}
+     *     if the block is not stored
+     */
+    public ByteBuffer getSlice(long number) {
+        lock.readLock().lock();
+        try {
+            if (number < 0 || number >= count) {
+                return null;
+            }
+            long offset = getOffset(number);
+            ByteBuffer segment = segments.get((int) (offset >>> 32)).asReadOnlyBuffer();
+            int position = (int) offset;
+            int start = position + Integer.BYTES;
+            segment.limit(start + segment.getInt(position));
+            segment.position(start);
+            return segment.slice();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return a read-only view of the encoding of the block with the given hash, or {@code null} if
+     *     the block is not stored
+     */
+    public ByteBuffer getSlice(byte[] hash) {
+        lock.readLock().lock();
+        try {
+            return getSlice(getNumber(hash));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the encoding of the block with the given number, or {@code null} if the block is not
+     *     stored
+     */
+    public byte[] get(long number) {
+        return toArray(getSlice(number));
+    }
+
+    /**
+     * @return the encoding of the block with the given hash, or {@code null} if the block is not
+     *     stored
+     */
+    public byte[] get(byte[] hash) {
+        return toArray(getSlice(hash));
+    }
+
+    /** @return the hash of the block with the given number, or {@code null} if not stored */
+    public byte[] getHash(long number) {
+        lock.readLock().lock();
+        try {
+            if (number < 0 || number >= count) {
+                return null;
+            }
+            ByteBuffer entry = chunks.get((int) (number / CHUNK_ENTRIES)).duplicate();
+            entry.position((int) (number % CHUNK_ENTRIES) * ENTRY_SIZE);
+            byte[] hash = new byte[HASH_LENGTH];
+            entry.get(hash);
+            return hash;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the number of the block with the given hash, or {@code -1} if not stored */
+    public long getNumber(byte[] hash) {
+        if (hash == null || hash.length != HASH_LENGTH) {
+            return -1;
+        }
+
+        lock.readLock().lock();
+        try {
+            int mask = table.length - 1;
+            for (int slot = slot(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                long number = table[slot] - 1;
+                if (hashEquals(number, hash)) {
+                    return number;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the blocks with numbers greater or equal to the given number. The new block count is
+     * written to disk immediately.
+     */
+    public void truncate(long number) {
+        lock.writeLock().lock();
+        try {
+            if (number >= count) {
+                return;
+            }
+            count = Math.max(number, 0);
+            if (count == 0) {
+                writeSegment = 0;
+                writePosition = 0;
+            } else {
+                long offset = getOffset(count - 1);
+                writeSegment = (int) (offset >>> 32);
+                int position = (int) offset;
+                writePosition =
+                        position + Integer.BYTES + segments.get(writeSegment).getInt(position);
+            }
+            flushedSegment = Math.min(flushedSegment, writeSegment);
+
+            header.putLong(0, count);
+            header.force();
+
+            rebuildTable();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if the given directory holds a segment store with at least one block, without
+     * opening the store.
+     *
+     * @throws IOException when the index file exists but cannot be read
+     */
+    public static boolean containsBlocks(File dir) throws IOException {
+        File index = new File(dir, INDEX_FILE);
+        if (!index.isFile() || index.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(index, "r")) {
+            return file.readLong() != 0;
+        }
+    }
+
+    /** Writes the appended blocks to disk followed by the new block count. */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            for (int i = flushedSegment; i < segments.size() && i <= writeSegment; i++) {
+                segments.get(i).force();
+            }
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+            flushedSegment = writeSegment;
+
+            header.putLong(0, count);
+            header.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the store. The mapped files are released once the buffers are garbage collected.
+     */
+    public void close() {
+        flush();
+        LOG.info("Closed the block segments in {} with {} blocks.", dir, count);
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private long getOffset(long number) {
+        ByteBuffer chunk = chunks.get((int) (number / CHUNK_ENTRIES));
+        return chunk.getLong((int) (number % CHUNK_ENTRIES) * ENTRY_SIZE + HASH_LENGTH);
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private boolean hashEquals(long number, byte[] hash) {
+        ByteBuffer chunk = chunks.get((int) (number / CHUNK_ENTRIES));
+        int position = (int) (number % CHUNK_ENTRIES) * ENTRY_SIZE;
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            if (chunk.get(position + i) != hash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private void insert(byte[] hash, long number) {
+        int mask = table.length - 1;
+        int slot = slot(hash) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = (int) number + 1;
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private void rebuildTable() {
+        int size = MIN_TABLE_SIZE;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+        table = new int[size];
+
+        byte[] hash = new byte[HASH_LENGTH];
+        for (long number = 0; number < count; number++) {
+            ByteBuffer entry = chunks.get((int) (number / CHUNK_ENTRIES)).duplicate();
+            entry.position((int) (number % CHUNK_ENTRIES) * ENTRY_SIZE);
+            entry.get(hash);
+            insert(hash, number);
+        }
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private void mapChunk() throws IOException {
+        long position = HEADER_SIZE + (long) chunks.size() * CHUNK_ENTRIES * ENTRY_SIZE;
+        chunks.add(map(new File(dir, INDEX_FILE), position, CHUNK_ENTRIES * ENTRY_SIZE));
+    }
+
+    /** @implNote The method calling this method must handle the locking. */
+    private void mapSegment() throws IOException {
+        File file = new File(dir, String.format(SEGMENT_FILE, segments.size()));
+        segments.add(map(file, 0, segmentSize));
+    }
+
+    private static MappedByteBuffer map(File file, long position, int size) throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(
+                        file.toPath(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(MapMode.READ_WRITE, position, size);
+        }
+    }
+
+    /** Block hashes are uniformly distributed, so their leading bytes make a good hash code. */
+    private static int slot(byte[] hash) {
+        return (hash[0] & 0xFF) << 24
+                | (hash[1] & 0xFF) << 16
+                | (hash[2] & 0xFF) << 8
+                | (hash[3] & 0xFF);
+    }
+
+    private static byte[] toArray(ByteBuffer slice) {
+        if (slice == null) {
+            return null;
+        }
+        byte[] bytes = new byte[slice.remaining()];
+        slice.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.db;
+
+import static org.aion.mcf.db.BloomBitsIndex.SECTION_SIZE;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.IEventMgr;
+import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.callback.EventCallback;
+import org.aion.evtmgr.impl.es.EventExecuteService;
+import org.aion.evtmgr.impl.evt.EventBlock;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.db.BloomBitsIndex;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.IAionBlock;
+import org.slf4j.Logger;
+
+/**
+ * Keeps the {@link BloomBitsIndex} up to date with the main chain. Sections are built once their
+ * last block is {@link #CONFIRMATIONS} blocks below the best block. Each new best block also
+ * re-adds the blooms of the indexed blocks within the same distance, which covers the blocks
+ * replaced by a chain reorganization of up to {@link #CONFIRMATIONS} blocks.
+ */
+public class BloomBitsIndexer {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** Distance from the best block after which blocks are added to the index. */
+    public static final int CONFIRMATIONS = 64;
+
+    private final BloomBitsIndex index;
+    private final AionBlockStore blockStore;
+
+    private EventExecuteService ees;
+    private volatile boolean shutDown = false;
+
+    private final class EpBloomBits implements Runnable {
+        boolean go = true;
+
+        @Override
+        public void run() {
+            while (go) {
+                IEvent e = ees.take();
+                if (e.getEventType() == IHandler.TYPE.BLOCK0.getValue()
+                        && e.getCallbackType() == EventBlock.CALLBACK.ONBEST0.getValue()) {
+                    try {
+                        onBest((IAionBlock) e.getFuncArgs().get(0));
+                    } catch (Exception ex) {
+                        LOG.error("Failed to update the bloom bits index.", ex);
+                    }
+                } else if (e.getEventType() == IHandler.TYPE.POISONPILL.getValue()) {
+                    go = false;
+                }
+            }
+        }
+    }
+
+    public BloomBitsIndexer(BloomBitsIndex index, AionBlockStore blockStore) {
+        this.index = index;
+        this.blockStore = blockStore;
+    }
+
+    /**
+     * Starts updating the index on the {@link EventBlock.CALLBACK#ONBEST0} events. Sections
+     * missing from the index are built in the background, starting from the current best block.
+     *
+     * @param eventMgr the kernel event manager
+     * @param best the current best block
+     */
+    public void start(IEventMgr eventMgr, AionBlock best) {
+        if (index.getIndexedBlocks() > best.getNumber() + 1) {
+            // the chain was reverted below the indexed blocks
+            index.truncate((best.getNumber() + 1) / SECTION_SIZE);
+        }
+
+        eventMgr.registerEvent(
+                Collections.singletonList(new EventBlock(EventBlock.CALLBACK.ONBEST0)));
+
+        ees = new EventExecuteService(100_000, "EpBloomBits", Thread.MIN_PRIORITY, LOG);
+        ees.setFilter(setEvtFilter());
+
+        IHandler blockHandler = eventMgr.getHandler(IHandler.TYPE.BLOCK0.getValue());
+        blockHandler.eventCallback(new EventCallback(ees, LOG));
+        ees.start(new EpBloomBits());
+
+        // catch up with the current chain without waiting for the next block
+        IEvent evt = new EventBlock(EventBlock.CALLBACK.ONBEST0);
+        evt.setFuncArgs(Arrays.asList(best, Collections.emptyList()));
+        ees.add(evt);
+    }
+
+    private Set<Integer> setEvtFilter() {
+        Set<Integer> eventSN = new HashSet<>();
+        int sn = IHandler.TYPE.BLOCK0.getValue() << 8;
+        eventSN.add(sn + EventBlock.CALLBACK.ONBEST0.getValue());
+        return eventSN;
+    }
+
+    public void shutdown() {
+        shutDown = true;
+        if (ees != null) {
+            ees.shutdown();
+        }
+    }
+
+    /**
+     * Updates the index for a new best block.
+     *
+     * @param block the new best block
+     */
+    public void onBest(IAionBlock block) {
+        long number = block.getNumber();
+        long indexed = index.getIndexedBlocks();
+
+        for (long n = Math.max(0, number - CONFIRMATIONS); n < Math.min(number + 1, indexed); n++) {
+            IAionBlock b = n == number ? block : blockStore.getChainBlockByNumber(n);
+            if (b != null) {
+                index.addBloom(n, b.getLogBloom());
+            }
+        }
+
+        catchUp(number);
+    }
+
+    /**
+     * Builds all the sections that are confirmed for the given best block.
+     *
+     * @param best the best block number
+     * @return the number of sections built
+     */
+    public int catchUp(long best) {
+        int built = 0;
+        while (!shutDown && buildNextSection(best)) {
+            built++;
+        }
+        return built;
+    }
+
+    /**
+     * Builds the next section if it is confirmed for the given best block.
+     *
+     * @param best the best block number
+     * @return {@code true} if a section was built, {@code false} otherwise
+     */
+    public boolean buildNextSection(long best) {
+        long section = index.getSections();
+        long first = section * SECTION_SIZE;
+        if (first + SECTION_SIZE - 1 + CONFIRMATIONS > best) {
+            return false;
+        }
+
+        byte[][] blooms = new byte[SECTION_SIZE][];
+        for (int i = 0; i < SECTION_SIZE; i++) {
+            AionBlock block = blockStore.getChainBlockByNumber(first + i);
+            if (block == null) {
+                LOG.warn("Missing main chain block {} for the bloom bits index.", first + i);
+                return false;
+            }
+            blooms[i] = block.getLogBloom();
+        }
+        index.addSection(section, blooms);
+
+        LOG.debug(
+                "Bloom bits index section {} built for blocks {} to {}.",
+                section,
+                first,
+                first + SECTION_SIZE - 1);
+        return true;
+    }
+
+    public BloomBitsIndex getIndex() {
+        return index;
+    }
+}
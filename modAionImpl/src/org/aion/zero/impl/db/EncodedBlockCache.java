@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.db;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.aion.base.util.ByteArrayWrapper;
+
+/**
+ * Least recently used cache of encoded blocks bounded by the total size of the cached encodings.
+ * Used for serving block headers and bodies to peers without decoding the blocks.
+ */
+public class EncodedBlockCache {
+
+    private final long capacity;
+    private long size = 0;
+
+    private final LinkedHashMap<ByteArrayWrapper, byte[]> blocks =
+            new LinkedHashMap<>(1024, 0.75f, true);
+
+    /** @param capacity the maximum number of bytes held by the cached encodings */
+    public EncodedBlockCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized byte[] get(byte[] hash) {
+        return blocks.get(ByteArrayWrapper.wrap(hash));
+    }
+
+    public synchronized void put(byte[] hash, byte[] encoded) {
+        if (encoded.length > capacity) {
+            return;
+        }
+
+        byte[] previous = blocks.put(ByteArrayWrapper.wrap(hash), encoded);
+        size += encoded.length - (previous == null ? 0 : previous.length);
+
+        Iterator<Map.Entry<ByteArrayWrapper, byte[]>> it = blocks.entrySet().iterator();
+        while (size > capacity && it.hasNext()) {
+            size -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    public synchronized void remove(byte[] hash) {
+        byte[] previous = blocks.remove(ByteArrayWrapper.wrap(hash));
+        if (previous != null) {
+            size -= previous.length;
+        }
+    }
+
+    public synchronized void clear() {
+        blocks.clear();
+        size = 0;
+    }
+
+    /** @return the number of bytes held by the cached encodings */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getCount() {
+        return blocks.size();
+    }
+}
@@ -46,6 +46,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.db.Flushable;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.ByteUtil;
 import org.aion.base.util.Hex;
@@ -519,7 +520,7 @@ public class PendingBlockStore implements Flushable, Closeable {
     int getIndexSize() {
         databaseLock.readLock().lock();
         try {
-            return indexSource.keys().size();
+            return countEntries(indexSource);
         } finally {
             databaseLock.readLock().unlock();
         }
@@ -533,7 +534,7 @@ public class PendingBlockStore implements Flushable, Closeable {
     int getLevelSize() {
         databaseLock.readLock().lock();
         try {
-            return levelDatabase.keys().size();
+            return countEntries(levelDatabase);
         } finally {
             databaseLock.readLock().unlock();
         }
@@ -547,12 +548,24 @@ public class PendingBlockStore implements Flushable, Closeable {
     int getQueueSize() {
         databaseLock.readLock().lock();
         try {
-            return queueDatabase.keys().size();
+            return countEntries(queueDatabase);
         } finally {
             databaseLock.readLock().unlock();
         }
     }
 
+    /** Counts the entries of the given database without loading its keys into memory. */
+    private static int countEntries(IByteArrayKeyValueDatabase database) {
+        int count = 0;
+        try (IByteArrayKeyValueIterator itr = database.iterator()) {
+            while (itr.hasNext()) {
+                itr.next();
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Retrieves blocks from storage based on the height of the first block in the range.
      *
@@ -572,16 +585,7 @@ public class PendingBlockStore implements Flushable, Closeable {
             }
 
             // get all the blocks in the given queues
-            List<AionBlock> list;
-            Map<ByteArrayWrapper, List<AionBlock>> blocks = new HashMap<>();
-            for (byte[] queue : queueHashes) {
-                list = queueSource.get(queue);
-                if (list != null) {
-                    blocks.put(ByteArrayWrapper.wrap(queue), list);
-                }
-            }
-
-            return blocks;
+            return queueSource.getMany(queueHashes);
         } catch (Exception e) {
             LOG.error("Unable to retrieve stored blocks due to: ", e);
             return Collections.emptyMap();
@@ -29,6 +29,7 @@ import java.util.Map;
 import org.aion.base.type.IBlock;
 import org.aion.log.AionLoggerFactory;
 import org.aion.mcf.config.CfgDb;
+import org.aion.mcf.db.BloomBitsIndex;
 import org.aion.mcf.db.IBlockStoreBase;
 import org.aion.zero.impl.AionBlockchainImpl;
 import org.aion.zero.impl.AionGenesis;
@@ -39,6 +40,9 @@ import org.aion.zero.impl.types.AionBlock;
 
 public class RecoveryUtils {
 
+    /** Number of blocks moved to the block segments between progress reports. */
+    private static final int MIGRATION_BATCH_SIZE = 100_000;
+
     public enum Status {
         SUCCESS,
         FAILURE,
@@ -125,6 +129,164 @@ public class RecoveryUtils {
         repository.close();
     }
 
+    /** Used by the CLI call. */
+    public static void checkFlatState() {
+        // ensure mining is disabled
+        CfgAion cfg = CfgAion.inst();
+        cfg.dbFromXML();
+        cfg.getConsensus().setMining(false);
+
+        cfg.getDb().setHeapCacheEnabled(false);
+
+        Map<String, String> cfgLog = new HashMap<>();
+        cfgLog.put("DB", "ERROR");
+        cfgLog.put("GEN", "ERROR");
+
+        AionLoggerFactory.init(cfgLog);
+
+        if (!cfg.getDb().isFlatStateEnabled()) {
+            System.out.println("The flat state is not enabled. Nothing to do.");
+            return;
+        }
+
+        // get the current blockchain
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+
+        AionBlock block = repository.getBlockStore().getBestBlock();
+        if (block == null) {
+            System.out.println("The database is empty. Nothing to do.");
+            repository.close();
+            return;
+        }
+
+        System.out.println(
+                "Checking the flat state for block hash: "
+                        + block.getShortHash()
+                        + ", number: "
+                        + block.getNumber()
+                        + " ...");
+
+        repository.syncToRoot(block.getStateRoot());
+        long errors = repository.checkFlatState();
+
+        if (errors == 0) {
+            System.out.println("The flat state is consistent with the state trie.");
+        } else {
+            System.out.println(
+                    "Found "
+                            + errors
+                            + " inconsistent entries in the flat state. Disable and re-enable the flat state to rebuild it.");
+        }
+
+        repository.close();
+    }
+
+    /** Used by the CLI call. */
+    public static void buildBloomBits() {
+        // ensure mining is disabled
+        CfgAion cfg = CfgAion.inst();
+        cfg.dbFromXML();
+        cfg.getConsensus().setMining(false);
+
+        cfg.getDb().setHeapCacheEnabled(false);
+
+        Map<String, String> cfgLog = new HashMap<>();
+        cfgLog.put("DB", "ERROR");
+        cfgLog.put("GEN", "ERROR");
+
+        AionLoggerFactory.init(cfgLog);
+
+        // get the current blockchain
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+
+        AionBlock block = repository.getBlockStore().getBestBlock();
+        if (block == null) {
+            System.out.println("The database is empty. Nothing to do.");
+            repository.close();
+            return;
+        }
+
+        BloomBitsIndexer indexer =
+                new BloomBitsIndexer(repository.getBloomBitsIndex(), repository.getBlockStore());
+        if (indexer.getIndex().getIndexedBlocks() > block.getNumber() + 1) {
+            indexer.getIndex().truncate((block.getNumber() + 1) / BloomBitsIndex.SECTION_SIZE);
+        }
+
+        System.out.println(
+                "Building the bloom bits index up to block hash: "
+                        + block.getShortHash()
+                        + ", number: "
+                        + block.getNumber()
+                        + " ...");
+
+        long start = indexer.getIndex().getIndexedBlocks();
+        while (indexer.buildNextSection(block.getNumber())) {
+            System.out.println(
+                    "Indexed blocks "
+                            + start
+                            + " to "
+                            + (indexer.getIndex().getIndexedBlocks() - 1)
+                            + ".");
+            start = indexer.getIndex().getIndexedBlocks();
+        }
+
+        System.out.println(
+                "The bloom bits index covers "
+                        + indexer.getIndex().getIndexedBlocks()
+                        + " blocks. The remaining blocks are indexed by the kernel once confirmed.");
+
+        repository.close();
+    }
+
+    /** Used by the CLI call. */
+    public static void migrateBlockSegments() {
+        // ensure mining is disabled
+        CfgAion cfg = CfgAion.inst();
+        cfg.dbFromXML();
+        cfg.getConsensus().setMining(false);
+
+        cfg.getDb().setHeapCacheEnabled(false);
+
+        Map<String, String> cfgLog = new HashMap<>();
+        cfgLog.put("DB", "ERROR");
+        cfgLog.put("GEN", "ERROR");
+
+        AionLoggerFactory.init(cfgLog);
+
+        if (!cfg.getDb().isBlockSegmentsEnabled()) {
+            System.out.println(
+                    "The block segments are not enabled. Set <block_segments> to true in the <db> configuration first.");
+            return;
+        }
+
+        // get the current blockchain
+        AionRepositoryImpl repository = AionRepositoryImpl.inst();
+        AionBlockStore store = repository.getBlockStore();
+
+        long start = store.getFinalizedBlockCount();
+        long moved;
+        while ((moved = store.moveFinalizedBlocks(MIGRATION_BATCH_SIZE)) > 0) {
+            System.out.println(
+                    "Moved blocks "
+                            + start
+                            + " to "
+                            + (start + moved - 1)
+                            + " to the block segments.");
+            start += moved;
+        }
+
+        System.out.println(
+                "The block segments hold "
+                        + store.getFinalizedBlockCount()
+                        + " blocks. Blocks within "
+                        + AionBlockStore.FINALITY_DEPTH
+                        + " levels of the best block remain in the block database.");
+
+        // reclaim the space used by the moved blocks
+        repository.getBlockDatabase().compact();
+        repository.close();
+    }
+
     /** Used by the CLI call. */
     public static void dumpBlocks(long count) {
         // ensure mining is disabled
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.db;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.trie.JournalPruneDataSource;
+import org.aion.mcf.trie.SecureTrie;
+import org.slf4j.Logger;
+
+/**
+ * Prunes the state of old blocks and extracts the archived states on a background thread, so that
+ * block import does not wait for them. Tasks run in the order they were submitted. The number of
+ * waiting tasks is bounded: once the limit is reached, submitting blocks until the worker catches
+ * up, which bounds how far the pruning falls behind the best block.
+ */
+final class StatePruner {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    // maximum number of tasks waiting to be executed
+    static final int MAX_PENDING_TASKS = 256;
+
+    private final JournalPruneDataSource stateDSPrune;
+    private final JournalPruneDataSource storageDSPrune;
+    private final AionBlockStore blockStore;
+    // held while a task runs, so that the databases are not committed while the task updates them
+    private final Lock lock = new ReentrantLock();
+
+    private final BlockingQueue<Runnable> tasks = new ArrayBlockingQueue<>(MAX_PENDING_TASKS);
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    // submitted tasks and prune tasks that have not completed, guarded by this
+    private int pending = 0;
+    private int pendingPrunes = 0;
+
+    // the highest block number pruned, -1 until the first prune, used only by the worker
+    private long pruned = -1;
+
+    StatePruner(
+            JournalPruneDataSource stateDSPrune,
+            JournalPruneDataSource storageDSPrune,
+            AionBlockStore blockStore) {
+        this.stateDSPrune = stateDSPrune;
+        this.storageDSPrune = storageDSPrune;
+        this.blockStore = blockStore;
+
+        this.worker = new Thread(this::run, "state-pruner");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /** Copies the nodes of the given state that are missing from the archive. */
+    void archive(byte[] stateRoot) {
+        submit(
+                () -> {
+                    // a new trie for each state, so that the nodes read are not kept in memory
+                    long count =
+                            new SecureTrie(stateDSPrune)
+                                    .saveDiffStateToDatabase(
+                                            stateRoot, stateDSPrune.getArchiveSource());
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Archived {} state nodes.", count);
+                    }
+                });
+    }
+
+    /**
+     * Prunes the changes of the main chain blocks up to the given number. The first call also
+     * prunes the blocks left in the journal by a previous run.
+     */
+    void prune(long blockNumber) {
+        synchronized (this) {
+            pendingPrunes++;
+        }
+        submit(
+                () -> {
+                    try {
+                        pruneUpTo(blockNumber);
+                    } finally {
+                        synchronized (this) {
+                            pendingPrunes--;
+                        }
+                    }
+                });
+    }
+
+    private void pruneUpTo(long blockNumber) {
+        long from = pruned + 1;
+        if (pruned < 0) {
+            long oldest = stateDSPrune.getOldestBlockNumber();
+            from = oldest < 0 ? blockNumber : Math.min(oldest, blockNumber);
+        }
+
+        for (long number = from; number <= blockNumber; number++) {
+            byte[] hash = blockStore.getBlockHashByNumber(number);
+            if (hash != null) {
+                stateDSPrune.prune(hash, number);
+                storageDSPrune.prune(hash, number);
+            }
+        }
+
+        if (blockNumber > pruned) {
+            pruned = blockNumber;
+        }
+    }
+
+    private void submit(Runnable task) {
+        synchronized (this) {
+            pending++;
+        }
+        try {
+            if (running) {
+                tasks.put(task);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // executed directly after shutdown or when interrupted, so that no task is lost
+        execute(task);
+    }
+
+    private void run() {
+        try {
+            while (running || !tasks.isEmpty()) {
+                Runnable task = tasks.poll(100, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    execute(task);
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("State pruner interrupted with {} pending tasks.", tasks.size());
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void execute(Runnable task) {
+        lock.lock();
+        try {
+            task.run();
+        } catch (Exception e) {
+            LOG.error("State pruning task failed.", e);
+        } finally {
+            lock.unlock();
+            synchronized (this) {
+                pending--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the lock held while a task updates the databases, which must also be held while they
+     *     are committed
+     */
+    Lock getLock() {
+        return lock;
+    }
+
+    /** Waits until all the submitted tasks have completed. */
+    synchronized void awaitPending() throws InterruptedException {
+        while (pending > 0) {
+            wait();
+        }
+    }
+
+    /** @return the number of blocks submitted for pruning that are not pruned yet */
+    synchronized int getBacklog() {
+        return pendingPrunes;
+    }
+
+    /** Completes the submitted tasks and stops the worker. */
+    void close() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting for the state pruner to complete.");
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+/** The databases whose entries are downloaded during fast sync. */
+public enum DatabaseType {
+    /** World state trie nodes, by hash. */
+    STATE,
+    /** Contract storage trie nodes, by hash, for a given contract address. */
+    STORAGE,
+    /** Encoded contract details, by the hash of the contract address. */
+    DETAILS;
+
+    private static final DatabaseType[] VALUES = values();
+
+    /**
+     * Returns the type with the given ordinal.
+     *
+     * @param ordinal the position of the type in the enum
+     * @return the matching type or {@code null} if the ordinal is out of range
+     */
+    public static DatabaseType fromOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < VALUES.length ? VALUES[ordinal] : null;
+    }
+}
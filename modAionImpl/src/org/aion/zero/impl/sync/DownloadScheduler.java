@@ -0,0 +1,410 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import static org.aion.p2p.P2pConstant.REQUEST_SIZE;
+import static org.aion.zero.impl.sync.PeerState.Mode.BACKWARD;
+import static org.aion.zero.impl.sync.PeerState.Mode.FORWARD;
+import static org.aion.zero.impl.sync.PeerState.Mode.NORMAL;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.slf4j.Logger;
+
+/**
+ * Downloads the blocks missing from the local chain from all the peers that are ahead at the same
+ * time.
+ *
+ * <p>The missing range is split into disjoint chunks. Each idle peer is assigned the next chunk,
+ * with the earliest chunks going to the peers expected to deliver them first. The size of the
+ * chunks requested from a peer follows its measured throughput, so that fast peers receive larger
+ * requests. Chunks that are not delivered in time, or only partially delivered, are assigned again
+ * to another peer. Downloaded chunks are passed to the import queue in the order of their block
+ * numbers.
+ *
+ * <p>Peers that are resolving a fork ({@link PeerState.Mode#BACKWARD} or {@link
+ * PeerState.Mode#FORWARD}) are left to {@link TaskGetHeaders}.
+ */
+final class DownloadScheduler {
+
+    /** Smallest number of blocks requested from a peer. */
+    static final int MIN_REQUEST_SIZE = REQUEST_SIZE;
+
+    /** Largest number of blocks requested from a peer, as limited by the serving peers. */
+    static final int MAX_REQUEST_SIZE = 96;
+
+    /** Time in milliseconds after which an unanswered chunk is assigned to another peer. */
+    static final long CHUNK_TIMEOUT = 10_000;
+
+    // maximum number of blocks downloaded ahead of the first block missing from the import queue
+    private static final int MAX_PENDING_BLOCKS = 2048;
+
+    // time in milliseconds a peer should need to deliver a chunk of its adapted size
+    private static final long TARGET_DELIVERY_TIME = 2_000;
+
+    // weight of the latest measurement in the moving averages
+    private static final double ALPHA = 0.3;
+
+    private final IP2pMgr p2p;
+    private final Map<Integer, PeerState> peerStates;
+    private final BlockingQueue<BlocksWrapper> downloadedBlocks;
+    private final SyncStats stats;
+    private final Logger log;
+
+    // measurements by peer id hash
+    private final Map<Integer, PeerPerformance> performance = new HashMap<>();
+    // chunks waiting for a response by peer id hash, at most one per peer
+    private final Map<Integer, Chunk> assigned = new HashMap<>();
+    // chunks that must be assigned again by first block number
+    private final TreeMap<Long, Chunk> retries = new TreeMap<>();
+    // delivered chunks waiting for the preceding blocks by first block number
+    private final TreeMap<Long, Delivery> delivered = new TreeMap<>();
+    // first block number that was never assigned
+    private long nextNumber = 0;
+    // first block number that was not passed to the import queue
+    private long nextToRelease = 0;
+
+    DownloadScheduler(
+            IP2pMgr p2p,
+            Map<Integer, PeerState> peerStates,
+            BlockingQueue<BlocksWrapper> downloadedBlocks,
+            SyncStats stats,
+            Logger log) {
+        this.p2p = p2p;
+        this.peerStates = peerStates;
+        this.downloadedBlocks = downloadedBlocks;
+        this.stats = stats;
+        this.log = log;
+    }
+
+    /**
+     * Assigns chunks to the idle peers and re-assigns the chunks that timed out.
+     *
+     * @param selfNumber the number of the best block in the local chain
+     * @param now the current time in milliseconds
+     * @return {@code false} if none of the active peers can be used by the scheduler, {@code true}
+     *     otherwise
+     */
+    synchronized boolean schedule(long selfNumber, long now) {
+        Map<Integer, INode> nodes = p2p.getActiveNodes();
+
+        // blocks up to the local best block are no longer needed
+        nextNumber = Math.max(nextNumber, selfNumber + 1);
+        while (!retries.isEmpty() && retries.firstEntry().getValue().last <= selfNumber) {
+            retries.pollFirstEntry();
+        }
+        if (nextToRelease <= selfNumber) {
+            nextToRelease = selfNumber + 1;
+            release();
+        }
+
+        expire(nodes, now);
+
+        List<INode> idle = new ArrayList<>();
+        boolean eligible = false;
+        for (INode node : nodes.values()) {
+            PeerState state = peerStates.get(node.getIdHash());
+            if (node.getBestBlockNumber() <= selfNumber
+                    || state != null
+                            && (state.getMode() == BACKWARD || state.getMode() == FORWARD)) {
+                continue;
+            }
+            eligible = true;
+            if (!assigned.containsKey(node.getIdHash())) {
+                idle.add(node);
+            }
+        }
+
+        // the earliest chunks go to the peers expected to deliver first
+        double defaultRate = getAverageRate();
+        idle.sort(
+                Comparator.comparingDouble(
+                        (INode n) -> getPerformance(n.getIdHash()).getRate(defaultRate))
+                        .reversed());
+
+        for (INode node : idle) {
+            Chunk chunk = nextChunk(node, getPerformance(node.getIdHash()).getRequestSize());
+            if (chunk == null) {
+                continue;
+            }
+            chunk.sentAt = now;
+            assigned.put(node.getIdHash(), chunk);
+
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "<schedule-headers from-num={} size={} node={}>",
+                        chunk.first,
+                        chunk.size(),
+                        node.getIdShort());
+            }
+            p2p.send(
+                    node.getIdHash(),
+                    node.getIdShort(),
+                    new ReqBlocksHeaders(chunk.first, chunk.size()));
+            stats.updateTotalRequestsToPeer(node.getIdShort(), RequestType.HEADERS);
+
+            PeerState state =
+                    peerStates.computeIfAbsent(
+                            node.getIdHash(), k -> new PeerState(NORMAL, selfNumber));
+            state.setLastBestBlock(node.getBestBlockNumber());
+            state.setLastHeaderRequest(now);
+        }
+        return eligible;
+    }
+
+    /** Takes the first retry the peer can serve or else a new chunk after the assigned ones. */
+    private Chunk nextChunk(INode node, int size) {
+        long best = node.getBestBlockNumber();
+
+        Iterator<Chunk> it = retries.values().iterator();
+        while (it.hasNext()) {
+            Chunk retry = it.next();
+            if (retry.last <= best) {
+                it.remove();
+                // large retries are split to match the capacity of the peer
+                if (retry.size() > size) {
+                    Chunk rest = new Chunk(retry.first + size, retry.last);
+                    retries.put(rest.first, rest);
+                    return new Chunk(retry.first, retry.first + size - 1);
+                }
+                return retry;
+            }
+        }
+
+        long last = Math.min(nextNumber + size - 1, best);
+        if (last < nextNumber || last >= nextToRelease + MAX_PENDING_BLOCKS) {
+            return null;
+        }
+        Chunk chunk = new Chunk(nextNumber, last);
+        nextNumber = last + 1;
+        return chunk;
+    }
+
+    /** Releases the chunks of peers that timed out or disconnected. */
+    private void expire(Map<Integer, INode> nodes, long now) {
+        Iterator<Map.Entry<Integer, Chunk>> it = assigned.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Chunk> entry = it.next();
+            Chunk chunk = entry.getValue();
+            boolean timedOut = now - chunk.sentAt > CHUNK_TIMEOUT;
+            if (timedOut || !nodes.containsKey(entry.getKey())) {
+                it.remove();
+                retries.put(chunk.first, new Chunk(chunk.first, chunk.last));
+                if (timedOut) {
+                    getPerformance(entry.getKey()).onTimeout();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the headers received for a chunk. The blocks of the chunk that were not included in
+     * the response are assigned again.
+     *
+     * @param nodeIdHash the peer that sent the headers
+     * @param received the headers in the response
+     * @param accepted the number of headers kept after validation and filtering of the imported
+     *     blocks
+     * @param now the current time in milliseconds
+     */
+    synchronized void onHeaders(
+            int nodeIdHash, List<A0BlockHeader> received, int accepted, long now) {
+        Chunk chunk = assigned.get(nodeIdHash);
+        if (chunk == null || received.isEmpty() || received.get(0).getNumber() != chunk.first) {
+            return;
+        }
+        getPerformance(nodeIdHash).onHeaders(now - chunk.sentAt);
+        chunk.headersAt = now;
+
+        long last = received.get(received.size() - 1).getNumber();
+        if (last < chunk.last) {
+            retries.put(last + 1, new Chunk(last + 1, chunk.last));
+            chunk.last = last;
+        }
+
+        if (accepted == 0) {
+            // all the blocks were already imported, so no bodies will be requested
+            assigned.remove(nodeIdHash);
+            delivered.put(chunk.first, new Delivery(chunk.last, null));
+            release();
+        }
+    }
+
+    /**
+     * Accepts the blocks downloaded for a chunk and passes them to the import queue once the
+     * preceding blocks were passed.
+     *
+     * @param batch the downloaded blocks
+     * @param now the current time in milliseconds
+     * @return {@code false} if the blocks were not requested by the scheduler, {@code true}
+     *     otherwise
+     */
+    synchronized boolean onBlocks(BlocksWrapper batch, long now) {
+        Chunk chunk = assigned.get(batch.getNodeIdHash());
+        List<AionBlock> blocks = batch.getBlocks();
+        if (chunk == null
+                || blocks.get(0).getNumber() < chunk.first
+                || blocks.get(0).getNumber() > chunk.last) {
+            return false;
+        }
+        assigned.remove(batch.getNodeIdHash());
+
+        getPerformance(batch.getNodeIdHash())
+                .onBlocks(blocks.size(), now - Math.max(chunk.sentAt, chunk.headersAt));
+
+        long last = blocks.get(blocks.size() - 1).getNumber();
+        if (last < chunk.last) {
+            retries.put(last + 1, new Chunk(last + 1, chunk.last));
+        }
+
+        // the blocks before the first one were imported or filtered out by validation
+        delivered.put(chunk.first, new Delivery(Math.min(last, chunk.last), batch));
+        release();
+        return true;
+    }
+
+    /** Passes the deliveries that continue the released blocks to the import queue. */
+    private void release() {
+        while (!delivered.isEmpty() && delivered.firstKey() <= nextToRelease) {
+            Delivery delivery = delivered.pollFirstEntry().getValue();
+            if (delivery.batch != null) {
+                downloadedBlocks.add(delivery.batch);
+            }
+            nextToRelease = Math.max(nextToRelease, delivery.last + 1);
+        }
+    }
+
+    private PeerPerformance getPerformance(int nodeIdHash) {
+        return performance.computeIfAbsent(nodeIdHash, k -> new PeerPerformance());
+    }
+
+    /** @return the average rate of the measured peers, used for the peers without measurements */
+    private double getAverageRate() {
+        return performance
+                .values()
+                .stream()
+                .filter(p -> p.throughput > 0)
+                .mapToDouble(p -> p.getRate(0))
+                .average()
+                .orElse(0);
+    }
+
+    /** @return the number of chunks waiting for a response */
+    synchronized int getAssignedCount() {
+        return assigned.size();
+    }
+
+    /** @return the first block number that was not passed to the import queue */
+    synchronized long getNextToRelease() {
+        return nextToRelease;
+    }
+
+    /** Range of block numbers requested from a single peer. */
+    private static final class Chunk {
+        private final long first;
+        private long last;
+        private long sentAt;
+        private long headersAt;
+
+        private Chunk(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        private int size() {
+            return (int) (last - first + 1);
+        }
+    }
+
+    /** Downloaded chunk, with {@code null} blocks when they were already imported. */
+    private static final class Delivery {
+        private final long last;
+        private final BlocksWrapper batch;
+
+        private Delivery(long last, BlocksWrapper batch) {
+            this.last = last;
+            this.batch = batch;
+        }
+    }
+
+    /** Moving averages of the response time and throughput of a peer. */
+    static final class PeerPerformance {
+        // time until the headers are received in milliseconds
+        private double latency = -1;
+        // blocks per millisecond from the bodies request to the bodies response
+        private double throughput = -1;
+        // number of blocks requested at once
+        private int requestSize = MIN_REQUEST_SIZE;
+
+        void onHeaders(long elapsed) {
+            latency = average(latency, Math.max(1, elapsed));
+        }
+
+        void onBlocks(int count, long elapsed) {
+            throughput = average(throughput, (double) count / Math.max(1, elapsed));
+
+            // the size that can be delivered within the target time
+            double size = (TARGET_DELIVERY_TIME - Math.max(0, latency)) * throughput;
+            requestSize = (int) Math.max(MIN_REQUEST_SIZE, Math.min(MAX_REQUEST_SIZE, size));
+        }
+
+        void onTimeout() {
+            latency = average(latency, CHUNK_TIMEOUT);
+            throughput = throughput < 0 ? throughput : throughput / 2;
+            requestSize = Math.max(MIN_REQUEST_SIZE, requestSize / 2);
+        }
+
+        /**
+         * @param defaultRate the rate assumed when the peer was not measured yet
+         * @return the expected number of blocks delivered per millisecond for a request of the
+         *     adapted size, including the response latency
+         */
+        double getRate(double defaultRate) {
+            if (throughput <= 0) {
+                // only the response time is known when the peer timed out before delivering
+                return latency < 0 ? defaultRate : Math.min(defaultRate, requestSize / latency);
+            }
+            return requestSize / (Math.max(0, latency) + requestSize / throughput);
+        }
+
+        int getRequestSize() {
+            return requestSize;
+        }
+
+        private static double average(double current, double measured) {
+            return current < 0 ? measured : ALPHA * measured + (1 - ALPHA) * current;
+        }
+    }
+}
@@ -0,0 +1,755 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import static org.aion.crypto.HashUtil.EMPTY_DATA_HASH;
+import static org.aion.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.aion.crypto.HashUtil.h256;
+import static org.aion.rlp.CompactEncoder.hasTerminator;
+import static org.aion.rlp.CompactEncoder.unpackToNibbles;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.base.util.Hex;
+import org.aion.mcf.core.AccountState;
+import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.valid.BlockHeaderValidator;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.P2pConstant;
+import org.aion.rlp.Value;
+import org.aion.zero.db.AionContractDetailsImpl;
+import org.aion.zero.impl.AionBlockchainImpl;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
+import org.aion.zero.impl.sync.msg.ReqTrieData;
+import org.aion.zero.impl.sync.msg.ResTrieData;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.slf4j.Logger;
+
+/**
+ * Coordinates fast sync for nodes that are far behind the network. A pivot block close to the
+ * network best is chosen from the status of the peers. The blocks up to the pivot are stored
+ * without executing their transactions while the world state at the pivot is downloaded node by
+ * node and verified against the state root of the pivot. Normal import resumes once both the
+ * blocks and the state are available.
+ *
+ * <p>A node is stored only after all the nodes below it, including the contract details and
+ * storage of the accounts, are stored. A node found in the database is therefore the root of a
+ * complete subtree and is never downloaded again, while the state root is only stored once the
+ * whole state is present. Nodes left behind by a dropped pivot or an interrupted sync are complete
+ * subtrees that later syncs reuse.
+ */
+public final class FastSyncManager {
+
+    // distance between the pivot and the best block of the network
+    private static final int PIVOT_DISTANCE = 64;
+    // minimum distance to the best block of the network for starting fast sync
+    private static final int MIN_DISTANCE = 1024;
+    // number of referenced nodes requested together with each node
+    private static final int NODES_PER_REQUEST = 256;
+    // maximum number of requests waiting for a response
+    private static final int MAX_OUTSTANDING = 32;
+    // time after which an unanswered request is sent again, in milliseconds
+    private static final long REQUEST_TIMEOUT = 5_000L;
+    // minimum time between two requests to the same peer, in milliseconds, since peers drop the
+    // messages received on a route faster than P2pConstant.READ_MAX_RATE per second
+    private static final long PEER_REQUEST_INTERVAL = 1_000L / P2pConstant.READ_MAX_RATE;
+    // number of imported entries between progress messages
+    private static final long PROGRESS_INTERVAL = 10_000L;
+
+    private final AionBlockchainImpl chain;
+    private final AionRepositoryImpl repository;
+    private final IP2pMgr p2pMgr;
+    private final BlockHeaderValidator<A0BlockHeader> headerValidator;
+    private final int pivotDistance;
+    private final int minDistance;
+    private final Logger log;
+
+    // the pivot once its header was received, null before
+    private A0BlockHeader pivot = null;
+    // the number of the requested pivot header, -1 when not requested
+    private long pivotNumber = -1;
+    private int pivotPeer;
+    private long pivotRequestTime = 0;
+
+    private boolean stateComplete = false;
+    private boolean complete = false;
+
+    // requests waiting to be sent
+    private final Deque<TrieNodeRequest> required = new ArrayDeque<>();
+    // requests waiting for a response, by id
+    private final Map<ByteArrayWrapper, TrieNodeRequest> outstanding = new HashMap<>();
+    // ids of the required and outstanding requests
+    private final Set<ByteArrayWrapper> requested = new HashSet<>();
+    // received entries waiting for their missing children before being stored, by request id
+    private final Map<ByteArrayWrapper, PendingEntry> pending = new HashMap<>();
+    // the pending entries waiting for each missing child, by the request id of the child
+    private final Map<ByteArrayWrapper, List<PendingEntry>> parents = new HashMap<>();
+
+    // the time of the last request sent to each peer, by peer id
+    private final Map<Integer, Long> lastRequestTime = new HashMap<>();
+
+    private long importedEntries = 0;
+
+    public FastSyncManager(
+            final AionBlockchainImpl _chain,
+            final IP2pMgr _p2pMgr,
+            final BlockHeaderValidator<A0BlockHeader> _headerValidator,
+            final Logger _log) {
+        this(_chain, _p2pMgr, _headerValidator, PIVOT_DISTANCE, MIN_DISTANCE, _log);
+    }
+
+    @VisibleForTesting
+    FastSyncManager(
+            final AionBlockchainImpl _chain,
+            final IP2pMgr _p2pMgr,
+            final BlockHeaderValidator<A0BlockHeader> _headerValidator,
+            final int _pivotDistance,
+            final int _minDistance,
+            final Logger _log) {
+        this.chain = _chain;
+        this.repository = _chain.getRepository();
+        this.p2pMgr = _p2pMgr;
+        this.headerValidator = _headerValidator;
+        this.pivotDistance = _pivotDistance;
+        this.minDistance = _minDistance;
+        this.log = _log;
+    }
+
+    /** @return {@code true} while the blocks up to the pivot are stored without execution */
+    public synchronized boolean isActive() {
+        return pivot != null && !complete;
+    }
+
+    /** @return {@code true} once the state at the pivot is downloaded and normal import resumed */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /** @return the pivot block header, or {@code null} if not chosen yet */
+    public synchronized A0BlockHeader getPivot() {
+        return pivot;
+    }
+
+    /** @return the number of trie nodes and contract details imported so far */
+    public synchronized long getImportedEntries() {
+        return importedEntries;
+    }
+
+    /**
+     * Checks if the headers following the given block should not be requested yet, because the
+     * state at the pivot is still missing.
+     *
+     * @param selfNumber the number of the local best block
+     */
+    public synchronized boolean isBlockingHeaders(long selfNumber) {
+        return pivot != null && !complete && selfNumber >= pivot.getNumber();
+    }
+
+    /**
+     * Drops the blocks above the pivot while fast sync is active. They are requested again after
+     * normal import resumes.
+     */
+    public List<AionBlock> filterBatch(List<AionBlock> blocks) {
+        A0BlockHeader target;
+        synchronized (this) {
+            target = complete ? null : pivot;
+        }
+
+        if (target == null) {
+            return blocks;
+        } else {
+            long max = target.getNumber();
+            return blocks.stream().filter(b -> b.getNumber() <= max).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Imports a block while fast sync is active. Blocks up to the pivot are stored without
+     * execution, while the following ones are imported normally once the state is complete.
+     *
+     * @param block the block to import
+     * @return the result of the import
+     */
+    public ImportResult importBlock(AionBlock block) {
+        A0BlockHeader target;
+        synchronized (this) {
+            target = complete ? null : pivot;
+        }
+
+        if (target == null) {
+            return chain.tryToConnect(block);
+        }
+        if (block.getNumber() > target.getNumber()) {
+            return ImportResult.NO_PARENT;
+        }
+
+        ImportResult result = chain.tryToStoreWithoutExecution(block);
+
+        if (result.isSuccessful() && block.getNumber() == target.getNumber()) {
+            synchronized (this) {
+                if (!Arrays.equals(block.getHash(), target.getHash())) {
+                    log.warn(
+                            "<fast-sync pivot-mismatch number={} expected={} stored={}>",
+                            target.getNumber(),
+                            Hex.toHexString(target.getHash()),
+                            block.getShortHash());
+                    reset();
+                } else {
+                    checkComplete();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Consumes the header of the requested pivot block.
+     *
+     * @param _nodeIdHashcode the peer that sent the headers
+     * @param _headers the received headers
+     * @return {@code true} if the headers were the requested pivot and need no further processing
+     */
+    public synchronized boolean offerPivotHeader(
+            int _nodeIdHashcode, List<A0BlockHeader> _headers) {
+        if (pivot != null
+                || pivotNumber < 0
+                || _nodeIdHashcode != pivotPeer
+                || _headers.size() != 1
+                || _headers.get(0).getNumber() != pivotNumber) {
+            return false;
+        }
+
+        A0BlockHeader header = _headers.get(0);
+        if (!headerValidator.validate(header, log)) {
+            pivotNumber = -1;
+            return true;
+        }
+
+        pivot = header;
+        log.info(
+                "<fast-sync pivot number={} hash={} state-root={}>",
+                pivot.getNumber(),
+                Hex.toHexString(pivot.getHash()),
+                ByteUtil.toHexString(pivot.getStateRoot()));
+
+        byte[] root = pivot.getStateRoot();
+        if (!Arrays.equals(root, EMPTY_TRIE_HASH)
+                && !repository.hasTrieNode(root, DatabaseType.STATE, ByteUtil.EMPTY_BYTE_ARRAY)) {
+            require(new TrieNodeRequest(DatabaseType.STATE, root, ByteUtil.EMPTY_BYTE_ARRAY));
+        }
+        checkComplete();
+        return true;
+    }
+
+    /**
+     * Sends the pending requests to the peers and resends the ones without response.
+     *
+     * @param now the current time in milliseconds
+     * @return {@code false} once fast sync is complete and no further requests are needed
+     */
+    public synchronized boolean requestTrieData(long now) {
+        if (complete) {
+            return false;
+        }
+
+        if (pivot == null) {
+            if (now - pivotRequestTime > REQUEST_TIMEOUT) {
+                requestPivot(now);
+            }
+            return true;
+        }
+
+        // resend the requests without response
+        Iterator<TrieNodeRequest> it = outstanding.values().iterator();
+        while (it.hasNext()) {
+            TrieNodeRequest request = it.next();
+            if (now - request.sentTime > REQUEST_TIMEOUT) {
+                it.remove();
+                required.addFirst(request);
+            }
+        }
+
+        // one request to each peer that can serve the state at the pivot and was not sent a
+        // request recently
+        for (INode peer : p2pMgr.getActiveNodes().values()) {
+            if (outstanding.size() >= MAX_OUTSTANDING || required.isEmpty()) {
+                break;
+            }
+            Long last = lastRequestTime.get(peer.getIdHash());
+            if (peer.getBestBlockNumber() < pivot.getNumber()
+                    || (last != null && now - last < PEER_REQUEST_INTERVAL)) {
+                continue;
+            }
+            lastRequestTime.put(peer.getIdHash(), now);
+
+            TrieNodeRequest request = required.poll();
+            request.sentTime = now;
+            outstanding.put(request.id, request);
+            p2pMgr.send(
+                    peer.getIdHash(),
+                    peer.getIdShort(),
+                    new ReqTrieData(request.dbType, request.key, request.owner, NODES_PER_REQUEST));
+        }
+
+        checkComplete();
+        return !complete;
+    }
+
+    private void requestPivot(long now) {
+        pivotRequestTime = now;
+        pivotNumber = -1;
+
+        INode best = null;
+        for (INode node : p2pMgr.getActiveNodes().values()) {
+            if (best == null || node.getTotalDifficulty().compareTo(best.getTotalDifficulty()) > 0) {
+                best = node;
+            }
+        }
+
+        if (best != null
+                && best.getBestBlockNumber() > chain.getBestBlock().getNumber() + minDistance) {
+            pivotNumber = best.getBestBlockNumber() - pivotDistance;
+            pivotPeer = best.getIdHash();
+            p2pMgr.send(best.getIdHash(), best.getIdShort(), new ReqBlocksHeaders(pivotNumber, 1));
+        }
+    }
+
+    /**
+     * Verifies and stores the data received for a trie node or contract details request, queuing
+     * requests for the referenced entries that are still missing.
+     *
+     * @param _nodeIdHashcode the peer that sent the response
+     * @param _displayId the display id of the peer
+     * @param response the received data
+     */
+    public synchronized void addTrieData(
+            int _nodeIdHashcode, String _displayId, ResTrieData response) {
+        ByteArrayWrapper id =
+                TrieNodeRequest.id(response.getDbType(), response.getKey(), response.getOwner());
+        TrieNodeRequest request = outstanding.remove(id);
+        if (request == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("<fast-sync unrequested-trie-data node={}>", _displayId);
+            }
+            return;
+        }
+
+        boolean valid;
+        try {
+            valid =
+                    request.dbType == DatabaseType.DETAILS
+                            ? importDetails(request, response.getValue())
+                            : importTrieNodes(
+                                    request, response.getValue(), response.getReferencedNodes());
+        } catch (Exception e) {
+            valid = false;
+        }
+
+        if (valid) {
+            requested.remove(id);
+            checkComplete();
+        } else {
+            log.debug(
+                    "<fast-sync invalid-trie-data type={} key={} node={}>",
+                    request.dbType,
+                    ByteUtil.toHexString(request.key),
+                    _displayId);
+            p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+            required.addFirst(request);
+        }
+    }
+
+    private boolean importTrieNodes(
+            TrieNodeRequest request, byte[] value, Map<ByteArrayWrapper, byte[]> referenced) {
+        if (!Arrays.equals(h256(value), request.key)) {
+            return false;
+        }
+
+        // walk the received nodes starting from the requested one, collecting the missing children
+        Map<ByteArrayWrapper, PendingEntry> completed = new LinkedHashMap<>();
+        Deque<PendingEntry> nodes = new ArrayDeque<>();
+        nodes.add(addPending(request, request.key, value));
+
+        while (!nodes.isEmpty()) {
+            PendingEntry node = nodes.poll();
+
+            List<TrieNodeRequest> children = new ArrayList<>();
+            visitNode(node.request, Value.fromRlpEncoded(node.value), node.request.path, children);
+
+            for (TrieNodeRequest child : children) {
+                if (awaitChild(node, child, completed)) {
+                    byte[] childValue =
+                            child.dbType == DatabaseType.DETAILS
+                                    ? null
+                                    : referenced.get(ByteArrayWrapper.wrap(child.key));
+                    if (childValue != null && Arrays.equals(h256(childValue), child.key)) {
+                        nodes.add(addPending(child, child.key, childValue));
+                    } else {
+                        require(child);
+                    }
+                }
+            }
+
+            if (node.missing == 0) {
+                complete(node, completed);
+            }
+        }
+
+        store(completed.values());
+        return true;
+    }
+
+    private PendingEntry addPending(TrieNodeRequest request, byte[] key, byte[] value) {
+        PendingEntry entry = new PendingEntry(request, key, value);
+        pending.put(request.id, entry);
+        return entry;
+    }
+
+    /**
+     * Makes the entry wait for the given child, unless the child is the root of a complete
+     * subtree that is already stored.
+     *
+     * @param completed the entries completed but not stored yet
+     * @return {@code true} if the child must be downloaded, {@code false} if it is stored or
+     *     already pending or requested
+     */
+    private boolean awaitChild(
+            PendingEntry entry,
+            TrieNodeRequest child,
+            Map<ByteArrayWrapper, PendingEntry> completed) {
+        boolean known = pending.containsKey(child.id) || requested.contains(child.id);
+        if (!known
+                && child.dbType != DatabaseType.DETAILS
+                && (completed.containsKey(child.id)
+                        || repository.hasTrieNode(child.key, child.dbType, child.owner))) {
+            return false;
+        }
+
+        entry.missing++;
+        parents.computeIfAbsent(child.id, k -> new ArrayList<>()).add(entry);
+        return !known;
+    }
+
+    /** Completes the entry and the pending entries whose last missing child it was. */
+    private void complete(PendingEntry entry, Map<ByteArrayWrapper, PendingEntry> completed) {
+        Deque<PendingEntry> done = new ArrayDeque<>();
+        done.add(entry);
+        while (!done.isEmpty()) {
+            PendingEntry next = done.poll();
+            pending.remove(next.request.id);
+            completed.put(next.request.id, next);
+
+            List<PendingEntry> waiting = parents.remove(next.request.id);
+            if (waiting != null) {
+                for (PendingEntry parent : waiting) {
+                    if (--parent.missing == 0) {
+                        done.add(parent);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores the completed entries. The storage nodes are written before the contract details
+     * referring to them, which are written before the world state nodes.
+     */
+    private void store(Collection<PendingEntry> completed) {
+        if (completed.isEmpty()) {
+            return;
+        }
+
+        Map<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> storage = new HashMap<>();
+        Map<ByteArrayWrapper, byte[]> details = new HashMap<>();
+        Map<ByteArrayWrapper, byte[]> state = new HashMap<>();
+        for (PendingEntry entry : completed) {
+            ByteArrayWrapper key = ByteArrayWrapper.wrap(entry.key);
+            switch (entry.request.dbType) {
+                case STORAGE:
+                    storage.computeIfAbsent(
+                                    ByteArrayWrapper.wrap(entry.request.owner),
+                                    k -> new HashMap<>())
+                            .put(key, entry.value);
+                    break;
+                case DETAILS:
+                    details.put(key, entry.value);
+                    break;
+                default:
+                    state.put(key, entry.value);
+                    break;
+            }
+        }
+
+        for (Map.Entry<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> contract :
+                storage.entrySet()) {
+            repository.importTrieNodes(
+                    contract.getValue(), DatabaseType.STORAGE, contract.getKey().getData());
+        }
+        repository.importTrieNodes(details, DatabaseType.DETAILS, ByteUtil.EMPTY_BYTE_ARRAY);
+        repository.importTrieNodes(state, DatabaseType.STATE, ByteUtil.EMPTY_BYTE_ARRAY);
+        imported(completed.size());
+    }
+
+    /**
+     * Collects the children of a trie node, following the embedded nodes. The leaves of the world
+     * state lead to the contract details of the accounts that have code or storage.
+     */
+    private static void visitNode(
+            TrieNodeRequest parent, Value node, byte[] path, List<TrieNodeRequest> children) {
+        if (!node.isList()) {
+            return;
+        }
+
+        List<Object> items = node.asList();
+        if (items.size() == 2) {
+            byte[] packedKey = (byte[]) items.get(0);
+            byte[] nibbles = unpackToNibbles(packedKey);
+            Value child = new Value(items.get(1));
+
+            if (hasTerminator(packedKey)) {
+                if (parent.dbType == DatabaseType.STATE) {
+                    byte[] keyNibbles = append(path, nibbles, nibbles.length - 1);
+                    addDetails(keyNibbles, child.asBytes(), children);
+                }
+            } else if (child.isHashCode()) {
+                children.add(
+                        new TrieNodeRequest(
+                                parent.dbType,
+                                child.asBytes(),
+                                parent.owner,
+                                append(path, nibbles, nibbles.length)));
+            } else {
+                visitNode(parent, child, append(path, nibbles, nibbles.length), children);
+            }
+        } else {
+            // the value slot of branches is unused since all the keys are hashes
+            for (int i = 0; i < items.size() - 1; i++) {
+                Value child = new Value(items.get(i));
+                byte[] childPath = append(path, new byte[] {(byte) i}, 1);
+                if (child.isHashCode()) {
+                    children.add(
+                            new TrieNodeRequest(
+                                    parent.dbType, child.asBytes(), parent.owner, childPath));
+                } else {
+                    visitNode(parent, child, childPath, children);
+                }
+            }
+        }
+    }
+
+    private static void addDetails(
+            byte[] keyNibbles, byte[] encodedAccount, List<TrieNodeRequest> children) {
+        if (keyNibbles.length != 64) {
+            return;
+        }
+
+        AccountState account = new AccountState(encodedAccount);
+        if (!Arrays.equals(account.getCodeHash(), EMPTY_DATA_HASH)
+                || !Arrays.equals(account.getStateRoot(), EMPTY_TRIE_HASH)) {
+            byte[] hashedAddress = new byte[32];
+            for (int i = 0; i < hashedAddress.length; i++) {
+                hashedAddress[i] = (byte) ((keyNibbles[2 * i] << 4) | keyNibbles[2 * i + 1]);
+            }
+
+            TrieNodeRequest details =
+                    new TrieNodeRequest(
+                            DatabaseType.DETAILS, hashedAddress, ByteUtil.EMPTY_BYTE_ARRAY);
+            details.codeHash = account.getCodeHash();
+            details.storageRoot = account.getStateRoot();
+            children.add(details);
+        }
+    }
+
+    private static byte[] append(byte[] path, byte[] nibbles, int length) {
+        byte[] result = Arrays.copyOf(path, path.length + length);
+        System.arraycopy(nibbles, 0, result, path.length, length);
+        return result;
+    }
+
+    private boolean importDetails(TrieNodeRequest request, byte[] value) {
+        AionContractDetailsImpl details = new AionContractDetailsImpl(0, Integer.MAX_VALUE);
+        details.decode(value);
+
+        byte[] address = details.getAddress().toBytes();
+        if (!Arrays.equals(h256(address), request.key)
+                || (!Arrays.equals(request.codeHash, EMPTY_DATA_HASH)
+                        && details.getCode(request.codeHash).length == 0)) {
+            return false;
+        }
+
+        // the peer keeps the latest storage, possibly inline, so the storage at the pivot is
+        // downloaded separately and the details always refer to it as external storage
+        AionContractDetailsImpl synced =
+                (AionContractDetailsImpl) details.getSnapshotTo(request.storageRoot);
+        synced.externalStorage = true;
+
+        // the details are stored once their storage is complete
+        Map<ByteArrayWrapper, PendingEntry> completed = new LinkedHashMap<>();
+        PendingEntry entry = addPending(request, address, synced.getEncoded());
+        if (!Arrays.equals(request.storageRoot, EMPTY_TRIE_HASH)) {
+            TrieNodeRequest storage =
+                    new TrieNodeRequest(DatabaseType.STORAGE, request.storageRoot, address);
+            if (awaitChild(entry, storage, completed)) {
+                require(storage);
+            }
+        }
+        if (entry.missing == 0) {
+            complete(entry, completed);
+        }
+
+        store(completed.values());
+        return true;
+    }
+
+    private void require(TrieNodeRequest request) {
+        if (requested.add(request.id)) {
+            // depth first, so that subtrees complete and leave memory as early as possible
+            required.addFirst(request);
+        }
+    }
+
+    private void imported(int count) {
+        long before = importedEntries;
+        importedEntries += count;
+        if (before / PROGRESS_INTERVAL != importedEntries / PROGRESS_INTERVAL) {
+            log.info(
+                    "<fast-sync imported-entries={} pending-requests={}>",
+                    importedEntries,
+                    requested.size());
+        }
+    }
+
+    /** Resumes normal import once the state is downloaded and the pivot block is stored. */
+    private void checkComplete() {
+        if (complete
+                || pivot == null
+                || !required.isEmpty()
+                || !outstanding.isEmpty()
+                || !pending.isEmpty()) {
+            return;
+        }
+
+        if (!stateComplete) {
+            stateComplete = true;
+            log.info(
+                    "<fast-sync state-complete pivot={} imported-entries={}>",
+                    pivot.getNumber(),
+                    importedEntries);
+        }
+
+        if (chain.getBestBlock().getNumber() >= pivot.getNumber()) {
+            repository.flush();
+            complete = true;
+            log.info(
+                    "<fast-sync complete pivot={} hash={}, resuming normal import>",
+                    pivot.getNumber(),
+                    Hex.toHexString(pivot.getHash()));
+        }
+    }
+
+    /**
+     * Drops the pivot and the pending requests so that a new pivot is chosen. The stored nodes are
+     * complete subtrees and are kept for the next pivot.
+     */
+    private void reset() {
+        pivot = null;
+        pivotNumber = -1;
+        pivotRequestTime = 0;
+        stateComplete = false;
+        required.clear();
+        outstanding.clear();
+        requested.clear();
+        pending.clear();
+        parents.clear();
+    }
+
+    /** A received entry that is stored once none of its children is missing. */
+    private static final class PendingEntry {
+
+        final TrieNodeRequest request;
+        // the database key and the encoding to store
+        final byte[] key;
+        final byte[] value;
+        // the number of children that are not stored yet
+        int missing = 0;
+
+        PendingEntry(TrieNodeRequest request, byte[] key, byte[] value) {
+            this.request = request;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /** A request for a trie node or contract details entry. */
+    static final class TrieNodeRequest {
+
+        final DatabaseType dbType;
+        final byte[] key;
+        final byte[] owner;
+        final ByteArrayWrapper id;
+        // the nibbles leading to a world state node
+        final byte[] path;
+        // the expected code and storage of contract details
+        byte[] codeHash;
+        byte[] storageRoot;
+        long sentTime;
+
+        TrieNodeRequest(DatabaseType dbType, byte[] key, byte[] owner) {
+            this(dbType, key, owner, ByteUtil.EMPTY_BYTE_ARRAY);
+        }
+
+        TrieNodeRequest(DatabaseType dbType, byte[] key, byte[] owner, byte[] path) {
+            this.dbType = dbType;
+            this.key = key;
+            this.owner = owner;
+            this.path = path;
+            this.id = id(dbType, key, owner);
+        }
+
+        static ByteArrayWrapper id(DatabaseType dbType, byte[] key, byte[] owner) {
+            byte[] id = new byte[1 + owner.length + key.length];
+            id[0] = (byte) dbType.ordinal();
+            System.arraycopy(owner, 0, id, 1, owner.length);
+            System.arraycopy(key, 0, id, 1 + owner.length, key.length);
+            return ByteArrayWrapper.wrap(id);
+        }
+    }
+}
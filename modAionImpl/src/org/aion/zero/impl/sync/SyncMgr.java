@@ -22,6 +22,8 @@
  */
 package org.aion.zero.impl.sync;
 
+import static org.aion.p2p.P2pConstant.BACKWARD_SYNC_STEP;
+
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -53,6 +55,7 @@ import org.aion.mcf.valid.BlockHeaderValidator;
 import org.aion.p2p.IP2pMgr;
 import org.aion.zero.impl.AionBlockchainImpl;
 import org.aion.zero.impl.blockchain.ChainConfiguration;
+import org.aion.zero.impl.sync.msg.ResTrieData;
 import org.aion.zero.impl.types.AionBlock;
 import org.aion.zero.types.A0BlockHeader;
 import org.apache.commons.collections4.map.LRUMap;
@@ -63,6 +66,8 @@ public final class SyncMgr {
 
     // interval - show status
     private static final int INTERVAL_SHOW_STATUS = 10000;
+    // number of prepared batches that can wait for import
+    private static final int PREPARED_BATCHES_MAX = 4;
 
     private static final Logger log = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
     private final NetworkStatus networkStatus = new NetworkStatus();
@@ -75,6 +80,9 @@ public final class SyncMgr {
             new ConcurrentHashMap<>();
     // store the downloaded blocks that are ready to import
     private final BlockingQueue<BlocksWrapper> downloadedBlocks = new LinkedBlockingQueue<>();
+    // store the downloaded blocks with recovered transaction senders that are ready to import
+    private final BlockingQueue<BlocksWrapper> preparedBlocks =
+            new LinkedBlockingQueue<>(PREPARED_BATCHES_MAX);
     // store the hashes of blocks which have been successfully imported
     private final Map<ByteArrayWrapper, Object> importedBlockHashes =
             Collections.synchronizedMap(new LRUMap<>(4096));
@@ -83,6 +91,10 @@ public final class SyncMgr {
     private IP2pMgr p2pMgr;
     private IEventMgr evtMgr;
     private SyncStats stats;
+    // requests the missing blocks from multiple peers when far behind, null when disabled
+    private DownloadScheduler scheduler;
+    // downloads the world state at a pivot block when far behind, null when disabled
+    private FastSyncManager fastSync;
     private AtomicBoolean start = new AtomicBoolean(true);
     // private ExecutorService workers = Executors.newFixedThreadPool(5);
     private ExecutorService workers =
@@ -98,9 +110,11 @@ public final class SyncMgr {
                     });
 
     private Thread syncGb = null;
+    private Thread syncPb = null;
     private Thread syncIb = null;
     private Thread syncGs = null;
     private Thread syncSs = null;
+    private Thread syncGt = null;
 
     private BlockHeaderValidator<A0BlockHeader> blockHeaderValidator;
     private volatile long timeUpdated = 0;
@@ -172,7 +186,9 @@ public final class SyncMgr {
             final IEventMgr _evtMgr,
             final int _blocksQueueMax,
             final boolean _showStatus,
-            final Set<StatsType> showStatistics) {
+            final Set<StatsType> showStatistics,
+            final boolean parallelDownload,
+            final boolean fastSyncEnabled) {
         p2pMgr = _p2pMgr;
         chain = _chain;
         evtMgr = _evtMgr;
@@ -184,6 +200,14 @@ public final class SyncMgr {
         long selfBest = chain.getBestBlock().getNumber();
         stats = new SyncStats(selfBest);
 
+        if (parallelDownload) {
+            scheduler = new DownloadScheduler(p2pMgr, peerStates, downloadedBlocks, stats, log);
+        }
+
+        if (fastSyncEnabled) {
+            fastSync = new FastSyncManager(chain, p2pMgr, blockHeaderValidator, log);
+        }
+
         syncGb =
                 new Thread(
                         new TaskGetBodies(
@@ -196,21 +220,38 @@ public final class SyncMgr {
                                 log),
                         "sync-gb");
         syncGb.start();
+        syncPb =
+                new Thread(
+                        new TaskPrepareBlocks(
+                                start,
+                                downloadedBlocks,
+                                preparedBlocks,
+                                stats,
+                                Runtime.getRuntime().availableProcessors(),
+                                log),
+                        "sync-pb");
+        syncPb.start();
         syncIb =
                 new Thread(
                         new TaskImportBlocks(
                                 chain,
                                 start,
                                 stats,
-                                downloadedBlocks,
+                                preparedBlocks,
                                 importedBlockHashes,
                                 peerStates,
+                                fastSync,
                                 log),
                         "sync-ib");
         syncIb.start();
         syncGs = new Thread(new TaskGetStatus(start, p2pMgr, stats, log), "sync-gs");
         syncGs.start();
 
+        if (fastSync != null) {
+            syncGt = new Thread(new TaskGetTrieData(start, fastSync, log), "sync-gt");
+            syncGt.start();
+        }
+
         if (_showStatus) {
             syncSs =
                     new Thread(
@@ -238,20 +279,29 @@ public final class SyncMgr {
     }
 
     private void getHeaders(BigInteger _selfTd) {
-        if (downloadedBlocks.size() > blocksQueueMax) {
+        if (downloadedBlocks.size() + preparedBlocks.size() > blocksQueueMax) {
             if (queueFull.compareAndSet(false, true)) {
                 log.debug("Downloaded blocks queue is full. Stop requesting headers");
             }
         } else {
             if (!workers.isShutdown()) {
-                workers.submit(
-                        new TaskGetHeaders(
-                                p2pMgr,
-                                chain.getBestBlock().getNumber(),
-                                _selfTd,
-                                peerStates,
-                                stats,
-                                log));
+                long selfNumber = chain.getBestBlock().getNumber();
+
+                // the blocks above the pivot cannot be imported before its state is downloaded
+                if (fastSync != null && fastSync.isBlockingHeaders(selfNumber)) {
+                    return;
+                }
+
+                // the scheduler takes over while the local chain is far behind the network
+                boolean scheduled =
+                        scheduler != null
+                                && getNetworkBestBlockNumber() > selfNumber + BACKWARD_SYNC_STEP
+                                && scheduler.schedule(selfNumber, System.currentTimeMillis());
+                if (!scheduled) {
+                    workers.submit(
+                            new TaskGetHeaders(
+                                    p2pMgr, selfNumber, _selfTd, peerStates, stats, log));
+                }
                 queueFull.set(false);
             }
         }
@@ -268,6 +318,10 @@ public final class SyncMgr {
             return;
         }
 
+        if (fastSync != null && fastSync.offerPivotHeader(_nodeIdHashcode, _headers)) {
+            return;
+        }
+
         if (log.isDebugEnabled()) {
             log.debug(
                     "<incoming-headers from={} size={} node={}>",
@@ -316,6 +370,11 @@ public final class SyncMgr {
 
         // NOTE: the filtered headers is still continuous
 
+        if (scheduler != null) {
+            scheduler.onHeaders(
+                    _nodeIdHashcode, _headers, filtered.size(), System.currentTimeMillis());
+        }
+
         if (!filtered.isEmpty()) {
             downloadedHeaders.add(new HeadersWrapper(_nodeIdHashcode, _displayId, filtered));
         }
@@ -363,8 +422,31 @@ public final class SyncMgr {
                     _displayId);
         }
 
-        // add batch
-        downloadedBlocks.add(new BlocksWrapper(_nodeIdHashcode, _displayId, blocks));
+        // add batch, in order of the block numbers when requested by the scheduler
+        BlocksWrapper batch = new BlocksWrapper(_nodeIdHashcode, _displayId, blocks);
+        if (scheduler == null || !scheduler.onBlocks(batch, System.currentTimeMillis())) {
+            downloadedBlocks.add(batch);
+        } else {
+            // the peer is idle again, so it can be assigned the next chunk right away
+            getHeaders(chain.getTotalDifficulty());
+        }
+    }
+
+    /**
+     * @param _nodeIdHashcode int
+     * @param _displayId String
+     * @param _response ResTrieData passed to fast sync for verification and storage
+     */
+    public void validateAndAddTrieData(
+            int _nodeIdHashcode, String _displayId, final ResTrieData _response) {
+        if (fastSync != null) {
+            fastSync.addTrieData(_nodeIdHashcode, _displayId, _response);
+        }
+    }
+
+    /** @return the fast sync coordinator, or {@code null} when fast sync is disabled */
+    public FastSyncManager getFastSyncManager() {
+        return fastSync;
     }
 
     public long getNetworkBestBlockNumber() {
@@ -378,9 +460,11 @@ public final class SyncMgr {
         workers.shutdown();
 
         interruptAndWait(syncGb, 10000);
+        interruptAndWait(syncPb, 10000);
         interruptAndWait(syncIb, 10000);
         interruptAndWait(syncGs, 10000);
         interruptAndWait(syncSs, 10000);
+        interruptAndWait(syncGt, 10000);
     }
 
     private void interruptAndWait(Thread t, long timeout) {
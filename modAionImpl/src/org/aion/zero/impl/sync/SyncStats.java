@@ -75,6 +75,17 @@ public final class SyncStats {
 
     private final Lock responsesLock = new ReentrantLock();
 
+    /**
+     * Records the time spent in each stage of the block import pipeline.
+     *
+     * @implNote Access to these resources is managed by the {@link #pipelineLock}.
+     */
+    private long preparedBlocks = 0, prepareTime = 0, importedBlocks = 0, importTime = 0;
+    /** @implNote Access to these resources is managed by the {@link #pipelineLock}. */
+    private int downloadedQueueSize = 0, preparedQueueSize = 0;
+
+    private final Lock pipelineLock = new ReentrantLock();
+
     SyncStats(long _startBlock) {
         this.start = System.currentTimeMillis();
         this.startBlock = _startBlock;
@@ -399,4 +410,100 @@ public final class SyncStats {
             responsesLock.unlock();
         }
     }
+
+    /**
+     * Updates the time spent preparing blocks for import, i.e. recovering transaction senders.
+     *
+     * @param _blocks number of prepared blocks
+     * @param _time time in nanoseconds spent on preparing the blocks
+     */
+    void addPrepareStage(int _blocks, long _time) {
+        pipelineLock.lock();
+        try {
+            preparedBlocks += _blocks;
+            prepareTime += _time;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /**
+     * Updates the time spent importing blocks, i.e. validating, executing and storing them.
+     *
+     * @param _blocks number of blocks in the imported batch
+     * @param _time time in nanoseconds spent on importing the batch
+     */
+    void addImportStage(int _blocks, long _time) {
+        pipelineLock.lock();
+        try {
+            importedBlocks += _blocks;
+            importTime += _time;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /**
+     * Records the number of batches waiting in the import pipeline queues.
+     *
+     * @param _downloaded number of batches waiting to be prepared
+     * @param _prepared number of batches waiting to be imported
+     */
+    void updatePipelineQueues(int _downloaded, int _prepared) {
+        pipelineLock.lock();
+        try {
+            downloadedQueueSize = _downloaded;
+            preparedQueueSize = _prepared;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /**
+     * Obtains the average time spent per block in the prepare stage of the import pipeline.
+     *
+     * @return average prepare time per block in nanoseconds or {@code -1} when there is no data
+     */
+    double getAvgPrepareTimePerBlock() {
+        pipelineLock.lock();
+        try {
+            return preparedBlocks == 0 ? -1 : (double) prepareTime / preparedBlocks;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /**
+     * Obtains the average time spent per block in the import stage of the import pipeline.
+     *
+     * @return average import time per block in nanoseconds or {@code -1} when there is no data
+     */
+    double getAvgImportTimePerBlock() {
+        pipelineLock.lock();
+        try {
+            return importedBlocks == 0 ? -1 : (double) importTime / importedBlocks;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /** @return the last observed number of batches waiting to be prepared */
+    int getDownloadedQueueSize() {
+        pipelineLock.lock();
+        try {
+            return downloadedQueueSize;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
+
+    /** @return the last observed number of batches waiting to be imported */
+    int getPreparedQueueSize() {
+        pipelineLock.lock();
+        try {
+            return preparedQueueSize;
+        } finally {
+            pipelineLock.unlock();
+        }
+    }
 }
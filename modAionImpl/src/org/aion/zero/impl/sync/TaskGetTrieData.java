@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+
+/** Periodically sends the pending fast sync requests until the state at the pivot is complete. */
+final class TaskGetTrieData implements Runnable {
+
+    private static final int INTERVAL = 100;
+
+    private final AtomicBoolean run;
+
+    private final FastSyncManager fastSync;
+
+    private final Logger log;
+
+    TaskGetTrieData(final AtomicBoolean _run, final FastSyncManager _fastSync, final Logger _log) {
+        this.run = _run;
+        this.fastSync = _fastSync;
+        this.log = _log;
+    }
+
+    @Override
+    public void run() {
+        while (this.run.get()) {
+            try {
+                if (!fastSync.requestTrieData(System.currentTimeMillis())) {
+                    break;
+                }
+                Thread.sleep(INTERVAL);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    // we were asked to quit
+                    break;
+                } else {
+                    log.error("<sync-gt exception>", e);
+                }
+            }
+        }
+        log.info("<sync-gt shutdown>");
+    }
+}
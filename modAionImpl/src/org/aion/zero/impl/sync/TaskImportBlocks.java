@@ -70,7 +70,7 @@ final class TaskImportBlocks implements Runnable {
 
     private final AtomicBoolean start;
 
-    private final BlockingQueue<BlocksWrapper> downloadedBlocks;
+    private final BlockingQueue<BlocksWrapper> preparedBlocks;
 
     private final SyncStats stats;
 
@@ -78,6 +78,9 @@ final class TaskImportBlocks implements Runnable {
 
     private final Map<Integer, PeerState> peerStates;
 
+    // stores the blocks up to the fast sync pivot without execution, null when disabled
+    private final FastSyncManager fastSync;
+
     private final Logger log;
 
     private SortedSet<Long> baseList;
@@ -89,16 +92,18 @@ final class TaskImportBlocks implements Runnable {
             final AionBlockchainImpl _chain,
             final AtomicBoolean _start,
             final SyncStats _stats,
-            final BlockingQueue<BlocksWrapper> _downloadedBlocks,
+            final BlockingQueue<BlocksWrapper> _preparedBlocks,
             final Map<ByteArrayWrapper, Object> _importedBlockHashes,
             final Map<Integer, PeerState> _peerStates,
+            final FastSyncManager _fastSync,
             final Logger _log) {
         this.chain = _chain;
         this.start = _start;
         this.stats = _stats;
-        this.downloadedBlocks = _downloadedBlocks;
+        this.preparedBlocks = _preparedBlocks;
         this.importedBlockHashes = _importedBlockHashes;
         this.peerStates = _peerStates;
+        this.fastSync = _fastSync;
         this.log = _log;
         this.baseList = new TreeSet<>();
         this.state = new PeerState(NORMAL, 0L);
@@ -114,7 +119,7 @@ final class TaskImportBlocks implements Runnable {
         while (start.get()) {
             BlocksWrapper bw;
             try {
-                bw = downloadedBlocks.take();
+                bw = preparedBlocks.take();
             } catch (InterruptedException ex) {
                 if (start.get()) {
                     log.error("Import blocks thread interrupted without shutdown request.", ex);
@@ -128,6 +133,9 @@ final class TaskImportBlocks implements Runnable {
                 log.warn("Peer {} sent blocks that were not requested.", bw.getDisplayId());
             } else { // the peerState is not null after this
                 List<AionBlock> batch = filterBatch(bw.getBlocks(), chain, importedBlockHashes);
+                if (fastSync != null) {
+                    batch = fastSync.filterBatch(batch);
+                }
 
                 if (log.isDebugEnabled()) {
                     log.debug(
@@ -138,7 +146,9 @@ final class TaskImportBlocks implements Runnable {
                 }
 
                 // process batch and update the peer state
+                long t1 = System.nanoTime();
                 peerState.copy(processBatch(peerState, batch, bw.getDisplayId()));
+                stats.addImportStage(batch.size(), System.nanoTime() - t1);
 
                 // so we can continue immediately
                 peerState.resetLastHeaderRequest();
@@ -560,7 +570,11 @@ final class TaskImportBlocks implements Runnable {
     private ImportResult importBlock(AionBlock b, String displayId, PeerState state) {
         ImportResult importResult;
         long t1 = System.currentTimeMillis();
-        importResult = this.chain.tryToConnect(b);
+        if (fastSync != null && fastSync.isActive()) {
+            importResult = fastSync.importBlock(b);
+        } else {
+            importResult = this.chain.tryToConnect(b);
+        }
         long t2 = System.currentTimeMillis();
         if (log.isDebugEnabled()) {
             // printing sync mode only when debug is enabled
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.slf4j.Logger;
+
+/**
+ * First stage of the block import pipeline. Takes the downloaded batches and performs the CPU-heavy
+ * work that does not depend on the state of the chain (i.e. the ed25519 sender recovery and the
+ * transaction hashing) in parallel, before passing the batches on to {@link TaskImportBlocks}.
+ *
+ * <p>The results are cached inside the transaction objects, so while the import thread is
+ * executing a batch the following batches are already being prepared. The output queue is bounded
+ * to limit the memory used by blocks that are ready for import.
+ */
+final class TaskPrepareBlocks implements Runnable {
+
+    /** Batches with fewer transactions are prepared on the current thread. */
+    private static final int MIN_PARALLEL_TXS = 16;
+
+    private final AtomicBoolean start;
+
+    private final BlockingQueue<BlocksWrapper> downloadedBlocks;
+
+    private final BlockingQueue<BlocksWrapper> preparedBlocks;
+
+    private final SyncStats stats;
+
+    private final Logger log;
+
+    private final int threads;
+
+    private final ExecutorService workers;
+
+    TaskPrepareBlocks(
+            final AtomicBoolean _start,
+            final BlockingQueue<BlocksWrapper> _downloadedBlocks,
+            final BlockingQueue<BlocksWrapper> _preparedBlocks,
+            final SyncStats _stats,
+            final int _threads,
+            final Logger _log) {
+        this.start = _start;
+        this.downloadedBlocks = _downloadedBlocks;
+        this.preparedBlocks = _preparedBlocks;
+        this.stats = _stats;
+        this.threads = Math.max(1, _threads);
+        this.log = _log;
+
+        AtomicInteger cnt = new AtomicInteger(0);
+        this.workers =
+                Executors.newFixedThreadPool(
+                        this.threads,
+                        r -> {
+                            Thread t = new Thread(r, "sync-pb-" + cnt.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        });
+    }
+
+    @Override
+    public void run() {
+        while (start.get()) {
+            BlocksWrapper bw;
+            try {
+                bw = downloadedBlocks.take();
+                stats.updatePipelineQueues(downloadedBlocks.size(), preparedBlocks.size());
+
+                long t1 = System.nanoTime();
+                int txs = prepare(bw.getBlocks());
+                long t2 = System.nanoTime();
+
+                stats.addPrepareStage(bw.getBlocks().size(), t2 - t1);
+                if (log.isTraceEnabled()) {
+                    log.trace(
+                            "<prepare-blocks node={} size={} txs={} time={}ms>",
+                            bw.getDisplayId(),
+                            bw.getBlocks().size(),
+                            txs,
+                            (t2 - t1) / 1_000_000);
+                }
+
+                // blocks when the import stage is falling behind
+                preparedBlocks.put(bw);
+            } catch (InterruptedException ex) {
+                if (start.get()) {
+                    log.error("Prepare blocks thread interrupted without shutdown request.", ex);
+                }
+                break;
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(
+                    "Thread ["
+                            + Thread.currentThread().getName()
+                            + "] preparing blocks for import was shutdown.");
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * Recovers the senders and computes the hashes of all the transactions in the given blocks.
+     *
+     * @param blocks the blocks to be prepared for import
+     * @return the number of prepared transactions
+     * @throws InterruptedException when interrupted while waiting for the workers
+     */
+    int prepare(List<AionBlock> blocks) throws InterruptedException {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (AionBlock block : blocks) {
+            txs.addAll(block.getTransactionsList());
+        }
+
+        if (txs.size() < MIN_PARALLEL_TXS || threads == 1) {
+            prepare(txs, 0, txs.size());
+            return txs.size();
+        }
+
+        int slice = (txs.size() + threads - 1) / threads;
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int from = 0; from < txs.size(); from += slice) {
+            final int first = from;
+            final int end = Math.min(from + slice, txs.size());
+            tasks.add(
+                    () -> {
+                        prepare(txs, first, end);
+                        return null;
+                    });
+        }
+
+        for (Future<Void> f : workers.invokeAll(tasks)) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                // not fatal: the import stage repeats any work that failed here
+                log.warn("<prepare-blocks failed>", e.getCause());
+            }
+        }
+        return txs.size();
+    }
+
+    private static void prepare(List<AionTransaction> txs, int from, int to) {
+        for (int i = from; i < to; i++) {
+            AionTransaction tx = txs.get(i);
+            // both values are cached within the transaction
+            tx.getHash();
+            tx.getFrom();
+        }
+    }
+}
@@ -129,6 +129,10 @@ final class TaskShowStatus implements Runnable {
                 }
             }
 
+            if (showStatistics.contains(StatsType.PIPELINE)) {
+                p2pLOG.info(dumpPipelineInfo());
+            }
+
             try {
                 Thread.sleep(interval);
             } catch (InterruptedException e) {
@@ -164,6 +168,7 @@ final class TaskShowStatus implements Runnable {
             if (!requestedInfo.isEmpty()) {
                 p2pLOG.debug(requestedInfo);
             }
+            p2pLOG.debug(dumpPipelineInfo());
 
             p2pLOG.debug("sync-ss shutdown");
         }
@@ -307,6 +312,38 @@ final class TaskShowStatus implements Runnable {
         return sb.toString();
     }
 
+    /**
+     * Obtain log stream containing statistics about the block import pipeline, namely the average
+     * time spent per block in each stage and the number of batches waiting for each stage.
+     *
+     * @return log stream with import pipeline statistical data
+     */
+    private String dumpPipelineInfo() {
+        // values in milliseconds
+        double prepare = this.stats.getAvgPrepareTimePerBlock() / 1_000_000;
+        double execute = this.stats.getAvgImportTimePerBlock() / 1_000_000;
+
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("\n====== sync-import-pipeline ========\n");
+        sb.append(String.format("   %9s %9s %14s\n", "stage", "queue", "avg. time"));
+        sb.append("------------------------------------\n");
+        sb.append(
+                String.format(
+                        "   %9s %9d %11s ms\n",
+                        "prepare",
+                        this.stats.getDownloadedQueueSize(),
+                        prepare < 0 ? "-" : String.format("%.2f", prepare)));
+        sb.append(
+                String.format(
+                        "   %9s %9d %11s ms\n",
+                        "import",
+                        this.stats.getPreparedQueueSize(),
+                        execute < 0 ? "-" : String.format("%.2f", execute)));
+
+        return sb.toString();
+    }
+
     private String dumpPeerStateInfo(Collection<INode> filtered) {
         List<NodeState> sorted = new ArrayList<>();
         for (INode n : filtered) {
@@ -151,16 +151,14 @@ public final class BroadcastTxHandler extends Handler {
     }
 
     private List<AionTransaction> castRawTx(List<byte[]> broadCastTx) {
-        List<AionTransaction> rtn = new ArrayList<>();
+        List<AionTransaction> decoded = new ArrayList<>();
 
         for (byte[] raw : broadCastTx) {
             try {
                 AionTransaction tx = new AionTransaction(raw);
                 if (tx.getHash() != null) {
                     if (!TXValidator.isInCache(ByteArrayWrapper.wrap(tx.getHash()))) {
-                        if (TXValidator.isValid(tx)) {
-                            rtn.add(tx);
-                        }
+                        decoded.add(tx);
                     }
                 }
             } catch (Exception e) {
@@ -171,6 +169,15 @@ public final class BroadcastTxHandler extends Handler {
             }
         }
 
+        // the signatures of the new transactions are verified as a batch
+        List<AionTransaction> rtn = new ArrayList<>();
+        boolean[] valid = TXValidator.isValid(decoded);
+        for (int i = 0; i < valid.length; i++) {
+            if (valid[i]) {
+                rtn.add(decoded.get(i));
+            }
+        }
+
         if (log.isTraceEnabled()) {
             log.trace(
                     "BroadcastTxHandler.castRawTx Tx#{} validTx#{}",
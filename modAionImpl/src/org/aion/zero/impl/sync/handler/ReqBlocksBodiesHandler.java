@@ -36,10 +36,7 @@
 package org.aion.zero.impl.sync.handler;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.ByteUtil;
 import org.aion.p2p.Ctrl;
 import org.aion.p2p.Handler;
@@ -51,8 +48,6 @@ import org.aion.zero.impl.sync.Act;
 import org.aion.zero.impl.sync.SyncMgr;
 import org.aion.zero.impl.sync.msg.ReqBlocksBodies;
 import org.aion.zero.impl.sync.msg.ResBlocksBodies;
-import org.aion.zero.impl.types.AionBlock;
-import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 
 /** @author chris handler for request block bodies broadcasted from network */
@@ -68,9 +63,6 @@ public final class ReqBlocksBodiesHandler extends Handler {
 
     private final IP2pMgr p2pMgr;
 
-    private final Map<ByteArrayWrapper, byte[]> cache =
-            Collections.synchronizedMap(new LRUMap<>(512));
-
     private final boolean isSyncOnlyNode;
 
     public ReqBlocksBodiesHandler(
@@ -104,31 +96,10 @@ public final class ReqBlocksBodiesHandler extends Handler {
             // results
             List<byte[]> blockBodies = new ArrayList<>();
 
-            // read from cache, then block store
+            // bodies are sliced out of the encoded blocks, which the block store caches
             int out = 0;
-            for (byte[] hash : hashes) {
-
-                // ref for add.
-                byte[] blockBytesForadd;
-
-                byte[] blockBytes = cache.get(ByteArrayWrapper.wrap(hash));
-
-                // if cached , add.
-                if (blockBytes != null) {
-                    blockBytesForadd = blockBytes;
-                } else {
-                    AionBlock block = blockchain.getBlockByHash(hash);
-
-                    if (block != null) {
-                        blockBytesForadd = block.getEncodedBody();
-                        cache.put(ByteArrayWrapper.wrap(hash), block.getEncodedBody());
-                    } else {
-                        // not found
-                        break;
-                    }
-                }
-
-                if ((out += blockBytesForadd.length) > P2pConstant.MAX_BODY_SIZE) {
+            for (byte[] body : blockchain.getListOfBodiesByHashes(hashes)) {
+                if ((out += body.length) > P2pConstant.MAX_BODY_SIZE) {
                     log.debug(
                             "<req-blocks-bodies-max-size-reach size={}/{}>",
                             out,
@@ -136,7 +107,7 @@ public final class ReqBlocksBodiesHandler extends Handler {
                     break;
                 }
 
-                blockBodies.add(blockBytesForadd);
+                blockBodies.add(body);
             }
 
             this.p2pMgr.send(_nodeIdHashcode, _displayId, new ResBlocksBodies(blockBodies));
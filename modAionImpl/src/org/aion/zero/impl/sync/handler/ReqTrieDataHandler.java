@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync.handler;
+
+import java.util.Collections;
+import java.util.Map;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.DatabaseType;
+import org.aion.zero.impl.sync.msg.ReqTrieData;
+import org.aion.zero.impl.sync.msg.ResTrieData;
+import org.slf4j.Logger;
+
+/** Handler for trie node and contract details requests from fast syncing peers. */
+public final class ReqTrieDataHandler extends Handler {
+
+    // maximum number of referenced nodes sent in a single response
+    private static final int MAX_REFERENCED_NODES = 1024;
+
+    private final Logger log;
+
+    private final AionRepositoryImpl repository;
+
+    private final IP2pMgr p2pMgr;
+
+    private final boolean isSyncOnlyNode;
+
+    public ReqTrieDataHandler(
+            final Logger _log,
+            final AionRepositoryImpl _repository,
+            final IP2pMgr _p2pMgr,
+            final boolean isSyncOnlyNode) {
+        super(Ver.V0, Ctrl.SYNC, Act.REQ_TRIE_DATA);
+        this.log = _log;
+        this.repository = _repository;
+        this.p2pMgr = _p2pMgr;
+        this.isSyncOnlyNode = isSyncOnlyNode;
+    }
+
+    @Override
+    public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        if (isSyncOnlyNode) return;
+
+        ReqTrieData request = ReqTrieData.decode(_msgBytes);
+        if (request == null
+                || (request.getDbType() == DatabaseType.STORAGE
+                        && request.getOwner().length != Address.ADDRESS_LEN)) {
+            this.log.error(
+                    "<req-trie-data decode-error msg-bytes={} node={}>",
+                    _msgBytes == null ? 0 : _msgBytes.length,
+                    _displayId);
+
+            if (this.log.isTraceEnabled() && _msgBytes != null) {
+                this.log.trace("req-trie-data dump: {}", ByteUtil.toHexString(_msgBytes));
+            }
+            return;
+        }
+
+        byte[] value =
+                repository.getTrieNode(request.getKey(), request.getDbType(), request.getOwner());
+        if (value == null) {
+            // the peer retries with another node after a timeout
+            if (log.isDebugEnabled()) {
+                this.log.debug(
+                        "<req-trie-data not-found type={} key={} node={}>",
+                        request.getDbType(),
+                        ByteUtil.toHexString(request.getKey()),
+                        _displayId);
+            }
+            return;
+        }
+
+        int limit = Math.min(Math.max(request.getLimit(), 0), MAX_REFERENCED_NODES);
+        Map<ByteArrayWrapper, byte[]> referencedNodes =
+                limit == 0
+                        ? Collections.emptyMap()
+                        : repository.getReferencedTrieNodes(
+                                value, limit, request.getDbType(), request.getOwner());
+
+        this.p2pMgr.send(
+                _nodeIdHashcode,
+                _displayId,
+                new ResTrieData(
+                        request.getDbType(),
+                        request.getKey(),
+                        request.getOwner(),
+                        value,
+                        referencedNodes));
+
+        if (log.isDebugEnabled()) {
+            this.log.debug(
+                    "<req-trie-data type={} key={} referenced={} node={}>",
+                    request.getDbType(),
+                    ByteUtil.toHexString(request.getKey()),
+                    referencedNodes.size(),
+                    _displayId);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync.handler;
+
+import org.aion.base.util.ByteUtil;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Ver;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.SyncMgr;
+import org.aion.zero.impl.sync.msg.ResTrieData;
+import org.slf4j.Logger;
+
+/** Handler for trie node and contract details responses received during fast sync. */
+public final class ResTrieDataHandler extends Handler {
+
+    private final Logger log;
+
+    private final SyncMgr syncMgr;
+
+    private final IP2pMgr p2pMgr;
+
+    public ResTrieDataHandler(final Logger _log, final SyncMgr _syncMgr, final IP2pMgr _p2pMgr) {
+        super(Ver.V0, Ctrl.SYNC, Act.RES_TRIE_DATA);
+        this.log = _log;
+        this.syncMgr = _syncMgr;
+        this.p2pMgr = _p2pMgr;
+    }
+
+    @Override
+    public void receive(int _nodeIdHashcode, String _displayId, final byte[] _msgBytes) {
+        if (_msgBytes == null || _msgBytes.length == 0) return;
+        ResTrieData response = ResTrieData.decode(_msgBytes);
+        if (response != null) {
+            if (log.isDebugEnabled()) {
+                this.log.debug(
+                        "<res-trie-data type={} key={} referenced={} node={}>",
+                        response.getDbType(),
+                        ByteUtil.toHexString(response.getKey()),
+                        response.getReferencedNodes().size(),
+                        _displayId);
+            }
+            this.syncMgr.validateAndAddTrieData(_nodeIdHashcode, _displayId, response);
+        } else {
+            p2pMgr.errCheck(_nodeIdHashcode, _displayId);
+            this.log.error(
+                    "<res-trie-data decode-error msg-bytes={} node={}>",
+                    _msgBytes.length,
+                    _displayId);
+
+            if (this.log.isTraceEnabled()) {
+                this.log.trace("res-trie-data dump: {}", ByteUtil.toHexString(_msgBytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync.msg;
+
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPView;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.DatabaseType;
+
+/**
+ * Request for a trie node or contract details entry used by fast sync. The peer also returns up to
+ * {@code limit} of the nodes referenced by the requested one.
+ */
+public final class ReqTrieData extends Msg {
+
+    private final DatabaseType dbType;
+
+    private final byte[] key;
+
+    // the contract address for storage requests, empty otherwise
+    private final byte[] owner;
+
+    private final int limit;
+
+    /**
+     * @param _dbType the database holding the requested entry
+     * @param _key the hash of the node or of the contract address for details
+     * @param _owner the contract owning the storage trie, empty for the other types
+     * @param _limit the maximum number of referenced nodes to return
+     */
+    public ReqTrieData(
+            final DatabaseType _dbType, final byte[] _key, final byte[] _owner, final int _limit) {
+        super(Ver.V0, Ctrl.SYNC, Act.REQ_TRIE_DATA);
+        this.dbType = _dbType;
+        this.key = _key;
+        this.owner = _owner;
+        this.limit = _limit;
+    }
+
+    public static ReqTrieData decode(final byte[] _msgBytes) {
+        if (_msgBytes == null || _msgBytes.length == 0) return null;
+        else {
+            try {
+                RLPView list = RLPView.wrap(_msgBytes);
+                DatabaseType dbType = DatabaseType.fromOrdinal(list.get(0).getInt());
+                if (dbType == null || list.size() != 4) {
+                    return null;
+                }
+                return new ReqTrieData(
+                        dbType, list.get(1).getBytes(), list.get(2).getBytes(), list.get(3).getInt());
+            } catch (Exception ex) {
+                return null;
+            }
+        }
+    }
+
+    public DatabaseType getDbType() {
+        return this.dbType;
+    }
+
+    public byte[] getKey() {
+        return this.key;
+    }
+
+    public byte[] getOwner() {
+        return this.owner;
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    @Override
+    public byte[] encode() {
+        return RLP.encodeList(
+                RLP.encodeInt(dbType.ordinal()),
+                RLP.encodeElement(key),
+                RLP.encodeElement(owner),
+                RLP.encodeInt(limit));
+    }
+}
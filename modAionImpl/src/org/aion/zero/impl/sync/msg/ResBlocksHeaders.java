@@ -41,8 +41,7 @@ import org.aion.p2p.Ctrl;
 import org.aion.p2p.Msg;
 import org.aion.p2p.Ver;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
 import org.aion.zero.impl.sync.Act;
 import org.aion.zero.types.A0BlockHeader;
 
@@ -51,20 +50,39 @@ public final class ResBlocksHeaders extends Msg {
 
     private final List<A0BlockHeader> blockHeaders;
 
+    /** Headers already in their RLP encoding, sent as is. */
+    private final List<byte[]> encodedHeaders;
+
     public ResBlocksHeaders(final List<A0BlockHeader> _blockHeaders) {
         super(Ver.V0, Ctrl.SYNC, Act.RES_BLOCKS_HEADERS);
         blockHeaders = _blockHeaders;
+        encodedHeaders = null;
+    }
+
+    private ResBlocksHeaders(final List<byte[]> _encodedHeaders, boolean encoded) {
+        super(Ver.V0, Ctrl.SYNC, Act.RES_BLOCKS_HEADERS);
+        blockHeaders = null;
+        encodedHeaders = _encodedHeaders;
+    }
+
+    /**
+     * Creates a response from headers that are already encoded, avoiding their decoding when
+     * serving peers.
+     *
+     * @param _encodedHeaders the headers as returned by {@link A0BlockHeader#getEncoded()}
+     */
+    public static ResBlocksHeaders fromEncoded(final List<byte[]> _encodedHeaders) {
+        return new ResBlocksHeaders(_encodedHeaders, true);
     }
 
     public static ResBlocksHeaders decode(final byte[] _msgBytes) {
         if (_msgBytes == null || _msgBytes.length == 0) return null;
         else {
             try {
-                RLPList list = (RLPList) RLP.decode2(_msgBytes).get(0);
+                RLPView list = RLPView.wrap(_msgBytes);
                 List<A0BlockHeader> blockHeaders = new ArrayList<>();
-                for (RLPElement aList : list) {
-                    RLPList rlpData = ((RLPList) aList);
-                    blockHeaders.add(A0BlockHeader.fromRLP(rlpData, true));
+                for (int i = 0; i < list.size(); i++) {
+                    blockHeaders.add(A0BlockHeader.fromRLP(list.get(i), true));
                 }
                 return new ResBlocksHeaders(blockHeaders);
             } catch (Exception ex) {
@@ -74,11 +92,20 @@ public final class ResBlocksHeaders extends Msg {
     }
 
     public List<A0BlockHeader> getHeaders() {
+        if (this.blockHeaders == null) {
+            ResBlocksHeaders decoded = decode(encode());
+            return decoded == null ? null : decoded.getHeaders();
+        }
         return this.blockHeaders;
     }
 
     @Override
     public byte[] encode() {
+        if (this.encodedHeaders != null) {
+            return RLP.encodeList(
+                    this.encodedHeaders.toArray(new byte[this.encodedHeaders.size()][]));
+        }
+
         List<byte[]> tempList = new ArrayList<>();
         for (A0BlockHeader blockHeader : this.blockHeaders) {
             tempList.add(blockHeader.getEncoded());
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync.msg;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPView;
+import org.aion.zero.impl.sync.Act;
+import org.aion.zero.impl.sync.DatabaseType;
+
+/**
+ * Response to a {@link ReqTrieData} carrying the requested entry and some of the trie nodes it
+ * references, keyed by their hash.
+ */
+public final class ResTrieData extends Msg {
+
+    private final DatabaseType dbType;
+
+    private final byte[] key;
+
+    private final byte[] owner;
+
+    private final byte[] value;
+
+    private final Map<ByteArrayWrapper, byte[]> referencedNodes;
+
+    /**
+     * @param _dbType the database holding the requested entry
+     * @param _key the key of the requested entry
+     * @param _owner the contract owning the storage trie, empty for the other types
+     * @param _value the encoding of the requested entry
+     * @param _referencedNodes nodes below the requested one, by hash
+     */
+    public ResTrieData(
+            final DatabaseType _dbType,
+            final byte[] _key,
+            final byte[] _owner,
+            final byte[] _value,
+            final Map<ByteArrayWrapper, byte[]> _referencedNodes) {
+        super(Ver.V0, Ctrl.SYNC, Act.RES_TRIE_DATA);
+        this.dbType = _dbType;
+        this.key = _key;
+        this.owner = _owner;
+        this.value = _value;
+        this.referencedNodes = _referencedNodes;
+    }
+
+    public static ResTrieData decode(final byte[] _msgBytes) {
+        if (_msgBytes == null || _msgBytes.length == 0) return null;
+        else {
+            try {
+                RLPView list = RLPView.wrap(_msgBytes);
+                DatabaseType dbType = DatabaseType.fromOrdinal(list.get(0).getInt());
+                if (dbType == null || list.size() != 5) {
+                    return null;
+                }
+
+                RLPView nodes = list.get(4);
+                Map<ByteArrayWrapper, byte[]> referencedNodes = new LinkedHashMap<>();
+                for (int i = 0; i < nodes.size(); i++) {
+                    RLPView pair = nodes.get(i);
+                    referencedNodes.put(
+                            ByteArrayWrapper.wrap(pair.get(0).getBytes()), pair.get(1).getBytes());
+                }
+
+                return new ResTrieData(
+                        dbType,
+                        list.get(1).getBytes(),
+                        list.get(2).getBytes(),
+                        list.get(3).getBytes(),
+                        referencedNodes);
+            } catch (Exception ex) {
+                return null;
+            }
+        }
+    }
+
+    public DatabaseType getDbType() {
+        return this.dbType;
+    }
+
+    public byte[] getKey() {
+        return this.key;
+    }
+
+    public byte[] getOwner() {
+        return this.owner;
+    }
+
+    public byte[] getValue() {
+        return this.value;
+    }
+
+    public Map<ByteArrayWrapper, byte[]> getReferencedNodes() {
+        return this.referencedNodes;
+    }
+
+    @Override
+    public byte[] encode() {
+        byte[][] nodes = new byte[referencedNodes.size()][];
+        int i = 0;
+        for (Map.Entry<ByteArrayWrapper, byte[]> node : referencedNodes.entrySet()) {
+            nodes[i++] =
+                    RLP.encodeList(
+                            RLP.encodeElement(node.getKey().getData()),
+                            RLP.encodeElement(node.getValue()));
+        }
+
+        return RLP.encodeList(
+                RLP.encodeInt(dbType.ordinal()),
+                RLP.encodeElement(key),
+                RLP.encodeElement(owner),
+                RLP.encodeElement(value),
+                RLP.encodeList(nodes));
+    }
+}
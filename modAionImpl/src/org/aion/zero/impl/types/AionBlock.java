@@ -35,8 +35,8 @@ import org.aion.mcf.trie.Trie;
 import org.aion.mcf.trie.TrieImpl;
 import org.aion.mcf.types.AbstractBlock;
 import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 import org.aion.zero.exceptions.HeaderStructureException;
 import org.aion.zero.types.A0BlockHeader;
 import org.aion.zero.types.AionTransaction;
@@ -178,16 +178,13 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         synchronized (this) {
             if (this.parsed) return;
 
-            RLPList params = RLP.decode2(rlpEncoded);
-            RLPList block = (RLPList) params.get(0);
+            RLPView block = RLPView.wrap(rlpEncoded);
 
             // Parse Header
-            RLPList header = (RLPList) block.get(0);
-            this.header = new A0BlockHeader(header);
+            this.header = new A0BlockHeader(block.get(0));
 
             // Parse Transactions
-            RLPList txTransactions = (RLPList) block.get(1);
-            this.parseTxs(this.header.getTxTrieRoot(), txTransactions);
+            this.parseTxs(this.header.getTxTrieRoot(), block.get(1));
 
             this.parsed = true;
         }
@@ -381,17 +378,18 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         return toStringBuff.toString();
     }
 
-    private void parseTxs(RLPList txTransactions) {
+    private void parseTxs(RLPView txTransactions) {
 
         this.txsState = new TrieImpl(null);
         for (int i = 0; i < txTransactions.size(); i++) {
-            RLPElement transactionRaw = txTransactions.get(i);
-            this.transactionsList.add(new AionTransaction(transactionRaw.getRLPData()));
-            this.txsState.update(RLP.encodeInt(i), transactionRaw.getRLPData());
+            // the transaction keeps its own copy of the encoding and decodes it lazily
+            byte[] transactionRaw = txTransactions.get(i).getEncoded();
+            this.transactionsList.add(new AionTransaction(transactionRaw));
+            this.txsState.update(RLP.encodeInt(i), transactionRaw);
         }
     }
 
-    private boolean parseTxs(byte[] expectedRoot, RLPList txTransactions) {
+    private boolean parseTxs(byte[] expectedRoot, RLPView txTransactions) {
 
         parseTxs(txTransactions);
         String calculatedRoot = Hex.toHexString(txsState.getRootHash());
@@ -432,17 +430,61 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
 
     public byte[] getEncoded() {
         if (rlpEncoded == null) {
-            byte[] header = this.header.getEncoded();
-
-            List<byte[]> block = getBodyElements();
-            block.add(0, header);
-            byte[][] elements = block.toArray(new byte[block.size()][]);
-
-            this.rlpEncoded = RLP.encodeList(elements);
+            this.rlpEncoded =
+                    writeTransactions(
+                                    new RLPWriter(transactionsList.size() + 3)
+                                            .beginList()
+                                            .writeEncoded(this.header.getEncoded()))
+                            .endList()
+                            .toByteArray();
         }
         return rlpEncoded;
     }
 
+    /**
+     * Slices the encoded header out of an encoded block without decoding the block.
+     *
+     * @param rlpEncoded the block encoding, as returned by {@link #getEncoded()}
+     * @return the header encoding, as returned by {@link A0BlockHeader#getEncoded()}
+     */
+    public static byte[] sliceEncodedHeader(byte[] rlpEncoded) {
+        int start = RLP.getPayloadPos(rlpEncoded, 0);
+        return Arrays.copyOfRange(rlpEncoded, start, RLP.getNextItemPos(rlpEncoded, start));
+    }
+
+    /**
+     * Builds the encoded body out of an encoded block without decoding the block. The encoded
+     * transaction list is copied as is behind a new list header.
+     *
+     * @param rlpEncoded the block encoding, as returned by {@link #getEncoded()}
+     * @return the body encoding, as returned by {@link #getEncodedBody()}
+     */
+    public static byte[] sliceEncodedBody(byte[] rlpEncoded) {
+        int start = RLP.getNextItemPos(rlpEncoded, RLP.getPayloadPos(rlpEncoded, 0));
+        int end = RLP.getNextItemPos(rlpEncoded, start);
+
+        byte[] listHeader = RLP.encodeListHeader(end - start);
+        byte[] body = new byte[listHeader.length + end - start];
+        System.arraycopy(listHeader, 0, body, 0, listHeader.length);
+        System.arraycopy(rlpEncoded, start, body, listHeader.length, end - start);
+        return body;
+    }
+
+    /**
+     * Reads the parent hash of an encoded header without decoding the header.
+     *
+     * @param headerEncoded the header encoding, as returned by {@link #sliceEncodedHeader(byte[])}
+     * @return the hash of the parent block
+     */
+    public static byte[] sliceParentHash(byte[] headerEncoded) {
+        // skip the version and number
+        int pos = RLP.getPayloadPos(headerEncoded, 0);
+        pos = RLP.getNextItemPos(headerEncoded, pos);
+        pos = RLP.getNextItemPos(headerEncoded, pos);
+        int start = RLP.getPayloadPos(headerEncoded, pos);
+        return Arrays.copyOfRange(headerEncoded, start, RLP.getNextItemPos(headerEncoded, pos));
+    }
+
     public byte[] getEncodedWithoutNonce() {
         parseRLP();
         return this.header.getEncodedWithoutNonce();
@@ -485,8 +527,7 @@ public class AionBlock extends AbstractBlock<A0BlockHeader, AionTransaction> imp
         block.header = header;
         block.parsed = true;
 
-        RLPList items = (RLPList) RLP.decode2(body).get(0);
-        RLPList transactions = (RLPList) items.get(0);
+        RLPView transactions = RLPView.wrap(body).get(0);
 
         if (!block.parseTxs(header.getTxTrieRoot(), transactions)) {
             return null;
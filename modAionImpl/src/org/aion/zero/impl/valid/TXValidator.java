@@ -26,7 +26,9 @@ package org.aion.zero.impl.valid;
 import static org.aion.mcf.valid.TxNrgRule.isValidNrgContractCreate;
 import static org.aion.mcf.valid.TxNrgRule.isValidNrgTx;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import org.aion.base.type.Hash256;
 import org.aion.base.util.ByteArrayWrapper;
@@ -57,11 +59,78 @@ public class TXValidator {
         }
     }
 
+    /**
+     * Validates a batch of transactions. The results are cached as done by {@link
+     * #isValid(AionTransaction)}, but the signatures of all the transactions missing from the cache
+     * are verified together using {@link SignatureFac#verify(List, List)}.
+     *
+     * @param txs the transactions to be validated
+     * @return an array where position {@code i} is {@code true} iff the {@code i}-th transaction is
+     *     valid
+     */
+    public static boolean[] isValid(List<AionTransaction> txs) {
+        boolean[] valid = new boolean[txs.size()];
+
+        // transactions with valid fields that need signature verification
+        List<Integer> pending = new ArrayList<>();
+        List<byte[]> hashes = new ArrayList<>();
+        List<ISignature> sigs = new ArrayList<>();
+
+        for (int i = 0; i < txs.size(); i++) {
+            AionTransaction tx = txs.get(i);
+            Boolean cached = cache.get(ByteArrayWrapper.wrap(tx.getHash()));
+            if (cached != null) {
+                valid[i] = cached;
+            } else if (isValidFields(tx)) {
+                pending.add(i);
+                hashes.add(tx.getRawHash());
+                sigs.add(tx.getSignature());
+            } else {
+                cache.put(ByteArrayWrapper.wrap(tx.getHash()), false);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            boolean[] verified;
+            try {
+                verified = SignatureFac.verify(hashes, sigs);
+            } catch (Exception ex) {
+                LOG.error("batch signature verification failed, verifying one by one!", ex);
+                for (int i : pending) {
+                    valid[i] = isValid(txs.get(i));
+                }
+                return valid;
+            }
+
+            for (int j = 0; j < verified.length; j++) {
+                int i = pending.get(j);
+                valid[i] = verified[j];
+                cache.put(ByteArrayWrapper.wrap(txs.get(i).getHash()), verified[j]);
+            }
+        }
+
+        return valid;
+    }
+
     public static boolean isInCache(ByteArrayWrapper hash) {
         return cache.get(hash) != null;
     }
 
     public static boolean isValid0(AionTransaction tx) {
+        if (!isValidFields(tx)) {
+            return false;
+        }
+
+        try {
+            return SignatureFac.verify(tx.getRawHash(), tx.getSignature());
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            return false;
+        }
+    }
+
+    /** Checks all the transaction fields except for the validity of the signature. */
+    private static boolean isValidFields(AionTransaction tx) {
         byte[] check = tx.getNonce();
         if (check == null || check.length > DataWord.BYTES) {
             LOG.error("invalid tx nonce!");
@@ -117,11 +186,6 @@ public class TXValidator {
             return false;
         }
 
-        try {
-            return SignatureFac.verify(hash, sig);
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            return false;
-        }
+        return true;
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.zero.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockTemplateBuilderTest {
+
+    private static final Address RECEIVER =
+            Address.wrap("CAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFECAFE");
+
+    private StandaloneBlockchain.Bundle bundle;
+    private StandaloneBlockchain bc;
+
+    @Before
+    public void setup() {
+        bundle =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts()
+                        .build();
+        bc = bundle.bc;
+    }
+
+    private List<AionTransaction> transfers(int fromNonce, int toNonce) {
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = fromNonce; i < toNonce; i++) {
+            AionTransaction tx =
+                    new AionTransaction(
+                            BigInteger.valueOf(i).toByteArray(),
+                            RECEIVER,
+                            BigInteger.ONE.toByteArray(),
+                            ByteUtil.EMPTY_BYTE_ARRAY,
+                            21000L,
+                            1L);
+            tx.sign(bundle.privateKeys.get(0));
+            txs.add(tx);
+        }
+        return txs;
+    }
+
+    @Test
+    public void testIncrementalTemplateMatchesFullExecution() {
+        AionBlock parent = bc.getBestBlock();
+        List<AionTransaction> txs = transfers(0, 5);
+
+        AionBlock first = bc.createNewBlockTemplate(parent, txs);
+        assertThat(first.getTransactionsList()).hasSize(5);
+
+        // the pending list keeps the earlier transactions and gains new ones
+        txs.addAll(transfers(5, 10));
+        AionBlock second = bc.createNewBlockTemplate(parent, txs);
+        assertThat(second.getTransactionsList()).hasSize(10);
+        assertThat(second.getTimestamp()).isEqualTo(first.getTimestamp());
+
+        AionBlock full = bc.createNewBlock(parent, txs, false);
+        assertThat(second.getStateRoot()).isEqualTo(full.getStateRoot());
+        assertThat(second.getReceiptsRoot()).isEqualTo(full.getReceiptsRoot());
+        assertThat(second.getTxTrieRoot()).isEqualTo(full.getTxTrieRoot());
+        assertThat(second.getNrgConsumed()).isEqualTo(full.getNrgConsumed());
+
+        assertThat(bc.tryToConnect(second)).isEqualTo(ImportResult.IMPORTED_BEST);
+    }
+
+    @Test
+    public void testRejectedTransactionIsNotIncluded() {
+        AionBlock parent = bc.getBestBlock();
+
+        // the nonce gap makes the second transaction invalid until the missing one arrives
+        List<AionTransaction> txs = transfers(0, 1);
+        AionTransaction gap = transfers(2, 3).get(0);
+        txs.add(gap);
+        AionBlock first = bc.createNewBlockTemplate(parent, txs);
+        assertThat(first.getTransactionsList()).hasSize(1);
+
+        txs.add(transfers(1, 2).get(0));
+        txs.add(gap);
+        AionBlock second = bc.createNewBlockTemplate(parent, txs);
+        assertThat(second.getTransactionsList()).hasSize(3);
+
+        assertThat(bc.tryToConnect(second)).isEqualTo(ImportResult.IMPORTED_BEST);
+    }
+
+    @Test
+    public void testTemplateRebuiltOnNewParent() {
+        AionBlock genesis = bc.getBestBlock();
+        List<AionTransaction> txs = transfers(0, 4);
+        bc.createNewBlockTemplate(genesis, txs);
+
+        // a competing block includes part of the pending transactions
+        AionBlock imported = bc.createNewBlock(genesis, transfers(0, 2), true);
+        assertThat(bc.tryToConnect(imported)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        AionBlock template = bc.createNewBlockTemplate(bc.getBestBlock(), txs);
+        assertThat(template.getParentHash()).isEqualTo(imported.getHash());
+        assertThat(template.getNumber()).isEqualTo(imported.getNumber() + 1);
+        assertThat(template.getTransactionsList()).hasSize(2);
+
+        assertThat(bc.tryToConnect(template)).isEqualTo(ImportResult.IMPORTED_BEST);
+    }
+}
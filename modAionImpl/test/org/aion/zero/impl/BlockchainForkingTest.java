@@ -38,18 +38,32 @@ package org.aion.zero.impl;
 import static com.google.common.truth.Truth.assertThat;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
+import org.aion.base.db.IRepositoryConfig;
+import org.aion.base.type.Address;
 import org.aion.base.util.BIUtil;
 import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
 import org.aion.crypto.ECKey;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
 import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.vm.types.DataWord;
 import org.aion.zero.impl.blockchain.ChainConfiguration;
 import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
 import org.junit.Test;
 
 public class BlockchainForkingTest {
 
+    // stores a counter at slot 1, incremented by each call to PUT
+    private static final String STORAGE_BYTECODE =
+            "0x605060405260006001600050909055341561001a5760006000fd5b61001f565b6101688061002e6000396000f30060506040526000356c01000000000000000000000000900463ffffffff16806331e658a514610049578063549262ba1461008957806361bc221a1461009f57610043565b60006000fd5b34156100555760006000fd5b610073600480808060100135903590916020019091929050506100c9565b6040518082815260100191505060405180910390f35b34156100955760006000fd5b61009d6100eb565b005b34156100ab5760006000fd5b6100b3610133565b6040518082815260100191505060405180910390f35b6000600050602052818160005260105260306000209050600091509150505481565b6001600060005060006001600050546000825281601001526020019081526010016000209050600050819090905550600160008181505480929190600101919050909055505b565b600160005054815600a165627a7a72305820c615f3373321aa7e9c05d9a69e49508147861fb2a54f2945fbbaa7d851125fe80029";
+    private static final byte[] PUT = ByteUtil.hexStringToBytes("0x549262ba");
+
     /*-
      * Tests the case where multiple threads submit a single block (content) but
      * with different mining nonces and solutions. In this case our rules dictate
@@ -302,9 +316,22 @@ public class BlockchainForkingTest {
     /** Test fork with exception. */
     @Test
     public void testSecondBlockHigherDifficultyFork_wExceptionOnFasterBlockAdd() {
+        // the node cache would still serve the state root deleted directly from the database
+        IRepositoryConfig repoConfig =
+                new MockRepositoryConfig(DBVendor.MOCKDB) {
+                    @Override
+                    public Properties getDatabaseConfig(String db_name) {
+                        Properties props = super.getDatabaseConfig(db_name);
+                        props.setProperty(DatabaseFactory.Props.NODE_CACHE_SIZE, "0");
+                        return props;
+                    }
+                };
         StandaloneBlockchain.Builder builder = new StandaloneBlockchain.Builder();
         StandaloneBlockchain.Bundle bundle =
-                builder.withValidatorConfiguration("simple").withDefaultAccounts().build();
+                builder.withValidatorConfiguration("simple")
+                        .withDefaultAccounts()
+                        .withRepoConfig(repoConfig)
+                        .build();
 
         long time = System.currentTimeMillis();
 
@@ -411,6 +438,81 @@ public class BlockchainForkingTest {
                                 .getTotalDifficultyForHash(block.getHash()));
     }
 
+    /*-
+     * Tests a fork where the winning branch deploys a contract and writes to its
+     * storage. The fork blocks are executed on snapshots of the repository, which
+     * must write the contract details through to the shared details database for
+     * the repository to read them once the branch becomes the main chain.
+     *
+     *          (common ancestor)
+     *          /               \
+     *         /                 \
+     *       (a)x               (b1: deploy + call)
+     *                            |
+     *                          (b2)o
+     */
+    @Test
+    public void testForkWithContractStorage() {
+        StandaloneBlockchain.Builder builder = new StandaloneBlockchain.Builder();
+        StandaloneBlockchain.Bundle bundle =
+                builder.withValidatorConfiguration("simple").withDefaultAccounts().build();
+        StandaloneBlockchain bc = bundle.bc;
+        ECKey key = bundle.privateKeys.get(0);
+        AionBlock parent = bc.getBestBlock();
+
+        AionBlock blockA = bc.createNewBlock(parent, Collections.emptyList(), true);
+        assertThat(bc.tryToConnect(blockA)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        // the fork block deploys a contract and calls it to write to its storage
+        BigInteger nonce = bc.getRepository().getNonce(new Address(key.getAddress()));
+        AionTransaction deploy =
+                new AionTransaction(
+                        nonce.toByteArray(),
+                        null,
+                        BigInteger.ZERO.toByteArray(),
+                        ByteUtil.hexStringToBytes(STORAGE_BYTECODE),
+                        1_000_000L,
+                        1L);
+        deploy.sign(key);
+        Address contract = deploy.getContractAddress();
+        AionTransaction call =
+                new AionTransaction(
+                        nonce.add(BigInteger.ONE).toByteArray(),
+                        contract,
+                        BigInteger.ZERO.toByteArray(),
+                        PUT,
+                        200_000L,
+                        1L);
+        call.sign(key);
+
+        AionBlock blockB1 = bc.createNewBlock(parent, Arrays.asList(deploy, call), true);
+        assertThat(bc.tryToConnect(blockB1)).isNotEqualTo(ImportResult.INVALID_BLOCK);
+        AionBlock blockB2 = bc.createNewBlock(blockB1, Collections.emptyList(), true);
+        assertThat(bc.tryToConnect(blockB2)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        assertThat(bc.getBestBlock()).isEqualTo(blockB2);
+        assertThat(bc.getRepository().getRoot()).isEqualTo(blockB2.getStateRoot());
+        assertThat(bc.getRepository().getCode(contract)).isNotEmpty();
+        assertThat(bc.getRepository().getStorageValue(contract, new DataWord(1)))
+                .isEqualTo(new DataWord(1));
+
+        // the contract stays usable on top of the new main chain
+        AionTransaction nextCall =
+                new AionTransaction(
+                        nonce.add(BigInteger.valueOf(2)).toByteArray(),
+                        contract,
+                        BigInteger.ZERO.toByteArray(),
+                        PUT,
+                        200_000L,
+                        1L);
+        nextCall.sign(key);
+        AionBlock blockB3 =
+                bc.createNewBlock(blockB2, Collections.singletonList(nextCall), true);
+        assertThat(bc.tryToConnect(blockB3)).isEqualTo(ImportResult.IMPORTED_BEST);
+        assertThat(bc.getRepository().getStorageValue(contract, new DataWord(1)))
+                .isEqualTo(new DataWord(2));
+    }
+
     /*
      * Tests VM update behaviour from an external perspective
      */
@@ -585,4 +585,40 @@ public class BlockchainImplementationTest {
         assertThat(hashes.size()).isEqualTo(expected.size());
         assertThat(hashes).isEqualTo(expected);
     }
+
+    @Test
+    public void testEncodedHeadersAndBodiesMatchDecodedBlocks() {
+        StandaloneBlockchain.Builder builder = new StandaloneBlockchain.Builder();
+        StandaloneBlockchain.Bundle bundle =
+                builder.withValidatorConfiguration("simple").withDefaultAccounts(accounts).build();
+
+        StandaloneBlockchain chain = bundle.bc;
+
+        // populate chain at random
+        generateRandomChain(chain, 12, 2, accounts, MAX_TX_PER_BLOCK);
+
+        long bestNumber = chain.getBestBlock().getNumber();
+        List<A0BlockHeader> headers = chain.getListOfHeadersStartFrom(0, (int) bestNumber + 1);
+        List<byte[]> encodedHeaders =
+                chain.getListOfEncodedHeadersStartFrom(0, (int) bestNumber + 1);
+        assertThat(encodedHeaders.size()).isEqualTo(headers.size());
+
+        List<byte[]> hashes = new ArrayList<>();
+        for (int i = 0; i < headers.size(); i++) {
+            assertThat(encodedHeaders.get(i)).isEqualTo(headers.get(i).getEncoded());
+            hashes.add(headers.get(i).getHash());
+        }
+
+        List<byte[]> bodies = chain.getListOfBodiesByHashes(hashes);
+        assertThat(bodies.size()).isEqualTo(hashes.size());
+        for (int i = 0; i < hashes.size(); i++) {
+            assertThat(bodies.get(i))
+                    .isEqualTo(chain.getBlockByHash(hashes.get(i)).getEncodedBody());
+        }
+
+        // served from the block store cache the second time
+        assertThat(chain.getListOfEncodedHeadersStartFrom(bestNumber, 10)).hasSize(1);
+        assertThat(chain.getListOfEncodedHeadersStartFrom(bestNumber + 1, 10)).isEmpty();
+        assertThat(chain.getListOfBodiesByHashes(hashes).get(3)).isEqualTo(bodies.get(3));
+    }
 }
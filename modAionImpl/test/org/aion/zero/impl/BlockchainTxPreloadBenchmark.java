@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.zero.impl.BlockchainTestUtils.generateAccounts;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.utils.FileUtils;
+import org.aion.log.AionLoggerFactory;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Compares the import of the same synthetic chain with sequential execution only and with the
+ * parallel transaction preloading enabled. The chains are stored in LevelDB so that the account
+ * reads actually hit the disk.
+ */
+public class BlockchainTxPreloadBenchmark {
+
+    private static final String BASE_PATH = "test_db";
+    private static final int BLOCKS = 20;
+    private static final int TX_PER_BLOCK = 400;
+    private static final byte[] ZERO_BYTE = new byte[0];
+
+    private static final List<ECKey> accounts = generateAccounts(10);
+    private static final List<AionBlock> blocks = new ArrayList<>();
+
+    @BeforeClass
+    public static void setup() {
+        Map<String, String> cfg = new HashMap<>();
+        cfg.put("DB", "ERROR");
+        cfg.put("CONS", "ERROR");
+        AionLoggerFactory.init(cfg);
+
+        deleteFiles();
+
+        StandaloneBlockchain sourceChain =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(accounts)
+                        .build()
+                        .bc;
+        AionRepositoryImpl repo = sourceChain.getRepository();
+
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < BLOCKS; i++) {
+            List<AionTransaction> txs = new ArrayList<>();
+            for (int j = 0; j < TX_PER_BLOCK; j++) {
+                ECKey key = accounts.get(j % accounts.size());
+                BigInteger nonce =
+                        repo.getNonce(Address.wrap(key.getAddress()))
+                                .add(BigInteger.valueOf(j / accounts.size()));
+                // every transaction creates a new account
+                Address destination =
+                        Address.wrap(HashUtil.h256((i + "-" + j).getBytes()));
+                AionTransaction tx =
+                        new AionTransaction(
+                                nonce.toByteArray(),
+                                destination,
+                                BigInteger.ONE.toByteArray(),
+                                ZERO_BYTE,
+                                21000L,
+                                1L);
+                tx.sign(key);
+                txs.add(tx);
+            }
+
+            AionBlock block =
+                    sourceChain.createNewBlockInternal(
+                                    sourceChain.getBestBlock(), txs, true, time / 1000L)
+                            .block;
+            assertThat(sourceChain.tryToConnectInternal(block, time += 10))
+                    .isEqualTo(ImportResult.IMPORTED_BEST);
+            blocks.add(block);
+        }
+    }
+
+    @AfterClass
+    public static void deleteFiles() {
+        File f = new File(BASE_PATH);
+        if (f.exists()) {
+            FileUtils.deleteRecursively(f);
+            f.delete();
+        }
+    }
+
+    private static StandaloneBlockchain createChain(String name, boolean preload) {
+        return new StandaloneBlockchain.Builder()
+                .withValidatorConfiguration("simple")
+                .withDefaultAccounts(accounts)
+                .withParallelTxPreload(preload)
+                .withRepoConfig(
+                        new MockRepositoryConfig(DBVendor.LEVELDB) {
+                            @Override
+                            public String getDbPath() {
+                                return BASE_PATH + "/" + name;
+                            }
+                        })
+                .build()
+                .bc;
+    }
+
+    private static long importAll(StandaloneBlockchain chain) {
+        long start = System.nanoTime();
+        for (AionBlock block : blocks) {
+            // import a fresh copy to avoid reusing the cached senders
+            AionBlock copy = new AionBlock(block.getEncoded());
+            assertThat(chain.tryToConnect(copy)).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void testSerialVersusParallelImport() {
+        StandaloneBlockchain serial = createChain("serial_import", false);
+        StandaloneBlockchain parallel = createChain("parallel_import", true);
+
+        long serialTime = importAll(serial);
+        long parallelTime = importAll(parallel);
+
+        // the results must be identical
+        assertThat(parallel.getBestBlock().getHash()).isEqualTo(serial.getBestBlock().getHash());
+        assertThat(parallel.getRepository().getRoot()).isEqualTo(serial.getRepository().getRoot());
+
+        System.out.format(
+                "Imported %d blocks with %d transactions each:%n"
+                        + "\tsequential execution: %8d ms%n"
+                        + "\tparallel preloading:  %8d ms%n",
+                BLOCKS, TX_PER_BLOCK, serialTime / 1_000_000, parallelTime / 1_000_000);
+
+        serial.close();
+        parallel.close();
+    }
+}
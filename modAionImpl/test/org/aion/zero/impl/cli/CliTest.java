@@ -1255,6 +1255,21 @@ public class CliTest {
         skippedTasks.add("--db-compact");
         parameters.add(new Object[] {input, TaskPriority.DUMP_BLOCKS, skippedTasks});
 
+        input = new String[] {"--db-compact", "--check-flat-state"};
+        skippedTasks = new HashSet<String>();
+        skippedTasks.add("--check-flat-state");
+        parameters.add(new Object[] {input, TaskPriority.DB_COMPACT, skippedTasks});
+
+        input = new String[] {"--check-flat-state", "--build-bloom-bits"};
+        skippedTasks = new HashSet<String>();
+        skippedTasks.add("--build-bloom-bits");
+        parameters.add(new Object[] {input, TaskPriority.CHECK_FLAT_STATE, skippedTasks});
+
+        input = new String[] {"--build-bloom-bits", "--migrate-block-segments"};
+        skippedTasks = new HashSet<String>();
+        skippedTasks.add("--migrate-block-segments");
+        parameters.add(new Object[] {input, TaskPriority.BUILD_BLOOM_BITS, skippedTasks});
+
         return parameters.toArray();
     }
 
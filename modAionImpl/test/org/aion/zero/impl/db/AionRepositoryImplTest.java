@@ -36,10 +36,15 @@
 package org.aion.zero.impl.db;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.fail;
 
 import java.math.BigInteger;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IContractDetails;
 import org.aion.base.db.IPruneConfig;
@@ -48,6 +53,7 @@ import org.aion.base.db.IRepositoryCache;
 import org.aion.base.db.IRepositoryConfig;
 import org.aion.base.type.Address;
 import org.aion.base.util.ByteUtil;
+import org.aion.base.vm.IDataWord;
 import org.aion.crypto.HashUtil;
 import org.aion.db.impl.DBVendor;
 import org.aion.db.impl.DatabaseFactory;
@@ -56,6 +62,7 @@ import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.IBlockStoreBase;
 import org.aion.mcf.vm.types.DataWord;
 import org.aion.zero.db.AionContractDetailsImpl;
+import org.aion.zero.impl.sync.DatabaseType;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
@@ -89,6 +96,34 @@ public class AionRepositoryImplTest {
                 }
             };
 
+    /** Same as {@link #repoConfig} with the flat state enabled. */
+    protected IRepositoryConfig flatRepoConfig =
+            new IRepositoryConfig() {
+                @Override
+                public String getDbPath() {
+                    return "";
+                }
+
+                @Override
+                public IPruneConfig getPruneConfig() {
+                    return new CfgPrune(false);
+                }
+
+                @Override
+                public IContractDetails contractDetailsImpl() {
+                    return ContractDetailsAion.createForTesting(0, 1000000).getDetails();
+                }
+
+                @Override
+                public Properties getDatabaseConfig(String db_name) {
+                    Properties props = new Properties();
+                    props.setProperty(DatabaseFactory.Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+                    props.setProperty(DatabaseFactory.Props.ENABLE_HEAP_CACHE, "false");
+                    props.setProperty(DatabaseFactory.Props.FLAT_STATE, "true");
+                    return props;
+                }
+            };
+
     private static String value1 =
             "CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3CAF3";
     private static String value2 =
@@ -398,4 +433,212 @@ public class AionRepositoryImplTest {
         assertThat(repository.getBalance(account2)).isLessThan(snapshot.getBalance(account2));
         assertThat(repository.getBalance(account3)).isLessThan(snapshot.getBalance(account3));
     }
+
+    @Test
+    public void testFlatStateSyncToPreviousRoot() {
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(flatRepoConfig);
+        assertThat(repository.getFlatState()).isNotNull();
+
+        Address account1 = Address.wrap(ByteUtil.hexStringToBytes(value1));
+        Address account2 = Address.wrap(ByteUtil.hexStringToBytes(value2));
+
+        IRepositoryCache track = repository.startTracking();
+        track.addBalance(account1, BigInteger.ONE);
+        track.addBalance(account2, BigInteger.ONE);
+        track.flush();
+        byte[] originalRoot = repository.getRoot();
+
+        // populate the flat state
+        assertThat(repository.getBalance(account1)).isEqualTo(BigInteger.ONE);
+        assertThat(repository.getBalance(account2)).isEqualTo(BigInteger.ONE);
+
+        track = repository.startTracking();
+        track.addBalance(account1, BigInteger.TEN);
+        track.flush();
+        byte[] newRoot = repository.getRoot();
+
+        assertThat(repository.getBalance(account1)).isEqualTo(BigInteger.valueOf(11));
+        assertThat(repository.checkFlatState()).isEqualTo(0);
+
+        repository.syncToRoot(originalRoot);
+        assertThat(repository.getBalance(account1)).isEqualTo(BigInteger.ONE);
+        assertThat(repository.getBalance(account2)).isEqualTo(BigInteger.ONE);
+        assertThat(repository.checkFlatState()).isEqualTo(0);
+
+        repository.syncToRoot(newRoot);
+        assertThat(repository.getBalance(account1)).isEqualTo(BigInteger.valueOf(11));
+        assertThat(repository.getBalance(account2)).isEqualTo(BigInteger.ONE);
+        assertThat(repository.checkFlatState()).isEqualTo(0);
+        assertThat(repository.getFlatState().getAccountHits()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void testFlatStateStorage() {
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(flatRepoConfig);
+
+        Address account = Address.wrap(ByteUtil.hexStringToBytes(value1));
+        DataWord key = new DataWord(HashUtil.blake128("hello".getBytes()));
+        DataWord value = new DataWord(HashUtil.blake128("world".getBytes()));
+        DataWord otherKey = new DataWord(HashUtil.blake128("other".getBytes()));
+
+        IRepositoryCache track = repository.startTracking();
+        track.addBalance(account, BigInteger.ONE);
+        track.addStorageRow(account, key, value);
+        track.flush();
+
+        // the first read populates the flat state, the second one is answered by it
+        assertThat(repository.getStorageValue(account, key)).isEqualTo(value);
+        assertThat(repository.getStorageValue(account, key)).isEqualTo(value);
+        assertThat(repository.getStorageValue(account, otherKey)).isNull();
+        assertThat(repository.getStorageValue(account, otherKey)).isNull();
+        assertThat(repository.getFlatState().getStorageHits()).isEqualTo(2);
+
+        track = repository.startTracking();
+        track.addStorageRow(account, key, otherKey);
+        track.flush();
+
+        assertThat(repository.getStorageValue(account, key)).isEqualTo(otherKey);
+        assertThat(repository.checkFlatState()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFlatStateSnapshot() {
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(flatRepoConfig);
+
+        Address account = Address.wrap(ByteUtil.hexStringToBytes(value1));
+
+        IRepositoryCache track = repository.startTracking();
+        track.addBalance(account, BigInteger.ONE);
+        track.flush();
+        repository.flush();
+        byte[] root = repository.getRoot();
+
+        IRepository snapshot = repository.getSnapshotTo(root);
+        assertThat(snapshot.getBalance(account)).isEqualTo(BigInteger.ONE);
+
+        // updates on the snapshot do not change the flat state
+        track = snapshot.startTracking();
+        track.addBalance(account, BigInteger.TEN);
+        track.flush();
+
+        assertThat(snapshot.getBalance(account)).isEqualTo(BigInteger.valueOf(11));
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.ONE);
+        assertThat(repository.getFlatState().getRoot()).isEqualTo(root);
+        assertThat(repository.checkFlatState()).isEqualTo(0);
+    }
+
+    @Test
+    public void testReadSnapshotDoesNotWaitForWriter() throws Exception {
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+        IRepositoryCache track = repository.startTracking();
+
+        Address account = Address.wrap(ByteUtil.hexStringToBytes(value1));
+        byte[] key = HashUtil.blake128("hello".getBytes());
+        byte[] value = HashUtil.blake128("world".getBytes());
+        track.addBalance(account, BigInteger.TEN);
+        track.saveCode(account, account.toBytes());
+        track.addStorageRow(account, new DataWord(key), new DataWord(value));
+        track.flush();
+        repository.flush();
+
+        byte[] root = repository.getRoot();
+        IRepository snapshot = repository.getReadSnapshot(root);
+        assertThat(repository.getReadSnapshot(root)).isSameAs(snapshot);
+
+        // the view is readable while block import holds the write lock
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        repository.getLock().writeLock().lock();
+        Future<BigInteger> blockedRead;
+        try {
+            assertThat(reader.submit(() -> snapshot.getBalance(account)).get(10, SECONDS))
+                    .isEqualTo(BigInteger.TEN);
+            assertThat(reader.submit(() -> snapshot.getCode(account)).get(10, SECONDS))
+                    .isEqualTo(account.toBytes());
+            Future<IDataWord> storage =
+                    reader.submit(() -> snapshot.getStorageValue(account, new DataWord(key)));
+            assertThat(storage.get(10, SECONDS).getNoLeadZeroesData()).isEqualTo(value);
+
+            // while reads from the repository wait for the writer
+            blockedRead = reader.submit(() -> repository.getBalance(account));
+            Thread.sleep(100);
+            assertThat(blockedRead.isDone()).isFalse();
+        } finally {
+            repository.getLock().writeLock().unlock();
+        }
+        assertThat(blockedRead.get(10, SECONDS)).isEqualTo(BigInteger.TEN);
+        reader.shutdown();
+
+        assertThat(repository.getLock().readLock().getContendedCount()).isEqualTo(1);
+        assertThat(repository.getLock().readLock().getWaitNanos()).isGreaterThan(0L);
+
+        // later changes do not affect the view
+        track = repository.startTracking();
+        track.addBalance(account, BigInteger.ONE);
+        track.flush();
+        assertThat(repository.getBalance(account)).isEqualTo(BigInteger.valueOf(11));
+        assertThat(snapshot.getBalance(account)).isEqualTo(BigInteger.TEN);
+
+        // the view can only be used through caches that are rolled back
+        IRepositoryCache viewTrack = snapshot.startTracking();
+        viewTrack.addBalance(account, BigInteger.ONE);
+        assertThat(viewTrack.getBalance(account)).isEqualTo(BigInteger.valueOf(11));
+        viewTrack.rollback();
+        try {
+            viewTrack = snapshot.startTracking();
+            viewTrack.addBalance(account, BigInteger.ONE);
+            viewTrack.flush();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertThat(snapshot.getBalance(account)).isEqualTo(BigInteger.TEN);
+        }
+    }
+
+    @Test
+    public void testContractDetailsByAddressHash() {
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+        Address contract = Address.wrap(HashUtil.h256("contract".getBytes()));
+        byte[] hash = HashUtil.h256(contract.toBytes());
+        assertThat(repository.getTrieNode(hash, DatabaseType.DETAILS, null)).isNull();
+
+        IRepositoryCache track = repository.startTracking();
+        track.addStorageRow(contract, new DataWord(1), new DataWord(2));
+        track.flush();
+        repository.flush();
+
+        // found through the persisted index, without scanning the stored details
+        assertThat(repository.getTrieNode(hash, DatabaseType.DETAILS, null))
+                .isEqualTo(repository.getDetailsDatabase().get(contract.toBytes()).get());
+    }
+
+    @Test
+    public void testPrivateSnapshotDetailsNotShared() {
+        AionRepositoryImpl repository = AionRepositoryImpl.createForTesting(repoConfig);
+        Address contract = Address.wrap(HashUtil.h256("contract".getBytes()));
+        Address created = Address.wrap(HashUtil.h256("created".getBytes()));
+
+        IRepositoryCache track = repository.startTracking();
+        track.addStorageRow(contract, new DataWord(1), new DataWord(2));
+        track.flush();
+        repository.flush();
+        byte[] stored = repository.getDetailsDatabase().get(contract.toBytes()).get();
+
+        IRepository snapshot = repository.getPrivateSnapshotTo(repository.getRoot());
+        track = snapshot.startTracking();
+        track.addStorageRow(contract, new DataWord(1), new DataWord(3));
+        track.addStorageRow(created, new DataWord(1), new DataWord(4));
+        track.flush();
+
+        assertThat(snapshot.getStorageValue(contract, new DataWord(1)))
+                .isEqualTo(new DataWord(3));
+        assertThat(snapshot.getStorageValue(created, new DataWord(1)))
+                .isEqualTo(new DataWord(4));
+        assertThat(snapshot.hasContractDetails(created)).isTrue();
+
+        // the details written by the repository are untouched
+        assertThat(repository.getDetailsDatabase().get(contract.toBytes()).get())
+                .isEqualTo(stored);
+        assertThat(repository.getStorageValue(contract, new DataWord(1)))
+                .isEqualTo(new DataWord(2));
+        assertThat(repository.hasContractDetails(created)).isFalse();
+    }
 }
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.mcf.db.DatabaseUtils.deleteRecursively;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.type.Address;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.zero.exceptions.HeaderStructureException;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlockSegmentStoreTest {
+
+    private File dir;
+
+    @Before
+    public void setup() {
+        dir = new File(System.getProperty("user.dir"), "tmp-" + System.currentTimeMillis());
+    }
+
+    @After
+    public void teardown() {
+        deleteRecursively(dir);
+    }
+
+    private static byte[] hash(long number) {
+        return HashUtil.h256(BigInteger.valueOf(number).toByteArray());
+    }
+
+    private static byte[] encoded(long number) {
+        byte[] bytes = new byte[(int) (number % 200) + 1];
+        new Random(number).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testAppendAndGet() throws IOException {
+        BlockSegmentStore store = new BlockSegmentStore(dir, 1024);
+        assertThat(store.size()).isEqualTo(0);
+        assertThat(store.get(0)).isNull();
+
+        // the small segment size forces several segments
+        for (long i = 0; i < 100; i++) {
+            store.append(i, hash(i), encoded(i));
+        }
+        assertThat(store.size()).isEqualTo(100);
+
+        for (long i = 0; i < 100; i++) {
+            assertThat(store.get(i)).isEqualTo(encoded(i));
+            assertThat(store.get(hash(i))).isEqualTo(encoded(i));
+            assertThat(store.getHash(i)).isEqualTo(hash(i));
+            assertThat(store.getNumber(hash(i))).isEqualTo(i);
+        }
+        assertThat(store.get(100)).isNull();
+        assertThat(store.get(-1)).isNull();
+        assertThat(store.get(hash(100))).isNull();
+        assertThat(store.getNumber(hash(100))).isEqualTo(-1);
+
+        ByteBuffer slice = store.getSlice(7);
+        assertThat(slice.isReadOnly()).isTrue();
+        assertThat(slice.remaining()).isEqualTo(encoded(7).length);
+        assertThat(slice.get(0)).isEqualTo(encoded(7)[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendOutOfOrder() throws IOException {
+        BlockSegmentStore store = new BlockSegmentStore(dir, 1024);
+        store.append(0, hash(0), encoded(0));
+        store.append(2, hash(2), encoded(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAppendLargerThanSegment() throws IOException {
+        BlockSegmentStore store = new BlockSegmentStore(dir, 64);
+        store.append(0, hash(0), new byte[64]);
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        BlockSegmentStore store = new BlockSegmentStore(dir, 1024);
+        for (long i = 0; i < 50; i++) {
+            store.append(i, hash(i), encoded(i));
+        }
+        store.flush();
+
+        // blocks appended after the last flush are discarded on restart
+        store.append(50, hash(50), encoded(50));
+
+        store = new BlockSegmentStore(dir, 1024);
+        assertThat(store.size()).isEqualTo(50);
+        assertThat(store.get(hash(50))).isNull();
+        for (long i = 0; i < 50; i++) {
+            assertThat(store.get(hash(i))).isEqualTo(encoded(i));
+        }
+
+        // appending continues after the last stored block
+        store.append(50, hash(50), encoded(50));
+        store.close();
+
+        store = new BlockSegmentStore(dir, 1024);
+        assertThat(store.size()).isEqualTo(51);
+        assertThat(store.get(49)).isEqualTo(encoded(49));
+        assertThat(store.get(50)).isEqualTo(encoded(50));
+    }
+
+    @Test
+    public void testContainsBlocks() throws IOException {
+        assertThat(BlockSegmentStore.containsBlocks(dir)).isFalse();
+
+        BlockSegmentStore store = new BlockSegmentStore(dir, 1024);
+        store.flush();
+        assertThat(BlockSegmentStore.containsBlocks(dir)).isFalse();
+
+        store.append(0, hash(0), encoded(0));
+        store.flush();
+        assertThat(BlockSegmentStore.containsBlocks(dir)).isTrue();
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        BlockSegmentStore store = new BlockSegmentStore(dir, 1024);
+        for (long i = 0; i < 50; i++) {
+            store.append(i, hash(i), encoded(i));
+        }
+        store.flush();
+
+        store.truncate(20);
+        assertThat(store.size()).isEqualTo(20);
+        assertThat(store.get(20)).isNull();
+        assertThat(store.getNumber(hash(20))).isEqualTo(-1);
+        assertThat(store.get(19)).isEqualTo(encoded(19));
+
+        // different blocks are appended at the truncated levels
+        for (long i = 20; i < 40; i++) {
+            store.append(i, hash(i + 1000), encoded(i + 1000));
+        }
+
+        // the truncation is persisted immediately
+        store = new BlockSegmentStore(dir, 1024);
+        assertThat(store.size()).isEqualTo(20);
+
+        store.truncate(0);
+        assertThat(store.size()).isEqualTo(0);
+        store.append(0, hash(0), encoded(0));
+        assertThat(store.get(hash(0))).isEqualTo(encoded(0));
+    }
+
+    @Test
+    public void testManyBlocks() throws IOException {
+        // crosses both the initial hash table capacity and the first index chunk
+        int count = 70_000;
+        BlockSegmentStore store = new BlockSegmentStore(dir, 1024 * 1024);
+        for (long i = 0; i < count; i++) {
+            store.append(i, hash(i), encoded(i));
+        }
+        store.close();
+
+        store = new BlockSegmentStore(dir, 1024 * 1024);
+        assertThat(store.size()).isEqualTo(count);
+        for (long i = 0; i < count; i += 997) {
+            assertThat(store.getNumber(hash(i))).isEqualTo(i);
+            assertThat(store.get(i)).isEqualTo(encoded(i));
+        }
+        assertThat(store.getNumber(hash(count - 1))).isEqualTo(count - 1);
+    }
+
+    // fits a few blocks with an empty solution
+    private static final int BLOCK_SEGMENT_SIZE = 8 * 1024;
+
+    private static AionBlock block(AionBlock parent, long timestamp) {
+        try {
+            A0BlockHeader header =
+                    new A0BlockHeader.Builder()
+                            .withParentHash(parent == null ? new byte[32] : parent.getHash())
+                            .withCoinbase(Address.ZERO_ADDRESS())
+                            .withNumber(parent == null ? 0 : parent.getNumber() + 1)
+                            .withTimestamp(timestamp)
+                            .withDifficulty(BigInteger.TEN)
+                            .build();
+            return new AionBlock(header, Collections.emptyList());
+        } catch (HeaderStructureException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<AionBlock> chain(AionBlock parent, int size, long timestamp) {
+        List<AionBlock> blocks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            parent = block(parent, timestamp + i);
+            blocks.add(parent);
+        }
+        return blocks;
+    }
+
+    private static BigInteger totalDifficulty(AionBlock block) {
+        return BigInteger.TEN.multiply(BigInteger.valueOf(block.getNumber() + 1));
+    }
+
+    @Test
+    public void testBlockStoreWithSegments() throws IOException {
+        IByteArrayKeyValueDatabase index = new MockDB("index");
+        IByteArrayKeyValueDatabase blocks = new MockDB("blocks");
+        index.open();
+        blocks.open();
+        BlockSegmentStore segments = new BlockSegmentStore(dir, BLOCK_SEGMENT_SIZE);
+        AionBlockStore store = new AionBlockStore(index, blocks, false, segments, 4);
+
+        List<AionBlock> chain = chain(null, 20, 1000);
+        for (AionBlock block : chain) {
+            store.saveBlock(block, totalDifficulty(block), true);
+        }
+        store.flush();
+
+        // blocks 0 to 15 are final
+        assertThat(segments.size()).isEqualTo(16);
+        assertThat(blocks.get(chain.get(15).getHash()).isPresent()).isFalse();
+        assertThat(blocks.get(chain.get(16).getHash()).isPresent()).isTrue();
+
+        for (AionBlock block : chain) {
+            byte[] hash = block.getHash();
+            assertThat(store.getChainBlockByNumber(block.getNumber()).getHash()).isEqualTo(hash);
+            assertThat(store.getBlockHashByNumber(block.getNumber())).isEqualTo(hash);
+            assertThat(store.getBlockByHash(hash).getEncoded()).isEqualTo(block.getEncoded());
+            assertThat(store.getEncodedBlockByHash(hash)).isEqualTo(block.getEncoded());
+            assertThat(store.getTotalDifficultyForHash(hash)).isEqualTo(totalDifficulty(block));
+        }
+        assertThat(store.getListHashesEndWith(chain.get(19).getHash(), 20)).hasSize(20);
+
+        // a fork from block 10 with a higher total difficulty
+        List<AionBlock> fork = chain(chain.get(9), 12, 2000);
+        for (AionBlock block : fork) {
+            store.saveBlock(block, totalDifficulty(block).add(BigInteger.ONE), false);
+        }
+        store.reBranch(fork.get(11));
+        assertThat(segments.size()).isEqualTo(10);
+
+        for (AionBlock block : fork) {
+            assertThat(store.getBlockHashByNumber(block.getNumber())).isEqualTo(block.getHash());
+            assertThat(store.getChainBlockByNumber(block.getNumber()).getHash())
+                    .isEqualTo(block.getHash());
+        }
+        // the previous main chain blocks were moved back to the blocks database
+        for (AionBlock block : chain.subList(10, 20)) {
+            assertThat(blocks.get(block.getHash()).isPresent()).isTrue();
+        }
+
+        store.flush();
+        assertThat(segments.size()).isEqualTo(18);
+        assertThat(store.getBestBlock().getHash()).isEqualTo(fork.get(11).getHash());
+
+        // reverting below the finality depth
+        store.revert(5);
+        assertThat(segments.size()).isEqualTo(6);
+        assertThat(store.getMaxNumber()).isEqualTo(5);
+        assertThat(store.getBestBlock().getHash()).isEqualTo(chain.get(5).getHash());
+        assertThat(store.getBlockByHash(chain.get(6).getHash())).isNull();
+        assertThat(store.getBlockByHash(fork.get(0).getHash())).isNull();
+
+        segments.close();
+
+        // the segments are reloaded with the block store
+        segments = new BlockSegmentStore(dir, BLOCK_SEGMENT_SIZE);
+        store = new AionBlockStore(index, blocks, false, segments, 4);
+        assertThat(store.getFinalizedBlockCount()).isEqualTo(6);
+        assertThat(store.getChainBlockByNumber(3).getHash()).isEqualTo(chain.get(3).getHash());
+    }
+
+    @Test
+    public void testMoveFinalizedBlocks() throws IOException {
+        IByteArrayKeyValueDatabase index = new MockDB("index");
+        IByteArrayKeyValueDatabase blocks = new MockDB("blocks");
+        index.open();
+        blocks.open();
+
+        // blocks stored without segments
+        AionBlockStore store = new AionBlockStore(index, blocks, false);
+        List<AionBlock> chain = chain(null, 30, 1000);
+        for (AionBlock block : chain) {
+            store.saveBlock(block, totalDifficulty(block), true);
+        }
+        store.flush();
+
+        BlockSegmentStore segments = new BlockSegmentStore(dir, BLOCK_SEGMENT_SIZE);
+        store = new AionBlockStore(index, blocks, false, segments, 10);
+        assertThat(store.moveFinalizedBlocks(8)).isEqualTo(8);
+        assertThat(store.moveFinalizedBlocks(8)).isEqualTo(8);
+        assertThat(store.moveFinalizedBlocks(8)).isEqualTo(4);
+        assertThat(store.moveFinalizedBlocks(8)).isEqualTo(0);
+        assertThat(store.getFinalizedBlockCount()).isEqualTo(20);
+        assertThat(blocks.keys()).hasSize(10);
+
+        for (AionBlock block : chain) {
+            assertThat(store.getBlockByHash(block.getHash()).getEncoded())
+                    .isEqualTo(block.getEncoded());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IPruneConfig;
+import org.aion.base.db.IRepositoryConfig;
+import org.aion.base.type.Address;
+import org.aion.base.vm.IDataWord;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.aion.mcf.config.CfgPrune;
+import org.aion.mcf.db.DetailsDataStore;
+import org.aion.mcf.vm.types.DataWord;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DetailsDataStoreTest {
+
+    // counts the details decoded by the store
+    private final AtomicInteger decoded = new AtomicInteger();
+
+    private final IRepositoryConfig repoConfig =
+            new IRepositoryConfig() {
+                @Override
+                public String getDbPath() {
+                    return "";
+                }
+
+                @Override
+                public IPruneConfig getPruneConfig() {
+                    return new CfgPrune(false);
+                }
+
+                @Override
+                public IContractDetails contractDetailsImpl() {
+                    decoded.incrementAndGet();
+                    return ContractDetailsAion.createForTesting(0, 1000000).getDetails();
+                }
+
+                @Override
+                public Properties getDatabaseConfig(String db_name) {
+                    return new Properties();
+                }
+            };
+
+    private DetailsDataStore<?, ?> store;
+
+    @Before
+    public void setup() {
+        store = new DetailsDataStore<>(connect("details"), connect("storage"), repoConfig);
+    }
+
+    private static IByteArrayKeyValueDatabase connect(String name) {
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+        props.setProperty(Props.DB_NAME, name);
+        props.setProperty(Props.ENABLE_HEAP_CACHE, "true");
+        props.setProperty(Props.ENABLE_AUTO_COMMIT, "false");
+        IByteArrayKeyValueDatabase db = DatabaseFactory.connect(props);
+        db.open();
+        return db;
+    }
+
+    private static Address address(int index) {
+        return new Address(HashUtil.h256(Integer.toString(index).getBytes()));
+    }
+
+    private IContractDetails<IDataWord> details(int rows) {
+        IContractDetails<IDataWord> details =
+                ContractDetailsAion.createForTesting(0, 1000000).getDetails();
+        details.setDataSource(store.getStorageDSPrune());
+        details.setCode(HashUtil.h256(Integer.toString(rows).getBytes()));
+        for (int i = 1; i <= rows; i++) {
+            details.put(new DataWord(i), new DataWord(i));
+        }
+        return details;
+    }
+
+    @Test
+    public void testSyncOnlyUpdatedContracts() {
+        for (int i = 0; i < 100; i++) {
+            store.update(address(i), details(2));
+        }
+        decoded.set(0);
+        store.syncLargeStorage();
+        assertThat(decoded.get()).isEqualTo(100);
+
+        // only the contracts updated after the previous sync are decoded
+        decoded.set(0);
+        store.update(address(1), details(3));
+        store.update(address(200), details(1));
+        store.syncLargeStorage();
+        assertThat(decoded.get()).isEqualTo(2);
+
+        decoded.set(0);
+        store.syncLargeStorage();
+        store.flush();
+        assertThat(decoded.get()).isEqualTo(0);
+
+        // removed contracts are not synced
+        store.update(address(300), details(1));
+        store.remove(address(300).toBytes());
+        store.syncLargeStorage();
+        assertThat(decoded.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void testFlushSize() {
+        IContractDetails<IDataWord> first = details(1);
+        IContractDetails<IDataWord> second = details(5);
+        store.update(address(1), first);
+        store.update(address(2), second);
+        assertThat(store.flush())
+                .isEqualTo(first.getEncoded().length + second.getEncoded().length);
+
+        // nothing updated since the previous flush
+        assertThat(store.flush()).isEqualTo(0L);
+
+        // a contract updated twice is counted once with its latest size
+        IContractDetails<IDataWord> third = details(3);
+        store.update(address(1), details(10));
+        store.update(address(1), third);
+        store.update(address(3), details(2));
+        store.remove(address(3).toBytes());
+        assertThat(store.flush()).isEqualTo(third.getEncoded().length);
+    }
+}
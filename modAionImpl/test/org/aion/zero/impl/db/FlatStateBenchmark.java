@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ */
+package org.aion.zero.impl.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.aion.base.db.IRepository;
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.zero.impl.MockRepositoryConfig;
+import org.junit.Test;
+
+/** Compares account reads through the state trie with reads served by the flat state. */
+public class FlatStateBenchmark {
+
+    private static final int ACCOUNTS = 20_000;
+    private static final int BATCH = 1_000;
+    private static final int READS = 50_000;
+
+    private static AionRepositoryImpl createRepository(boolean flatState) {
+        return AionRepositoryImpl.createForTesting(
+                new MockRepositoryConfig(DBVendor.MOCKDB) {
+                    @Override
+                    public Properties getDatabaseConfig(String db_name) {
+                        Properties props = super.getDatabaseConfig(db_name);
+                        props.setProperty(
+                                DatabaseFactory.Props.FLAT_STATE, String.valueOf(flatState));
+                        // no node cache so that the cold reads go to the database
+                        props.setProperty(DatabaseFactory.Props.NODE_CACHE_SIZE, "0");
+                        return props;
+                    }
+                });
+    }
+
+    private static List<Address> populate(AionRepositoryImpl repository) {
+        List<Address> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i += BATCH) {
+            IRepositoryCache track = repository.startTracking();
+            for (int j = i; j < i + BATCH; j++) {
+                Address account = Address.wrap(HashUtil.h256(("account-" + j).getBytes()));
+                track.addBalance(account, BigInteger.valueOf(j + 1));
+                accounts.add(account);
+            }
+            track.flush();
+            repository.flush();
+        }
+        return accounts;
+    }
+
+    /** @return the average read time in nanoseconds */
+    private static long readAccounts(IRepository repository, List<Address> accounts) {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < READS; i++) {
+            Address account = accounts.get(random.nextInt(accounts.size()));
+            assertThat(repository.getAccountState(account)).isNotNull();
+        }
+        return (System.nanoTime() - start) / READS;
+    }
+
+    private static void benchmark(boolean flatState) {
+        AionRepositoryImpl repository = createRepository(flatState);
+        List<Address> accounts = populate(repository);
+        Collections.shuffle(accounts, new Random(7));
+
+        IRepository cold = repository.getSnapshotTo(repository.getRoot());
+        long coldTime = readAccounts(cold, accounts);
+        long warmTime = readAccounts(cold, accounts);
+
+        System.out.format(
+                "flat state %s: %d accounts, cold read %d ns, warm read %d ns%s%n",
+                flatState ? "enabled" : "disabled",
+                ACCOUNTS,
+                coldTime,
+                warmTime,
+                flatState ? ", " + repository.getFlatState() : "");
+
+        repository.close();
+    }
+
+    @Test
+    public void benchmarkAccountReads() {
+        benchmark(false);
+        benchmark(true);
+    }
+}
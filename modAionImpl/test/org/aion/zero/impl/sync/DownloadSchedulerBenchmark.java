@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.p2p.P2pConstant.BACKWARD_SYNC_STEP;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.aion.base.util.ByteUtil;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.zero.impl.sync.msg.ReqBlocksBodies;
+import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/**
+ * Compares the download rate of the {@link DownloadScheduler} with the requests of {@link
+ * TaskGetHeaders} against simulated peers.
+ *
+ * <p>The peers are served by an in-process {@link IP2pMgr} that answers the header and body
+ * requests after the latency and transfer time of the receiving peer on a simulated clock. The
+ * header, body and import steps of {@link SyncMgr} are replayed on the same clock, so the
+ * measured rate depends only on the requests made by each strategy.
+ */
+public class DownloadSchedulerBenchmark {
+
+    private static final long TARGET_NUMBER = 20_000;
+
+    // time between status requests to each peer, as in TaskGetStatus
+    private static final long STATUS_INTERVAL = 2_000;
+
+    // simulated import time per block in milliseconds
+    private static final double IMPORT_TIME = 0.2;
+
+    // limit of the downloaded blocks queue, as the default sync configuration
+    private static final int BLOCKS_QUEUE_MAX = 32;
+
+    // ends runs that stopped making progress
+    private static final long MAX_TIME = 24 * 3_600_000L;
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.SYNC.name());
+
+    private static final Map<Long, A0BlockHeader> headers = new HashMap<>();
+    private static final Map<Long, AionBlock> blocks = new HashMap<>();
+
+    private static A0BlockHeader header(long number) {
+        return headers.computeIfAbsent(
+                number,
+                n -> {
+                    A0BlockHeader header = mock(A0BlockHeader.class);
+                    when(header.getNumber()).thenReturn(n);
+                    when(header.getHash()).thenReturn(ByteUtil.longToBytes(n));
+                    return header;
+                });
+    }
+
+    private static AionBlock block(long number) {
+        return blocks.computeIfAbsent(
+                number,
+                n -> {
+                    AionBlock block = mock(AionBlock.class);
+                    when(block.getNumber()).thenReturn(n);
+                    return block;
+                });
+    }
+
+    /** Remote peer that serves its requests one at a time. */
+    private static final class SimulatedPeer {
+        private final int idHash;
+        private final INode node;
+        // round trip time in milliseconds
+        private final long latency;
+        // blocks sent per millisecond
+        private final double bandwidth;
+        // share of the requests that are never answered
+        private final double dropRate;
+        private long busyUntil;
+
+        private SimulatedPeer(int idHash, long latency, double bandwidth, double dropRate) {
+            this.idHash = idHash;
+            this.latency = latency;
+            this.bandwidth = bandwidth;
+            this.dropRate = dropRate;
+
+            node = mock(INode.class);
+            when(node.getIdHash()).thenReturn(idHash);
+            when(node.getIdShort()).thenReturn("peer" + idHash);
+            when(node.getBestBlockNumber()).thenReturn(TARGET_NUMBER);
+            when(node.getTotalDifficulty()).thenReturn(BigInteger.TEN);
+        }
+    }
+
+    private static final class Event implements Comparable<Event> {
+        private final long time;
+        private final long sequence;
+        private final Runnable action;
+
+        private Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            int cmp = Long.compare(time, other.time);
+            return cmp != 0 ? cmp : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /** Replays the download pipeline of the sync manager on a simulated clock. */
+    private static final class Simulation {
+        private final Map<Integer, SimulatedPeer> peers = new HashMap<>();
+        private final Map<Integer, INode> activeNodes = new HashMap<>();
+        private final Map<Integer, PeerState> peerStates = new HashMap<>();
+        private final BlockingQueue<BlocksWrapper> downloadedBlocks = new LinkedBlockingQueue<>();
+        private final Map<Integer, List<A0BlockHeader>> bodiesRequested = new HashMap<>();
+        private final PriorityQueue<Event> events = new PriorityQueue<>();
+        private final SyncStats stats = new SyncStats(0);
+        private final Random random = new Random(42);
+        private final IP2pMgr p2p;
+        private final DownloadScheduler scheduler;
+
+        private long now = 0;
+        private long sequence = 0;
+        private long selfNumber = 0;
+        private boolean importing = false;
+        private long requestedHeaders = 0;
+
+        private Simulation(List<SimulatedPeer> simulatedPeers, boolean useScheduler) {
+            for (SimulatedPeer peer : simulatedPeers) {
+                peers.put(peer.idHash, peer);
+                activeNodes.put(peer.idHash, peer.node);
+            }
+
+            p2p = mock(IP2pMgr.class);
+            when(p2p.getActiveNodes()).thenReturn(activeNodes);
+            doAnswer(
+                            invocation -> {
+                                send(invocation.getArgument(0), invocation.getArgument(2));
+                                return null;
+                            })
+                    .when(p2p)
+                    .send(anyInt(), anyString(), any(Msg.class));
+
+            scheduler =
+                    useScheduler
+                            ? new DownloadScheduler(p2p, peerStates, downloadedBlocks, stats, LOG)
+                            : null;
+        }
+
+        private void at(long time, Runnable action) {
+            events.add(new Event(time, sequence++, action));
+        }
+
+        /** @return the simulated time in milliseconds needed to reach the target block */
+        private long run() {
+            // status responses trigger the header requests
+            for (int i = 0; i < peers.size(); i++) {
+                at(i * STATUS_INTERVAL / peers.size(), () -> onStatus());
+            }
+
+            while (selfNumber < TARGET_NUMBER && now < MAX_TIME && !events.isEmpty()) {
+                Event event = events.poll();
+                now = event.time;
+                event.action.run();
+            }
+            return now;
+        }
+
+        private void onStatus() {
+            getHeaders();
+            at(now + STATUS_INTERVAL, () -> onStatus());
+        }
+
+        /** Same decisions as {@link SyncMgr#getHeaders}. */
+        private void getHeaders() {
+            if (downloadedBlocks.size() > BLOCKS_QUEUE_MAX) {
+                return;
+            }
+            boolean scheduled =
+                    scheduler != null
+                            && TARGET_NUMBER > selfNumber + BACKWARD_SYNC_STEP
+                            && scheduler.schedule(selfNumber, now);
+            if (!scheduled) {
+                // TaskGetHeaders reads the wall clock, so the request times of the peers are
+                // moved from the simulated clock for the duration of the round
+                long shift = System.currentTimeMillis() - now;
+                shiftRequestTimes(shift);
+                new TaskGetHeaders(p2p, selfNumber, BigInteger.ONE, peerStates, stats, LOG).run();
+                shiftRequestTimes(-shift);
+            }
+        }
+
+        private void shiftRequestTimes(long shift) {
+            for (PeerState state : peerStates.values()) {
+                // zero marks a reset request time
+                if (state.getLastHeaderRequest() != 0) {
+                    state.setLastHeaderRequest(state.getLastHeaderRequest() + shift);
+                }
+            }
+        }
+
+        private void send(int idHash, Msg msg) {
+            SimulatedPeer peer = peers.get(idHash);
+            if (random.nextDouble() < peer.dropRate) {
+                return;
+            }
+
+            if (msg instanceof ReqBlocksHeaders) {
+                ReqBlocksHeaders request = (ReqBlocksHeaders) msg;
+                long first = request.getFromBlock();
+                long last = Math.min(TARGET_NUMBER, first + Math.min(request.getTake(), 96) - 1);
+                requestedHeaders += Math.max(0, last - first + 1);
+                at(now + peer.latency, () -> onHeaders(peer, first, last));
+            } else if (msg instanceof ReqBlocksBodies) {
+                int count = ((ReqBlocksBodies) msg).getBlocksHashes().size();
+                long start = Math.max(now, peer.busyUntil);
+                peer.busyUntil = start + (long) Math.ceil(count / peer.bandwidth);
+                at(peer.busyUntil + peer.latency, () -> onBodies(peer));
+            }
+        }
+
+        /** Same steps as {@link SyncMgr#validateAndAddHeaders} and {@link TaskGetBodies}. */
+        private void onHeaders(SimulatedPeer peer, long first, long last) {
+            if (first > last) {
+                return;
+            }
+            List<A0BlockHeader> received = new ArrayList<>();
+            List<A0BlockHeader> filtered = new ArrayList<>();
+            for (long number = first; number <= last; number++) {
+                received.add(header(number));
+                if (number > selfNumber) {
+                    filtered.add(header(number));
+                }
+            }
+
+            if (scheduler != null) {
+                scheduler.onHeaders(peer.idHash, received, filtered.size(), now);
+            }
+            if (!filtered.isEmpty()) {
+                List<byte[]> hashes = new ArrayList<>();
+                filtered.forEach(h -> hashes.add(h.getHash()));
+                bodiesRequested.put(peer.idHash, filtered);
+                send(peer.idHash, new ReqBlocksBodies(hashes));
+            }
+        }
+
+        /** Same steps as {@link SyncMgr#validateAndAddBlocks}. */
+        private void onBodies(SimulatedPeer peer) {
+            List<A0BlockHeader> requested = bodiesRequested.remove(peer.idHash);
+            if (requested == null) {
+                return;
+            }
+            List<AionBlock> batch = new ArrayList<>();
+            requested.forEach(h -> batch.add(block(h.getNumber())));
+
+            BlocksWrapper wrapper = new BlocksWrapper(peer.idHash, "peer" + peer.idHash, batch);
+            if (scheduler == null || !scheduler.onBlocks(wrapper, now)) {
+                downloadedBlocks.add(wrapper);
+            } else {
+                getHeaders();
+            }
+            importNext();
+        }
+
+        /** Imports the blocks connecting to the local chain, as {@link TaskImportBlocks}. */
+        private void importNext() {
+            if (importing || downloadedBlocks.isEmpty()) {
+                return;
+            }
+            BlocksWrapper wrapper = downloadedBlocks.poll();
+            long imported = 0;
+            for (AionBlock block : wrapper.getBlocks()) {
+                if (block.getNumber() == selfNumber + imported + 1) {
+                    imported++;
+                } else if (block.getNumber() > selfNumber + imported + 1) {
+                    // the parent is missing
+                    break;
+                }
+            }
+
+            importing = true;
+            long count = imported;
+            at(
+                    now + (long) Math.ceil(count * IMPORT_TIME),
+                    () -> {
+                        selfNumber += count;
+                        PeerState state = peerStates.get(wrapper.getNodeIdHash());
+                        if (state != null) {
+                            state.resetLastHeaderRequest();
+                        }
+                        importing = false;
+                        importNext();
+                    });
+        }
+    }
+
+    private static void compare(String name, List<SimulatedPeer> peers) {
+        for (boolean useScheduler : new boolean[] {false, true}) {
+            for (SimulatedPeer peer : peers) {
+                peer.busyUntil = 0;
+            }
+            Simulation simulation = new Simulation(peers, useScheduler);
+            long time = simulation.run();
+            assertThat(simulation.selfNumber).isAtLeast(TARGET_NUMBER);
+
+            System.out.format(
+                    "%s, %s: %.1f blocks/sec, %.2f headers requested per block%n",
+                    name,
+                    useScheduler ? "download scheduler" : "TaskGetHeaders",
+                    TARGET_NUMBER * 1000.0 / time,
+                    (double) simulation.requestedHeaders / TARGET_NUMBER);
+        }
+    }
+
+    @Test
+    public void benchmarkUniformPeers() {
+        List<SimulatedPeer> peers = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            peers.add(new SimulatedPeer(i, 200, 0.5, 0));
+        }
+        compare("8 uniform peers", peers);
+    }
+
+    @Test
+    public void benchmarkMixedPeers() {
+        long[] latencies = {50, 80, 120, 200, 300, 500, 800, 1_500};
+        double[] bandwidths = {2.0, 1.5, 1.0, 0.8, 0.5, 0.3, 0.2, 0.05};
+
+        List<SimulatedPeer> peers = new ArrayList<>();
+        for (int i = 0; i < latencies.length; i++) {
+            // one of the peers loses a fifth of the requests
+            double dropRate = i == 2 ? 0.2 : 0;
+            peers.add(new SimulatedPeer(i + 1, latencies[i], bandwidths[i], dropRate));
+        }
+        compare("8 mixed peers", peers);
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.p2p.P2pConstant.REQUEST_SIZE;
+import static org.aion.zero.impl.sync.DownloadScheduler.CHUNK_TIMEOUT;
+import static org.aion.zero.impl.sync.DownloadScheduler.MAX_REQUEST_SIZE;
+import static org.aion.zero.impl.sync.DownloadScheduler.MIN_REQUEST_SIZE;
+import static org.aion.zero.impl.sync.PeerState.Mode.BACKWARD;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.zero.impl.sync.DownloadScheduler.PeerPerformance;
+import org.aion.zero.impl.sync.msg.ReqBlocksHeaders;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DownloadSchedulerTest {
+
+    private final Map<Integer, INode> nodes = new HashMap<>();
+    private final Map<Integer, PeerState> peerStates = new HashMap<>();
+    private final BlockingQueue<BlocksWrapper> downloadedBlocks = new LinkedBlockingQueue<>();
+    // header requests sent by peer id hash
+    private final Map<Integer, List<ReqBlocksHeaders>> requests = new HashMap<>();
+
+    private DownloadScheduler scheduler;
+
+    @Before
+    public void setup() {
+        IP2pMgr p2p = mock(IP2pMgr.class);
+        when(p2p.getActiveNodes()).thenReturn(nodes);
+        doAnswer(
+                        invocation -> {
+                            int idHash = invocation.getArgument(0);
+                            ReqBlocksHeaders msg = invocation.getArgument(2);
+                            requests.computeIfAbsent(idHash, k -> new ArrayList<>()).add(msg);
+                            return null;
+                        })
+                .when(p2p)
+                .send(anyInt(), anyString(), any(Msg.class));
+
+        scheduler =
+                new DownloadScheduler(
+                        p2p,
+                        peerStates,
+                        downloadedBlocks,
+                        new SyncStats(0),
+                        AionLoggerFactory.getLogger(LogEnum.SYNC.name()));
+    }
+
+    private void addNode(int idHash, long best) {
+        INode node = mock(INode.class);
+        when(node.getIdHash()).thenReturn(idHash);
+        when(node.getIdShort()).thenReturn("node" + idHash);
+        when(node.getBestBlockNumber()).thenReturn(best);
+        when(node.getTotalDifficulty()).thenReturn(BigInteger.TEN);
+        nodes.put(idHash, node);
+    }
+
+    private ReqBlocksHeaders lastRequest(int idHash) {
+        List<ReqBlocksHeaders> sent = requests.get(idHash);
+        return sent.get(sent.size() - 1);
+    }
+
+    private static List<A0BlockHeader> headers(long first, long last) {
+        List<A0BlockHeader> headers = new ArrayList<>();
+        for (long number = first; number <= last; number++) {
+            A0BlockHeader header = mock(A0BlockHeader.class);
+            when(header.getNumber()).thenReturn(number);
+            headers.add(header);
+        }
+        return headers;
+    }
+
+    private static BlocksWrapper blocks(int idHash, long first, long last) {
+        List<AionBlock> blocks = new ArrayList<>();
+        for (long number = first; number <= last; number++) {
+            AionBlock block = mock(AionBlock.class);
+            when(block.getNumber()).thenReturn(number);
+            blocks.add(block);
+        }
+        return new BlocksWrapper(idHash, "node" + idHash, blocks);
+    }
+
+    /** Simulates the complete response of a peer to its last request. */
+    private void respond(int idHash, long now) {
+        ReqBlocksHeaders request = lastRequest(idHash);
+        long first = request.getFromBlock();
+        long last = first + request.getTake() - 1;
+        List<A0BlockHeader> headers = headers(first, last);
+        scheduler.onHeaders(idHash, headers, headers.size(), now);
+        assertThat(scheduler.onBlocks(blocks(idHash, first, last), now)).isTrue();
+    }
+
+    @Test
+    public void testAssignsDisjointChunks() {
+        addNode(1, 1_000);
+        addNode(2, 1_000);
+        addNode(3, 1_000);
+
+        assertThat(scheduler.schedule(0, 0)).isTrue();
+        assertThat(scheduler.getAssignedCount()).isEqualTo(3);
+
+        // together the chunks cover the blocks after the local best block without overlaps
+        List<Long> starts = new ArrayList<>();
+        for (int idHash = 1; idHash <= 3; idHash++) {
+            assertThat(requests.get(idHash)).hasSize(1);
+            assertThat(lastRequest(idHash).getTake()).isEqualTo(MIN_REQUEST_SIZE);
+            starts.add(lastRequest(idHash).getFromBlock());
+        }
+        assertThat(starts).containsExactly(1L, 1L + REQUEST_SIZE, 1L + 2 * REQUEST_SIZE);
+
+        // busy peers are not assigned a second chunk
+        assertThat(scheduler.schedule(0, 1)).isTrue();
+        assertThat(requests.values().stream().mapToInt(List::size).sum()).isEqualTo(3);
+    }
+
+    @Test
+    public void testReleasesChunksInOrder() {
+        addNode(1, 1_000);
+        scheduler.schedule(0, 0);
+        addNode(2, 1_000);
+        scheduler.schedule(0, 0);
+        assertThat(lastRequest(1).getFromBlock()).isEqualTo(1);
+        assertThat(lastRequest(2).getFromBlock()).isEqualTo(1 + REQUEST_SIZE);
+
+        // the later chunk waits for the earlier one
+        respond(2, 100);
+        assertThat(downloadedBlocks).isEmpty();
+        assertThat(scheduler.getNextToRelease()).isEqualTo(1);
+
+        respond(1, 200);
+        assertThat(downloadedBlocks).hasSize(2);
+        assertThat(downloadedBlocks.poll().getNodeIdHash()).isEqualTo(1);
+        assertThat(downloadedBlocks.poll().getNodeIdHash()).isEqualTo(2);
+        assertThat(scheduler.getNextToRelease()).isEqualTo(1 + 2 * REQUEST_SIZE);
+        assertThat(scheduler.getAssignedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testReassignsTimedOutChunk() {
+        addNode(1, 1_000);
+        scheduler.schedule(0, 0);
+        assertThat(lastRequest(1).getFromBlock()).isEqualTo(1);
+
+        // the chunk is still waiting for the first peer
+        addNode(2, 1_000);
+        scheduler.schedule(0, CHUNK_TIMEOUT);
+        assertThat(lastRequest(2).getFromBlock()).isEqualTo(1 + REQUEST_SIZE);
+
+        // the unanswered chunk goes to the next idle peer
+        respond(2, CHUNK_TIMEOUT + 1);
+        scheduler.schedule(0, CHUNK_TIMEOUT + 1);
+        assertThat(lastRequest(2).getFromBlock()).isEqualTo(1);
+        assertThat(lastRequest(2).getTake()).isEqualTo(REQUEST_SIZE);
+
+        // the late response of the first peer is not part of the schedule
+        assertThat(scheduler.onBlocks(blocks(1, 1, REQUEST_SIZE), CHUNK_TIMEOUT + 2)).isFalse();
+    }
+
+    @Test
+    public void testReassignsChunkOfDisconnectedPeer() {
+        addNode(1, 1_000);
+        scheduler.schedule(0, 0);
+
+        nodes.remove(1);
+        addNode(2, 1_000);
+        scheduler.schedule(0, 1);
+        assertThat(lastRequest(2).getFromBlock()).isEqualTo(1);
+        assertThat(scheduler.getAssignedCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReassignsMissingPartOfChunk() {
+        addNode(1, 1_000);
+        scheduler.schedule(0, 0);
+
+        // only part of the requested headers are returned
+        scheduler.onHeaders(1, headers(1, 10), 10, 100);
+        assertThat(scheduler.onBlocks(blocks(1, 1, 10), 200)).isTrue();
+        assertThat(downloadedBlocks).hasSize(1);
+        assertThat(scheduler.getNextToRelease()).isEqualTo(11);
+
+        scheduler.schedule(10, 300);
+        assertThat(lastRequest(1).getFromBlock()).isEqualTo(11);
+        assertThat(lastRequest(1).getTake()).isEqualTo(REQUEST_SIZE - 10);
+    }
+
+    @Test
+    public void testSkipsChunkOfImportedBlocks() {
+        addNode(1, 1_000);
+        addNode(2, 1_000);
+        scheduler.schedule(0, 0);
+
+        // all the headers of the first chunk were filtered out
+        int first = lastRequest(1).getFromBlock() == 1 ? 1 : 2;
+        int second = 3 - first;
+        scheduler.onHeaders(first, headers(1, REQUEST_SIZE), 0, 100);
+        respond(second, 200);
+
+        assertThat(downloadedBlocks).hasSize(1);
+        assertThat(downloadedBlocks.poll().getNodeIdHash()).isEqualTo(second);
+        assertThat(scheduler.getAssignedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testLeavesForkResolutionToPeerStates() {
+        addNode(1, 1_000);
+        peerStates.put(1, new PeerState(BACKWARD, 500));
+
+        assertThat(scheduler.schedule(0, 0)).isFalse();
+        assertThat(requests).isEmpty();
+
+        // peers that are not ahead of the local chain are not used either
+        addNode(2, 10);
+        assertThat(scheduler.schedule(10, 0)).isFalse();
+        assertThat(requests).isEmpty();
+    }
+
+    @Test
+    public void testRequestSizeFollowsPerformance() {
+        PeerPerformance fast = new PeerPerformance();
+        fast.onHeaders(100);
+        fast.onBlocks(REQUEST_SIZE, 100);
+        assertThat(fast.getRequestSize()).isEqualTo(MAX_REQUEST_SIZE);
+
+        PeerPerformance slow = new PeerPerformance();
+        slow.onHeaders(1_000);
+        slow.onBlocks(REQUEST_SIZE, 4_000);
+        assertThat(slow.getRequestSize()).isEqualTo(MIN_REQUEST_SIZE);
+        assertThat(fast.getRate(0)).isGreaterThan(slow.getRate(0));
+
+        // timeouts shrink the requests
+        fast.onTimeout();
+        assertThat(fast.getRequestSize()).isEqualTo(MAX_REQUEST_SIZE / 2);
+
+        // peers without measurements use the given rate
+        assertThat(new PeerPerformance().getRate(0.5)).isEqualTo(0.5);
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import org.aion.base.db.IRepository;
+import org.aion.base.db.IRepositoryCache;
+import org.aion.base.type.Address;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.HashUtil;
+import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.valid.BlockHeaderValidator;
+import org.aion.mcf.vm.types.DataWord;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.INode;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.p2p.impl1.P2pMgr;
+import org.aion.zero.impl.BlockchainTestUtils;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.impl.db.AionRepositoryImpl;
+import org.aion.zero.impl.sync.handler.ReqBlocksHeadersHandler;
+import org.aion.zero.impl.sync.handler.ReqTrieDataHandler;
+import org.aion.zero.impl.sync.msg.ResBlocksHeaders;
+import org.aion.zero.impl.sync.msg.ResTrieData;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.A0BlockHeader;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FastSyncManagerTest {
+
+    private static final Logger log = LoggerFactory.getLogger("SYNC");
+
+    // the contract used in BlockchainAccountStateTest, put() adds a new storage entry
+    private static final String STATE_EXPANSION_BYTECODE =
+            "0x605060405260006001600050909055341561001a5760006000fd5b61001f565b6101688061002e6000396000f30060506040526000356c01000000000000000000000000900463ffffffff16806331e658a514610049578063549262ba1461008957806361bc221a1461009f57610043565b60006000fd5b34156100555760006000fd5b610073600480808060100135903590916020019091929050506100c9565b6040518082815260100191505060405180910390f35b34156100955760006000fd5b61009d6100eb565b005b34156100ab5760006000fd5b6100b3610133565b6040518082815260100191505060405180910390f35b6000600050602052818160005260105260306000209050600091509150505481565b6001600060005060006001600050546000825281601001526020019081526010016000209050600050819090905550600160008181505480929190600101919050909055505b565b600160005054815600a165627a7a72305820c615f3373321aa7e9c05d9a69e49508147861fb2a54f2945fbbaa7d851125fe80029";
+    private static final byte[] PUT = ByteUtil.hexStringToBytes("0x549262ba");
+
+    private static final int SOURCE_ID = 1;
+    private static final int TARGET_ID = 2;
+
+    private StandaloneBlockchain source;
+    private StandaloneBlockchain target;
+    private ECKey key;
+    private Address contract;
+
+    private IP2pMgr targetP2p;
+    // messages sent by the source to the target
+    private final Deque<Msg> responses = new ArrayDeque<>();
+
+    @Before
+    public void setup() {
+        List<ECKey> accounts = BlockchainTestUtils.generateAccounts(2);
+        source =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(accounts)
+                        .build()
+                        .bc;
+        target =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(accounts)
+                        .build()
+                        .bc;
+        key = accounts.get(0);
+
+        // the source sends its responses to the queue
+        IP2pMgr sourceP2p = mock(IP2pMgr.class);
+        doAnswer(
+                        invocation -> {
+                            responses.add(invocation.getArgument(2));
+                            return null;
+                        })
+                .when(sourceP2p)
+                .send(anyInt(), any(), any(Msg.class));
+
+        ReqBlocksHeadersHandler headersHandler =
+                new ReqBlocksHeadersHandler(log, source, sourceP2p, false);
+        ReqTrieDataHandler trieDataHandler =
+                new ReqTrieDataHandler(log, source.getRepository(), sourceP2p, false);
+
+        // the requests of the target are handled directly by the source
+        targetP2p = mock(IP2pMgr.class);
+        doAnswer(
+                        invocation -> {
+                            Msg msg = invocation.getArgument(2);
+                            if (msg.getHeader().getAction() == Act.REQ_BLOCKS_HEADERS) {
+                                headersHandler.receive(TARGET_ID, "target", msg.encode());
+                            } else if (msg.getHeader().getAction() == Act.REQ_TRIE_DATA) {
+                                trieDataHandler.receive(TARGET_ID, "target", msg.encode());
+                            }
+                            return null;
+                        })
+                .when(targetP2p)
+                .send(anyInt(), any(), any(Msg.class));
+    }
+
+    private void connectSourcePeer() {
+        connectSourcePeer(source.getBestBlock().getNumber());
+    }
+
+    private void connectSourcePeer(long bestBlockNumber) {
+        INode node = mock(INode.class);
+        when(node.getIdHash()).thenReturn(SOURCE_ID);
+        when(node.getIdShort()).thenReturn("source");
+        when(node.getBestBlockNumber()).thenReturn(bestBlockNumber);
+        when(node.getTotalDifficulty()).thenReturn(source.getTotalDifficulty());
+        when(targetP2p.getActiveNodes()).thenReturn(Collections.singletonMap(SOURCE_ID, node));
+    }
+
+    /** Adds a block with value transfers to new accounts and calls to the contract. */
+    private AionBlock addSourceBlock(int transfers, int calls) {
+        BigInteger nonce = source.getRepository().getNonce(new Address(key.getAddress()));
+        List<AionTransaction> txs = new ArrayList<>();
+
+        if (contract == null && calls > 0) {
+            AionTransaction deploy =
+                    new AionTransaction(
+                            nonce.toByteArray(),
+                            null,
+                            BigInteger.ZERO.toByteArray(),
+                            ByteUtil.hexStringToBytes(STATE_EXPANSION_BYTECODE),
+                            1_000_000L,
+                            1L);
+            deploy.sign(key);
+            txs.add(deploy);
+            contract = deploy.getContractAddress();
+            nonce = nonce.add(BigInteger.ONE);
+        }
+
+        for (int i = 0; i < transfers; i++) {
+            AionTransaction tx =
+                    new AionTransaction(
+                            nonce.toByteArray(),
+                            new Address(HashUtil.h256(nonce.toByteArray())),
+                            BigInteger.ONE.toByteArray(),
+                            ByteUtil.EMPTY_BYTE_ARRAY,
+                            21_000L,
+                            1L);
+            tx.sign(key);
+            txs.add(tx);
+            nonce = nonce.add(BigInteger.ONE);
+        }
+
+        for (int i = 0; i < calls; i++) {
+            AionTransaction tx =
+                    new AionTransaction(
+                            nonce.toByteArray(),
+                            contract,
+                            BigInteger.ZERO.toByteArray(),
+                            PUT,
+                            200_000L,
+                            1L);
+            tx.sign(key);
+            txs.add(tx);
+            nonce = nonce.add(BigInteger.ONE);
+        }
+
+        AionBlock block = source.createNewBlock(source.getBestBlock(), txs, true);
+        assertThat(source.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        return block;
+    }
+
+    /** Sends the pending requests and delivers the responses until nothing is left to do. */
+    private void exchange(FastSyncManager fastSync) {
+        exchange(fastSync, 10_000L);
+    }
+
+    /**
+     * Sends the pending requests and delivers the responses until nothing is left to do, starting
+     * at the given time.
+     */
+    private void exchange(FastSyncManager fastSync, long now) {
+        for (int i = 0; i < 1_000 && fastSync.requestTrieData(now); i++) {
+            if (fastSync.getPivot() != null && responses.isEmpty()) {
+                // all the requests were answered
+                break;
+            }
+            while (!responses.isEmpty()) {
+                Msg msg = responses.poll();
+                if (msg instanceof ResBlocksHeaders) {
+                    ResBlocksHeaders res = ResBlocksHeaders.decode(msg.encode());
+                    assertThat(fastSync.offerPivotHeader(SOURCE_ID, res.getHeaders())).isTrue();
+                } else if (msg instanceof ResTrieData) {
+                    ResTrieData res = ResTrieData.decode(msg.encode());
+                    fastSync.addTrieData(SOURCE_ID, "source", res);
+                }
+            }
+            // one request is sent to the peer per second
+            now += 1_000L;
+        }
+    }
+
+    @Test
+    public void testFastSyncFromPeer() {
+        List<AionBlock> blocks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            blocks.add(addSourceBlock(20, 5));
+        }
+        connectSourcePeer();
+
+        FastSyncManager fastSync =
+                new FastSyncManager(target, targetP2p, target.getBlockHeaderValidator(), 2, 4, log);
+        assertThat(fastSync.isActive()).isFalse();
+
+        exchange(fastSync);
+
+        // the pivot is two blocks behind the best block of the peer
+        AionBlock pivot = blocks.get(5);
+        assertThat(fastSync.getPivot()).isNotNull();
+        assertThat(fastSync.getPivot().getHash()).isEqualTo(pivot.getHash());
+        assertThat(fastSync.isActive()).isTrue();
+        assertThat(fastSync.getImportedEntries()).isGreaterThan(0L);
+        assertThat(fastSync.filterBatch(blocks)).hasSize(6);
+
+        // the blocks above the pivot wait for the state to be complete
+        assertThat(fastSync.importBlock(blocks.get(6))).isEqualTo(ImportResult.NO_PARENT);
+
+        // the blocks up to the pivot are stored without execution
+        for (AionBlock block : blocks.subList(0, 6)) {
+            assertThat(fastSync.isComplete()).isFalse();
+            assertThat(fastSync.importBlock(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        assertThat(fastSync.isComplete()).isTrue();
+        assertThat(fastSync.isActive()).isFalse();
+
+        // the following blocks are executed on top of the downloaded state
+        for (AionBlock block : blocks.subList(6, blocks.size())) {
+            assertThat(fastSync.importBlock(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+        }
+        AionBlock next = addSourceBlock(5, 5);
+        assertThat(fastSync.importBlock(next)).isEqualTo(ImportResult.IMPORTED_BEST);
+
+        assertThat(target.getBestBlock().getHash()).isEqualTo(next.getHash());
+        assertThat(target.getRepository().getRoot()).isEqualTo(source.getRepository().getRoot());
+        assertThat(target.getRepository().getStorageValue(contract, new DataWord(1)))
+                .isEqualTo(source.getRepository().getStorageValue(contract, new DataWord(1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStateSyncWithContractStorage() {
+        // contracts with inline and external storage written directly to the state of the source
+        Address small = new Address(HashUtil.h256("small".getBytes()));
+        Address large = new Address(HashUtil.h256("large".getBytes()));
+        IRepositoryCache track = source.getRepository().startTracking();
+        track.createAccount(small);
+        track.saveCode(small, ByteUtil.hexStringToBytes(STATE_EXPANSION_BYTECODE));
+        track.addStorageRow(small, new DataWord(1), new DataWord(100));
+        track.createAccount(large);
+        track.saveCode(large, PUT);
+        for (int i = 1; i <= 200; i++) {
+            track.addStorageRow(large, new DataWord(i), new DataWord(i * 2));
+        }
+        track.flush();
+        source.getRepository().flush();
+        byte[] root = source.getRepository().getRoot();
+
+        // a pivot header for the new state
+        A0BlockHeader pivot = mock(A0BlockHeader.class);
+        when(pivot.getNumber()).thenReturn(10L);
+        when(pivot.getHash()).thenReturn(HashUtil.h256("pivot".getBytes()));
+        when(pivot.getStateRoot()).thenReturn(root);
+        BlockHeaderValidator<A0BlockHeader> validator = mock(BlockHeaderValidator.class);
+        when(validator.validate(pivot, log)).thenReturn(true);
+        connectSourcePeer(10L);
+
+        FastSyncManager fastSync = new FastSyncManager(target, targetP2p, validator, 0, 0, log);
+        assertThat(fastSync.requestTrieData(10_000L)).isTrue();
+        // the source does not have the block, the pivot header is delivered manually
+        responses.clear();
+        assertThat(fastSync.offerPivotHeader(TARGET_ID, Collections.singletonList(pivot)))
+                .isFalse();
+        assertThat(fastSync.offerPivotHeader(SOURCE_ID, Collections.singletonList(pivot)))
+                .isTrue();
+        exchange(fastSync);
+
+        // headers are not requested while the blocks up to the pivot are missing
+        assertThat(fastSync.isActive()).isTrue();
+        assertThat(fastSync.isBlockingHeaders(10L)).isTrue();
+        assertThat(fastSync.isBlockingHeaders(9L)).isFalse();
+
+        IRepository state = target.getRepository().getSnapshotTo(root);
+        assertThat(state.getCode(small)).isEqualTo(source.getRepository().getCode(small));
+        assertThat(state.getStorageValue(small, new DataWord(1))).isEqualTo(new DataWord(100));
+        assertThat(state.getCode(large)).isEqualTo(PUT);
+        for (int i = 1; i <= 200; i++) {
+            assertThat(state.getStorageValue(large, new DataWord(i)))
+                    .isEqualTo(new DataWord(i * 2));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStateRootStoredAfterSubtrees() {
+        Address large = new Address(HashUtil.h256("large".getBytes()));
+        IRepositoryCache track = source.getRepository().startTracking();
+        track.createAccount(large);
+        track.saveCode(large, PUT);
+        for (int i = 1; i <= 200; i++) {
+            track.addStorageRow(large, new DataWord(i), new DataWord(i * 2));
+        }
+        track.flush();
+        source.getRepository().flush();
+        byte[] root = source.getRepository().getRoot();
+
+        A0BlockHeader pivot = mock(A0BlockHeader.class);
+        when(pivot.getNumber()).thenReturn(10L);
+        when(pivot.getHash()).thenReturn(HashUtil.h256("pivot".getBytes()));
+        when(pivot.getStateRoot()).thenReturn(root);
+        BlockHeaderValidator<A0BlockHeader> validator = mock(BlockHeaderValidator.class);
+        when(validator.validate(pivot, log)).thenReturn(true);
+        connectSourcePeer(10L);
+
+        FastSyncManager fastSync = new FastSyncManager(target, targetP2p, validator, 0, 0, log);
+        assertThat(fastSync.requestTrieData(10_000L)).isTrue();
+        responses.clear();
+        assertThat(fastSync.offerPivotHeader(SOURCE_ID, Collections.singletonList(pivot)))
+                .isTrue();
+
+        // deliver everything except the contract storage
+        List<ResTrieData> withheld = new ArrayList<>();
+        long now = 10_000L;
+        do {
+            // one request is sent to the peer per second
+            fastSync.requestTrieData(now);
+            now += 1_000L;
+            while (!responses.isEmpty()) {
+                ResTrieData res = ResTrieData.decode(responses.poll().encode());
+                if (res.getDbType() == DatabaseType.STORAGE) {
+                    withheld.add(res);
+                } else {
+                    fastSync.addTrieData(SOURCE_ID, "source", res);
+                }
+            }
+        } while (withheld.isEmpty());
+        fastSync.requestTrieData(now);
+        assertThat(responses).isEmpty();
+
+        // the world state is not stored while the storage of the contract is missing
+        AionRepositoryImpl repository = target.getRepository();
+        assertThat(repository.isValidRoot(root)).isFalse();
+        assertThat(repository.hasTrieNode(root, DatabaseType.STATE, ByteUtil.EMPTY_BYTE_ARRAY))
+                .isFalse();
+
+        for (ResTrieData res : withheld) {
+            fastSync.addTrieData(SOURCE_ID, "source", res);
+        }
+        exchange(fastSync, now);
+
+        assertThat(repository.isValidRoot(root)).isTrue();
+        IRepository state = repository.getSnapshotTo(root);
+        assertThat(state.getCode(large)).isEqualTo(PUT);
+        for (int i = 1; i <= 200; i++) {
+            assertThat(state.getStorageValue(large, new DataWord(i)))
+                    .isEqualTo(new DataWord(i * 2));
+        }
+    }
+
+    @Test
+    public void testNoPivotWithoutDistantPeer() {
+        addSourceBlock(1, 0);
+        connectSourcePeer();
+
+        FastSyncManager fastSync =
+                new FastSyncManager(target, targetP2p, target.getBlockHeaderValidator(), 2, 4, log);
+        assertThat(fastSync.requestTrieData(10_000L)).isTrue();
+
+        assertThat(responses).isEmpty();
+        assertThat(fastSync.getPivot()).isNull();
+        assertThat(fastSync.isActive()).isFalse();
+
+        // without a pivot blocks are imported normally
+        AionBlock block = source.getBestBlock();
+        assertThat(fastSync.filterBatch(Collections.singletonList(block))).hasSize(1);
+        assertThat(fastSync.importBlock(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /** Synchronizes the state between two nodes connected over the loopback interface. */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStateSyncOverLoopback() throws Exception {
+        Address large = new Address(HashUtil.h256("large".getBytes()));
+        IRepositoryCache track = source.getRepository().startTracking();
+        track.createAccount(large);
+        track.saveCode(large, PUT);
+        for (int i = 1; i <= 200; i++) {
+            track.addStorageRow(large, new DataWord(i), new DataWord(i * 2));
+        }
+        track.flush();
+        source.getRepository().flush();
+        byte[] root = source.getRepository().getRoot();
+
+        A0BlockHeader pivot = mock(A0BlockHeader.class);
+        when(pivot.getNumber()).thenReturn(10L);
+        when(pivot.getHash()).thenReturn(HashUtil.h256("pivot".getBytes()));
+        when(pivot.getStateRoot()).thenReturn(root);
+        BlockHeaderValidator<A0BlockHeader> validator = mock(BlockHeaderValidator.class);
+        when(validator.validate(pivot, log)).thenReturn(true);
+
+        String ip = "127.0.0.1";
+        String sourceId = UUID.randomUUID().toString();
+        int sourcePort = freePort();
+        P2pMgr sourceP2p =
+                new P2pMgr(
+                        0,
+                        "loopback",
+                        sourceId,
+                        ip,
+                        sourcePort,
+                        new String[0],
+                        false,
+                        128,
+                        128,
+                        false,
+                        50);
+        sourceP2p.register(
+                Collections.singletonList(
+                        new ReqTrieDataHandler(log, source.getRepository(), sourceP2p, false)));
+
+        String[] bootNodes = new String[] {"p2p://" + sourceId + "@" + ip + ":" + sourcePort};
+        P2pMgr syncP2p =
+                new P2pMgr(
+                        0,
+                        "loopback",
+                        UUID.randomUUID().toString(),
+                        ip,
+                        freePort(),
+                        bootNodes,
+                        false,
+                        128,
+                        128,
+                        false,
+                        50);
+        FastSyncManager fastSync = new FastSyncManager(target, syncP2p, validator, 0, 0, log);
+        syncP2p.register(
+                Collections.singletonList(
+                        new Handler(Ver.V0, Ctrl.SYNC, Act.RES_TRIE_DATA) {
+                            @Override
+                            public void receive(int peerId, String displayId, byte[] msg) {
+                                fastSync.addTrieData(peerId, displayId, ResTrieData.decode(msg));
+                            }
+                        }));
+
+        sourceP2p.run();
+        syncP2p.run();
+        try {
+            long deadline = System.currentTimeMillis() + 60_000L;
+            while (syncP2p.getActiveNodes().isEmpty()) {
+                assertThat(System.currentTimeMillis()).isLessThan(deadline);
+                Thread.sleep(100L);
+            }
+            INode peer = syncP2p.getActiveNodes().values().iterator().next();
+            // the status is exchanged by the sync manager, which is not running
+            peer.updateStatus(10L, pivot.getHash(), source.getTotalDifficulty());
+
+            // the source does not have the block, the pivot header is delivered manually
+            assertThat(fastSync.requestTrieData(System.currentTimeMillis())).isTrue();
+            assertThat(
+                            fastSync.offerPivotHeader(
+                                    peer.getIdHash(), Collections.singletonList(pivot)))
+                    .isTrue();
+
+            AionRepositoryImpl repository = target.getRepository();
+            while (!repository.isValidRoot(root)) {
+                assertThat(System.currentTimeMillis()).isLessThan(deadline);
+                fastSync.requestTrieData(System.currentTimeMillis());
+                Thread.sleep(100L);
+            }
+        } finally {
+            syncP2p.shutdown();
+            sourceP2p.shutdown();
+        }
+
+        IRepository state = target.getRepository().getSnapshotTo(root);
+        assertThat(state.getCode(large)).isEqualTo(PUT);
+        for (int i = 1; i <= 200; i++) {
+            assertThat(state.getStorageValue(large, new DataWord(i)))
+                    .isEqualTo(new DataWord(i * 2));
+        }
+    }
+}
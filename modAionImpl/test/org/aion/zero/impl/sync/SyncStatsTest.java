@@ -289,4 +289,25 @@ public class SyncStatsTest {
             }
         }
     }
+
+    @Test
+    public void testImportPipelineStats() {
+        SyncStats stats = new SyncStats(0L);
+
+        // ensures correct behaviour on empty stats
+        assertThat(stats.getAvgPrepareTimePerBlock()).isEqualTo(-1d);
+        assertThat(stats.getAvgImportTimePerBlock()).isEqualTo(-1d);
+        assertThat(stats.getDownloadedQueueSize()).isEqualTo(0);
+        assertThat(stats.getPreparedQueueSize()).isEqualTo(0);
+
+        stats.addPrepareStage(10, 1_000L);
+        stats.addPrepareStage(30, 3_000L);
+        stats.addImportStage(20, 10_000L);
+        stats.updatePipelineQueues(5, 2);
+
+        assertThat(stats.getAvgPrepareTimePerBlock()).isEqualTo(100d);
+        assertThat(stats.getAvgImportTimePerBlock()).isEqualTo(500d);
+        assertThat(stats.getDownloadedQueueSize()).isEqualTo(5);
+        assertThat(stats.getPreparedQueueSize()).isEqualTo(2);
+    }
 }
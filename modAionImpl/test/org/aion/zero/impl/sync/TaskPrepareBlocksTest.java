@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.zero.impl.BlockchainTestUtils.generateAccounts;
+import static org.aion.zero.impl.BlockchainTestUtils.generateNextBlock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.crypto.ECKey;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+public class TaskPrepareBlocksTest {
+
+    private static final List<ECKey> accounts = generateAccounts(10);
+
+    /** Generates blocks with transactions and returns decoded copies, as received from peers. */
+    private static List<AionBlock> generateBlocks(List<AionBlock> originals) {
+        StandaloneBlockchain chain =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts(accounts)
+                        .build()
+                        .bc;
+
+        List<AionBlock> copies = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AionBlock block = generateNextBlock(chain, accounts, 100);
+            assertThat(chain.tryToConnect(block)).isEqualTo(ImportResult.IMPORTED_BEST);
+            originals.add(block);
+            copies.add(new AionBlock(block.getEncoded()));
+        }
+        return copies;
+    }
+
+    @Test
+    public void testPrepare() throws InterruptedException {
+        List<AionBlock> originals = new ArrayList<>();
+        List<AionBlock> blocks = generateBlocks(originals);
+
+        TaskPrepareBlocks task =
+                new TaskPrepareBlocks(
+                        new AtomicBoolean(true),
+                        new LinkedBlockingQueue<>(),
+                        new LinkedBlockingQueue<>(),
+                        new SyncStats(0L),
+                        4,
+                        AionLoggerFactory.getLogger(LogEnum.SYNC.name()));
+
+        int expected = 0;
+        for (AionBlock block : blocks) {
+            expected += block.getTransactionsList().size();
+        }
+        assertThat(task.prepare(blocks)).isEqualTo(expected);
+
+        for (int i = 0; i < blocks.size(); i++) {
+            List<AionTransaction> prepared = blocks.get(i).getTransactionsList();
+            List<AionTransaction> original = originals.get(i).getTransactionsList();
+            for (int j = 0; j < prepared.size(); j++) {
+                assertThat(prepared.get(j).getFrom()).isEqualTo(original.get(j).getFrom());
+                assertThat(prepared.get(j).getHash()).isEqualTo(original.get(j).getHash());
+            }
+        }
+    }
+
+    @Test
+    public void testRunMovesBatchesInOrder() throws InterruptedException {
+        List<AionBlock> blocks = generateBlocks(new ArrayList<>());
+
+        AtomicBoolean start = new AtomicBoolean(true);
+        BlockingQueue<BlocksWrapper> downloaded = new LinkedBlockingQueue<>();
+        BlockingQueue<BlocksWrapper> prepared = new LinkedBlockingQueue<>(1);
+        SyncStats stats = new SyncStats(0L);
+
+        for (AionBlock block : blocks) {
+            List<AionBlock> batch = new ArrayList<>();
+            batch.add(block);
+            downloaded.add(new BlocksWrapper(1, "peer", batch));
+        }
+
+        Thread thread =
+                new Thread(
+                        new TaskPrepareBlocks(
+                                start,
+                                downloaded,
+                                prepared,
+                                stats,
+                                2,
+                                AionLoggerFactory.getLogger(LogEnum.SYNC.name())),
+                        "sync-pb");
+        thread.start();
+
+        // the bounded output queue is consumed in the same order as the input
+        for (AionBlock block : blocks) {
+            BlocksWrapper bw = prepared.take();
+            assertThat(bw.getBlocks().get(0)).isSameAs(block);
+        }
+        assertThat(stats.getAvgPrepareTimePerBlock()).isAtLeast(0d);
+
+        start.set(false);
+        thread.interrupt();
+        thread.join(10_000);
+        assertThat(thread.isAlive()).isFalse();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.zero.impl.sync.msg;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.HashUtil;
+import org.aion.zero.impl.sync.DatabaseType;
+import org.junit.Test;
+
+public class ReqTrieDataTest {
+
+    private final byte[] key = HashUtil.h256("key".getBytes());
+    private final byte[] owner = HashUtil.h256("owner".getBytes());
+
+    @Test
+    public void testEncodeDecode() {
+        ReqTrieData request = new ReqTrieData(DatabaseType.STORAGE, key, owner, 256);
+        ReqTrieData decoded = ReqTrieData.decode(request.encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getDbType()).isEqualTo(DatabaseType.STORAGE);
+        assertThat(decoded.getKey()).isEqualTo(key);
+        assertThat(decoded.getOwner()).isEqualTo(owner);
+        assertThat(decoded.getLimit()).isEqualTo(256);
+    }
+
+    @Test
+    public void testEncodeDecodeWithoutOwner() {
+        ReqTrieData request = new ReqTrieData(DatabaseType.STATE, key, ByteUtil.EMPTY_BYTE_ARRAY, 0);
+        ReqTrieData decoded = ReqTrieData.decode(request.encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getDbType()).isEqualTo(DatabaseType.STATE);
+        assertThat(decoded.getOwner()).isEmpty();
+        assertThat(decoded.getLimit()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        assertThat(ReqTrieData.decode(null)).isNull();
+        assertThat(ReqTrieData.decode(new byte[0])).isNull();
+        assertThat(ReqTrieData.decode(new byte[] {1, 2, 3})).isNull();
+    }
+}
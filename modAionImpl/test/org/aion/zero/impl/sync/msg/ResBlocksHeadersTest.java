@@ -111,4 +111,22 @@ public class ResBlocksHeadersTest {
         List<A0BlockHeader> bhs2 = rbhs2.getHeaders();
         assertThat(bhs2.size()).isEqualTo(m);
     }
+
+    @Test
+    public void testEncodedHeaders() {
+        int m = 192;
+
+        List<A0BlockHeader> bhs1 = new ArrayList<>();
+        List<byte[]> encoded = new ArrayList<>();
+        for (int i = 0; i < m; i++) {
+            bhs1.add(bh1);
+            encoded.add(bh1.getEncoded());
+        }
+        byte[] rbhsBytes = ResBlocksHeaders.fromEncoded(encoded).encode();
+        assertThat(rbhsBytes).isEqualTo(new ResBlocksHeaders(bhs1).encode());
+
+        List<A0BlockHeader> bhs2 = ResBlocksHeaders.fromEncoded(encoded).getHeaders();
+        assertThat(bhs2.size()).isEqualTo(m);
+        assertThat(bhs2.get(0).getHash()).isEqualTo(bh1.getHash());
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.zero.impl.sync.msg;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.crypto.HashUtil;
+import org.aion.zero.impl.sync.DatabaseType;
+import org.junit.Test;
+
+public class ResTrieDataTest {
+
+    private final byte[] value = "node".getBytes();
+    private final byte[] key = HashUtil.h256(value);
+
+    @Test
+    public void testEncodeDecode() {
+        Map<ByteArrayWrapper, byte[]> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            byte[] node = ("referenced-" + i).getBytes();
+            nodes.put(ByteArrayWrapper.wrap(HashUtil.h256(node)), node);
+        }
+
+        ResTrieData response =
+                new ResTrieData(DatabaseType.STATE, key, ByteUtil.EMPTY_BYTE_ARRAY, value, nodes);
+        ResTrieData decoded = ResTrieData.decode(response.encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getDbType()).isEqualTo(DatabaseType.STATE);
+        assertThat(decoded.getKey()).isEqualTo(key);
+        assertThat(decoded.getOwner()).isEmpty();
+        assertThat(decoded.getValue()).isEqualTo(value);
+        assertThat(decoded.getReferencedNodes().keySet()).containsExactlyElementsIn(nodes.keySet());
+        for (Map.Entry<ByteArrayWrapper, byte[]> node : nodes.entrySet()) {
+            assertThat(decoded.getReferencedNodes().get(node.getKey())).isEqualTo(node.getValue());
+        }
+    }
+
+    @Test
+    public void testEncodeDecodeWithoutReferencedNodes() {
+        byte[] owner = HashUtil.h256("owner".getBytes());
+        ResTrieData response =
+                new ResTrieData(DatabaseType.DETAILS, key, owner, value, new LinkedHashMap<>());
+        ResTrieData decoded = ResTrieData.decode(response.encode());
+
+        assertThat(decoded).isNotNull();
+        assertThat(decoded.getDbType()).isEqualTo(DatabaseType.DETAILS);
+        assertThat(decoded.getOwner()).isEqualTo(owner);
+        assertThat(decoded.getReferencedNodes()).isEmpty();
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        assertThat(ResTrieData.decode(null)).isNull();
+        assertThat(ResTrieData.decode(new byte[0])).isNull();
+        assertThat(ResTrieData.decode(new byte[] {(byte) 0xc1, 5})).isNull();
+    }
+}
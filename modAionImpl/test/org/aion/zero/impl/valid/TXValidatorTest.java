@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.zero.impl.valid;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.HashUtil;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Test;
+
+public class TXValidatorTest {
+
+    private static AionTransaction createTx(ECKey key, int nonce, long nrg) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        new Address(HashUtil.h256(BigInteger.valueOf(nonce).toByteArray())),
+                        BigInteger.ONE.toByteArray(),
+                        new byte[0],
+                        nrg,
+                        1L);
+        tx.sign(key);
+        return tx;
+    }
+
+    @Test
+    public void testBatchValidation() {
+        ECKey key = ECKeyFac.inst().create();
+
+        List<AionTransaction> txs = new ArrayList<>();
+        boolean[] expected = new boolean[12];
+        for (int i = 0; i < expected.length; i++) {
+            AionTransaction tx;
+            if (i % 4 == 1) {
+                // invalid energy
+                tx = createTx(key, i, 0L);
+                expected[i] = false;
+            } else if (i % 4 == 2) {
+                // corrupted signature, which is the last element of the encoding
+                byte[] encoded = createTx(key, i, 21_000L).getEncoded().clone();
+                encoded[encoded.length - 1] ^= 0x01;
+                tx = new AionTransaction(encoded);
+                expected[i] = false;
+            } else {
+                tx = createTx(key, i, 21_000L);
+                expected[i] = true;
+            }
+            txs.add(tx);
+        }
+
+        boolean[] valid = TXValidator.isValid(txs);
+        assertThat(valid).isEqualTo(expected);
+
+        // the batch results are consistent with the single transaction checks
+        for (int i = 0; i < txs.size(); i++) {
+            assertThat(TXValidator.isValid0(txs.get(i))).isEqualTo(expected[i]);
+            assertThat(TXValidator.isValid(txs.get(i))).isEqualTo(expected[i]);
+        }
+
+        // a second pass is answered from the cache
+        assertThat(TXValidator.isValid(txs)).isEqualTo(expected);
+    }
+}
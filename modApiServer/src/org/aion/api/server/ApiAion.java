@@ -43,6 +43,7 @@ import org.aion.api.server.types.ArgTxCall;
 import org.aion.api.server.types.Fltr;
 import org.aion.api.server.types.SyncInfo;
 import org.aion.api.server.types.TxRecpt;
+import org.aion.base.db.IRepository;
 import org.aion.base.type.Address;
 import org.aion.base.type.ITransaction;
 import org.aion.base.type.ITxReceipt;
@@ -375,8 +376,16 @@ public abstract class ApiAion extends Api {
         }
     }
 
+    /**
+     * @return a read-only view of the state at the best block, which can be queried without waiting
+     *     for block import
+     */
+    protected IRepository<?, ?, ?> getBestStateSnapshot() {
+        return this.ac.getReadSnapshot(this.ac.getBlockchain().getBestBlock().getStateRoot());
+    }
+
     public byte[] getCode(Address addr) {
-        return this.ac.getRepository().getCode(addr);
+        return getBestStateSnapshot().getCode(addr);
     }
 
     /* NOTE: only use this if you need receipts for one or small number transactions in a block.
@@ -528,19 +537,19 @@ public abstract class ApiAion extends Api {
 
     // Transaction Level
     public BigInteger getBalance(String _address) {
-        return this.ac.getRepository().getBalance(Address.wrap(_address));
+        return getBestStateSnapshot().getBalance(Address.wrap(_address));
     }
 
     public BigInteger getBalance(Address _address) {
-        return this.ac.getRepository().getBalance(_address);
+        return getBestStateSnapshot().getBalance(_address);
     }
 
     public BigInteger getNonce(String _address) {
-        return this.ac.getRepository().getNonce(Address.wrap(_address));
+        return getBestStateSnapshot().getNonce(Address.wrap(_address));
     }
 
     public BigInteger getNonce(Address _address) {
-        return this.ac.getRepository().getNonce(_address);
+        return getBestStateSnapshot().getNonce(_address);
     }
 
     protected ApiTxResponse sendTransaction(ArgTxCall _params) {
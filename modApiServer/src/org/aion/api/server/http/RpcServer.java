@@ -46,6 +46,11 @@ public abstract class RpcServer {
 
     protected boolean stuckThreadDetectorEnabled;
 
+    /** whether to serve the kernel metrics over http GET at {@link #METRICS_PATH} */
+    protected boolean metricsEnabled;
+
+    public static final String METRICS_PATH = "/metrics";
+
     /**
      * to explicitly force any subclasses to check for null values, access to the following
      * variables is restricted through protected accessor methods
@@ -95,6 +100,7 @@ public abstract class RpcServer {
         ioPoolSize = builder.ioPoolSize;
         requestQueueSize = builder.requestQueueSize;
         stuckThreadDetectorEnabled = builder.stuckThreadDetectorEnabled;
+        metricsEnabled = builder.metricsEnabled;
     }
 
     // want to explicitly force user of this class to check for null values here.
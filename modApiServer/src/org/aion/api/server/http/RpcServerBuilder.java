@@ -55,6 +55,7 @@ public abstract class RpcServerBuilder<T extends RpcServerBuilder<T>> {
     Integer ioPoolSize = null;
     Integer requestQueueSize = null;
     boolean stuckThreadDetectorEnabled = false;
+    boolean metricsEnabled = false;
 
     public T setUrl(String hostName, int port) {
         this.hostName = Objects.requireNonNull(hostName);
@@ -124,6 +125,11 @@ public abstract class RpcServerBuilder<T extends RpcServerBuilder<T>> {
         return self();
     }
 
+    public T setMetricsEnabled(boolean x) {
+        this.metricsEnabled = x;
+        return self();
+    }
+
     protected abstract RpcServer build();
 
     // Subclasses must override this method to return "this"
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.api.server.http.undertow;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import io.undertow.util.StatusCodes;
+import org.aion.base.metrics.MetricRegistry;
+
+/** Serves the kernel metrics in the Prometheus text exposition format. */
+class AionUndertowMetricsHandler implements HttpHandler {
+
+    @Override
+    public void handleRequest(HttpServerExchange exchange) {
+        // only support GET requests
+        if (!Methods.GET.equals(exchange.getRequestMethod())) {
+            exchange.setStatusCode(StatusCodes.METHOD_NOT_ALLOWED);
+            exchange.setPersistent(false); // don't need to keep-alive connection in case of error.
+            exchange.endExchange();
+            return;
+        }
+
+        exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, MetricRegistry.CONTENT_TYPE);
+        exchange.getResponseSender().send(MetricRegistry.getInstance().toText());
+    }
+}
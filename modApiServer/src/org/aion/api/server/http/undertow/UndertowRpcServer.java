@@ -23,7 +23,9 @@
 
 package org.aion.api.server.http.undertow;
 
+import io.undertow.Handlers;
 import io.undertow.Undertow;
+import io.undertow.server.HttpHandler;
 import io.undertow.util.HttpString;
 import java.io.FileInputStream;
 import java.security.KeyStore;
@@ -165,8 +167,15 @@ public class UndertowRpcServer extends RpcServer {
             AionUndertowRpcHandler rpcHandler =
                     new AionUndertowRpcHandler(corsEnabled, CORS_HEADERS, rpcProcessor);
 
-            undertowBuilder.setHandler(
-                    new AionUndertowRootHandler(rpcHandler, requestLimiting, stuckThreadDetector));
+            HttpHandler handler =
+                    new AionUndertowRootHandler(rpcHandler, requestLimiting, stuckThreadDetector);
+            if (metricsEnabled) {
+                // served from the io thread, since writing the metrics does not block
+                handler =
+                        Handlers.path(handler)
+                                .addExactPath(METRICS_PATH, new AionUndertowMetricsHandler());
+            }
+            undertowBuilder.setHandler(handler);
 
             server = undertowBuilder.build();
             server.start();
@@ -188,6 +197,9 @@ public class UndertowRpcServer extends RpcServer {
                     corsEnabled
                             ? "Enabled; Allowed Origins = \"" + corsOrigin + "\""
                             : "Not Enabled");
+            LOG.debug(
+                    "Metrics: {}",
+                    metricsEnabled ? "Enabled; Path = " + METRICS_PATH : "Not Enabled");
             LOG.debug("Worker Thread Count: {}", effectiveWorkerThreadCount);
             LOG.debug("I/O Thread Count: {}", effectiveIoThreadCount);
             LOG.debug(
@@ -35,6 +35,7 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -45,6 +46,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import org.aion.api.server.ApiAion;
 import org.aion.api.server.ApiTxResponse;
 import org.aion.api.server.types.ArgFltr;
@@ -52,6 +54,7 @@ import org.aion.api.server.types.ArgTxCall;
 import org.aion.api.server.types.Blk;
 import org.aion.api.server.types.CompiledContr;
 import org.aion.api.server.types.Evt;
+import org.aion.api.server.types.EvtLg;
 import org.aion.api.server.types.Fltr;
 import org.aion.api.server.types.FltrBlk;
 import org.aion.api.server.types.FltrLg;
@@ -89,6 +92,8 @@ import org.aion.mcf.config.CfgSync;
 import org.aion.mcf.config.CfgTx;
 import org.aion.mcf.core.AccountState;
 import org.aion.mcf.core.ImportResult;
+import org.aion.mcf.db.BloomBitsIndex;
+import org.aion.mcf.vm.types.Bloom;
 import org.aion.mcf.vm.types.DataWord;
 import org.aion.mcf.vm.types.Log;
 import org.aion.p2p.INode;
@@ -1122,19 +1127,57 @@ public class ApiWeb3Aion extends ApiAion {
             // installation.
 
             toBlock = toBlock == null ? getBestBlock() : toBlock;
-            for (long i = fromBlock.getNumber(); i <= toBlock.getNumber(); i++) {
-                if (filter.isFull()) {
-                    break;
-                }
-                filter.onBlock(
-                        this.ac.getBlockchain().getBlockByNumber(i),
-                        this.ac.getAionHub().getBlockchain());
-            }
+            forEachCandidateBlock(
+                    filter,
+                    fromBlock.getNumber(),
+                    toBlock.getNumber(),
+                    block -> {
+                        filter.onBlock(block, this.ac.getAionHub().getBlockchain());
+                        return !filter.isFull();
+                    });
         }
 
         return filter;
     }
 
+    /**
+     * Visits in ascending order the main chain blocks in the given range whose log bloom may match
+     * the filter, until the visitor returns {@code false}. The blocks covered by the bloom bits
+     * index are looked up in the index, the others are checked one by one.
+     */
+    private void forEachCandidateBlock(
+            FltrLg filter, long from, long to, Predicate<AionBlock> visitor) {
+        BloomBitsIndex index = ((AionRepositoryImpl) this.ac.getRepository()).getBloomBitsIndex();
+        long indexed = index == null ? 0 : index.getIndexedBlocks();
+
+        long number = from;
+        while (number <= to) {
+            if (number < indexed) {
+                long section = number / BloomBitsIndex.SECTION_SIZE;
+                long first = section * BloomBitsIndex.SECTION_SIZE;
+                BitSet candidates = index.matchSection(section, filter.getFilterBlooms());
+
+                for (int i = candidates.nextSetBit((int) (number - first));
+                        i >= 0 && first + i <= to;
+                        i = candidates.nextSetBit(i + 1)) {
+                    AionBlock block = this.ac.getBlockchain().getBlockByNumber(first + i);
+                    if (block != null && !visitor.test(block)) {
+                        return;
+                    }
+                }
+                number = first + BloomBitsIndex.SECTION_SIZE;
+            } else {
+                AionBlock block = this.ac.getBlockchain().getBlockByNumber(number);
+                if (block != null
+                        && filter.matchBloom(new Bloom(block.getLogBloom()))
+                        && !visitor.test(block)) {
+                    return;
+                }
+                number++;
+            }
+        }
+    }
+
     public RpcMsg eth_newFilter(Object _params) {
         if (!isFilterEnabled) {
             return new RpcMsg(null, RpcError.NOT_ALLOWED, "Filters over rpc disabled.");
@@ -1266,6 +1309,79 @@ public class ApiWeb3Aion extends ApiAion {
         return new RpcMsg(buildFilterResponse(filter));
     }
 
+    /**
+     * Paginated version of eth_getLogs. Besides the eth_getLogs filter fields, the filter object
+     * accepts a {@code limit} on the number of logs returned (at most {@value Fltr#EVTS_MAX}) and
+     * the number of matching logs of {@code fromBlock} to {@code skip}. When more logs are available
+     * the response contains the {@code fromBlock} and {@code skip} values of the next page.
+     */
+    public RpcMsg ops_getLogs(Object _params) {
+        JSONObject _filterObj;
+        if (_params instanceof JSONArray) {
+            _filterObj = ((JSONArray) _params).getJSONObject(0);
+        } else if (_params instanceof JSONObject) {
+            _filterObj = ((JSONObject) _params).getJSONObject("filter");
+        } else {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid parameters");
+        }
+
+        ArgFltr rf = ArgFltr.fromJSON(_filterObj);
+        if (rf == null) {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid filter object provided.");
+        }
+
+        int limit = _filterObj.optInt("limit", Fltr.EVTS_MAX);
+        int skip = _filterObj.optInt("skip", 0);
+        if (limit < 1 || limit > Fltr.EVTS_MAX || skip < 0) {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid limit or skip provided.");
+        }
+
+        Long bnFrom = parseBnOrId(rf.fromBlock);
+        Long bnTo = parseBnOrId(rf.toBlock);
+        if (bnFrom == null || bnTo == null || (bnTo != BEST_PENDING_BLOCK && bnFrom > bnTo)) {
+            return new RpcMsg(null, RpcError.INVALID_PARAMS, "Invalid block ids provided.");
+        }
+
+        AionBlock fromBlock = this.getBlockByBN(bnFrom);
+        AionBlock toBlock = this.getBlockByBN(bnTo);
+        toBlock = toBlock == null ? getBestBlock() : toBlock;
+
+        FltrLg filter = new FltrLg();
+        filter.setTopics(rf.topics);
+        filter.setContractAddress(rf.address);
+
+        JSONArray logs = new JSONArray();
+        JSONObject next = new JSONObject();
+
+        if (fromBlock != null) {
+            long from = fromBlock.getNumber();
+            forEachCandidateBlock(
+                    filter,
+                    from,
+                    toBlock.getNumber(),
+                    block -> {
+                        List<EvtLg> matches =
+                                filter.getMatchingLogs(block, this.ac.getAionHub().getBlockchain());
+                        for (int i = block.getNumber() == from ? skip : 0;
+                                i < matches.size();
+                                i++) {
+                            if (logs.length() == limit) {
+                                next.put("fromBlock", TypeConverter.toJsonHex(block.getNumber()));
+                                next.put("skip", i);
+                                return false;
+                            }
+                            logs.put(matches.get(i).toJSON());
+                        }
+                        return true;
+                    });
+        }
+
+        JSONObject response = new JSONObject();
+        response.put("logs", logs);
+        response.put("next", next.length() == 0 ? JSONObject.NULL : next);
+        return new RpcMsg(response);
+    }
+
     /* -------------------------------------------------------------------------
      * personal
      */
@@ -1817,8 +1933,7 @@ public class ApiWeb3Aion extends ApiAion {
         }
 
         long latestBlkNum = this.getBestBlock().getNumber();
-        AccountState accountState =
-                ((AionRepositoryImpl) this.ac.getRepository()).getAccountState(address);
+        AccountState accountState = (AccountState) getBestStateSnapshot().getAccountState(address);
 
         BigInteger nonce = BigInteger.ZERO;
         BigInteger balance = BigInteger.ZERO;
@@ -2842,7 +2957,7 @@ public class ApiWeb3Aion extends ApiAion {
             return null;
         }
 
-        return ac.getRepository().getSnapshotTo(b.getStateRoot());
+        return ac.getReadSnapshot(b.getStateRoot());
     }
 
     private AionBlock getBlockByBN(long bn) {
@@ -150,6 +150,7 @@ public class RpcMethods {
                             (params) -> api.ops_getChainHeadViewBestBlock()),
                     Map.entry("ops_getTransaction", (params) -> api.ops_getTransaction(params)),
                     Map.entry("ops_getBlock", (params) -> api.ops_getBlock(params)),
+                    Map.entry("ops_getLogs", (params) -> api.ops_getLogs(params)),
                     Map.entry("ops_getChainHeadView", (params) -> api.ops_getChainHeadView()),
                     Map.entry("eth_getBalance", (params) -> api.eth_getBalance(params)),
                     Map.entry(
@@ -27,10 +27,15 @@ import com.google.common.base.Stopwatch;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import org.aion.base.metrics.Counter;
+import org.aion.base.metrics.Histogram;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.apache.commons.lang3.StringUtils;
@@ -42,6 +47,14 @@ public class RpcProcessor {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.API.name());
 
+    // keyed by the known method names only, to bound the number of metrics
+    private static final ConcurrentMap<String, Histogram> METHOD_TIME = new ConcurrentHashMap<>();
+    private static final Counter INTERNAL_ERRORS =
+            MetricRegistry.getInstance()
+                    .counter(
+                            "aion_rpc_internal_errors_total",
+                            "RPC requests that failed with an internal error.");
+
     private RpcMethods apiHolder;
 
     private ExecutorService executor;
@@ -121,7 +134,13 @@ public class RpcProcessor {
                 boolean shouldTime = LOG.isDebugEnabled();
                 Stopwatch timer = null;
                 if (shouldTime) timer = Stopwatch.createStarted();
-                RpcMsg response = rpc.call(params);
+                long start = System.nanoTime();
+                RpcMsg response;
+                try {
+                    response = rpc.call(params);
+                } finally {
+                    methodTimer(method).recordSince(start);
+                }
                 if (shouldTime) {
                     timer.stop();
                     LOG.debug(
@@ -131,6 +150,7 @@ public class RpcProcessor {
                 return response.setId(id).toJson();
 
             } catch (Exception e) {
+                INTERNAL_ERRORS.inc();
                 LOG.debug("<rpc-server - internal error [2]>", e);
                 return new RpcMsg(null, RpcError.INTERNAL_ERROR).setId(id).toJson();
             }
@@ -141,6 +161,18 @@ public class RpcProcessor {
         return new RpcMsg(null, RpcError.INTERNAL_ERROR).toJson();
     }
 
+    private static Histogram methodTimer(String method) {
+        return METHOD_TIME.computeIfAbsent(
+                method,
+                m ->
+                        MetricRegistry.getInstance()
+                                .timer(
+                                        "aion_rpc_request_seconds",
+                                        "Time spent processing the RPC requests by method.",
+                                        "method",
+                                        m));
+    }
+
     // implementing http://www.jsonrpc.org/specification#batch
     private String handleBatch(String _reqBody) {
         try {
@@ -103,6 +103,18 @@ public final class FltrLg extends Fltr {
     // rationale: this way, we only retrieve logs from DB for transactions that the bloom
     // filter gives a positive match for;
     public boolean onBlock(IAionBlock blk, IAionBlockchain chain) {
+        for (EvtLg evt : getMatchingLogs(blk, chain)) {
+            add(evt);
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the logs of the given block that match this filter, in the order they appear in the
+     * block.
+     */
+    public List<EvtLg> getMatchingLogs(IAionBlock blk, IAionBlockchain chain) {
+        List<EvtLg> matches = new ArrayList<>();
         if (matchBloom(new Bloom(blk.getLogBloom()))) {
             int txIndex = 0;
             for (ITransaction txn : blk.getTransactionsList()) {
@@ -116,7 +128,7 @@ public final class FltrLg extends Fltr {
                         int logIndex = 0;
                         for (Log logInfo : receipt.getLogInfoList()) {
                             if (matchBloom(logInfo.getBloom()) && matchesExactly(logInfo)) {
-                                add(
+                                matches.add(
                                         new EvtLg(
                                                 new TxRecptLg(
                                                         logInfo, blk, txIndex, txn, logIndex,
@@ -129,7 +141,16 @@ public final class FltrLg extends Fltr {
                 txIndex++;
             }
         }
-        return true;
+        return matches;
+    }
+
+    /**
+     * @return the blooms of this filter: a block may match only if for each entry its bloom
+     *     contains at least one of the blooms of the entry
+     */
+    public Bloom[][] getFilterBlooms() {
+        initBlooms();
+        return filterBlooms;
     }
 
     // -------------------------------------------------------------------------------
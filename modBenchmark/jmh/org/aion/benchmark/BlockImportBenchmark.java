@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.HashUtil;
+import org.aion.mcf.core.ImportResult;
+import org.aion.zero.impl.StandaloneBlockchain;
+import org.aion.zero.impl.types.AionBlock;
+import org.aion.zero.types.AionTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Importing a full block of value transfers on top of a growing synthetic chain, which covers
+ * validation, transaction execution, state and receipt trie updates and storing the block.
+ *
+ * <p>Each block must be strictly newer than its parent and not from the future, so block creation
+ * waits for the clock between iterations. This makes the benchmark slow to run, but none of the
+ * waiting is measured.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockImportBenchmark {
+
+    @Param({"100", "400"})
+    public int txCount;
+
+    private StandaloneBlockchain chain;
+    private List<ECKey> senders;
+    private long recipients;
+    private AionBlock block;
+
+    @Setup
+    public void setup() {
+        StandaloneBlockchain.Bundle bundle =
+                new StandaloneBlockchain.Builder()
+                        .withValidatorConfiguration("simple")
+                        .withDefaultAccounts()
+                        .build();
+        chain = bundle.bc;
+        senders = bundle.privateKeys;
+    }
+
+    @Setup(Level.Iteration)
+    public void createBlock() {
+        List<BigInteger> nonces = new ArrayList<>();
+        for (ECKey sender : senders) {
+            nonces.add(chain.getRepository().getNonce(Address.wrap(sender.getAddress())));
+        }
+
+        List<AionTransaction> txs = new ArrayList<>();
+        for (int i = 0; i < txCount; i++) {
+            int sender = i % senders.size();
+            // every transfer creates a new account, so the state keeps growing
+            byte[] recipient = HashUtil.h256(BigInteger.valueOf(recipients++).toByteArray());
+            AionTransaction tx =
+                    new AionTransaction(
+                            nonces.get(sender).toByteArray(),
+                            Address.wrap(recipient),
+                            BigInteger.ONE.toByteArray(),
+                            new byte[0],
+                            21_000L,
+                            1L);
+            tx.sign(senders.get(sender));
+            txs.add(tx);
+            nonces.set(sender, nonces.get(sender).add(BigInteger.ONE));
+        }
+
+        block = chain.createNewBlock(chain.getBestBlock(), txs, true);
+    }
+
+    @Benchmark
+    public ImportResult importBlock() {
+        ImportResult result = chain.tryToConnect(block);
+        if (result != ImportResult.IMPORTED_BEST) {
+            throw new IllegalStateException("Block import failed with " + result + ".");
+        }
+        return result;
+    }
+}
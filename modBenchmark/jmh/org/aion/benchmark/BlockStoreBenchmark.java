@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.aion.zero.impl.db.BlockSegmentStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading and writing encoded blocks in the key-value store used by the block database
+ * against the append-only {@link BlockSegmentStore} used for the finalized blocks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockStoreBenchmark {
+
+    private static final int BLOCKS = 100_000;
+    private static final int BLOCK_SIZE = 1024;
+
+    @Param({"leveldb", "rocksdb"})
+    public String vendor;
+
+    private File dir;
+    private IByteArrayKeyValueDatabase db;
+    private BlockSegmentStore segments;
+    private byte[][] hashes;
+    private byte[] block;
+    private Random random;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("aion-benchmark").toFile();
+
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, vendor);
+        props.setProperty(Props.DB_NAME, "block");
+        props.setProperty(Props.DB_PATH, dir.getAbsolutePath());
+        props.setProperty(Props.ENABLE_LOCKING, "false");
+        props.setProperty(Props.ENABLE_AUTO_COMMIT, "true");
+        props.setProperty(Props.ENABLE_HEAP_CACHE, "false");
+
+        db = DatabaseFactory.connect(props);
+        if (db == null || !db.open()) {
+            throw new IllegalStateException("Unable to open " + vendor + " database.");
+        }
+        segments = new BlockSegmentStore(new File(dir, "segments"));
+
+        random = new Random(0);
+        block = randomBytes(BLOCK_SIZE);
+        hashes = new byte[BLOCKS][];
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int i = 0; i < BLOCKS; i++) {
+            hashes[i] = randomBytes(32);
+            byte[] encoded = randomBytes(BLOCK_SIZE);
+            batch.put(hashes[i], encoded);
+            segments.append(i, hashes[i], encoded);
+            if (batch.size() == 10_000) {
+                db.putBatch(batch);
+                batch.clear();
+            }
+        }
+        db.putBatch(batch);
+        segments.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        db.close();
+        segments.close();
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public Optional<byte[]> databaseGetByHash() {
+        return db.get(hashes[random.nextInt(BLOCKS)]);
+    }
+
+    @Benchmark
+    public byte[] segmentsGetByHash() {
+        return segments.get(hashes[random.nextInt(BLOCKS)]);
+    }
+
+    @Benchmark
+    public ByteBuffer segmentsSliceByNumber() {
+        return segments.getSlice(random.nextInt(BLOCKS));
+    }
+
+    @Benchmark
+    public void databasePut() {
+        db.put(hashes[random.nextInt(BLOCKS)], block);
+    }
+
+    @Benchmark
+    public void segmentsAppend() {
+        long number = segments.size();
+        if (number == 2 * BLOCKS) {
+            // bounds the disk usage, the truncation is amortized over the appended blocks
+            segments.truncate(BLOCKS);
+            number = BLOCKS;
+        }
+        segments.append(number, randomBytes(32), block);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.base.util.ByteUtil;
+import org.aion.mcf.vm.types.DataWord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations on the 128-bit word used for storage keys and values. The word has no arithmetic of
+ * its own, so arithmetic goes through {@link DataWord#value()} the way the kernel does it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataWordBenchmark {
+
+    private byte[] bytes;
+    private DataWord a;
+    private DataWord b;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        bytes = new byte[DataWord.BYTES];
+        random.nextBytes(bytes);
+        a = new DataWord(bytes);
+        b = new DataWord(random.nextLong());
+    }
+
+    /** Wraps the result around to the word size, as the VM does. */
+    private static byte[] truncate(BigInteger result) {
+        return ByteUtil.bigIntegerToBytes(result.and(DataWord.MAX_VALUE), DataWord.BYTES);
+    }
+
+    @Benchmark
+    public DataWord fromBytes() {
+        return new DataWord(bytes);
+    }
+
+    @Benchmark
+    public DataWord fromLong() {
+        return new DataWord(bytes.length * 31L);
+    }
+
+    @Benchmark
+    public DataWord add() {
+        return new DataWord(truncate(a.value().add(b.value())));
+    }
+
+    @Benchmark
+    public DataWord multiply() {
+        return new DataWord(truncate(a.value().multiply(b.value())));
+    }
+
+    @Benchmark
+    public BigInteger value() {
+        return a.value();
+    }
+
+    @Benchmark
+    public int compare() {
+        return a.compareTo(b);
+    }
+
+    @Benchmark
+    public byte[] noLeadZeroesData() {
+        return b.getNoLeadZeroesData();
+    }
+}
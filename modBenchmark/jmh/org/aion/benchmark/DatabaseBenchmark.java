@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads and writes through the database stack created by {@link DatabaseFactory}, with and without
+ * the heap cache, for each of the supported vendors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DatabaseBenchmark {
+
+    private static final int SIZE = 100_000;
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"mockdb", "h2", "leveldb", "rocksdb"})
+    public String vendor;
+
+    @Param({"true", "false"})
+    public String heapCache;
+
+    private File dir;
+    private IByteArrayKeyValueDatabase db;
+    private byte[][] keys;
+    private Random random;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("aion-benchmark").toFile();
+
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, vendor);
+        props.setProperty(Props.DB_NAME, "benchmark");
+        props.setProperty(Props.DB_PATH, dir.getAbsolutePath());
+        props.setProperty(Props.ENABLE_LOCKING, "false");
+        props.setProperty(Props.ENABLE_AUTO_COMMIT, "true");
+        props.setProperty(Props.ENABLE_HEAP_CACHE, heapCache);
+        props.setProperty(Props.MAX_HEAP_CACHE_SIZE, "1024");
+        props.setProperty(Props.ENABLE_HEAP_CACHE_STATS, "false");
+
+        db = DatabaseFactory.connect(props);
+        if (db == null || !db.open()) {
+            throw new IllegalStateException("Unable to open " + vendor + " database.");
+        }
+
+        random = new Random(0);
+        keys = new byte[SIZE][];
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = randomBytes(32);
+            batch.put(keys[i], randomBytes(64));
+            if (batch.size() == 10_000) {
+                db.putBatch(batch);
+                batch.clear();
+            }
+        }
+        db.putBatch(batch);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        db.close();
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    @Benchmark
+    public Optional<byte[]> getExisting() {
+        return db.get(keys[random.nextInt(SIZE)]);
+    }
+
+    @Benchmark
+    public Optional<byte[]> getMissing() {
+        return db.get(randomBytes(32));
+    }
+
+    @Benchmark
+    public void put() {
+        db.put(keys[random.nextInt(SIZE)], randomBytes(64));
+    }
+
+    @Benchmark
+    public void putBatch() {
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.put(keys[random.nextInt(SIZE)], randomBytes(64));
+        }
+        db.putBatch(batch);
+    }
+}
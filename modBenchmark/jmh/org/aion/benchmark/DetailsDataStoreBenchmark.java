@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IContractDetails;
+import org.aion.base.db.IPruneConfig;
+import org.aion.base.db.IRepositoryConfig;
+import org.aion.base.type.Address;
+import org.aion.base.vm.IDataWord;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.DBVendor;
+import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.impl.DatabaseFactory.Props;
+import org.aion.mcf.config.CfgPrune;
+import org.aion.mcf.db.DetailsDataStore;
+import org.aion.mcf.vm.types.DataWord;
+import org.aion.zero.db.AionContractDetailsImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Commits a block worth of contract updates to a details store holding a growing number of
+ * contracts. The commit cost is expected to stay flat since only the updated contracts are synced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class DetailsDataStoreBenchmark {
+
+    private static final int UPDATES_PER_BLOCK = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    public int contracts;
+
+    private final IRepositoryConfig repoConfig =
+            new IRepositoryConfig() {
+                @Override
+                public String getDbPath() {
+                    return "";
+                }
+
+                @Override
+                public IPruneConfig getPruneConfig() {
+                    return new CfgPrune(false);
+                }
+
+                @Override
+                public IContractDetails contractDetailsImpl() {
+                    return new AionContractDetailsImpl(0, 64);
+                }
+
+                @Override
+                public Properties getDatabaseConfig(String db_name) {
+                    return new Properties();
+                }
+            };
+
+    private DetailsDataStore<?, ?> store;
+    private Address[] addresses;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        store = new DetailsDataStore<>(connect("details"), connect("storage"), repoConfig);
+        random = new Random(0);
+
+        addresses = new Address[contracts];
+        for (int i = 0; i < contracts; i++) {
+            addresses[i] = new Address(HashUtil.h256(Integer.toString(i).getBytes()));
+            store.update(addresses[i], details(i));
+            if (i % 10_000 == 0) {
+                store.flush();
+            }
+        }
+        store.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    private static IByteArrayKeyValueDatabase connect(String name) {
+        Properties props = new Properties();
+        props.setProperty(Props.DB_TYPE, DBVendor.MOCKDB.toValue());
+        props.setProperty(Props.DB_NAME, name);
+        props.setProperty(Props.ENABLE_HEAP_CACHE, "true");
+        props.setProperty(Props.ENABLE_AUTO_COMMIT, "false");
+        IByteArrayKeyValueDatabase db = DatabaseFactory.connect(props);
+        db.open();
+        return db;
+    }
+
+    private IContractDetails<IDataWord> details(int value) {
+        IContractDetails<IDataWord> details = repoConfig.contractDetailsImpl();
+        details.setDataSource(store.getStorageDSPrune());
+        details.setCode(HashUtil.h256(Integer.toString(value).getBytes()));
+        details.put(new DataWord(1), new DataWord(value));
+        return details;
+    }
+
+    /** Updates a few contracts, syncs their storage and flushes, as done for each block. */
+    @Benchmark
+    public long commitBlock() {
+        for (int i = 0; i < UPDATES_PER_BLOCK; i++) {
+            store.update(addresses[random.nextInt(contracts)], details(random.nextInt()));
+        }
+        store.syncLargeStorage();
+        return store.flush();
+    }
+}
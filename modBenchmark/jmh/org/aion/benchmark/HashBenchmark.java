@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.crypto.HashUtil;
+import org.aion.crypto.hash.Blake2b;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The 256-bit hash used for trie nodes, block and transaction hashes: the Java and native blake2b
+ * implementations, hashing into a caller supplied array and hashing a batch of {@value #BATCH_SIZE}
+ * inputs in one call against one call per input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashBenchmark {
+
+    @Param({"32", "256", "4096"})
+    public int inputSize;
+
+    private static final int BATCH_SIZE = 64;
+
+    private byte[] input;
+    private byte[][] batch;
+    private byte[] out;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        input = new byte[inputSize];
+        random.nextBytes(input);
+
+        batch = new byte[BATCH_SIZE][inputSize];
+        for (byte[] item : batch) {
+            random.nextBytes(item);
+        }
+        out = new byte[BATCH_SIZE * 32];
+    }
+
+    /** The configured hash implementation. */
+    @Benchmark
+    public byte[] h256() {
+        return HashUtil.h256(input);
+    }
+
+    /** The pure Java Blake2b implementation, with a digest reused by the thread. */
+    @Benchmark
+    public byte[] blake256() {
+        return HashUtil.blake256(input);
+    }
+
+    /** The native Blake2b implementation returning a new array. */
+    @Benchmark
+    public byte[] blake256Native() {
+        return HashUtil.blake256Native(input);
+    }
+
+    /** The configured hash implementation writing into an existing array. */
+    @Benchmark
+    public byte[] h256Range() {
+        HashUtil.h256(input, 0, input.length, out, 0);
+        return out;
+    }
+
+    /** One call per input of the batch. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public byte[] h256Loop() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            HashUtil.h256(batch[i], 0, batch[i].length, out, i * 32);
+        }
+        return out;
+    }
+
+    /** A single call for the whole batch. */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public byte[] h256Batch() {
+        HashUtil.h256Batch(batch, out);
+        return out;
+    }
+
+    /** A new Java Blake2b digest for every hash, without the {@link HashUtil} indirection. */
+    @Benchmark
+    public byte[] blake2bDigest() {
+        return Blake2b.Digest.newInstance(32).digest(input);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the tree decoder and the concatenating encoder of {@link RLP} with {@link RLPView} and
+ * {@link RLPWriter} on a block shaped structure: a header of 15 fields followed by a list of
+ * transactions of 9 fields each. Every field is read or written, as the block types do.
+ *
+ * <p>The allocations are reported with the GC profiler, as {@code gc.alloc.rate.norm} in bytes per
+ * operation: {@code ./gradlew :modBenchmark:benchmark -Pinclude=RlpAllocation -PjmhArgs="-prof gc"}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RlpAllocationBenchmark {
+
+    private static final int[] HEADER_FIELDS = {
+        1, 4, 32, 32, 32, 32, 32, 256, 16, 32, 4, 4, 4, 32, 1408
+    };
+    private static final int[] TX_FIELDS = {2, 32, 8, 64, 8, 4, 8, 1, 96};
+
+    @Param({"0", "100"})
+    public int txCount;
+
+    private byte[][] header;
+    private byte[][][] txs;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        header = randomFields(random, HEADER_FIELDS);
+        txs = new byte[txCount][][];
+        for (int i = 0; i < txCount; i++) {
+            txs[i] = randomFields(random, TX_FIELDS);
+        }
+        encoded = encodeConcatenating();
+    }
+
+    private static byte[][] randomFields(Random random, int[] lengths) {
+        byte[][] fields = new byte[lengths.length][];
+        for (int i = 0; i < lengths.length; i++) {
+            fields[i] = new byte[lengths[i]];
+            random.nextBytes(fields[i]);
+        }
+        return fields;
+    }
+
+    private static byte[] encodeFields(byte[][] fields) {
+        byte[][] elements = new byte[fields.length][];
+        for (int i = 0; i < fields.length; i++) {
+            elements[i] = RLP.encodeElement(fields[i]);
+        }
+        return RLP.encodeList(elements);
+    }
+
+    @Benchmark
+    public byte[] encodeConcatenating() {
+        byte[][] encodedTxs = new byte[txs.length][];
+        for (int i = 0; i < txs.length; i++) {
+            encodedTxs[i] = encodeFields(txs[i]);
+        }
+        return RLP.encodeList(encodeFields(header), RLP.encodeList(encodedTxs));
+    }
+
+    @Benchmark
+    public byte[] encodeWriter() {
+        RLPWriter writer = new RLPWriter(HEADER_FIELDS.length + txs.length * 10 + 4);
+        writer.beginList().beginList();
+        for (byte[] field : header) {
+            writer.writeElement(field);
+        }
+        writer.endList().beginList();
+        for (byte[][] tx : txs) {
+            writer.beginList();
+            for (byte[] field : tx) {
+                writer.writeElement(field);
+            }
+            writer.endList();
+        }
+        return writer.endList().endList().toByteArray();
+    }
+
+    @Benchmark
+    public int decodeTree() {
+        RLPList block = (RLPList) RLP.decode2(encoded).get(0);
+        int read = 0;
+        for (RLPElement field : (RLPList) block.get(0)) {
+            read += field.getRLPData().length;
+        }
+        for (RLPElement tx : (RLPList) block.get(1)) {
+            for (RLPElement field : (RLPList) tx) {
+                read += field.getRLPData().length;
+            }
+        }
+        return read;
+    }
+
+    @Benchmark
+    public int decodeView() {
+        RLPView block = RLPView.wrap(encoded);
+        RLPView header = block.get(0);
+        int read = 0;
+        for (int i = 0; i < header.size(); i++) {
+            read += header.get(i).getBytes().length;
+        }
+        RLPView txs = block.get(1);
+        for (int i = 0; i < txs.size(); i++) {
+            RLPView tx = txs.get(i);
+            for (int j = 0; j < tx.size(); j++) {
+                read += tx.get(j).getBytes().length;
+            }
+        }
+        return read;
+    }
+}
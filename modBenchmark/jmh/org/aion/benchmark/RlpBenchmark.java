@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Encoding and decoding of single elements and lists, as done for every block and transaction. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RlpBenchmark {
+
+    private static final int LIST_SIZE = 16;
+
+    @Param({"32", "1024"})
+    public int elementSize;
+
+    private byte[] element;
+    private byte[] encodedElement;
+    private byte[][] encodedElements;
+    private byte[] encodedList;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+
+        element = new byte[elementSize];
+        random.nextBytes(element);
+        encodedElement = RLP.encodeElement(element);
+
+        encodedElements = new byte[LIST_SIZE][];
+        for (int i = 0; i < LIST_SIZE; i++) {
+            byte[] item = new byte[elementSize];
+            random.nextBytes(item);
+            encodedElements[i] = RLP.encodeElement(item);
+        }
+        encodedList = RLP.encodeList(encodedElements);
+    }
+
+    @Benchmark
+    public byte[] encodeElement() {
+        return RLP.encodeElement(element);
+    }
+
+    @Benchmark
+    public byte[] encodeList() {
+        return RLP.encodeList(encodedElements);
+    }
+
+    @Benchmark
+    public RLPElement decodeElement() {
+        return RLP.decode2OneItem(encodedElement, 0);
+    }
+
+    @Benchmark
+    public RLPList decodeList() {
+        return RLP.decode2(encodedList);
+    }
+}
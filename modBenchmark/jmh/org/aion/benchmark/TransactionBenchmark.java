@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.crypto.SignatureFac;
+import org.aion.zero.impl.valid.TXValidator;
+import org.aion.zero.types.AionTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Decoding and validating a transaction received from the network. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransactionBenchmark {
+
+    private byte[] encoded;
+    private AionTransaction decoded;
+
+    @Setup
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        ECKey key = ECKeyFac.inst().create();
+
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.ONE.toByteArray(),
+                        Address.wrap(ECKeyFac.inst().create().getAddress()),
+                        BigInteger.TEN.toByteArray(),
+                        new byte[64],
+                        21_000L,
+                        10_000_000_000L);
+        tx.sign(key);
+        encoded = tx.getEncoded();
+        decoded = new AionTransaction(encoded);
+        decoded.getNonce();
+    }
+
+    @Benchmark
+    public AionTransaction decode() {
+        AionTransaction tx = new AionTransaction(encoded);
+        // the encoding is parsed lazily on first access
+        tx.getNonce();
+        return tx;
+    }
+
+    @Benchmark
+    public boolean verifySignature() {
+        return SignatureFac.verify(decoded.getRawHash(), decoded.getSignature());
+    }
+
+    /** The full uncached check done for every transaction before it enters the pool. */
+    @Benchmark
+    public boolean decodeAndValidate() {
+        return TXValidator.isValid0(new AionTransaction(encoded));
+    }
+}
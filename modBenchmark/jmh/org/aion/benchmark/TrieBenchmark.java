@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.trie.TrieImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups, updates and root hash calculation on a populated state trie backed by an in-memory
+ * store, so that only the trie itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrieBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private MockDB db;
+    private TrieImpl trie;
+    private byte[][] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        db = new MockDB("TrieBenchmark");
+        db.open();
+        trie = new TrieImpl(db);
+
+        keys = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            keys[i] = HashUtil.h256(Integer.toString(i).getBytes());
+            trie.update(keys[i], keys[i]);
+        }
+        trie.getRootHash();
+        trie.sync();
+    }
+
+    @TearDown
+    public void tearDown() {
+        db.close();
+    }
+
+    private byte[] nextKey() {
+        next = (next + 1) % size;
+        return keys[next];
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return trie.get(nextKey());
+    }
+
+    @Benchmark
+    public void update() {
+        byte[] key = nextKey();
+        trie.update(key, HashUtil.h256(key));
+    }
+
+    /** A single update followed by recomputing the root, as done for every account change. */
+    @Benchmark
+    public byte[] updateAndRoot() {
+        byte[] key = nextKey();
+        trie.update(key, HashUtil.h256(key));
+        return trie.getRootHash();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.benchmark;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.aion.base.type.Address;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.txpool.zero.TxPoolA0;
+import org.aion.zero.types.AionTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adding a batch of pending transactions to an empty pool and taking the snapshot used for block
+ * templates. Each invocation works on a fresh pool, so the numbers are per batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TxPoolBenchmark {
+
+    private static final int SENDERS = 10;
+
+    @Param({"100", "1000"})
+    public int txCount;
+
+    private List<AionTransaction> txs;
+    private TxPoolA0<AionTransaction> emptyPool;
+    private TxPoolA0<AionTransaction> filledPool;
+
+    @Setup
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        List<ECKey> keys = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            keys.add(ECKeyFac.inst().create());
+        }
+
+        Address to = Address.wrap(keys.get(0).getAddress());
+        txs = new ArrayList<>();
+        for (int i = 0; i < txCount; i++) {
+            AionTransaction tx =
+                    new AionTransaction(
+                            BigInteger.valueOf(i / SENDERS).toByteArray(),
+                            to,
+                            BigInteger.ONE.toByteArray(),
+                            new byte[0],
+                            21_000L,
+                            // spread the prices so the fee ordering has work to do
+                            10_000_000_000L + i % 7);
+            tx.setNrgConsume(21_000L);
+            tx.sign(keys.get(i % SENDERS));
+            txs.add(tx);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newPools() {
+        Properties config = new Properties();
+        config.put("tx-timeout", "100");
+
+        emptyPool = new TxPoolA0<>(config);
+        filledPool = new TxPoolA0<>(config);
+        filledPool.add(txs);
+    }
+
+    @Benchmark
+    public List<AionTransaction> add() {
+        return emptyPool.add(txs);
+    }
+
+    @Benchmark
+    public List<AionTransaction> snapshot() {
+        return filledPool.snapshot();
+    }
+}
@@ -56,6 +56,7 @@ import org.aion.api.server.pb.ApiAion0;
 import org.aion.api.server.pb.IHdlr;
 import org.aion.api.server.zmq.HdlrZmq;
 import org.aion.api.server.zmq.ProtocolProcessor;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.crypto.ECKeyFac;
 import org.aion.crypto.HashUtil;
 import org.aion.evtmgr.EventMgrModule;
@@ -220,6 +221,11 @@ public class Aion {
         genLog.info(path);
         genLog.info(logo);
 
+        // enabled before the kernel starts so the costlier instrumentation gets set up
+        if (cfg.getApi().getRpc().isActive() && cfg.getApi().getRpc().isMetricsEnabled()) {
+            MetricRegistry.getInstance().setEnabled(true);
+        }
+
         IAionChain ac = AionFactory.create();
 
         IMineRunner nm = null;
@@ -281,6 +287,7 @@ public class Aion {
                         rpcBuilder.setRequestQueueSize(rpcCfg.getRequestQueueSize());
                         rpcBuilder.setStuckThreadDetectorEnabled(
                                 rpcCfg.isStuckThreadDetectorEnabled());
+                        rpcBuilder.setMetricsEnabled(rpcCfg.isMetricsEnabled());
 
                         if (rpcCfg.isCorsEnabled()) {
                             rpcBuilder.enableCorsWithOrigin(rpcCfg.getCorsOrigin());
@@ -44,10 +44,12 @@ import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Objects;
 import org.aion.base.util.NativeLoader;
 import org.aion.crypto.hash.Blake2b;
 import org.aion.crypto.hash.Blake2bNative;
 import org.aion.rlp.RLP;
+import org.aion.rlp.RLPWriter;
 import org.spongycastle.crypto.Digest;
 import org.spongycastle.crypto.digests.KeccakDigest;
 import org.spongycastle.crypto.digests.RIPEMD160Digest;
@@ -74,6 +76,20 @@ public class HashUtil {
 
     protected static H256Type type = BLAKE2B_256;
 
+    private static final int HASH_256_LENGTH = 32;
+
+    // digests are reset after computing a hash, so each thread reuses a single instance
+    private static final ThreadLocal<Blake2b> BLAKE_256 =
+            ThreadLocal.withInitial(() -> Blake2b.Digest.newInstance(32));
+    private static final ThreadLocal<Blake2b> BLAKE_128 =
+            ThreadLocal.withInitial(() -> Blake2b.Digest.newInstance(16));
+    private static final ThreadLocal<KeccakDigest> KECCAK_256 =
+            ThreadLocal.withInitial(() -> new KeccakDigest(256));
+
+    // encodings up to this length are written to a reused per thread buffer before hashing
+    private static final int MAX_SCRATCH_LENGTH = 64 * 1024;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[0]);
+
     public static final byte[] EMPTY_DATA_HASH = h256(EMPTY_BYTE_ARRAY);
     public static final byte[] EMPTY_LIST_HASH = h256(RLP.encodeList());
     public static final byte[] EMPTY_TRIE_HASH = h256(RLP.encodeElement(EMPTY_BYTE_ARRAY));
@@ -138,12 +154,129 @@ public class HashUtil {
 
         if (in == null || start < 0 || len <= 0) return null;
 
-        byte[] buf = Arrays.copyOfRange(in, start, start + len);
+        byte[] hash = new byte[HASH_256_LENGTH];
+        h256(in, start, len, hash, 0);
+        return hash;
+    }
+
+    /**
+     * Computes the 256-bit hash of part of the given input and writes it to the output at the
+     * given offset, without copying the input.
+     *
+     * @param in the input
+     * @param start the start of the hashed part of the input
+     * @param len the length of the hashed part of the input
+     * @param out the array receiving the 32 byte hash
+     * @param outOffset the position of the hash in the output
+     */
+    public static void h256(byte[] in, int start, int len, byte[] out, int outOffset) {
+        switch (type) {
+            case BLAKE2B_256:
+                Blake2bNative.blake256(in, start, len, out, outOffset);
+                return;
+            case KECCAK_256:
+                Objects.checkFromIndexSize(start, len, in.length);
+                KeccakDigest digest = KECCAK_256.get();
+                digest.update(in, start, len);
+                digest.doFinal(out, outOffset);
+                return;
+            default:
+                throw new RuntimeException("h256 hash type is not set!");
+        }
+    }
+
+    /**
+     * Computes the 256-bit hash of the remaining bytes of the given buffer, without changing its
+     * position.
+     *
+     * @param in the input, either a heap or a direct buffer
+     * @return the hash
+     */
+    public static byte[] h256(ByteBuffer in) {
+
+        if (in == null) {
+            return null;
+        }
+
+        byte[] hash = new byte[HASH_256_LENGTH];
+        if (in.hasArray()) {
+            h256(in.array(), in.arrayOffset() + in.position(), in.remaining(), hash, 0);
+            return hash;
+        }
+
         switch (type) {
             case BLAKE2B_256:
-                return blake256(buf);
+                Blake2bNative.blake256(in, hash, 0);
+                return hash;
             case KECCAK_256:
-                return keccak256(buf);
+                byte[] copy = new byte[in.remaining()];
+                in.duplicate().get(copy);
+                return keccak256(copy);
+            default:
+                throw new RuntimeException("h256 hash type is not set!");
+        }
+    }
+
+    /**
+     * Computes the 256-bit hash of the encoding produced by the given writer, without
+     * materialising the encoding in a new array.
+     *
+     * @param writer a writer with all its lists ended
+     * @return the hash
+     */
+    public static byte[] h256(RLPWriter writer) {
+        int length = writer.length();
+
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < length) {
+            scratch = new byte[length];
+            if (length <= MAX_SCRATCH_LENGTH) {
+                SCRATCH.set(scratch);
+            }
+        }
+        writer.writeTo(ByteBuffer.wrap(scratch));
+
+        byte[] hash = new byte[HASH_256_LENGTH];
+        h256(scratch, 0, length, hash, 0);
+        return hash;
+    }
+
+    /**
+     * Computes the 256-bit hashes of all the given inputs. With the native blake2b implementation
+     * the inputs are hashed in a single call.
+     *
+     * @param inputs the inputs, none of which may be null
+     * @return the hashes, in the order of the inputs
+     */
+    public static byte[][] h256Batch(byte[][] inputs) {
+        byte[] out = new byte[inputs.length * HASH_256_LENGTH];
+        h256Batch(inputs, out);
+
+        byte[][] hashes = new byte[inputs.length][];
+        for (int i = 0; i < inputs.length; i++) {
+            hashes[i] = Arrays.copyOfRange(out, i * HASH_256_LENGTH, (i + 1) * HASH_256_LENGTH);
+        }
+        return hashes;
+    }
+
+    /**
+     * Computes the 256-bit hashes of all the given inputs, writing the i-th hash to the output at
+     * {@code 32 * i}.
+     *
+     * @param inputs the inputs, none of which may be null
+     * @param out the array receiving the hashes, at least {@code 32 * inputs.length} long
+     */
+    public static void h256Batch(byte[][] inputs, byte[] out) {
+        switch (type) {
+            case BLAKE2B_256:
+                Blake2bNative.blake256(inputs, out);
+                return;
+            case KECCAK_256:
+                Objects.checkFromIndexSize(0, inputs.length * HASH_256_LENGTH, out.length);
+                for (int i = 0; i < inputs.length; i++) {
+                    h256(inputs[i], 0, inputs[i].length, out, i * HASH_256_LENGTH);
+                }
+                return;
             default:
                 throw new RuntimeException("h256 hash type is not set!");
         }
@@ -171,7 +304,7 @@ public class HashUtil {
      * @return Hash
      */
     public static byte[] keccak256(byte[] input) {
-        KeccakDigest digest = new KeccakDigest(256);
+        KeccakDigest digest = KECCAK_256.get();
 
         digest.update(input, 0, input.length);
 
@@ -188,7 +321,10 @@ public class HashUtil {
      * @return
      */
     public static byte[] keccak256(byte[] input1, byte[] input2) {
-        KeccakDigest digest = new KeccakDigest(256);
+        // checked before updating, a failed update would leave the shared digest dirty
+        Objects.requireNonNull(input1);
+        Objects.requireNonNull(input2);
+        KeccakDigest digest = KECCAK_256.get();
 
         digest.update(input1, 0, input1.length);
         digest.update(input2, 0, input2.length);
@@ -205,7 +341,7 @@ public class HashUtil {
      * @return Hash
      */
     public static byte[] blake256(byte[] input) {
-        Blake2b digest = Blake2b.Digest.newInstance(32);
+        Blake2b digest = BLAKE_256.get();
         digest.update(input);
         return digest.digest();
     }
@@ -219,7 +355,11 @@ public class HashUtil {
      * @return
      */
     public static byte[] blake256(byte[] in1, byte[] in2) {
-        Blake2b digest = Blake2b.Digest.newInstance(32);
+        // checked before updating, a failed update would leave the shared digest dirty
+        if (in1 == null || in2 == null) {
+            throw new IllegalArgumentException("input buffer is null");
+        }
+        Blake2b digest = BLAKE_256.get();
         digest.update(in1);
         digest.update(in2);
         return digest.digest();
@@ -245,7 +385,7 @@ public class HashUtil {
      * @return {@code hash} 128-bit (16 byte) output from blake2b hashing algorithm
      */
     public static byte[] blake128(byte[] in) {
-        Blake2b digest = Blake2b.Digest.newInstance(16);
+        Blake2b digest = BLAKE_128.get();
         digest.update(in);
         return digest.digest();
     }
@@ -22,6 +22,7 @@
  */
 package org.aion.crypto;
 
+import java.util.List;
 import org.aion.crypto.ecdsa.ECDSASignature;
 import org.aion.crypto.ecdsa.ECKeySecp256k1;
 import org.aion.crypto.ed25519.ECKeyEd25519;
@@ -78,4 +79,45 @@ public class SignatureFac {
                 throw new RuntimeException("ECKey type is not set!");
         }
     }
+
+    /**
+     * Verify a batch of signatures. The message and signature at each position of the given lists
+     * are checked against each other.
+     *
+     * @param msgs messages for signing
+     * @param sigs the signatures
+     * @return an array where position {@code i} is {@code true} iff the {@code i}-th signature is
+     *     valid
+     */
+    public static boolean[] verify(List<byte[]> msgs, List<ISignature> sigs) {
+        if (msgs.size() != sigs.size()) {
+            throw new IllegalArgumentException("The number of messages and signatures differ!");
+        }
+
+        int size = msgs.size();
+        switch (ECKeyFac.type) {
+            case SECP256K1:
+                boolean[] valid = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    valid[i] = verify(msgs.get(i), sigs.get(i));
+                }
+                return valid;
+            case ED25519:
+                byte[][] m = new byte[size][];
+                byte[][] s = new byte[size][];
+                byte[][] pk = new byte[size][];
+                for (int i = 0; i < size; i++) {
+                    m[i] = msgs.get(i);
+                    if (sigs.get(i) instanceof Ed25519Signature) {
+                        Ed25519Signature sig = (Ed25519Signature) sigs.get(i);
+                        s[i] = sig.getSignature();
+                        pk[i] = sig.getPubkey(null);
+                    }
+                    // a null signature or public key fails the verification
+                }
+                return ECKeyEd25519.verify(m, s, pk);
+            default:
+                throw new RuntimeException("ECKey type is not set!");
+        }
+    }
 }
@@ -44,6 +44,8 @@ import static org.aion.crypto.hash.Blake2b.Engine.LittleEndian.writeInt;
 import static org.aion.crypto.hash.Blake2b.Engine.LittleEndian.writeLong;
 
 import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.security.Key;
@@ -129,10 +131,12 @@ public interface Blake2b {
     // ---------------------------------------------------------------------
     // API
     // ---------------------------------------------------------------------
-    // TODO add ByteBuffer variants
     /** */
     void update(byte[] input);
 
+    /** Updates with the remaining bytes of the buffer, without changing its position. */
+    void update(ByteBuffer input);
+
     /** */
     void update(byte input);
 
@@ -515,6 +519,31 @@ public interface Blake2b {
             }
         }
 
+        /** {@inheritDoc} */
+        @Override
+        public final void update(final ByteBuffer input) {
+            if (input.hasArray()) {
+                update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+                return;
+            }
+
+            // direct buffers are read through the compressor cache buffer
+            final ByteBuffer in = input.duplicate();
+            while (in.hasRemaining()) {
+                if (buflen == Spec.BLOCK_BYTES) {
+                    /* flush */
+                    this.t[0] += Spec.BLOCK_BYTES;
+                    this.t[1] += this.t[0] == 0 ? 1 : 0;
+                    compress(buffer, 0);
+                    buflen = 0;
+                }
+
+                final int fill = Math.min(Spec.BLOCK_BYTES - buflen, in.remaining());
+                in.get(buffer, buflen, fill);
+                buflen += fill;
+            }
+        }
+
         /** {@inheritDoc} */
         @Override
         public final void update(byte b) {
@@ -610,6 +639,9 @@ public interface Blake2b {
 
         public static boolean USE_BB_BS2LONG_CONVERT = true;
 
+        private static final VarHandle LONG_LE =
+                MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
         ////////////////////////////////////////////////////////////////////////
         /// Compression Kernel /////////////////////////////////////////// BEGIN
         ////////////////////////////////////////////////////////////////////////
@@ -620,10 +652,8 @@ public interface Blake2b {
             // REVU: some small gains still possible here.
 
             if (USE_BB_BS2LONG_CONVERT) {
-                ByteBuffer bb = ByteBuffer.wrap(b, offset, 16 * 8);
-                bb.order(ByteOrder.LITTLE_ENDIAN);
-
-                for (int i = 0; i < 16; i++) m[i] = bb.getLong();
+                // little endian view of the block, reads the longs without wrapping the array
+                for (int i = 0; i < 16; i++) m[i] = (long) LONG_LE.get(b, offset + (i << 3));
 
             } else {
                 m[0] = ((long) b[offset] & 0xFF);
@@ -35,10 +35,34 @@
 
 package org.aion.crypto.hash;
 
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
 public class Blake2bNative {
 
+    /** Length in bytes of the digests written by the native functions. */
+    public static final int HASH_LENGTH = 32;
+
     public static native byte[] blake256(byte[] in);
 
+    /*
+    Hash in[offset, offset + length) into out[outOffset, outOffset + 32) without copying the input
+     */
+    private static native void blake256Range(
+            byte[] in, int offset, int length, byte[] out, int outOffset);
+
+    /*
+    Hash [offset, offset + length) of a direct buffer into out[outOffset, outOffset + 32)
+     */
+    private static native void blake256Direct(
+            ByteBuffer in, int offset, int length, byte[] out, int outOffset);
+
+    /*
+    Hash the consecutive inputs data[ends[i - 1], ends[i]) in a single native call,
+    writing the i-th digest at out[32 * i]
+     */
+    private static native void blake256Batch(byte[] data, int[] ends, byte[] out);
+
     /*
     Generate hashes to validate an Equihash solution
      */
@@ -53,6 +77,50 @@ public class Blake2bNative {
         return blake256(arr);
     }
 
+    /**
+     * Writes the blake2b-256 hash of {@code in[offset, offset + length)} to {@code out} at {@code
+     * outOffset}, without copying the input.
+     */
+    public static void blake256(byte[] in, int offset, int length, byte[] out, int outOffset) {
+        Objects.checkFromIndexSize(offset, length, in.length);
+        Objects.checkFromIndexSize(outOffset, HASH_LENGTH, out.length);
+        blake256Range(in, offset, length, out, outOffset);
+    }
+
+    /**
+     * Writes the blake2b-256 hash of the remaining bytes of the direct buffer to {@code out} at
+     * {@code outOffset}. The position of the buffer is not changed.
+     */
+    public static void blake256(ByteBuffer in, byte[] out, int outOffset) {
+        if (!in.isDirect()) {
+            throw new IllegalArgumentException("The buffer is not direct.");
+        }
+        Objects.checkFromIndexSize(outOffset, HASH_LENGTH, out.length);
+        blake256Direct(in, in.position(), in.remaining(), out, outOffset);
+    }
+
+    /**
+     * Hashes all the inputs with a single native call, writing the i-th hash to {@code out} at
+     * {@code 32 * i}.
+     */
+    public static void blake256(byte[][] inputs, byte[] out) {
+        Objects.checkFromIndexSize(0, inputs.length * HASH_LENGTH, out.length);
+
+        // the inputs are packed so the native side reads them without any JNI call
+        int[] ends = new int[inputs.length];
+        int length = 0;
+        for (int i = 0; i < inputs.length; i++) {
+            length = Math.addExact(length, inputs[i].length);
+            ends[i] = length;
+        }
+        byte[] data = new byte[length];
+        for (int i = 0; i < inputs.length; i++) {
+            System.arraycopy(inputs[i], 0, data, ends[i] - inputs[i].length, inputs[i].length);
+        }
+
+        blake256Batch(data, ends, out);
+    }
+
     public static byte[][] getSolutionHash(
             byte[] personalization, byte[] nonce, int[] indices, byte[] header) {
         return genSolutionHash(personalization, nonce, indices, header);
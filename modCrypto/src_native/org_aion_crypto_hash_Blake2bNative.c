@@ -56,6 +56,67 @@ JNIEXPORT jbyteArray JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256
     return ret;
 }
 
+/*
+ * Class:     org_aion_crypto_hash_Blake2bNative
+ * Method:    blake256Range
+ * Signature: ([BII[BI)V
+ */
+JNIEXPORT void JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256Range
+  (JNIEnv *env, jclass cls, jbyteArray in, jint offset, jint length, jbyteArray out, jint outOffset)
+{
+    uint8_t hash[HASH_LEN];
+
+    // the input is only read, so pin it instead of copying it
+    jbyte* inBuf = (*env)->GetPrimitiveArrayCritical(env, in, NULL);
+    blake2b(hash, inBuf + offset, NULL, HASH_LEN, length, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, in, inBuf, JNI_ABORT);
+
+    (*env)->SetByteArrayRegion(env, out, outOffset, HASH_LEN, (jbyte*) hash);
+}
+
+/*
+ * Class:     org_aion_crypto_hash_Blake2bNative
+ * Method:    blake256Direct
+ * Signature: (Ljava/nio/ByteBuffer;II[BI)V
+ */
+JNIEXPORT void JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256Direct
+  (JNIEnv *env, jclass cls, jobject in, jint offset, jint length, jbyteArray out, jint outOffset)
+{
+    uint8_t hash[HASH_LEN];
+
+    uint8_t* inBuf = (*env)->GetDirectBufferAddress(env, in);
+    blake2b(hash, inBuf + offset, NULL, HASH_LEN, length, 0);
+
+    (*env)->SetByteArrayRegion(env, out, outOffset, HASH_LEN, (jbyte*) hash);
+}
+
+/*
+ * Class:     org_aion_crypto_hash_Blake2bNative
+ * Method:    blake256Batch
+ * Signature: ([B[I[B)V
+ */
+JNIEXPORT void JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256Batch
+  (JNIEnv *env, jclass cls, jbyteArray data, jintArray ends, jbyteArray out)
+{
+    jsize count = (*env)->GetArrayLength(env, ends);
+
+    // all the arrays are pinned for the whole batch, no JNI calls are made while hashing
+    jbyte* dataBuf = (*env)->GetPrimitiveArrayCritical(env, data, NULL);
+    jint* endsBuf = (*env)->GetPrimitiveArrayCritical(env, ends, NULL);
+    jbyte* outBuf = (*env)->GetPrimitiveArrayCritical(env, out, NULL);
+
+    int i;
+    jint start = 0;
+    for (i = 0; i < count; i++) {
+        blake2b(outBuf + i * HASH_LEN, dataBuf + start, NULL, HASH_LEN, endsBuf[i] - start, 0);
+        start = endsBuf[i];
+    }
+
+    (*env)->ReleasePrimitiveArrayCritical(env, out, outBuf, 0);
+    (*env)->ReleasePrimitiveArrayCritical(env, ends, endsBuf, JNI_ABORT);
+    (*env)->ReleasePrimitiveArrayCritical(env, data, dataBuf, JNI_ABORT);
+}
+
 /*
  * Class:     org_aion_crypto_hash_Blake2bNative
  * Method:    genSolutionHash
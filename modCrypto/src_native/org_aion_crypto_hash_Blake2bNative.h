@@ -15,6 +15,30 @@ extern "C" {
 JNIEXPORT jbyteArray JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256
   (JNIEnv *, jclass, jbyteArray);
 
+/*
+ * Class:     org_aion_crypto_hash_Blake2bNative
+ * Method:    blake256Range
+ * Signature: ([BII[BI)V
+ */
+JNIEXPORT void JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256Range
+  (JNIEnv *, jclass, jbyteArray, jint, jint, jbyteArray, jint);
+
+/*
+ * Class:     org_aion_crypto_hash_Blake2bNative
+ * Method:    blake256Direct
+ * Signature: (Ljava/nio/ByteBuffer;II[BI)V
+ */
+JNIEXPORT void JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256Direct
+  (JNIEnv *, jclass, jobject, jint, jint, jbyteArray, jint);
+
+/*
+ * Class:     org_aion_crypto_hash_Blake2bNative
+ * Method:    blake256Batch
+ * Signature: ([B[I[B)V
+ */
+JNIEXPORT void JNICALL Java_org_aion_crypto_hash_Blake2bNative_blake256Batch
+  (JNIEnv *, jclass, jbyteArray, jintArray, jbyteArray);
+
 /*
  * Class:     org_aion_crypto_hash_Blake2bNative
  * Method:    genSolutionHash
@@ -34,6 +34,8 @@
  */
 package org.aion.crypto;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.aion.crypto.ecdsa.ECKeySecp256k1;
 import org.aion.crypto.ed25519.ECKeyEd25519;
 import org.junit.Test;
@@ -72,4 +74,38 @@ public class ECKeyBench {
         te = System.nanoTime();
         System.out.println(" Ed25519 sign: " + (te - ts) / COUNT + " ns / call");
     }
+
+    @Test
+    public void benchBatchVerify() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+
+        final int COUNT = 1000;
+        List<byte[]> msgs = new ArrayList<>();
+        List<ISignature> sigs = new ArrayList<>();
+        for (int i = 0; i < COUNT; i++) {
+            byte[] input = HashUtil.h256(("test" + i).getBytes());
+            msgs.add(input);
+            sigs.add(ECKeyFac.inst().create().sign(input));
+        }
+
+        // warm up
+        for (int i = 0; i < COUNT; i++) {
+            SignatureFac.verify(msgs.get(i), sigs.get(i));
+        }
+        SignatureFac.verify(msgs, sigs);
+
+        // ED25519 single
+        long ts = System.nanoTime();
+        for (int i = 0; i < COUNT; i++) {
+            SignatureFac.verify(msgs.get(i), sigs.get(i));
+        }
+        long te = System.nanoTime();
+        System.out.println(" Ed25519 verify:       " + (te - ts) / COUNT + " ns / call");
+
+        // ED25519 batch
+        ts = System.nanoTime();
+        SignatureFac.verify(msgs, sigs);
+        te = System.nanoTime();
+        System.out.println(" Ed25519 batch verify: " + (te - ts) / COUNT + " ns / signature");
+    }
 }
@@ -34,9 +34,20 @@
  */
 package org.aion.crypto;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.aion.base.util.Hex;
+import org.aion.crypto.hash.Blake2b;
+import org.aion.rlp.RLPWriter;
 import org.junit.Test;
 
 public class HashTest {
@@ -88,4 +99,101 @@ public class HashTest {
         System.out.println(hash);
         assertEquals(expected, hash);
     }
+
+    @Test
+    public void testH256Range() {
+        byte[] input = "xxtestyy".getBytes();
+        byte[] expected = HashUtil.h256("test".getBytes());
+
+        assertArrayEquals(expected, HashUtil.h256(input, 2, 4));
+
+        byte[] out = new byte[40];
+        HashUtil.h256(input, 2, 4, out, 8);
+        assertArrayEquals(expected, Arrays.copyOfRange(out, 8, 40));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testH256RangeOutOfBounds() {
+        HashUtil.h256("test".getBytes(), 2, 4, new byte[32], 0);
+    }
+
+    @Test
+    public void testH256ByteBuffer() {
+        byte[] expected = HashUtil.h256("test".getBytes());
+
+        ByteBuffer heap = ByteBuffer.wrap("xxtestyy".getBytes(), 2, 4).slice();
+        assertArrayEquals(expected, HashUtil.h256(heap));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(8);
+        direct.put("xxtestyy".getBytes()).position(2).limit(6);
+        assertArrayEquals(expected, HashUtil.h256(direct));
+        assertEquals(2, direct.position());
+    }
+
+    @Test
+    public void testBlake2bDirectBuffer() {
+        // spans several blocks to go through the compressor cache buffer
+        byte[] input = new byte[1000];
+        new Random(0).nextBytes(input);
+        ByteBuffer direct = ByteBuffer.allocateDirect(input.length).put(input);
+        direct.flip();
+
+        Blake2b digest = Blake2b.Digest.newInstance(32);
+        digest.update(direct);
+        assertArrayEquals(HashUtil.blake256(input), digest.digest());
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void testH256Batch() {
+        Random random = new Random(0);
+        byte[][] inputs = new byte[100][];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = new byte[random.nextInt(300)];
+            random.nextBytes(inputs[i]);
+        }
+
+        byte[][] hashes = HashUtil.h256Batch(inputs);
+        assertEquals(inputs.length, hashes.length);
+        for (int i = 0; i < inputs.length; i++) {
+            assertArrayEquals(HashUtil.blake256(inputs[i]), hashes[i]);
+        }
+        assertEquals(0, HashUtil.h256Batch(new byte[0][]).length);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testH256BatchWithNull() {
+        HashUtil.h256Batch(new byte[][] {"test".getBytes(), null});
+    }
+
+    @Test
+    public void testH256Writer() {
+        byte[] large = new byte[100_000];
+        RLPWriter writer =
+                new RLPWriter().beginList().writeElement("test".getBytes()).writeLong(7).endList();
+        assertArrayEquals(HashUtil.h256(writer.toByteArray()), HashUtil.h256(writer));
+
+        writer = new RLPWriter().beginList().writeElement(large).endList();
+        assertArrayEquals(HashUtil.h256(writer.toByteArray()), HashUtil.h256(writer));
+    }
+
+    @Test
+    public void testBlake256ReusedAcrossThreads() throws Exception {
+        String expected = "928b20366943e2afd11ebc0eae2e53a93bf177a4fcf35bcc64d503704e65e202";
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(
+                        executor.submit(
+                                () -> Hex.toHexString(HashUtil.blake256("test".getBytes()))));
+            }
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -34,8 +34,11 @@
  */
 package org.aion.crypto;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.AfterClass;
 import org.junit.Test;
 
@@ -70,6 +73,28 @@ public class SignatureTest {
         assertTrue(SignatureFac.verify(msgHash, SignatureFac.fromBytes(sig.toBytes())));
     }
 
+    @Test
+    public void testED25519BatchSignatures() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+
+        List<byte[]> msgs = new ArrayList<>();
+        List<ISignature> sigs = new ArrayList<>();
+        boolean[] expected = new boolean[20];
+
+        for (int i = 0; i < expected.length; i++) {
+            ECKey key = ECKeyFac.inst().create();
+            byte[] msgHash = HashUtil.h256(("test" + i).getBytes());
+            ISignature sig = key.sign(msgHash);
+
+            // every third message does not match its signature
+            expected[i] = i % 3 != 0;
+            msgs.add(expected[i] ? msgHash : HashUtil.h256("other".getBytes()));
+            sigs.add(sig);
+        }
+
+        assertArrayEquals(expected, SignatureFac.verify(msgs, sigs));
+    }
+
     @AfterClass
     public static void teardown() {
         ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
@@ -39,13 +39,22 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.primitives.Longs;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
+import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.aion.log.AionLoggerFactory;
@@ -67,12 +76,20 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
     protected AbstractDB database;
     /** Underlying cache implementation that will be instantiated by default as a LRU cache. */
     private LoadingCache<ByteArrayWrapper, Optional<byte[]>> loadingCache = null;
+    /** Off-heap cache implementation used instead of the LRU cache when a byte size is given. */
+    private OffHeapCache offHeapCache = null;
 
     /** Keeps track of the entries that have been modified. */
     private Map<ByteArrayWrapper, byte[]> dirtyEntries = null;
 
     /** The underlying cache max size, will default to DEFAULT_JAVA_CACHE_SIZE at first. */
     private long maxSize;
+    /** The max number of bytes of the off-heap cache or 0 when using the LRU cache. */
+    private long offHeapSize;
+
+    // load statistics for the off-heap cache
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong loadTime = new AtomicLong();
 
     /** The flag to indicate if the stats are enabled or not. */
     private boolean statsEnabled;
@@ -84,16 +101,33 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
             boolean enableAutoCommit,
             String max_cache_size,
             boolean enableStats) {
-        this(enableAutoCommit, max_cache_size, enableStats);
+        this(_database, enableAutoCommit, max_cache_size, enableStats, 0L);
+    }
+
+    /**
+     * @param offheap_cache_size when greater than zero, the values are cached off-heap using at
+     *     most this number of bytes and {@code max_cache_size} is ignored
+     */
+    public DatabaseWithCache(
+            AbstractDB _database,
+            boolean enableAutoCommit,
+            String max_cache_size,
+            boolean enableStats,
+            long offheap_cache_size) {
+        this(enableAutoCommit, max_cache_size, enableStats, offheap_cache_size);
         database = _database;
     }
 
     private DatabaseWithCache(
-            boolean enableAutoCommit, String max_cache_size, boolean enableStats) {
+            boolean enableAutoCommit,
+            String max_cache_size,
+            boolean enableStats,
+            long offheap_cache_size) {
         this.enableAutoCommit = enableAutoCommit;
 
         Long val = max_cache_size != null ? Longs.tryParse(max_cache_size) : null;
         this.maxSize = val == null ? 0 : val;
+        this.offHeapSize = Math.max(0, offheap_cache_size);
 
         this.statsEnabled = enableStats;
     }
@@ -110,6 +144,11 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
 
         this.dirtyEntries = new HashMap<>();
 
+        if (offHeapSize > 0) {
+            this.offHeapCache = new OffHeapCache(Math.max(offHeapSize, OffHeapCache.PAGE_SIZE));
+            return;
+        }
+
         // Use CacheBuilder to create the cache.
         CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
 
@@ -147,9 +186,17 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
     }
 
     public long getApproximateCacheSize() {
+        if (this.offHeapCache != null) {
+            return this.offHeapCache.size();
+        }
         return (this.loadingCache != null) ? this.loadingCache.size() : 0L;
     }
 
+    /** @return the max number of bytes used by the off-heap cache or 0 when it is not used */
+    public long getOffHeapCacheSize() {
+        return this.offHeapSize;
+    }
+
     /**
      * Returns if the stats are enabled are not for the cache implementation.
      *
@@ -165,6 +212,15 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
      * @return
      */
     public CacheStats getStats() {
+        if (this.offHeapCache != null) {
+            return new CacheStats(
+                    offHeapCache.getHitCount(),
+                    offHeapCache.getMissCount(),
+                    loadCount.get(),
+                    0,
+                    loadTime.get(),
+                    offHeapCache.getEvictionCount());
+        }
         return this.loadingCache.stats();
     }
 
@@ -217,13 +273,14 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
             database.close();
 
             // clear the cache
-            loadingCache.invalidateAll();
+            invalidateCache();
 
             // clear the dirty entries
             dirtyEntries.clear();
         } finally {
             // ensuring the db is null after close was called
             loadingCache = null;
+            offHeapCache = null;
             dirtyEntries = null;
         }
     }
@@ -322,7 +379,9 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
                 + (enableAutoCommit ? "ON" : "OFF")
                 + //
                 ",size"
-                + (maxSize == 0 ? "=UNBOUND" : "<" + maxSize)
+                + (offHeapSize > 0
+                        ? "<" + offHeapSize + "B,offheap"
+                        : (maxSize == 0 ? "=UNBOUND" : "<" + maxSize))
                 + //
                 ",stats="
                 + (statsEnabled ? "ON" : "OFF")
@@ -338,6 +397,16 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
 
         check();
 
+        if (offHeapCache != null) {
+            // the off-heap cache cannot be iterated, check the updates and then the source
+            for (byte[] value : dirtyEntries.values()) {
+                if (value != null) {
+                    return false;
+                }
+            }
+            return database.isEmpty();
+        }
+
         if (loadingCache.size() > dirtyEntries.size()) {
             // check loading cache only when greater than dirtyEntries
             Collection<Optional<byte[]>> values = loadingCache.asMap().values();
@@ -384,20 +453,111 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
 
         check();
 
-        // add all database keys
-        keys.addAll(database.keys());
+        // the iterator applies the updated cached keys over the database keys
+        try (IByteArrayKeyValueIterator itr = iterator()) {
+            while (itr.hasNext()) {
+                keys.add(itr.next().getKey());
+            }
+        }
 
-        // add updated cached keys
+        return keys;
+    }
+
+    /**
+     * @implNote The uncommitted updates in the range are copied when the iterator is created, to
+     *     provide the same snapshot semantics as the underlying database.
+     */
+    @Override
+    public IByteArrayKeyValueIterator iterator(byte[] from, byte[] to) {
+        check();
+
+        TreeMap<byte[], byte[]> updates = new TreeMap<>(Arrays::compareUnsigned);
         dirtyEntries.forEach(
                 (k, v) -> {
-                    if (v == null) {
-                        keys.remove(k.getData());
-                    } else {
-                        keys.add(k.getData());
+                    if (IByteArrayKeyValueStore.isInRange(k.getData(), from, to)) {
+                        updates.put(k.getData(), v);
                     }
                 });
 
-        return keys;
+        IByteArrayKeyValueIterator stored = database.iterator(from, to);
+        return updates.isEmpty()
+                ? stored
+                : new UpdatedIterator(stored, updates.entrySet().iterator());
+    }
+
+    /**
+     * Merges the ordered stored entries with the ordered updates, where the updates take
+     * precedence and {@code null} values mark deleted entries.
+     */
+    private static final class UpdatedIterator implements IByteArrayKeyValueIterator {
+
+        private final IByteArrayKeyValueIterator stored;
+        private final Iterator<Map.Entry<byte[], byte[]>> updates;
+
+        private Map.Entry<byte[], byte[]> nextStored = null;
+        private Map.Entry<byte[], byte[]> nextUpdate = null;
+        private Map.Entry<byte[], byte[]> next = null;
+        private boolean closed = false;
+
+        UpdatedIterator(
+                IByteArrayKeyValueIterator stored, Iterator<Map.Entry<byte[], byte[]>> updates) {
+            this.stored = stored;
+            this.updates = updates;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!closed && next == null) {
+                if (nextStored == null && stored.hasNext()) {
+                    nextStored = stored.next();
+                }
+                if (nextUpdate == null && updates.hasNext()) {
+                    nextUpdate = updates.next();
+                }
+                if (nextStored == null && nextUpdate == null) {
+                    return false;
+                }
+
+                int cmp =
+                        nextStored == null
+                                ? 1
+                                : nextUpdate == null
+                                        ? -1
+                                        : Arrays.compareUnsigned(
+                                                nextStored.getKey(), nextUpdate.getKey());
+                if (cmp < 0) {
+                    next = nextStored;
+                    nextStored = null;
+                } else {
+                    if (cmp == 0) {
+                        // overwritten by the update
+                        nextStored = null;
+                    }
+                    if (nextUpdate.getValue() != null) {
+                        next = nextUpdate;
+                    }
+                    nextUpdate = null;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<byte[], byte[]> entry = next;
+            next = null;
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            next = null;
+            stored.close();
+        }
     }
 
     /**
@@ -414,8 +574,12 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
         check();
 
         try {
-            // gets the value from the cache or loads it from the database
-            v = this.loadingCache.get(ByteArrayWrapper.wrap(k));
+            if (offHeapCache != null) {
+                v = getOffHeap(ByteArrayWrapper.wrap(k));
+            } else {
+                // gets the value from the cache or loads it from the database
+                v = this.loadingCache.get(ByteArrayWrapper.wrap(k));
+            }
         } catch (Exception e) {
             LOG.error("Unable to retrieve value for the given key.", e);
         }
@@ -423,6 +587,99 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
         return v;
     }
 
+    /**
+     * Returns the cached values and loads the remaining ones from the database with a single
+     * multi-get, adding them to the cache.
+     */
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys) {
+        AbstractDB.check(keys);
+
+        check();
+
+        Map<ByteArrayWrapper, byte[]> values = new HashMap<>();
+        List<byte[]> missing = new ArrayList<>();
+        for (byte[] k : keys) {
+            ByteArrayWrapper key = ByteArrayWrapper.wrap(k);
+            Optional<byte[]> cached = getCached(key);
+            if (cached == null) {
+                missing.add(k);
+            } else if (cached.isPresent()) {
+                values.put(key, cached.get());
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long start = System.nanoTime();
+            Map<ByteArrayWrapper, byte[]> loaded = database.getMany(missing);
+            if (offHeapCache != null) {
+                loadTime.addAndGet(System.nanoTime() - start);
+                loadCount.addAndGet(missing.size());
+            }
+
+            for (byte[] k : missing) {
+                ByteArrayWrapper key = ByteArrayWrapper.wrap(k);
+                byte[] v = loaded.get(key);
+                cachePut(key, v);
+                if (v != null) {
+                    values.put(key, v);
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /** @return the cached value for the key or {@code null} when the key is not cached */
+    private Optional<byte[]> getCached(ByteArrayWrapper key) {
+        if (dirtyEntries.containsKey(key)) {
+            return Optional.ofNullable(dirtyEntries.get(key));
+        }
+
+        if (offHeapCache != null) {
+            OffHeapCache.Value cached = offHeapCache.get(key);
+            return cached == null ? null : Optional.ofNullable(cached.getData());
+        } else {
+            return loadingCache.getIfPresent(key);
+        }
+    }
+
+    private Optional<byte[]> getOffHeap(ByteArrayWrapper key) {
+        // uncommitted updates are not guaranteed to stay in the cache
+        if (dirtyEntries.containsKey(key)) {
+            return Optional.ofNullable(dirtyEntries.get(key));
+        }
+
+        OffHeapCache.Value cached = offHeapCache.get(key);
+        if (cached != null) {
+            return Optional.ofNullable(cached.getData());
+        }
+
+        long start = System.nanoTime();
+        Optional<byte[]> v = database.get(key.getData());
+        loadTime.addAndGet(System.nanoTime() - start);
+        loadCount.incrementAndGet();
+
+        offHeapCache.put(key, v.orElse(null));
+        return v;
+    }
+
+    private void cachePut(ByteArrayWrapper key, byte[] value) {
+        if (offHeapCache != null) {
+            offHeapCache.put(key, value);
+        } else {
+            loadingCache.put(key, Optional.ofNullable(value));
+        }
+    }
+
+    private void invalidateCache() {
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        } else {
+            loadingCache.invalidateAll();
+        }
+    }
+
     @Override
     public void put(byte[] k, byte[] v) {
         AbstractDB.check(k);
@@ -431,7 +688,7 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
 
         ByteArrayWrapper key = ByteArrayWrapper.wrap(k);
 
-        this.loadingCache.put(key, Optional.ofNullable(v));
+        cachePut(key, v);
         // keeping track of dirty data
         this.dirtyEntries.put(key, v);
 
@@ -456,7 +713,7 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
             ByteArrayWrapper key = ByteArrayWrapper.wrap(entry.getKey());
             byte[] value = entry.getValue();
 
-            this.loadingCache.put(key, Optional.ofNullable(value));
+            cachePut(key, value);
             // keeping track of dirty data
             this.dirtyEntries.put(key, value);
         }
@@ -474,7 +731,7 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
 
         ByteArrayWrapper key = ByteArrayWrapper.wrap(k);
 
-        this.loadingCache.put(key, Optional.ofNullable(v));
+        cachePut(key, v);
         // keeping track of dirty data
         this.dirtyEntries.put(key, v);
     }
@@ -493,7 +750,7 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
         for (byte[] k : keys) {
             ByteArrayWrapper key = ByteArrayWrapper.wrap(k);
 
-            this.loadingCache.put(key, Optional.empty());
+            cachePut(key, null);
             // keeping track of dirty data
             this.dirtyEntries.put(key, null);
         }
@@ -507,7 +764,7 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
     public void drop() {
         check();
 
-        this.loadingCache.invalidateAll();
+        invalidateCache();
         this.dirtyEntries.clear();
         this.database.drop();
     }
@@ -521,7 +778,11 @@ public class DatabaseWithCache implements IByteArrayKeyValueDatabase {
      */
     private void flushInternal() {
         if (isStatsEnabled()) {
-            LOG.debug(this.getName().get() + ": " + getStats().toString());
+            LOG.debug(
+                    this.getName().get()
+                            + ": "
+                            + getStats().toString()
+                            + (offHeapCache != null ? " " + offHeapCache : ""));
         }
 
         // push to data source
@@ -30,6 +30,8 @@ import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
@@ -249,6 +251,80 @@ public class LockedDatabase implements IByteArrayKeyValueDatabase {
         }
     }
 
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            return database.getMany(keys);
+        } catch (Exception e) {
+            throw e;
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @implNote The read lock is held only while the iterator is accessed, not for its entire
+     *     lifetime, such that the thread iterating over the entries can also update the database.
+     */
+    @Override
+    public IByteArrayKeyValueIterator iterator(byte[] from, byte[] to) {
+        // acquire read lock
+        lock.readLock().lock();
+
+        try {
+            return new LockedIterator(database.iterator(from, to));
+        } catch (Exception e) {
+            throw e;
+        } finally {
+            // releasing read lock
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Acquires the read lock of the database for each access to the wrapped iterator. */
+    private class LockedIterator implements IByteArrayKeyValueIterator {
+
+        private final IByteArrayKeyValueIterator iterator;
+
+        LockedIterator(IByteArrayKeyValueIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            lock.readLock().lock();
+            try {
+                return iterator.hasNext();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            lock.readLock().lock();
+            try {
+                return iterator.next();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.readLock().lock();
+            try {
+                iterator.close();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         // acquire write lock
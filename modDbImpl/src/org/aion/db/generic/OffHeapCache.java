@@ -0,0 +1,447 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ */
+package org.aion.db.generic;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.aion.base.util.ByteArrayWrapper;
+
+/**
+ * Cache of database values kept outside of the Java heap and bounded by the number of bytes it
+ * allocates.
+ *
+ * <p>Values are stored in direct memory pages of {@link #PAGE_SIZE} bytes. Each page belongs to a
+ * size class and is split in chunks of the class size; classes are powers of two starting from
+ * {@link #MIN_CHUNK_SIZE}. A concurrent hash index maps each key to its chunk. When a class has no
+ * free chunk and the byte limit does not allow a new page, an entry of the same class is evicted
+ * using the clock algorithm. A class that has no page at all takes the last page of the largest
+ * class. Values larger than a page are not cached.
+ *
+ * <p>Missing values (i.e. keys known to be absent from the database) are also cached and use a
+ * chunk of the smallest class.
+ *
+ * @implNote Only the values are stored off-heap. Keys and the per entry bookkeeping stay on the
+ *     heap.
+ */
+public class OffHeapCache {
+
+    public static final int PAGE_SIZE = 1 << 20;
+    public static final int MIN_CHUNK_SIZE = 64;
+
+    private static final int ABSENT = -1;
+
+    private final long capacity;
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final ConcurrentHashMap<ByteArrayWrapper, Entry> index = new ConcurrentHashMap<>();
+    private final SizeClass[] classes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    /** Result of a cache lookup. */
+    public static final class Value {
+        private final byte[] data;
+
+        private Value(byte[] data) {
+            this.data = data;
+        }
+
+        /** @return the cached value or {@code null} if the key is known to be absent */
+        public byte[] getData() {
+            return data;
+        }
+    }
+
+    private static final class Entry {
+        final ByteArrayWrapper key;
+        final int chunk;
+        final int length;
+        volatile boolean referenced = true;
+
+        Entry(ByteArrayWrapper key, int chunk, int length) {
+            this.key = key;
+            this.chunk = chunk;
+            this.length = length;
+        }
+    }
+
+    private final class SizeClass {
+        final int chunkSize;
+        final int chunksPerPage;
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        final List<ByteBuffer> pages = new ArrayList<>();
+        Entry[] slots = new Entry[0];
+        int[] free = new int[0];
+        int freeCount = 0;
+        int hand = 0;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+            this.chunksPerPage = PAGE_SIZE / chunkSize;
+        }
+
+        /** @return a free chunk or {@code -1} if none can be allocated; requires the write lock */
+        int allocate() {
+            if (freeCount > 0) {
+                return free[--freeCount];
+            }
+            if (addPage()) {
+                return free[--freeCount];
+            }
+            return evict();
+        }
+
+        private boolean addPage() {
+            long allocated;
+            do {
+                allocated = allocatedBytes.get();
+                if (allocated + PAGE_SIZE > capacity) {
+                    return false;
+                }
+            } while (!allocatedBytes.compareAndSet(allocated, allocated + PAGE_SIZE));
+
+            int first = pages.size() * chunksPerPage;
+            pages.add(ByteBuffer.allocateDirect(PAGE_SIZE));
+            slots = Arrays.copyOf(slots, first + chunksPerPage);
+            free = Arrays.copyOf(free, first + chunksPerPage);
+            // hand out the chunks in increasing order
+            for (int chunk = first + chunksPerPage - 1; chunk >= first; chunk--) {
+                free[freeCount++] = chunk;
+            }
+            return true;
+        }
+
+        private int evict() {
+            if (slots.length == 0) {
+                return -1;
+            }
+            // two full rounds are enough to find an entry that was not referenced
+            for (int i = 0; i < 2 * slots.length; i++) {
+                int chunk = hand;
+                hand = (hand + 1) % slots.length;
+
+                Entry entry = slots[chunk];
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else {
+                    index.remove(entry.key, entry);
+                    slots[chunk] = null;
+                    evictions.incrementAndGet();
+                    return chunk;
+                }
+            }
+            return -1;
+        }
+
+        /** Releases the chunk of the entry if it still holds it; requires the write lock. */
+        void release(Entry entry) {
+            if (slots[entry.chunk] == entry) {
+                slots[entry.chunk] = null;
+                free[freeCount++] = entry.chunk;
+            }
+        }
+
+        /** Gives back the last page, evicting its entries; requires the write lock. */
+        boolean releaseLastPage() {
+            if (pages.isEmpty()) {
+                return false;
+            }
+            int first = (pages.size() - 1) * chunksPerPage;
+            for (int chunk = first; chunk < slots.length; chunk++) {
+                Entry entry = slots[chunk];
+                if (entry != null) {
+                    index.remove(entry.key, entry);
+                    evictions.incrementAndGet();
+                }
+            }
+
+            int kept = 0;
+            for (int i = 0; i < freeCount; i++) {
+                if (free[i] < first) {
+                    free[kept++] = free[i];
+                }
+            }
+            freeCount = kept;
+            slots = Arrays.copyOf(slots, first);
+            free = Arrays.copyOf(free, first);
+            hand = hand >= first ? 0 : hand;
+
+            pages.remove(pages.size() - 1);
+            allocatedBytes.addAndGet(-PAGE_SIZE);
+            return true;
+        }
+
+        void write(int chunk, byte[] value) {
+            ByteBuffer page = pages.get(chunk / chunksPerPage).duplicate();
+            page.position((chunk % chunksPerPage) * chunkSize);
+            page.put(value);
+        }
+
+        byte[] read(int chunk, int length) {
+            ByteBuffer page = pages.get(chunk / chunksPerPage).duplicate();
+            page.position((chunk % chunksPerPage) * chunkSize);
+            byte[] value = new byte[length];
+            page.get(value);
+            return value;
+        }
+
+        int pageCount() {
+            lock.readLock().lock();
+            try {
+                return pages.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @param capacity the maximum number of bytes allocated for the cached values; must allow at
+     *     least one page
+     */
+    public OffHeapCache(long capacity) {
+        if (capacity < PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "The off-heap cache capacity must be at least " + PAGE_SIZE + " bytes.");
+        }
+        this.capacity = capacity;
+
+        int count = Integer.numberOfTrailingZeros(PAGE_SIZE / MIN_CHUNK_SIZE) + 1;
+        classes = new SizeClass[count];
+        for (int i = 0; i < count; i++) {
+            classes[i] = new SizeClass(MIN_CHUNK_SIZE << i);
+        }
+    }
+
+    private SizeClass classFor(int length) {
+        if (length <= MIN_CHUNK_SIZE) {
+            return classes[0];
+        }
+        int bits = Integer.SIZE - Integer.numberOfLeadingZeros(length - 1);
+        return classes[bits - Integer.numberOfTrailingZeros(MIN_CHUNK_SIZE)];
+    }
+
+    /**
+     * Retrieves the cached value for the given key.
+     *
+     * @return the cached value, possibly with {@code null} data if the key is known to be absent,
+     *     or {@code null} if the key is not cached
+     */
+    public Value get(ByteArrayWrapper key) {
+        Entry entry = index.get(key);
+        if (entry != null) {
+            SizeClass cls = classFor(Math.max(entry.length, 0));
+            cls.lock.readLock().lock();
+            try {
+                if (cls.slots.length > entry.chunk && cls.slots[entry.chunk] == entry) {
+                    entry.referenced = true;
+                    hits.incrementAndGet();
+                    return new Value(
+                            entry.length == ABSENT ? null : cls.read(entry.chunk, entry.length));
+                }
+            } finally {
+                cls.lock.readLock().unlock();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the value for the given key, replacing any previous value.
+     *
+     * @param value the value or {@code null} to record that the key is absent
+     */
+    public void put(ByteArrayWrapper key, byte[] value) {
+        int length = value == null ? ABSENT : value.length;
+        if (length > PAGE_SIZE) {
+            rejections.incrementAndGet();
+            remove(key);
+            return;
+        }
+
+        SizeClass cls = classFor(Math.max(length, 0));
+        if (cls.pageCount() == 0) {
+            reclaimPage(cls);
+        }
+
+        Entry previous;
+        cls.lock.writeLock().lock();
+        try {
+            int chunk = cls.allocate();
+            if (chunk < 0) {
+                rejections.incrementAndGet();
+                previous = index.remove(key);
+            } else {
+                if (value != null) {
+                    cls.write(chunk, value);
+                }
+                Entry entry = new Entry(key, chunk, length);
+                cls.slots[chunk] = entry;
+                previous = index.put(key, entry);
+            }
+        } finally {
+            cls.lock.writeLock().unlock();
+        }
+
+        if (previous != null) {
+            release(previous);
+        }
+    }
+
+    /** Removes the given key from the cache. */
+    public void remove(ByteArrayWrapper key) {
+        Entry entry = index.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    private void release(Entry entry) {
+        SizeClass cls = classFor(Math.max(entry.length, 0));
+        cls.lock.writeLock().lock();
+        try {
+            if (cls.slots.length > entry.chunk) {
+                cls.release(entry);
+            }
+        } finally {
+            cls.lock.writeLock().unlock();
+        }
+    }
+
+    /** Makes room for a first page of the given class by taking a page from the largest class. */
+    private void reclaimPage(SizeClass target) {
+        if (allocatedBytes.get() + PAGE_SIZE <= capacity) {
+            return;
+        }
+        SizeClass largest = null;
+        int largestPages = 0;
+        for (SizeClass cls : classes) {
+            int pages = cls.pageCount();
+            if (cls != target && pages > largestPages) {
+                largest = cls;
+                largestPages = pages;
+            }
+        }
+        if (largest != null) {
+            largest.lock.writeLock().lock();
+            try {
+                largest.releaseLastPage();
+            } finally {
+                largest.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Removes all the entries and releases the allocated memory. */
+    public void clear() {
+        for (SizeClass cls : classes) {
+            cls.lock.writeLock().lock();
+        }
+        try {
+            index.clear();
+            for (SizeClass cls : classes) {
+                cls.pages.clear();
+                cls.slots = new Entry[0];
+                cls.free = new int[0];
+                cls.freeCount = 0;
+                cls.hand = 0;
+            }
+            allocatedBytes.set(0);
+        } finally {
+            for (SizeClass cls : classes) {
+                cls.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public long size() {
+        return index.size();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /** @return the number of values that could not be cached */
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    @Override
+    public String toString() {
+        long requests = hits.get() + misses.get();
+        return "OffHeapCache{entries="
+                + size()
+                + ", allocated="
+                + allocatedBytes.get()
+                + "/"
+                + capacity
+                + " bytes, hitRate="
+                + (requests == 0 ? 0 : (hits.get() * 100 / requests))
+                + "%, evictions="
+                + evictions.get()
+                + ", rejections="
+                + rejections.get()
+                + "}";
+    }
+}
@@ -28,13 +28,18 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
+import org.aion.base.metrics.Histogram;
+import org.aion.base.metrics.MetricRegistry;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.Hex;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.slf4j.Logger;
 
 /**
- * Times different database operations and logs the time.
+ * Times different database operations and logs the time. The reads and writes are also recorded
+ * in the {@link MetricRegistry} per database and operation.
  *
  * @author Alexandra Roatis
  */
@@ -45,8 +50,33 @@ public class TimedDatabase implements IByteArrayKeyValueDatabase {
 
     protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
+    private static final String OPERATION_METRIC = "aion_db_operation_seconds";
+    private static final String OPERATION_HELP = "Duration of the database reads and writes.";
+
+    private final Histogram getTime;
+    private final Histogram getManyTime;
+    private final Histogram putTime;
+    private final Histogram deleteTime;
+    private final Histogram putBatchTime;
+    private final Histogram commitBatchTime;
+    private final Histogram deleteBatchTime;
+
     public TimedDatabase(IByteArrayKeyValueDatabase _database) {
         this.database = _database;
+
+        String name = _database.getName().orElse("unknown");
+        this.getTime = timer(name, "get");
+        this.getManyTime = timer(name, "getMany");
+        this.putTime = timer(name, "put");
+        this.deleteTime = timer(name, "delete");
+        this.putBatchTime = timer(name, "putBatch");
+        this.commitBatchTime = timer(name, "commitBatch");
+        this.deleteBatchTime = timer(name, "deleteBatch");
+    }
+
+    private static Histogram timer(String name, String operation) {
+        return MetricRegistry.getInstance()
+                .timer(OPERATION_METRIC, OPERATION_HELP, "db", name, "op", operation);
     }
 
     @Override
@@ -188,32 +218,69 @@ public class TimedDatabase implements IByteArrayKeyValueDatabase {
         long t1 = System.nanoTime();
         Optional<byte[]> value = database.get(key);
         long t2 = System.nanoTime();
-
-        LOG.debug(
-                database.toString()
-                        + " get(key) in "
-                        + (t2 - t1)
-                        + " ns."
-                        + "\n\t\t\t\t\tkey = "
-                        + (key != null ? Hex.toHexString(key) : "null"));
+        getTime.record(t2 - t1);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    database.toString()
+                            + " get(key) in "
+                            + (t2 - t1)
+                            + " ns."
+                            + "\n\t\t\t\t\tkey = "
+                            + (key != null ? Hex.toHexString(key) : "null"));
+        }
         return value;
     }
 
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys) {
+        long t1 = System.nanoTime();
+        Map<ByteArrayWrapper, byte[]> values = database.getMany(keys);
+        long t2 = System.nanoTime();
+        getManyTime.record(t2 - t1);
+
+        LOG.debug(database.toString() + " getMany(" + keys.size() + ") in " + (t2 - t1) + " ns.");
+        return values;
+    }
+
+    @Override
+    public IByteArrayKeyValueIterator iterator(byte[] from, byte[] to) {
+        long t1 = System.nanoTime();
+        IByteArrayKeyValueIterator result = database.iterator(from, to);
+        long t2 = System.nanoTime();
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    database.toString()
+                            + " iterator(from, to) in "
+                            + (t2 - t1)
+                            + " ns."
+                            + "\n\t\t\t\t\tfrom = "
+                            + (from != null ? Hex.toHexString(from) : "null")
+                            + "\n\t\t\t\t\tto = "
+                            + (to != null ? Hex.toHexString(to) : "null"));
+        }
+        return result;
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         long t1 = System.nanoTime();
         database.put(key, value);
         long t2 = System.nanoTime();
-
-        LOG.debug(
-                database.toString()
-                        + " put(key,value) in "
-                        + (t2 - t1)
-                        + " ns."
-                        + "\n\t\t\t\t\tkey = "
-                        + (key != null ? Hex.toHexString(key) : "null")
-                        + "\n\t\t\t\t\tvalue = "
-                        + (value != null ? Hex.toHexString(value) : "null"));
+        putTime.record(t2 - t1);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    database.toString()
+                            + " put(key,value) in "
+                            + (t2 - t1)
+                            + " ns."
+                            + "\n\t\t\t\t\tkey = "
+                            + (key != null ? Hex.toHexString(key) : "null")
+                            + "\n\t\t\t\t\tvalue = "
+                            + (value != null ? Hex.toHexString(value) : "null"));
+        }
     }
 
     @Override
@@ -221,14 +288,17 @@ public class TimedDatabase implements IByteArrayKeyValueDatabase {
         long t1 = System.nanoTime();
         database.delete(key);
         long t2 = System.nanoTime();
-
-        LOG.debug(
-                database.toString()
-                        + " delete(key) in "
-                        + (t2 - t1)
-                        + " ns."
-                        + "\n\t\t\t\t\tkey = "
-                        + (key != null ? Hex.toHexString(key) : "null"));
+        deleteTime.record(t2 - t1);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    database.toString()
+                            + " delete(key) in "
+                            + (t2 - t1)
+                            + " ns."
+                            + "\n\t\t\t\t\tkey = "
+                            + (key != null ? Hex.toHexString(key) : "null"));
+        }
     }
 
     @Override
@@ -236,14 +306,17 @@ public class TimedDatabase implements IByteArrayKeyValueDatabase {
         long t1 = System.nanoTime();
         database.putBatch(keyValuePairs);
         long t2 = System.nanoTime();
-
-        LOG.debug(
-                database.toString()
-                        + " putBatch("
-                        + (keyValuePairs != null ? keyValuePairs.size() : "null")
-                        + ") in "
-                        + (t2 - t1)
-                        + " ns.");
+        putBatchTime.record(t2 - t1);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    database.toString()
+                            + " putBatch("
+                            + (keyValuePairs != null ? keyValuePairs.size() : "null")
+                            + ") in "
+                            + (t2 - t1)
+                            + " ns.");
+        }
     }
 
     @Override
@@ -268,8 +341,11 @@ public class TimedDatabase implements IByteArrayKeyValueDatabase {
         long t1 = System.nanoTime();
         database.commitBatch();
         long t2 = System.nanoTime();
+        commitBatchTime.record(t2 - t1);
 
-        LOG.debug(database.toString() + " commitBatch() in " + (t2 - t1) + " ns.");
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(database.toString() + " commitBatch() in " + (t2 - t1) + " ns.");
+        }
     }
 
     @Override
@@ -277,14 +353,17 @@ public class TimedDatabase implements IByteArrayKeyValueDatabase {
         long t1 = System.nanoTime();
         database.deleteBatch(keys);
         long t2 = System.nanoTime();
-
-        LOG.debug(
-                database.toString()
-                        + " deleteBatch("
-                        + (keys != null ? keys.size() : "null")
-                        + ") in "
-                        + (t2 - t1)
-                        + " ns.");
+        deleteBatchTime.record(t2 - t1);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(
+                    database.toString()
+                            + " deleteBatch("
+                            + (keys != null ? keys.size() : "null")
+                            + ") in "
+                            + (t2 - t1)
+                            + " ns.");
+        }
     }
 
     @Override
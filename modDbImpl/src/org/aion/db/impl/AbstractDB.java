@@ -38,12 +38,18 @@ package org.aion.db.impl;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -67,6 +73,9 @@ public abstract class AbstractDB implements IByteArrayKeyValueDatabase {
     protected boolean enableDbCache = false;
     protected boolean enableDbCompression = false;
 
+    /** Iterators holding database resources, which must be released before closing. */
+    private final Set<RangeIterator> openIterators = ConcurrentHashMap.newKeySet();
+
     protected AbstractDB(String name) {
         Objects.requireNonNull(name, "The database name cannot be null.");
         this.name = name;
@@ -210,4 +219,114 @@ public abstract class AbstractDB implements IByteArrayKeyValueDatabase {
      * @return the value stored in the database for the give key.
      */
     protected abstract byte[] getInternal(byte[] k);
+
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys) {
+        check(keys);
+
+        check();
+
+        return getManyInternal(keys);
+    }
+
+    /**
+     * Database specific multi-get functionality. Retrieves the values one by one when not
+     * overwritten by the class.
+     *
+     * @param keys the keys for which the method must return the associated values
+     * @return the values stored in the database for the given keys, omitting the missing keys
+     */
+    protected Map<ByteArrayWrapper, byte[]> getManyInternal(Collection<byte[]> keys) {
+        Map<ByteArrayWrapper, byte[]> values = new HashMap<>();
+        for (byte[] k : keys) {
+            byte[] v = getInternal(k);
+            if (v != null) {
+                values.put(ByteArrayWrapper.wrap(k), v);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public IByteArrayKeyValueIterator iterator(byte[] from, byte[] to) {
+        check();
+
+        return iteratorInternal(from, to);
+    }
+
+    /**
+     * Database specific iterator functionality, positioned at the first key greater or equal to
+     * {@code from}.
+     *
+     * @param from the inclusive lower bound of the keys, or {@code null} for the first key
+     * @param to the exclusive upper bound of the keys, or {@code null} for the last key
+     * @return an iterator over the entries in the range
+     */
+    protected abstract IByteArrayKeyValueIterator iteratorInternal(byte[] from, byte[] to);
+
+    /** Closes the iterators that are still open. Must be called before releasing the database. */
+    protected void closeIterators() {
+        for (RangeIterator itr : openIterators) {
+            itr.close();
+        }
+    }
+
+    /**
+     * Iterator over the entries of the database that stops at the given upper bound. It is tracked
+     * until closed, such that the held resources are released when the database is closed.
+     */
+    protected abstract class RangeIterator implements IByteArrayKeyValueIterator {
+
+        private final byte[] to;
+        private Map.Entry<byte[], byte[]> next = null;
+        private boolean closed = false;
+
+        protected RangeIterator(byte[] to) {
+            this.to = to;
+            openIterators.add(this);
+        }
+
+        /** @return the next entry in the database or {@code null} when there are no more entries */
+        protected abstract Map.Entry<byte[], byte[]> read();
+
+        /** Releases the database resources held by the iterator. */
+        protected abstract void release();
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (next == null) {
+                next = read();
+                if (next == null
+                        || (to != null && Arrays.compareUnsigned(next.getKey(), to) >= 0)) {
+                    // release the resources as soon as the range is exhausted
+                    close();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<byte[], byte[]> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<byte[], byte[]> entry = next;
+            next = null;
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                next = null;
+                openIterators.remove(this);
+                release();
+            }
+        }
+    }
 }
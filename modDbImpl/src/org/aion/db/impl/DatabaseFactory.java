@@ -49,6 +49,9 @@ public abstract class DatabaseFactory {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
+    /** Default number of bytes used by an off-heap cache. */
+    public static final long DEFAULT_OFFHEAP_CACHE_SIZE = 256L * 1024 * 1024;
+
     public static class Props {
         public static final String DB_TYPE = "db_type";
 
@@ -57,6 +60,9 @@ public abstract class DatabaseFactory {
 
         public static final String CHECK_INTEGRITY = "check_integrity";
         public static final String PERSISTENT = "persistent";
+        public static final String FLAT_STATE = "flat_state";
+        public static final String BLOCK_SEGMENTS = "block_segments";
+        public static final String NODE_CACHE_SIZE = "node_cache_size";
 
         public static final String ENABLE_AUTO_COMMIT = "enable_auto_commit";
         public static final String ENABLE_DB_CACHE = "enable_db_cache";
@@ -66,6 +72,8 @@ public abstract class DatabaseFactory {
         public static final String ENABLE_HEAP_CACHE = "enable_heap_cache";
         public static final String ENABLE_HEAP_CACHE_STATS = "enable_heap_cache_stats";
         public static final String MAX_HEAP_CACHE_SIZE = "max_heap_cache_size";
+        public static final String ENABLE_OFFHEAP_CACHE = "enable_offheap_cache";
+        public static final String MAX_OFFHEAP_CACHE_SIZE = "max_offheap_cache_size";
 
         public static final String ENABLE_LOCKING = "enable_locking";
 
@@ -139,7 +147,10 @@ public abstract class DatabaseFactory {
                 connectBasic(info),
                 enableAutoCommit,
                 info.getProperty(Props.MAX_HEAP_CACHE_SIZE),
-                getBoolean(info, Props.ENABLE_HEAP_CACHE_STATS));
+                getBoolean(info, Props.ENABLE_HEAP_CACHE_STATS),
+                getBoolean(info, Props.ENABLE_OFFHEAP_CACHE)
+                        ? getLong(info, Props.MAX_OFFHEAP_CACHE_SIZE, DEFAULT_OFFHEAP_CACHE_SIZE)
+                        : 0L);
     }
 
     /** @return A database implementation for each of the vendors in {@link DBVendor}. */
@@ -255,4 +266,8 @@ public abstract class DatabaseFactory {
     private static int getInt(Properties info, String prop, int defaultValue) {
         return Integer.parseInt(info.getProperty(prop, String.valueOf(defaultValue)));
     }
+
+    private static long getLong(Properties info, String prop, long defaultValue) {
+        return Long.parseLong(info.getProperty(prop, String.valueOf(defaultValue)));
+    }
 }
@@ -35,13 +35,16 @@
 package org.aion.db.impl.h2;
 
 import java.io.File;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
+import org.h2.mvstore.Cursor;
 import org.h2.mvstore.FileStore;
 import org.h2.mvstore.MVMap;
 import org.h2.mvstore.MVStore;
@@ -178,6 +181,9 @@ public class H2MVMap extends AbstractDB {
 
         LOG.info("Closing database " + this.toString());
 
+        // the cursors cannot read pages after the store is closed
+        closeIterators();
+
         try {
             // attempt to close the database
             store.close();
@@ -254,6 +260,29 @@ public class H2MVMap extends AbstractDB {
         return map.get(k);
     }
 
+    /** @implNote The keys are compared as unsigned bytes by the default MVMap data type. */
+    @Override
+    protected IByteArrayKeyValueIterator iteratorInternal(byte[] from, byte[] to) {
+        // iterates over the version of the map at the time of creation
+        Cursor<byte[], byte[]> cursor = map.cursor(from);
+
+        return new RangeIterator(to) {
+            @Override
+            protected Map.Entry<byte[], byte[]> read() {
+                if (!cursor.hasNext()) {
+                    return null;
+                }
+                byte[] key = cursor.next();
+                return new SimpleImmutableEntry<>(key, cursor.getValue());
+            }
+
+            @Override
+            protected void release() {
+                // nothing to release since the cursor does not hold resources
+            }
+        };
+    }
+
     @Override
     public void put(byte[] k, byte[] v) {
         check(k);
@@ -40,6 +40,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.fusesource.leveldbjni.JniDBFactory;
@@ -215,6 +216,9 @@ public class LevelDB extends AbstractDB {
 
         LOG.info("Closing database " + this.toString());
 
+        // the native iterators must be released before the database
+        closeIterators();
+
         try {
             // attempt to close the database
             db.close();
@@ -314,6 +318,32 @@ public class LevelDB extends AbstractDB {
         }
     }
 
+    @Override
+    protected IByteArrayKeyValueIterator iteratorInternal(byte[] from, byte[] to) {
+        DBIterator itr = db.iterator();
+        if (from == null) {
+            itr.seekToFirst();
+        } else {
+            itr.seek(from);
+        }
+
+        return new RangeIterator(to) {
+            @Override
+            protected Map.Entry<byte[], byte[]> read() {
+                return itr.hasNext() ? itr.next() : null;
+            }
+
+            @Override
+            protected void release() {
+                try {
+                    itr.close();
+                } catch (IOException e) {
+                    LOG.error("Unable to close iterator over " + LevelDB.this.toString() + ".", e);
+                }
+            }
+        };
+    }
+
     @Override
     public void put(byte[] k, byte[] v) {
         check(k);
@@ -23,17 +23,28 @@
 
 package org.aion.db.impl.mockdb;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 
 public class MockDB extends AbstractDB {
 
-    protected Map<ByteArrayWrapper, byte[]> kv;
+    /** Orders the keys as unsigned bytes, matching the order of the persistent databases. */
+    protected static final Comparator<ByteArrayWrapper> KEY_ORDER =
+            (k1, k2) -> Arrays.compareUnsigned(k1.getData(), k2.getData());
+
+    protected NavigableMap<ByteArrayWrapper, byte[]> kv;
 
     public MockDB(String name) {
         super(name);
@@ -56,7 +67,7 @@ public class MockDB extends AbstractDB {
         LOG.debug("init database {}", this.toString());
 
         // using a regular map since synchronization is handled through the read-write lock
-        kv = new HashMap<>();
+        kv = new TreeMap<>(KEY_ORDER);
 
         return isOpen();
     }
@@ -121,6 +132,26 @@ public class MockDB extends AbstractDB {
         return kv.get(ByteArrayWrapper.wrap(k));
     }
 
+    /**
+     * @implNote The entries in the range are copied when the iterator is created, to provide the
+     *     same snapshot semantics as the persistent databases.
+     */
+    @Override
+    protected IByteArrayKeyValueIterator iteratorInternal(byte[] from, byte[] to) {
+        NavigableMap<ByteArrayWrapper, byte[]> range =
+                from == null ? kv : kv.tailMap(ByteArrayWrapper.wrap(from), true);
+
+        List<Map.Entry<byte[], byte[]>> entries = new ArrayList<>();
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : range.entrySet()) {
+            if (to != null && Arrays.compareUnsigned(e.getKey().getData(), to) >= 0) {
+                break;
+            }
+            entries.add(new SimpleImmutableEntry<>(e.getKey().getData(), e.getValue()));
+        }
+
+        return IByteArrayKeyValueIterator.of(entries.iterator());
+    }
+
     @Override
     public void put(byte[] k, byte[] v) {
         check(k);
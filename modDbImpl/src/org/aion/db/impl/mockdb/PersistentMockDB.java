@@ -29,9 +29,9 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 import org.aion.base.util.ByteArrayWrapper;
 
 /**
@@ -58,7 +58,7 @@ public class PersistentMockDB extends MockDB {
         LOG.debug("init database {}", this.toString());
 
         // using a regular map since synchronization is handled through the read-write lock
-        kv = new HashMap<>();
+        kv = new TreeMap<>(KEY_ORDER);
 
         // load file from disk if it exists
         File dbFile = new File(path);
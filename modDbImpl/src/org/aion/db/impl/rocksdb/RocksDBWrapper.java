@@ -23,11 +23,15 @@
 package org.aion.db.impl.rocksdb;
 
 import java.io.File;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.AbstractDB;
 import org.rocksdb.BlockBasedTableConfig;
@@ -152,6 +156,9 @@ public class RocksDBWrapper extends AbstractDB {
 
         LOG.info("Closing database " + this.toString());
 
+        // the native iterators must be released before the database
+        closeIterators();
+
         // attempt to close the database
         db.close();
         db = null;
@@ -251,6 +258,48 @@ public class RocksDBWrapper extends AbstractDB {
         return null;
     }
 
+    @Override
+    protected Map<ByteArrayWrapper, byte[]> getManyInternal(Collection<byte[]> keys) {
+        Map<ByteArrayWrapper, byte[]> values = new HashMap<>();
+        try {
+            // the returned map uses the given key instances and omits the missing keys
+            for (Map.Entry<byte[], byte[]> e : db.multiGet(new ArrayList<>(keys)).entrySet()) {
+                values.put(ByteArrayWrapper.wrap(e.getKey()), e.getValue());
+            }
+        } catch (RocksDBException e) {
+            LOG.error("Unable to get " + keys.size() + " keys from " + this.toString() + ".", e);
+        }
+        return values;
+    }
+
+    @Override
+    protected IByteArrayKeyValueIterator iteratorInternal(byte[] from, byte[] to) {
+        RocksIterator itr = db.newIterator();
+        if (from == null) {
+            itr.seekToFirst();
+        } else {
+            itr.seek(from);
+        }
+
+        return new RangeIterator(to) {
+            @Override
+            protected Map.Entry<byte[], byte[]> read() {
+                if (!itr.isValid()) {
+                    return null;
+                }
+                Map.Entry<byte[], byte[]> entry =
+                        new SimpleImmutableEntry<>(itr.key(), itr.value());
+                itr.next();
+                return entry;
+            }
+
+            @Override
+            protected void release() {
+                itr.close();
+            }
+        };
+    }
+
     // AbstractDB functionality
 
     @Override
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ */
+package org.aion.db.generic;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.db.generic.OffHeapCache.PAGE_SIZE;
+
+import org.aion.base.util.ByteArrayWrapper;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+    private static ByteArrayWrapper key(int i) {
+        return ByteArrayWrapper.wrap(("key-" + i).getBytes());
+    }
+
+    private static byte[] value(int i, int length) {
+        byte[] value = new byte[length];
+        for (int j = 0; j < length; j++) {
+            value[j] = (byte) (i + j);
+        }
+        return value;
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        OffHeapCache cache = new OffHeapCache(4 * PAGE_SIZE);
+
+        assertThat(cache.get(key(1))).isNull();
+
+        cache.put(key(1), value(1, 100));
+        cache.put(key(2), null);
+        assertThat(cache.get(key(1)).getData()).isEqualTo(value(1, 100));
+        // absent values are cached too
+        assertThat(cache.get(key(2))).isNotNull();
+        assertThat(cache.get(key(2)).getData()).isNull();
+
+        // replacing with a value of a different size class
+        cache.put(key(1), value(3, 5000));
+        assertThat(cache.get(key(1)).getData()).isEqualTo(value(3, 5000));
+        assertThat(cache.size()).isEqualTo(2);
+
+        cache.remove(key(1));
+        assertThat(cache.get(key(1))).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+
+        assertThat(cache.getHitCount()).isEqualTo(4);
+        assertThat(cache.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEvictionIsBoundedInBytes() {
+        OffHeapCache cache = new OffHeapCache(2 * PAGE_SIZE);
+
+        // 1 KB values use chunks of 1 KB, so 2 pages hold 2048 of them
+        int count = 10_000;
+        for (int i = 0; i < count; i++) {
+            cache.put(key(i), value(i, 1000));
+        }
+
+        assertThat(cache.getAllocatedBytes()).isEqualTo(2L * PAGE_SIZE);
+        assertThat(cache.size()).isEqualTo(2048);
+        assertThat(cache.getEvictionCount()).isEqualTo(count - 2048);
+
+        // the remaining entries hold the right values
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            OffHeapCache.Value v = cache.get(key(i));
+            if (v != null) {
+                assertThat(v.getData()).isEqualTo(value(i, 1000));
+                found++;
+            }
+        }
+        assertThat(found).isEqualTo(2048);
+    }
+
+    @Test
+    public void testClockKeepsReferencedEntries() {
+        OffHeapCache cache = new OffHeapCache(PAGE_SIZE);
+
+        // 16 KB values: 64 entries fill the page
+        for (int i = 0; i < 64; i++) {
+            cache.put(key(i), value(i, 16 * 1024));
+        }
+        // clears the reference bits
+        cache.put(key(64), value(64, 16 * 1024));
+        assertThat(cache.get(key(0))).isNull();
+
+        // entry 1 is used again and must survive the next eviction
+        assertThat(cache.get(key(1))).isNotNull();
+        cache.put(key(65), value(65, 16 * 1024));
+        assertThat(cache.get(key(1))).isNotNull();
+        assertThat(cache.get(key(2))).isNull();
+    }
+
+    @Test
+    public void testNewSizeClassReclaimsPage() {
+        OffHeapCache cache = new OffHeapCache(2 * PAGE_SIZE);
+
+        for (int i = 0; i < 4096; i++) {
+            cache.put(key(i), value(i, 500));
+        }
+        assertThat(cache.getAllocatedBytes()).isEqualTo(2L * PAGE_SIZE);
+
+        // a different size class can still be cached
+        cache.put(key(-1), value(7, 100_000));
+        assertThat(cache.get(key(-1)).getData()).isEqualTo(value(7, 100_000));
+        assertThat(cache.getAllocatedBytes()).isEqualTo(2L * PAGE_SIZE);
+    }
+
+    @Test
+    public void testLargeValuesAreNotCached() {
+        OffHeapCache cache = new OffHeapCache(PAGE_SIZE);
+
+        cache.put(key(1), value(1, 10));
+        cache.put(key(1), value(1, PAGE_SIZE + 1));
+
+        assertThat(cache.get(key(1))).isNull();
+        assertThat(cache.getRejectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testClear() {
+        OffHeapCache cache = new OffHeapCache(PAGE_SIZE);
+        cache.put(key(1), value(1, 10));
+
+        cache.clear();
+
+        assertThat(cache.get(key(1))).isNull();
+        assertThat(cache.size()).isEqualTo(0);
+        assertThat(cache.getAllocatedBytes()).isEqualTo(0);
+
+        cache.put(key(1), value(1, 10));
+        assertThat(cache.get(key(1)).getData()).isEqualTo(value(1, 10));
+    }
+}
@@ -37,6 +37,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import org.aion.db.generic.OffHeapCache;
 import org.aion.db.impl.leveldb.LevelDBConstants;
 
 public class DatabaseTestUtils {
@@ -112,6 +113,24 @@ public class DatabaseTestUtils {
             }
         }
 
+        // adding database variations with off-heap caching
+        sharedProps.setProperty(Props.ENABLE_OFFHEAP_CACHE, enabled);
+        sharedProps.setProperty(
+                Props.MAX_OFFHEAP_CACHE_SIZE, String.valueOf(OffHeapCache.PAGE_SIZE));
+        sharedProps.setProperty(Props.MAX_HEAP_CACHE_SIZE, "0");
+        sharedProps.setProperty(Props.ENABLE_HEAP_CACHE_STATS, enabled);
+
+        // all vendor options
+        for (DBVendor vendor : vendors) {
+            sharedProps.setProperty(Props.DB_TYPE, vendor.toValue());
+            // enable/disable auto_commit
+            for (String auto_commit : options) {
+                sharedProps.setProperty(Props.ENABLE_AUTO_COMMIT, auto_commit);
+
+                addDatabaseWithCacheAndCompression(vendor, sharedProps, parameters);
+            }
+        }
+
         return parameters;
     }
 
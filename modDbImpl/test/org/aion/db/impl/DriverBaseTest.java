@@ -41,11 +41,17 @@ import com.google.common.truth.Truth;
 import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.Hex;
 import org.aion.db.generic.DatabaseWithCache;
 import org.aion.db.generic.LockedDatabase;
 import org.aion.db.impl.h2.H2MVMap;
@@ -812,6 +818,94 @@ public class DriverBaseTest {
         assertThat(keys.size()).isEqualTo(0);
     }
 
+    @Test
+    public void testIterator() {
+        byte[][] keys = {
+            {0x01}, {0x01, 0x00}, {0x01, (byte) 0xff}, {0x02}, {(byte) 0x80}, {(byte) 0xff}
+        };
+        Map<byte[], byte[]> ops = new HashMap<>();
+        for (byte[] k : keys) {
+            ops.put(k, v1);
+        }
+        db.putBatch(ops);
+
+        // all the keys are returned in unsigned order
+        assertThat(iterate(db.iterator()))
+                .containsExactly("01", "0100", "01ff", "02", "80", "ff")
+                .inOrder();
+        assertThat(db.isLocked()).isFalse();
+
+        // range with exclusive upper bound
+        assertThat(iterate(db.iterator(new byte[] {0x01, 0x00}, new byte[] {0x02})))
+                .containsExactly("0100", "01ff")
+                .inOrder();
+        assertThat(iterate(db.iterator(new byte[] {0x03}, null))).containsExactly("80", "ff");
+        assertThat(iterate(db.iterator(null, new byte[] {0x01}))).isEmpty();
+
+        // prefix
+        assertThat(iterate(db.prefixIterator(new byte[] {0x01})))
+                .containsExactly("01", "0100", "01ff")
+                .inOrder();
+        assertThat(iterate(db.prefixIterator(new byte[] {(byte) 0xff}))).containsExactly("ff");
+
+        // checking after delete and update
+        db.delete(new byte[] {0x02});
+        db.put(new byte[] {0x03}, v2);
+        assertThat(iterate(db.iterator(new byte[] {0x02}, new byte[] {(byte) 0x80})))
+                .containsExactly("03");
+
+        try (IByteArrayKeyValueIterator itr = db.iterator(new byte[] {0x03}, null)) {
+            Map.Entry<byte[], byte[]> entry = itr.next();
+            assertThat(entry.getKey()).isEqualTo(new byte[] {0x03});
+            assertThat(entry.getValue()).isEqualTo(v2);
+            assertThat(itr.hasNext()).isTrue();
+
+            // no more entries after close
+            itr.close();
+            assertThat(itr.hasNext()).isFalse();
+        }
+        assertThat(db.isLocked()).isFalse();
+    }
+
+    @Test
+    public void testGetMany() {
+        db.put(k1, v1);
+        db.put(k2, v2);
+
+        Map<ByteArrayWrapper, byte[]> values = db.getMany(Arrays.asList(k1, k2, k3));
+        assertThat(db.isLocked()).isFalse();
+        assertThat(values.size()).isEqualTo(2);
+        assertThat(values.get(ByteArrayWrapper.wrap(k1))).isEqualTo(v1);
+        assertThat(values.get(ByteArrayWrapper.wrap(k2))).isEqualTo(v2);
+
+        // checking after delete and update
+        db.delete(k2);
+        db.put(k3, v3);
+
+        values = db.getMany(Arrays.asList(k1, k2, k3));
+        assertThat(values.size()).isEqualTo(2);
+        assertThat(values.get(ByteArrayWrapper.wrap(k1))).isEqualTo(v1);
+        assertThat(values.get(ByteArrayWrapper.wrap(k3))).isEqualTo(v3);
+
+        assertThat(db.getMany(Collections.emptyList())).isEmpty();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetManyWithNullKey() {
+        db.getMany(Arrays.asList(k1, null));
+    }
+
+    /** Reads the keys from the iterator as hex strings and closes it. */
+    private static List<String> iterate(IByteArrayKeyValueIterator itr) {
+        List<String> keys = new ArrayList<>();
+        try (itr) {
+            while (itr.hasNext()) {
+                keys.add(Hex.toHexString(itr.next().getKey()));
+            }
+        }
+        return keys;
+    }
+
     @Test
     public void testIsEmpty() {
         assertThat(db.isEmpty()).isTrue();
@@ -23,15 +23,21 @@
 
 package org.aion.db.impl.rocksdb;
 
+import static com.google.common.truth.Truth.assertThat;
 import static org.aion.db.impl.DatabaseFactory.Props;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Properties;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.db.impl.DBVendor;
 import org.aion.db.impl.DatabaseFactory;
+import org.aion.db.utils.FileUtils;
 import org.junit.Test;
 
 public class RocksDBDriverTest {
@@ -114,4 +120,51 @@ public class RocksDBDriverTest {
                 RocksDBConstants.READ_BUFFER_SIZE,
                 RocksDBConstants.CACHE_SIZE);
     }
+
+    @Test
+    public void testIteratorAndGetMany() {
+        RocksDBWrapper db =
+                new RocksDBWrapper(
+                        dbName + "Iterator",
+                        dbPath,
+                        false,
+                        false,
+                        RocksDBConstants.MAX_OPEN_FILES,
+                        RocksDBConstants.BLOCK_SIZE,
+                        RocksDBConstants.WRITE_BUFFER_SIZE,
+                        RocksDBConstants.READ_BUFFER_SIZE,
+                        RocksDBConstants.CACHE_SIZE);
+        assertThat(db.open()).isTrue();
+
+        try {
+            byte[] k1 = {0x01};
+            byte[] k2 = {0x01, (byte) 0xff};
+            byte[] k3 = {(byte) 0x80};
+            db.put(k1, k1);
+            db.put(k2, k2);
+            db.put(k3, k3);
+
+            // multi-get omits the missing keys
+            Map<ByteArrayWrapper, byte[]> values =
+                    db.getMany(Arrays.asList(k1, k3, new byte[] {0x02}));
+            assertThat(values.size()).isEqualTo(2);
+            assertThat(values.get(ByteArrayWrapper.wrap(k1))).isEqualTo(k1);
+            assertThat(values.get(ByteArrayWrapper.wrap(k3))).isEqualTo(k3);
+
+            try (IByteArrayKeyValueIterator itr = db.prefixIterator(new byte[] {0x01})) {
+                assertThat(itr.next().getKey()).isEqualTo(k1);
+                assertThat(itr.next().getKey()).isEqualTo(k2);
+                assertThat(itr.hasNext()).isFalse();
+            }
+
+            // closing the database releases the open iterators
+            IByteArrayKeyValueIterator itr = db.iterator();
+            assertThat(itr.hasNext()).isTrue();
+            db.close();
+            assertThat(itr.hasNext()).isFalse();
+        } finally {
+            db.close();
+            FileUtils.deleteRecursively(new File(dbPath, dbName + "Iterator"));
+        }
+    }
 }
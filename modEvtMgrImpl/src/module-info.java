@@ -9,4 +9,5 @@ module aion.evtmgr.impl {
     exports org.aion.evtmgr.impl.mgr;
     exports org.aion.evtmgr.impl.evt;
     exports org.aion.evtmgr.impl.es;
+    exports org.aion.evtmgr.impl.ring;
 }
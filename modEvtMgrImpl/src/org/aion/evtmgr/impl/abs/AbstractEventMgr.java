@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.evtmgr.IEvent;
 import org.aion.evtmgr.IHandler;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -97,4 +98,110 @@ public abstract class AbstractEventMgr {
 
         return null;
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.aion.evt.api.IEventMgr#registerEvent(java.util.List)
+     */
+    public boolean registerEvent(List<IEvent> _evt) {
+        synchronized (this) {
+            for (IEvent e : _evt) {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace(
+                            "EVTMGR.registerEvent EventType [{}] CallbackType [{}]",
+                            e.getEventType(),
+                            e.getCallbackType());
+                }
+
+                IHandler hdr = this.getHandler(e.getEventType());
+                if (hdr == null) {
+                    if (LOG.isErrorEnabled()) {
+                        LOG.error(
+                                "EVTMGR.registerEvent can't find the handler base on the EventType [{}]",
+                                e.getEventType());
+                    }
+                    return false;
+                }
+
+                hdr.addEvent(e);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.aion.evt.api.IEventMgr#unregisterEvent(java.util.List)
+     */
+    public boolean unregisterEvent(List<IEvent> _evt) {
+        synchronized (this) {
+            for (IEvent e : _evt) {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("EVTMGR.unregisterEvent EventType [{}]", e.getEventType());
+                }
+
+                IHandler hdr = this.getHandler(e.getEventType());
+                if (hdr == null) {
+                    if (LOG.isErrorEnabled()) {
+                        LOG.error(
+                                "EVTMGR.unregisterEvent can't find the handler base on the EventType [{}]",
+                                e.getEventType());
+                    }
+                    return false;
+                }
+
+                hdr.removeEvent(e);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.aion.evt.api.IEventMgr#newEvents(java.util.List)
+     */
+    public boolean newEvents(List<IEvent> _evt) {
+        for (IEvent e : _evt) {
+            IHandler hdr = this.getHandler(e.getEventType());
+            if (hdr == null) {
+                if (LOG.isErrorEnabled()) {
+                    LOG.error("EVTMGR.newEvents can't find the handler[{}]", e.getEventType());
+                }
+            } else {
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace(
+                            "EVTMGR.newEvents eCBT:[{}] eEVT:[{}]",
+                            e.getCallbackType(),
+                            e.getEventType());
+                }
+
+                hdr.onEvent(e);
+            }
+        }
+
+        return true;
+    }
+
+    public boolean newEvent(IEvent _evt) {
+        IHandler hdr = this.getHandler(_evt.getEventType());
+        if (hdr == null) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("EVTMGR.newEvent can't find the handler[{}]", _evt.getEventType());
+            }
+        } else {
+            if (LOG.isTraceEnabled()) {
+                LOG.trace(
+                        "EVTMGR.newEvent eCBT:[{}] eEVT:[{}]",
+                        _evt.getCallbackType(),
+                        _evt.getEventType());
+            }
+
+            hdr.onEvent(_evt);
+        }
+
+        return true;
+    }
 }
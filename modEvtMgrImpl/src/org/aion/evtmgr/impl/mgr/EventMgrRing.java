@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.evtmgr.impl.mgr;
+
+import static org.aion.evtmgr.impl.ring.OverflowPolicy.BLOCK;
+import static org.aion.evtmgr.impl.ring.OverflowPolicy.DROP;
+
+import java.util.Properties;
+import org.aion.evtmgr.IEventMgr;
+import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.abs.AbstractEventMgr;
+import org.aion.evtmgr.impl.ring.EventMetrics;
+import org.aion.evtmgr.impl.ring.RingHandler;
+
+/**
+ * Event manager with the same handlers as {@link EventMgrA0}, where each handler queues its
+ * events in a bounded ring of preallocated slots instead of an unbounded linked queue.
+ *
+ * <p>Transaction events are dropped when their ring is full, so that floods of pending
+ * transactions cannot exhaust the memory. Block, miner and consensus events are never dropped;
+ * their publishers wait for the dispatcher instead.
+ */
+public class EventMgrRing extends AbstractEventMgr implements IEventMgr {
+
+    /** Property with the number of transaction events that can wait to be dispatched. */
+    public static final String TX_CAPACITY = "tx_capacity";
+
+    /** Property with the number of other events that can wait to be dispatched. */
+    public static final String CAPACITY = "capacity";
+
+    private static final int DEFAULT_TX_CAPACITY = 1 << 16;
+    private static final int DEFAULT_CAPACITY = 1 << 12;
+
+    public EventMgrRing(Properties config) {
+        super();
+
+        if (config == null) {
+            throw new NullPointerException();
+        }
+
+        int txCapacity = getInt(config, TX_CAPACITY, DEFAULT_TX_CAPACITY);
+        int capacity = getInt(config, CAPACITY, DEFAULT_CAPACITY);
+
+        addHandler(new RingHandler(IHandler.TYPE.TX0.getValue(), "TxHdr", txCapacity, DROP));
+        addHandler(
+                new RingHandler(IHandler.TYPE.CONSENSUS.getValue(), "ConsHdr", capacity, BLOCK));
+        addHandler(new RingHandler(IHandler.TYPE.BLOCK0.getValue(), "BlkHdr", capacity, BLOCK));
+        addHandler(new RingHandler(IHandler.TYPE.MINER0.getValue(), "MinerHdr", capacity, BLOCK));
+    }
+
+    private static int getInt(Properties config, String key, int defaultValue) {
+        String value = config.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private void addHandler(IHandler handler) {
+        this.handlers.put(handler, handler);
+    }
+
+    /**
+     * @param _type the handler type
+     * @return the counters of the events of the given type, or {@code null} for unknown types
+     */
+    public EventMetrics getMetrics(int _type) {
+        IHandler handler = getHandler(_type);
+        return handler instanceof RingHandler ? ((RingHandler) handler).getMetrics() : null;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.evtmgr.impl.ring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the events passed through an {@link EventRing}. The publish counters are updated by
+ * the producers and the dispatch counters once per batch by the consumer.
+ */
+public final class EventMetrics {
+
+    private final EventRing ring;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // written by the consumer thread only
+    private volatile long dispatched = 0;
+    private volatile long totalLatencyNanos = 0;
+    private volatile long maxLatencyNanos = 0;
+
+    EventMetrics(EventRing ring) {
+        this.ring = ring;
+    }
+
+    void onPublished() {
+        published.increment();
+    }
+
+    void onDropped() {
+        dropped.increment();
+    }
+
+    void onDispatched(int count, long latencyNanos, long batchMaxLatencyNanos) {
+        dispatched += count;
+        totalLatencyNanos += latencyNanos;
+        if (batchMaxLatencyNanos > maxLatencyNanos) {
+            maxLatencyNanos = batchMaxLatencyNanos;
+        }
+    }
+
+    /** @return the number of events added to the ring */
+    public long getPublished() {
+        return published.sum();
+    }
+
+    /** @return the number of events discarded because the ring was full */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /** @return the number of events passed to the callbacks */
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    /** @return the number of events waiting to be dispatched */
+    public int getBacklog() {
+        return ring.size();
+    }
+
+    /** @return the number of slots of the ring */
+    public int getCapacity() {
+        return ring.capacity();
+    }
+
+    /** @return the average time between publishing and dispatching an event in nanoseconds */
+    public long getAverageLatencyNanos() {
+        long count = dispatched;
+        return count == 0 ? 0 : totalLatencyNanos / count;
+    }
+
+    /** @return the longest time between publishing and dispatching an event in nanoseconds */
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "published="
+                + getPublished()
+                + " dropped="
+                + getDropped()
+                + " dispatched="
+                + getDispatched()
+                + " backlog="
+                + getBacklog()
+                + "/"
+                + getCapacity()
+                + " avgLatency="
+                + getAverageLatencyNanos() / 1_000
+                + "us maxLatency="
+                + getMaxLatencyNanos() / 1_000
+                + "us";
+    }
+}
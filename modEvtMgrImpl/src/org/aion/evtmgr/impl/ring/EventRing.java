@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.evtmgr.impl.ring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.aion.evtmgr.IEvent;
+
+/**
+ * Bounded multi-producer, single-consumer queue of events backed by preallocated slots.
+ *
+ * <p>Producers claim a sequence number and write the event to the slot of that sequence. The
+ * consumer drains the published slots in sequence order, in batches, and frees them by advancing
+ * its own sequence. No objects are allocated per event.
+ */
+final class EventRing {
+
+    // time a producer waits for a free slot before checking again
+    private static final long PRODUCER_PARK_NANOS = 50_000;
+
+    private final IEvent[] events;
+    private final long[] publishTimes;
+    // sequence last published to each slot
+    private final AtomicLongArray available;
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final EventMetrics metrics;
+
+    // last sequence claimed by a producer
+    private final AtomicLong claimed = new AtomicLong(-1);
+    // last sequence consumed, written by the consumer only
+    private volatile long consumed = -1;
+
+    private volatile Thread consumer;
+    private volatile boolean waiting = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param capacity the minimum number of slots, rounded up to a power of two
+     * @param policy the action taken when all the slots are in use
+     */
+    EventRing(int capacity, OverflowPolicy policy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid ring capacity " + capacity + ".");
+        }
+        if (policy == null) {
+            throw new NullPointerException();
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.events = new IEvent[size];
+        this.publishTimes = new long[size];
+        this.available = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            available.set(i, -1);
+        }
+        this.mask = size - 1;
+        this.policy = policy;
+        this.metrics = new EventMetrics(this);
+    }
+
+    /**
+     * Adds an event to the ring, waiting for a free slot if required by the overflow policy.
+     *
+     * <p>Events are dropped instead of waiting while the consumer is not running or when published
+     * by the consumer itself, since the slots would never be freed.
+     *
+     * @return {@code true} if the event was added, {@code false} if it was dropped
+     */
+    boolean publish(IEvent event) {
+        long sequence;
+        while (true) {
+            long current = claimed.get();
+            if (current + 1 - consumed > events.length) {
+                Thread self = Thread.currentThread();
+                if (policy == OverflowPolicy.DROP
+                        || closed
+                        || consumer == null
+                        || consumer == self) {
+                    metrics.onDropped();
+                    return false;
+                }
+                LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(current, current + 1)) {
+                sequence = current + 1;
+                break;
+            }
+        }
+
+        int index = (int) sequence & mask;
+        events[index] = event;
+        publishTimes[index] = System.nanoTime();
+        available.set(index, sequence);
+        metrics.onPublished();
+
+        if (waiting) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Passes the published events to the action in the order they were published. Must only be
+     * called by the consumer thread.
+     *
+     * @param maxBatch the maximum number of events passed
+     * @return the number of events passed
+     */
+    int drain(int maxBatch, Consumer<IEvent> action) {
+        long first = consumed + 1;
+        long end = first;
+        while (end - first < maxBatch && available.get((int) end & mask) == end) {
+            end++;
+        }
+        if (end == first) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        long totalLatency = 0;
+        long maxLatency = 0;
+        for (long sequence = first; sequence < end; sequence++) {
+            int index = (int) sequence & mask;
+            IEvent event = events[index];
+            long latency = now - publishTimes[index];
+            events[index] = null;
+
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+            action.accept(event);
+        }
+        // frees the slots for the producers
+        consumed = end - 1;
+
+        int count = (int) (end - first);
+        metrics.onDispatched(count, totalLatency, maxLatency);
+        return count;
+    }
+
+    /**
+     * Parks the consumer thread until an event is published or the timeout elapses. Must only be
+     * called by the consumer thread.
+     */
+    void await(long timeoutNanos) {
+        consumer = Thread.currentThread();
+        waiting = true;
+        if (isEmpty() && !closed) {
+            LockSupport.parkNanos(this, timeoutNanos);
+        }
+        waiting = false;
+    }
+
+    /** Sets the thread that drains the ring, which allows producers to wait for free slots. */
+    void setConsumer(Thread consumer) {
+        this.consumer = consumer;
+    }
+
+    /** Stops producers from waiting for free slots and wakes up the consumer. */
+    void close() {
+        closed = true;
+        Thread thread = consumer;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    boolean isEmpty() {
+        long next = consumed + 1;
+        return available.get((int) next & mask) != next;
+    }
+
+    /** @return the number of events claimed by producers and not yet consumed */
+    int size() {
+        return (int) Math.max(0, claimed.get() - consumed);
+    }
+
+    int capacity() {
+        return events.length;
+    }
+
+    EventMetrics getMetrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.evtmgr.impl.ring;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.IEventCallback;
+import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.evt.EventDummy;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+/**
+ * Handler that queues the events of one type in an {@link EventRing} and dispatches them to the
+ * callbacks in batches from a single thread.
+ *
+ * <p>Events that were not registered with {@link #addEvent(IEvent)} are discarded when published,
+ * so they never take up space in the ring.
+ */
+public class RingHandler implements IHandler {
+
+    protected static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.EVTMGR.toString());
+
+    // maximum number of events dispatched between two reads of the ring state
+    private static final int MAX_BATCH = 256;
+
+    // upper bound on the time the dispatcher sleeps without checking for shutdown
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final long STOP_TIMEOUT = 10_000;
+
+    private final int handlerType;
+    private final EventRing ring;
+    private final Thread dispatcher;
+    private final List<IEventCallback> eventCallback = new CopyOnWriteArrayList<>();
+
+    // replaced on every change so that publishers can read it without locking
+    private volatile Set<IEvent> events = Collections.emptySet();
+    private volatile boolean running = false;
+
+    /**
+     * @param type the event type handled
+     * @param name the name of the dispatcher thread
+     * @param capacity the number of events that can wait to be dispatched
+     * @param policy the action taken when the capacity is reached
+     */
+    public RingHandler(int type, String name, int capacity, OverflowPolicy policy) {
+        this.handlerType = type;
+        this.ring = new EventRing(capacity, policy);
+        this.dispatcher = new Thread(this::dispatchLoop, name);
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            if (ring.drain(MAX_BATCH, this::dispatch) == 0) {
+                ring.await(IDLE_PARK_NANOS);
+            }
+        }
+
+        // the remaining events are discarded, as in the queue based handlers
+        int discarded;
+        do {
+            discarded = ring.drain(MAX_BATCH, e -> {});
+        } while (discarded > 0);
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("dispatcher interrupted!");
+        }
+    }
+
+    private void dispatch(IEvent event) {
+        if (event.getEventType() != handlerType) {
+            return;
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace(
+                    "CB size:[{}] cbType:[{}]", this.eventCallback.size(), event.getCallbackType());
+        }
+
+        for (IEventCallback cb : this.eventCallback) {
+            try {
+                cb.onEvent(event);
+            } catch (Exception ex) {
+                LOG.error(
+                        "Failed to dispatch event: eventType = {}, callbackType = {}, {}",
+                        event.getEventType(),
+                        event.getCallbackType(),
+                        ex.toString());
+            }
+        }
+    }
+
+    @Override
+    public int getType() {
+        return handlerType;
+    }
+
+    @Override
+    public synchronized boolean addEvent(IEvent _evt) {
+        Set<IEvent> updated = new HashSet<>(events);
+        boolean added = updated.add(_evt);
+        events = updated;
+        return added;
+    }
+
+    @Override
+    public synchronized boolean removeEvent(IEvent _evt) {
+        Set<IEvent> updated = new HashSet<>(events);
+        boolean removed = updated.remove(_evt);
+        events = updated;
+        return removed;
+    }
+
+    @Override
+    public void onEvent(IEvent _evt) {
+        if (_evt == null
+                || _evt.getEventType() == EventDummy.getTypeStatic()
+                || !events.contains(_evt)) {
+            return;
+        }
+
+        if (!ring.publish(_evt) && LOG.isDebugEnabled()) {
+            LOG.debug(
+                    "Handler {} dropped event: callbackType = {}, {}",
+                    handlerType,
+                    _evt.getCallbackType(),
+                    ring.getMetrics());
+        }
+    }
+
+    @Override
+    public void eventCallback(IEventCallback _evtCallback) {
+        this.eventCallback.add(_evtCallback);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!running && !dispatcher.isAlive()) {
+            running = true;
+            ring.setConsumer(dispatcher);
+            dispatcher.start();
+        }
+    }
+
+    @Override
+    public void stop() throws InterruptedException {
+        running = false;
+        ring.close();
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Handler {} dispatcher interrupting..", this.getType());
+        }
+
+        dispatcher.join(STOP_TIMEOUT);
+        if (dispatcher.isAlive()) {
+            if (LOG.isErrorEnabled()) {
+                LOG.error("Handler {} dispatcher can't be closed!", this.getType());
+            }
+        } else if (LOG.isInfoEnabled()) {
+            LOG.info("Handler {} dispatcher closed! {}", this.getType(), ring.getMetrics());
+        }
+    }
+
+    /** @return the counters of the events handled */
+    public EventMetrics getMetrics() {
+        return ring.getMetrics();
+    }
+}
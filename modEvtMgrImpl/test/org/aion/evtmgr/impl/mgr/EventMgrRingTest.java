@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.evtmgr.impl.mgr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.evt.EventBlock;
+import org.aion.evtmgr.impl.evt.EventDummy;
+import org.aion.evtmgr.impl.ring.EventMetrics;
+import org.junit.Test;
+
+public class EventMgrRingTest {
+    private Properties properties = new Properties();
+
+    @Test(expected = NullPointerException.class)
+    public void testNullConfig() {
+        new EventMgrRing(null);
+    }
+
+    @Test
+    public void testHandlers() {
+        EventMgrRing testManager = new EventMgrRing(properties);
+        assertEquals(4, testManager.getHandlerList().size());
+        for (IHandler.TYPE type : IHandler.TYPE.values()) {
+            if (type != IHandler.TYPE.POISONPILL) {
+                assertNotNull(testManager.getHandler(type.getValue()));
+                assertNotNull(testManager.getMetrics(type.getValue()));
+            }
+        }
+        assertNull(testManager.getMetrics(IHandler.TYPE.POISONPILL.getValue()));
+    }
+
+    @Test
+    public void testCapacityProperties() {
+        properties.setProperty(EventMgrRing.TX_CAPACITY, "100");
+        properties.setProperty(EventMgrRing.CAPACITY, "10");
+        EventMgrRing testManager = new EventMgrRing(properties);
+
+        assertEquals(128, testManager.getMetrics(IHandler.TYPE.TX0.getValue()).getCapacity());
+        assertEquals(16, testManager.getMetrics(IHandler.TYPE.BLOCK0.getValue()).getCapacity());
+    }
+
+    @Test
+    public void testRegisterEvent() {
+        EventMgrRing testManager = new EventMgrRing(properties);
+
+        boolean res = testManager.registerEvent(getEventsList());
+        assertFalse(res);
+
+        boolean res2 = testManager.registerEvent(getEventsList2());
+        assertTrue(res2);
+    }
+
+    @Test
+    public void tesUnregisterEvent() {
+        EventMgrRing testManager = new EventMgrRing(properties);
+
+        boolean res = testManager.unregisterEvent(getEventsList());
+        assertFalse(res);
+
+        boolean res2 = testManager.unregisterEvent(getEventsList2());
+        assertTrue(res2);
+    }
+
+    @Test
+    public void testNewEvents() {
+        EventMgrRing testManager = new EventMgrRing(properties);
+
+        assertTrue(testManager.newEvent(new EventDummy()));
+        assertTrue(testManager.newEvents(getEventsList()));
+        assertTrue(testManager.newEvents(getEventsList2()));
+    }
+
+    @Test
+    public void testDispatch() throws InterruptedException {
+        EventMgrRing testManager = new EventMgrRing(properties);
+        testManager.registerEvent(getEventsList2());
+
+        CountDownLatch latch = new CountDownLatch(3);
+        testManager
+                .getHandler(IHandler.TYPE.BLOCK0.getValue())
+                .eventCallback(e -> latch.countDown());
+        testManager.start();
+
+        testManager.newEvents(getEventsList2());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        // unregistered events are not queued
+        testManager.unregisterEvent(
+                Collections.singletonList(new EventBlock(EventBlock.CALLBACK.ONTRACE0)));
+        testManager.newEvent(new EventBlock(EventBlock.CALLBACK.ONTRACE0));
+        testManager.shutDown();
+
+        EventMetrics metrics = testManager.getMetrics(IHandler.TYPE.BLOCK0.getValue());
+        assertEquals(3, metrics.getPublished());
+        assertEquals(3, metrics.getDispatched());
+        assertEquals(0, metrics.getDropped());
+    }
+
+    private List<IEvent> getEventsList() {
+        List<IEvent> eventsList = new ArrayList<>();
+        eventsList.add(new EventBlock(EventBlock.CALLBACK.ONBEST0));
+        eventsList.add(new EventBlock(EventBlock.CALLBACK.ONTRACE0));
+        eventsList.add(new EventBlock(EventBlock.CALLBACK.ONBLOCK0));
+        eventsList.add(new EventDummy());
+
+        return eventsList;
+    }
+
+    private List<IEvent> getEventsList2() {
+        List<IEvent> eventsList = new ArrayList<>();
+        eventsList.add(new EventBlock(EventBlock.CALLBACK.ONBEST0));
+        eventsList.add(new EventBlock(EventBlock.CALLBACK.ONTRACE0));
+        eventsList.add(new EventBlock(EventBlock.CALLBACK.ONBLOCK0));
+
+        return eventsList;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.evtmgr.impl.ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.impl.evt.EventBlock;
+import org.aion.evtmgr.impl.evt.EventTx;
+import org.junit.Test;
+
+public class EventRingTest {
+
+    private static IEvent event(int i) {
+        return i % 2 == 0
+                ? new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0)
+                : new EventBlock(EventBlock.CALLBACK.ONBEST0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new EventRing(0, OverflowPolicy.DROP);
+    }
+
+    @Test
+    public void testCapacityRoundedUp() {
+        assertEquals(1024, new EventRing(1000, OverflowPolicy.DROP).capacity());
+        assertEquals(1024, new EventRing(1024, OverflowPolicy.DROP).capacity());
+        assertEquals(1, new EventRing(1, OverflowPolicy.DROP).capacity());
+    }
+
+    @Test
+    public void testDrainInPublishOrder() {
+        EventRing ring = new EventRing(8, OverflowPolicy.DROP);
+        List<IEvent> published = new ArrayList<>();
+        List<IEvent> drained = new ArrayList<>();
+
+        // wraps around the slots a few times
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 6; i++) {
+                IEvent e = event(i);
+                published.add(e);
+                assertTrue(ring.publish(e));
+            }
+            assertEquals(6, ring.size());
+            assertEquals(4, ring.drain(4, drained::add));
+            assertEquals(2, ring.drain(100, drained::add));
+            assertTrue(ring.isEmpty());
+        }
+
+        assertEquals(published, drained);
+        assertEquals(30, ring.getMetrics().getPublished());
+        assertEquals(30, ring.getMetrics().getDispatched());
+        assertEquals(0, ring.getMetrics().getBacklog());
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        EventRing ring = new EventRing(4, OverflowPolicy.DROP);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.publish(event(i)));
+        }
+        assertFalse(ring.publish(event(4)));
+        assertEquals(1, ring.getMetrics().getDropped());
+        assertEquals(4, ring.getMetrics().getBacklog());
+
+        // consuming frees the slots again
+        assertEquals(1, ring.drain(1, e -> {}));
+        assertTrue(ring.publish(event(5)));
+        assertEquals(4, ring.drain(10, e -> {}));
+    }
+
+    @Test
+    public void testBlockDropsWithoutConsumer() {
+        EventRing ring = new EventRing(2, OverflowPolicy.BLOCK);
+        assertTrue(ring.publish(event(0)));
+        assertTrue(ring.publish(event(1)));
+
+        // nobody would ever free a slot
+        assertFalse(ring.publish(event(2)));
+        assertEquals(1, ring.getMetrics().getDropped());
+    }
+
+    @Test
+    public void testBlockWaitsForConsumer() throws InterruptedException {
+        EventRing ring = new EventRing(2, OverflowPolicy.BLOCK);
+        ring.setConsumer(new Thread(() -> {}));
+        assertTrue(ring.publish(event(0)));
+        assertTrue(ring.publish(event(1)));
+
+        CountDownLatch done = new CountDownLatch(1);
+        Thread producer =
+                new Thread(
+                        () -> {
+                            ring.publish(event(2));
+                            done.countDown();
+                        });
+        producer.start();
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+
+        assertEquals(1, ring.drain(1, e -> {}));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, ring.getMetrics().getDropped());
+        assertEquals(2, ring.size());
+    }
+
+    @Test
+    public void testCloseReleasesWaitingProducers() throws InterruptedException {
+        EventRing ring = new EventRing(1, OverflowPolicy.BLOCK);
+        ring.setConsumer(new Thread(() -> {}));
+        assertTrue(ring.publish(event(0)));
+
+        boolean[] result = {true};
+        Thread producer = new Thread(() -> result[0] = ring.publish(event(1)));
+        producer.start();
+        Thread.sleep(100);
+        ring.close();
+        producer.join(10_000);
+
+        assertFalse(producer.isAlive());
+        assertFalse(result[0]);
+    }
+}
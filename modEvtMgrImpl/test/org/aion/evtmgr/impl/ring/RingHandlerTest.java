@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.evtmgr.impl.ring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.aion.evtmgr.IEvent;
+import org.aion.evtmgr.IHandler;
+import org.aion.evtmgr.impl.evt.EventDummy;
+import org.aion.evtmgr.impl.evt.EventTx;
+import org.junit.Test;
+
+public class RingHandlerTest {
+
+    private static final int TX = IHandler.TYPE.TX0.getValue();
+
+    @Test
+    public void testDispatchesRegisteredEvents() throws InterruptedException {
+        RingHandler handler = new RingHandler(TX, "TestHdr", 16, OverflowPolicy.BLOCK);
+        assertTrue(handler.addEvent(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0)));
+
+        List<IEvent> received = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        handler.eventCallback(
+                e -> {
+                    received.add(e);
+                    latch.countDown();
+                });
+        handler.start();
+
+        IEvent first = new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0);
+        IEvent second = new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0);
+        handler.onEvent(first);
+        // not registered
+        handler.onEvent(new EventTx(EventTx.CALLBACK.PENDINGTXRECEIVED0));
+        handler.onEvent(new EventDummy());
+        handler.onEvent(second);
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        handler.stop();
+
+        assertEquals(2, received.size());
+        assertTrue(received.get(0) == first);
+        assertTrue(received.get(1) == second);
+        assertEquals(2, handler.getMetrics().getPublished());
+        assertEquals(2, handler.getMetrics().getDispatched());
+    }
+
+    @Test
+    public void testRemoveEvent() {
+        RingHandler handler = new RingHandler(TX, "TestHdr", 16, OverflowPolicy.DROP);
+        IEvent event = new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0);
+        assertTrue(handler.addEvent(event));
+        assertFalse(handler.addEvent(event));
+        assertTrue(handler.removeEvent(event));
+        assertFalse(handler.removeEvent(event));
+
+        handler.onEvent(event);
+        assertEquals(0, handler.getMetrics().getPublished());
+    }
+
+    @Test
+    public void testCallbackExceptionDoesNotStopDispatch() throws InterruptedException {
+        RingHandler handler = new RingHandler(TX, "TestHdr", 16, OverflowPolicy.BLOCK);
+        handler.addEvent(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0));
+
+        CountDownLatch latch = new CountDownLatch(2);
+        handler.eventCallback(
+                e -> {
+                    latch.countDown();
+                    throw new IllegalStateException("failing callback");
+                });
+        handler.start();
+
+        handler.onEvent(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0));
+        handler.onEvent(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0));
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        handler.stop();
+    }
+
+    @Test
+    public void testConcurrentProducersLoseNoEvents() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 20_000;
+
+        // a small ring makes the producers wait for the dispatcher
+        RingHandler handler = new RingHandler(TX, "TestHdr", 64, OverflowPolicy.BLOCK);
+        handler.addEvent(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0));
+        AtomicInteger count = new AtomicInteger();
+        handler.eventCallback(e -> count.incrementAndGet());
+        handler.start();
+
+        IEvent event = new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < producers; i++) {
+            Thread t =
+                    new Thread(
+                            () -> {
+                                for (int j = 0; j < perProducer; j++) {
+                                    handler.onEvent(event);
+                                }
+                            });
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (count.get() < producers * perProducer && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        handler.stop();
+
+        assertEquals(producers * perProducer, count.get());
+        assertEquals(0, handler.getMetrics().getDropped());
+        assertEquals(producers * perProducer, handler.getMetrics().getDispatched());
+        assertTrue(handler.getMetrics().getMaxLatencyNanos() > 0);
+    }
+
+    @Test
+    public void testDropPolicyBoundsBacklog() {
+        // not started, so nothing is consumed
+        RingHandler handler = new RingHandler(TX, "TestHdr", 8, OverflowPolicy.DROP);
+        handler.addEvent(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0));
+
+        for (int i = 0; i < 100; i++) {
+            handler.onEvent(new EventTx(EventTx.CALLBACK.PENDINGTXUPDATE0));
+        }
+        assertEquals(8, handler.getMetrics().getPublished());
+        assertEquals(92, handler.getMetrics().getDropped());
+        assertEquals(8, handler.getMetrics().getBacklog());
+    }
+}
@@ -58,6 +58,7 @@ public final class CfgApiRpc {
         this.ioThreads = null;
         this.requestQueueSize = null; // null = unbounded queue size
         this.stuckThreadDetectorEnabled = true;
+        this.metricsEnabled = false;
         this.enabledMethods = null;
         this.disabledMethods = null;
 
@@ -80,6 +81,7 @@ public final class CfgApiRpc {
     private Integer ioThreads;
     private Integer requestQueueSize;
     private boolean stuckThreadDetectorEnabled;
+    private boolean metricsEnabled;
 
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         // get the attributes
@@ -207,6 +209,18 @@ public final class CfgApiRpc {
                                 }
                                 break;
                             }
+                        case "metrics-enabled":
+                            {
+                                try {
+                                    metricsEnabled = Boolean.parseBoolean(Cfg.readValue(sr));
+                                } catch (Exception e) {
+                                    System.out.println(
+                                            "failed to read config node: aion.api.rpc.metrics-enabled; using preset: "
+                                                    + metricsEnabled);
+                                    e.printStackTrace();
+                                }
+                                break;
+                            }
                         case "filters-enabled":
                             {
                                 try {
@@ -359,6 +373,10 @@ public final class CfgApiRpc {
         return stuckThreadDetectorEnabled;
     }
 
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
     /**
      * @implNote this should theoretically work, but should be tested for correctness by any future
      *     consumer
@@ -383,7 +401,8 @@ public final class CfgApiRpc {
                 && Objects.equals(workerThreads, cfg.workerThreads)
                 && Objects.equals(ioThreads, cfg.ioThreads)
                 && Objects.equals(requestQueueSize, cfg.requestQueueSize)
-                && stuckThreadDetectorEnabled == cfg.stuckThreadDetectorEnabled;
+                && stuckThreadDetectorEnabled == cfg.stuckThreadDetectorEnabled
+                && metricsEnabled == cfg.metricsEnabled;
     }
 
     /**
@@ -409,6 +428,7 @@ public final class CfgApiRpc {
                 workerThreads,
                 ioThreads,
                 requestQueueSize,
-                stuckThreadDetectorEnabled);
+                stuckThreadDetectorEnabled,
+                metricsEnabled);
     }
 }
@@ -46,13 +46,18 @@ public class CfgDb {
 
         public static final String BLOCK = "block";
         public static final String INDEX = "index";
+        public static final String BLOOM_BITS = "bloomBits";
         public static final String PENDING_BLOCK = "pendingBlock";
 
         public static final String DETAILS = "details";
+        public static final String DETAILS_INDEX = "detailsIndex";
         public static final String STORAGE = "storage";
 
         public static final String STATE = "state";
         public static final String STATE_ARCHIVE = "stateArchive";
+        public static final String FLAT_STATE = "flatState";
+        public static final String BLOCK_SEGMENTS = "blockSegments";
+        public static final String PRUNE_JOURNAL = "pruneJournal";
         public static final String TRANSACTION = "transaction";
 
         public static final String TX_CACHE = "pendingtxCache";
@@ -63,6 +68,9 @@ public class CfgDb {
     private String vendor;
     private boolean compression;
     private boolean check_integrity;
+    private boolean flat_state;
+    private boolean block_segments;
+    private int node_cache_size;
     private CfgPrune prune;
     private PruneOption prune_option;
 
@@ -81,6 +89,9 @@ public class CfgDb {
         this.vendor = DBVendor.LEVELDB.toValue();
         this.compression = false;
         this.check_integrity = true;
+        this.flat_state = false;
+        this.block_segments = false;
+        this.node_cache_size = 64;
         this.prune = new CfgPrune(false);
         this.prune_option = PruneOption.FULL;
 
@@ -104,6 +115,15 @@ public class CfgDb {
                         case "check_integrity":
                             this.check_integrity = Boolean.parseBoolean(Cfg.readValue(sr));
                             break;
+                        case Props.FLAT_STATE:
+                            this.flat_state = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
+                        case Props.BLOCK_SEGMENTS:
+                            this.block_segments = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
+                        case Props.NODE_CACHE_SIZE:
+                            this.node_cache_size = Integer.parseInt(Cfg.readValue(sr));
+                            break;
                         case "state-storage":
                             setPrune(Cfg.readValue(sr));
                             break;
@@ -223,6 +243,30 @@ public class CfgDb {
             xmlWriter.writeCharacters(String.valueOf(this.check_integrity));
             xmlWriter.writeEndElement();
 
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Boolean value. Enable/disable the flat account state used to speed up state reads.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(Props.FLAT_STATE);
+            xmlWriter.writeCharacters(String.valueOf(this.flat_state));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Boolean value. Enable/disable storing the finalized blocks in append-only memory-mapped segment files.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(Props.BLOCK_SEGMENTS);
+            xmlWriter.writeCharacters(String.valueOf(this.block_segments));
+            xmlWriter.writeEndElement();
+
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeComment(
+                    "Integer value. Size in MB of the in-memory cache of state and storage trie nodes.");
+            xmlWriter.writeCharacters("\r\n\t\t");
+            xmlWriter.writeStartElement(Props.NODE_CACHE_SIZE);
+            xmlWriter.writeCharacters(String.valueOf(this.node_cache_size));
+            xmlWriter.writeEndElement();
+
             xmlWriter.writeCharacters("\r\n\t\t");
             xmlWriter.writeComment(
                     "Data pruning behavior for the state database. Options: FULL, TOP, SPREAD.");
@@ -377,12 +421,18 @@ public class CfgDb {
 
             Properties props = propSet.get(Names.DEFAULT);
             props.setProperty(Props.CHECK_INTEGRITY, String.valueOf(this.check_integrity));
+            props.setProperty(Props.FLAT_STATE, String.valueOf(this.flat_state));
+            props.setProperty(Props.BLOCK_SEGMENTS, String.valueOf(this.block_segments));
+            props.setProperty(Props.NODE_CACHE_SIZE, String.valueOf(this.node_cache_size));
             props.setProperty(Props.PERSISTENT, String.valueOf(isPersistent));
         } else {
             Properties props = new Properties();
             props.setProperty(Props.DB_TYPE, this.vendor);
             props.setProperty(Props.ENABLE_DB_COMPRESSION, String.valueOf(this.compression));
             props.setProperty(Props.CHECK_INTEGRITY, String.valueOf(this.check_integrity));
+            props.setProperty(Props.FLAT_STATE, String.valueOf(this.flat_state));
+            props.setProperty(Props.BLOCK_SEGMENTS, String.valueOf(this.block_segments));
+            props.setProperty(Props.NODE_CACHE_SIZE, String.valueOf(this.node_cache_size));
             boolean isPersistent = DBVendor.fromString(this.vendor).getPersistence();
             props.setProperty(Props.PERSISTENT, String.valueOf(isPersistent));
 
@@ -414,6 +464,30 @@ public class CfgDb {
         }
     }
 
+    public boolean isFlatStateEnabled() {
+        return flat_state;
+    }
+
+    public void setFlatStateEnabled(boolean value) {
+        flat_state = value;
+    }
+
+    public boolean isBlockSegmentsEnabled() {
+        return block_segments;
+    }
+
+    public void setBlockSegmentsEnabled(boolean value) {
+        block_segments = value;
+    }
+
+    public int getNodeCacheSize() {
+        return node_cache_size;
+    }
+
+    public void setNodeCacheSize(int value) {
+        node_cache_size = value;
+    }
+
     public void setDatabasePath(String value) {
         path = value;
     }
@@ -425,6 +499,9 @@ public class CfgDb {
         CfgDb cfgDb = (CfgDb) o;
         return compression == cfgDb.compression
                 && check_integrity == cfgDb.check_integrity
+                && flat_state == cfgDb.flat_state
+                && block_segments == cfgDb.block_segments
+                && node_cache_size == cfgDb.node_cache_size
                 && expert == cfgDb.expert
                 && Objects.equal(path, cfgDb.path)
                 && Objects.equal(vendor, cfgDb.vendor)
@@ -440,6 +517,9 @@ public class CfgDb {
                 vendor,
                 compression,
                 check_integrity,
+                flat_state,
+                block_segments,
+                node_cache_size,
                 prune,
                 prune_option,
                 expert,
@@ -40,6 +40,7 @@ public class CfgDbDetails {
     public static final String DEFAULT_WRITE_BUFFER_SIZE = "64mB";
     public static final String DEFAULT_READ_BUFFER_SIZE = "64mB";
     public static final String DEFAULT_CACHE_SIZE = "128mB";
+    public static final String DEFAULT_OFFHEAP_CACHE_SIZE = "256mB";
 
     public CfgDbDetails() {
         this.vendor = DBVendor.LEVELDB.toValue();
@@ -51,6 +52,10 @@ public class CfgDbDetails {
         // size 0 means unbound
         this.max_heap_cache_size = "1024";
         this.enable_heap_cache_stats = false;
+        this.enable_offheap_cache = false;
+
+        // corresponds to DEFAULT_OFFHEAP_CACHE_SIZE
+        this.max_offheap_cache_size = 256 * Utils.MEGA_BYTE;
         this.read_buffer_size = 64 * (int) Utils.MEGA_BYTE;
 
         // corresponds to DEFAULT_BLOCK_SIZE
@@ -74,6 +79,15 @@ public class CfgDbDetails {
     public String max_heap_cache_size;
     public boolean enable_heap_cache_stats;
 
+    /**
+     * When enabled together with the heap cache, the cached values are stored outside of the Java
+     * heap and bounded by {@link #max_offheap_cache_size} bytes instead of {@link
+     * #max_heap_cache_size} entries.
+     */
+    public boolean enable_offheap_cache;
+
+    public long max_offheap_cache_size;
+
     /**
      * The maximum block size
      *
@@ -144,6 +158,15 @@ public class CfgDbDetails {
                         case Props.ENABLE_HEAP_CACHE_STATS:
                             this.enable_heap_cache_stats = Boolean.parseBoolean(Cfg.readValue(sr));
                             break;
+                        case Props.ENABLE_OFFHEAP_CACHE:
+                            this.enable_offheap_cache = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
+                        case Props.MAX_OFFHEAP_CACHE_SIZE:
+                            Optional<Long> size = Utils.parseSize(Cfg.readValue(sr));
+                            if (size.isPresent() && size.get() > 0) {
+                                this.max_offheap_cache_size = size.get();
+                            }
+                            break;
                         case Props.BLOCK_SIZE:
                             this.block_size = parseFileSizeSafe(Cfg.readValue(sr), this.block_size);
                             break;
@@ -256,6 +279,9 @@ public class CfgDbDetails {
         props.setProperty(Props.MAX_HEAP_CACHE_SIZE, this.max_heap_cache_size);
         props.setProperty(
                 Props.ENABLE_HEAP_CACHE_STATS, String.valueOf(this.enable_heap_cache_stats));
+        props.setProperty(Props.ENABLE_OFFHEAP_CACHE, String.valueOf(this.enable_offheap_cache));
+        props.setProperty(
+                Props.MAX_OFFHEAP_CACHE_SIZE, String.valueOf(this.max_offheap_cache_size));
 
         props.setProperty(Props.MAX_FD_ALLOC, String.valueOf(this.max_fd_open_alloc));
         props.setProperty(Props.BLOCK_SIZE, String.valueOf(this.block_size));
@@ -275,6 +301,8 @@ public class CfgDbDetails {
                 && enable_auto_commit == that.enable_auto_commit
                 && enable_heap_cache == that.enable_heap_cache
                 && enable_heap_cache_stats == that.enable_heap_cache_stats
+                && enable_offheap_cache == that.enable_offheap_cache
+                && max_offheap_cache_size == that.max_offheap_cache_size
                 && block_size == that.block_size
                 && max_fd_open_alloc == that.max_fd_open_alloc
                 && write_buffer_size == that.write_buffer_size
@@ -294,6 +322,8 @@ public class CfgDbDetails {
                 enable_heap_cache,
                 max_heap_cache_size,
                 enable_heap_cache_stats,
+                enable_offheap_cache,
+                max_offheap_cache_size,
                 block_size,
                 max_fd_open_alloc,
                 write_buffer_size,
@@ -43,6 +43,7 @@ public final class CfgNetP2p {
         this.errorTolerance = 50;
         this.clusterNodeMode = false;
         this.syncOnlyMode = false;
+        this.selectorLoop = false;
     }
 
     private String ip;
@@ -63,6 +64,8 @@ public final class CfgNetP2p {
 
     private int errorTolerance;
 
+    private boolean selectorLoop;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -98,6 +101,9 @@ public final class CfgNetP2p {
                         case "err-tolerance":
                             this.errorTolerance = Integer.parseInt(Cfg.readValue(sr));
                             break;
+                        case "selector-loop":
+                            this.selectorLoop = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
                         default:
                             // Cfg.skipElement(sr);
                             break;
@@ -201,6 +207,11 @@ public final class CfgNetP2p {
         return syncOnlyMode;
     }
 
+    /** @return whether the p2p sockets are served by the blocking selector loop */
+    public boolean useSelectorLoop() {
+        return selectorLoop;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -214,6 +225,7 @@ public final class CfgNetP2p {
                 && maxTempNodes == cfgNetP2p.maxTempNodes
                 && maxActiveNodes == cfgNetP2p.maxActiveNodes
                 && errorTolerance == cfgNetP2p.errorTolerance
+                && selectorLoop == cfgNetP2p.selectorLoop
                 && Objects.equal(ip, cfgNetP2p.ip);
     }
 
@@ -228,6 +240,7 @@ public final class CfgNetP2p {
                 syncOnlyMode,
                 maxTempNodes,
                 maxActiveNodes,
-                errorTolerance);
+                errorTolerance,
+                selectorLoop);
     }
 }
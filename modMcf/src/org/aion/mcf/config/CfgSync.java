@@ -43,6 +43,12 @@ public final class CfgSync {
     private boolean showStatus;
     private Set<StatsType> showStatistics;
 
+    private boolean parallelTxPreload;
+
+    private boolean parallelDownload;
+
+    private boolean fastSync;
+
     private static int BLOCKS_QUEUE_MAX = 32;
 
     public CfgSync() {
@@ -50,6 +56,9 @@ public final class CfgSync {
         this.showStatus = false;
         this.showStatistics = new HashSet<>();
         this.showStatistics.add(StatsType.NONE);
+        this.parallelTxPreload = false;
+        this.parallelDownload = false;
+        this.fastSync = false;
     }
 
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
@@ -69,6 +78,15 @@ public final class CfgSync {
                         case "show-statistics":
                             parseSelectedStats(showStatistics, Cfg.readValue(sr));
                             break;
+                        case "parallel-tx-preload":
+                            this.parallelTxPreload = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
+                        case "parallel-download":
+                            this.parallelDownload = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
+                        case "fast-sync":
+                            this.fastSync = Boolean.parseBoolean(Cfg.readValue(sr));
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -200,16 +218,45 @@ public final class CfgSync {
         return showStatistics;
     }
 
+    /**
+     * Returns {@code true} when the senders and accounts of a block should be loaded on parallel
+     * threads before the block transactions are executed.
+     */
+    public boolean getParallelTxPreload() {
+        return parallelTxPreload;
+    }
+
+    /**
+     * Returns {@code true} when the missing blocks should be requested from multiple peers at the
+     * same time while the local chain is far behind the network.
+     */
+    public boolean getParallelDownload() {
+        return parallelDownload;
+    }
+
+    /**
+     * Returns {@code true} when a node that is far behind the network should download the world
+     * state at a recent pivot block instead of executing all the blocks up to it.
+     */
+    public boolean getFastSync() {
+        return fastSync;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         CfgSync cfgSync = (CfgSync) o;
-        return blocksQueueMax == cfgSync.blocksQueueMax && showStatus == cfgSync.showStatus;
+        return blocksQueueMax == cfgSync.blocksQueueMax
+                && showStatus == cfgSync.showStatus
+                && parallelTxPreload == cfgSync.parallelTxPreload
+                && parallelDownload == cfgSync.parallelDownload
+                && fastSync == cfgSync.fastSync;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(blocksQueueMax, showStatus);
+        return Objects.hashCode(
+                blocksQueueMax, showStatus, parallelTxPreload, parallelDownload, fastSync);
     }
 }
@@ -34,11 +34,17 @@ import javax.xml.stream.XMLStreamWriter;
 /** @author chris */
 public class CfgTx {
 
+    /** Transaction pool implementations supported by the kernel. */
+    public static final String POOL_A0 = "TxPoolA0";
+
+    public static final String POOL_A1 = "TxPoolA1";
+
     public CfgTx() {
         this.cacheMax = 256; // by 0.1M;
         this.buffer = true;
         this.poolDump = false;
         this.poolBackup = false;
+        this.poolImpl = POOL_A0;
     }
 
     private int cacheMax;
@@ -49,6 +55,8 @@ public class CfgTx {
 
     private boolean poolBackup;
 
+    private String poolImpl;
+
     public void fromXML(final XMLStreamReader sr) throws XMLStreamException {
         loop:
         while (sr.hasNext()) {
@@ -74,6 +82,9 @@ public class CfgTx {
                         case "poolbackup":
                             this.poolBackup = Boolean.parseBoolean(Cfg.readValue(sr));
                             break;
+                        case "poolimpl":
+                            setPoolImpl(Cfg.readValue(sr));
+                            break;
                         default:
                             Cfg.skipElement(sr);
                             break;
@@ -130,6 +141,20 @@ public class CfgTx {
         return poolBackup;
     }
 
+    /** @return the simple class name of the transaction pool implementation */
+    public String getPoolImpl() {
+        return poolImpl;
+    }
+
+    /** Sets the transaction pool implementation, defaulting to {@link #POOL_A0} when unknown. */
+    public void setPoolImpl(String value) {
+        if (POOL_A1.equalsIgnoreCase(value.trim())) {
+            this.poolImpl = POOL_A1;
+        } else {
+            this.poolImpl = POOL_A0;
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -138,11 +163,12 @@ public class CfgTx {
         return cacheMax == cfgTx.cacheMax
                 && buffer == cfgTx.buffer
                 && poolDump == cfgTx.poolDump
-                && poolBackup == cfgTx.poolBackup;
+                && poolBackup == cfgTx.poolBackup
+                && Objects.equal(poolImpl, cfgTx.poolImpl);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(cacheMax, buffer, poolDump, poolBackup);
+        return Objects.hashCode(cacheMax, buffer, poolDump, poolBackup, poolImpl);
     }
 }
@@ -40,11 +40,13 @@ public enum StatsType {
     SEEDS,
     LEECHES,
     RESPONSES,
+    PIPELINE,
     NONE; // used as default for invalid settings
 
     private static final List<StatsType> allSpecificTypes =
             Collections.unmodifiableList(
-                    Arrays.asList(PEER_STATES, REQUESTS, SEEDS, LEECHES, RESPONSES));
+                    Arrays.asList(
+                            PEER_STATES, REQUESTS, SEEDS, LEECHES, RESPONSES, PIPELINE));
 
     /**
      * List of all the specific types of statistics that can be displayed, i.e. excluding the {@link
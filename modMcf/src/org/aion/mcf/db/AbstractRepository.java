@@ -31,13 +31,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Properties;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IRepository;
 import org.aion.base.db.IRepositoryConfig;
 import org.aion.base.type.IBlockHeader;
 import org.aion.base.type.ITransaction;
+import org.aion.base.util.Utils;
 import org.aion.base.vm.IDataWord;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
@@ -46,6 +45,7 @@ import org.aion.mcf.core.AccountState;
 import org.aion.mcf.db.exception.InvalidFilePathException;
 import org.aion.mcf.ds.ArchivedDataSource;
 import org.aion.mcf.trie.JournalPruneDataSource;
+import org.aion.mcf.trie.NodeCache;
 import org.aion.mcf.trie.Trie;
 import org.aion.mcf.types.AbstractBlock;
 import org.slf4j.Logger;
@@ -70,12 +70,16 @@ public abstract class AbstractRepository<
     protected static final String TRANSACTION_DB = Names.TRANSACTION;
 
     protected static final String INDEX_DB = Names.INDEX;
+    protected static final String BLOOM_BITS_DB = Names.BLOOM_BITS;
     protected static final String BLOCK_DB = Names.BLOCK;
     protected static final String PENDING_BLOCK_DB = Names.PENDING_BLOCK;
     protected static final String DETAILS_DB = Names.DETAILS;
+    protected static final String DETAILS_INDEX_DB = Names.DETAILS_INDEX;
     protected static final String STORAGE_DB = Names.STORAGE;
     protected static final String STATE_DB = Names.STATE;
     protected static final String STATE_ARCHIVE_DB = Names.STATE_ARCHIVE;
+    protected static final String FLAT_STATE_DB = Names.FLAT_STATE;
+    protected static final String PRUNE_JOURNAL_DB = Names.PRUNE_JOURNAL;
     protected static final String PENDING_TX_POOL_DB = Names.TX_POOL;
     protected static final String PENDING_TX_CACHE_DB = Names.TX_CACHE;
 
@@ -90,11 +94,15 @@ public abstract class AbstractRepository<
     protected IByteArrayKeyValueDatabase transactionDatabase;
 
     protected IByteArrayKeyValueDatabase detailsDatabase;
+    protected IByteArrayKeyValueDatabase detailsIndexDatabase;
     protected IByteArrayKeyValueDatabase storageDatabase;
     protected IByteArrayKeyValueDatabase indexDatabase;
+    protected IByteArrayKeyValueDatabase bloomBitsDatabase;
     protected IByteArrayKeyValueDatabase blockDatabase;
     protected IByteArrayKeyValueDatabase stateDatabase;
     protected IByteArrayKeyValueDatabase stateArchiveDatabase;
+    protected IByteArrayKeyValueDatabase flatStateDatabase;
+    protected IByteArrayKeyValueDatabase pruneJournalDatabase;
     protected IByteArrayKeyValueDatabase txPoolDatabase;
     protected IByteArrayKeyValueDatabase pendingTxCacheDatabase;
 
@@ -103,9 +111,12 @@ public abstract class AbstractRepository<
     protected ArchivedDataSource stateWithArchive;
     protected JournalPruneDataSource stateDSPrune;
     protected DetailsDataStore<BLK, BH> detailsDS;
+    // Flat view of the state, null when disabled.
+    protected FlatStateStore flatState;
+    protected BloomBitsIndex bloomBits;
 
-    // Read Write Lock
-    protected ReadWriteLock rwLock = new ReentrantReadWriteLock();
+    // Read Write Lock, records the time spent waiting for it
+    protected TimedReadWriteLock rwLock = new TimedReadWriteLock();
 
     // Block related parameters.
     protected long bestBlockNumber = 0;
@@ -219,6 +230,17 @@ public abstract class AbstractRepository<
             }
             databaseGroup.add(detailsDatabase);
 
+            // using details config for the contract addresses indexed by their hash
+            sharedProps = cfg.getDatabaseConfig(DETAILS_DB);
+            sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+            sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+            sharedProps.setProperty(Props.DB_NAME, DETAILS_INDEX_DB);
+            this.detailsIndexDatabase = connectAndOpen(sharedProps, LOG);
+            if (detailsIndexDatabase == null || detailsIndexDatabase.isClosed()) {
+                throw newException(DETAILS_INDEX_DB, sharedProps);
+            }
+            databaseGroup.add(detailsIndexDatabase);
+
             // getting storage specific properties
             sharedProps = cfg.getDatabaseConfig(STORAGE_DB);
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
@@ -241,6 +263,15 @@ public abstract class AbstractRepository<
             }
             databaseGroup.add(indexDatabase);
 
+            // using index specific properties
+            sharedProps.setProperty(Props.DB_NAME, BLOOM_BITS_DB);
+            this.bloomBitsDatabase = connectAndOpen(sharedProps, LOG);
+            if (bloomBitsDatabase == null || bloomBitsDatabase.isClosed()) {
+                throw newException(BLOOM_BITS_DB, sharedProps);
+            }
+            databaseGroup.add(bloomBitsDatabase);
+            bloomBits = new BloomBitsIndex(bloomBitsDatabase);
+
             // getting block specific properties
             sharedProps = cfg.getDatabaseConfig(BLOCK_DB);
             sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
@@ -286,6 +317,21 @@ public abstract class AbstractRepository<
             pruneBlockCount = this.cfg.getPruneConfig().getCurrentCount();
             archiveRate = this.cfg.getPruneConfig().getArchiveRate();
 
+            if (pruneEnabled) {
+                // using state config for the prune journal
+                sharedProps = cfg.getDatabaseConfig(STATE_DB);
+                sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                sharedProps.setProperty(Props.DB_NAME, PRUNE_JOURNAL_DB);
+                this.pruneJournalDatabase = connectAndOpen(sharedProps, LOG);
+                if (pruneJournalDatabase == null || pruneJournalDatabase.isClosed()) {
+                    throw newException(PRUNE_JOURNAL_DB, sharedProps);
+                }
+                databaseGroup.add(pruneJournalDatabase);
+            } else {
+                pruneJournalDatabase = null;
+            }
+
             if (pruneEnabled && this.cfg.getPruneConfig().isArchived()) {
                 // using state config for state_archive
                 sharedProps = cfg.getDatabaseConfig(STATE_DB);
@@ -296,7 +342,7 @@ public abstract class AbstractRepository<
                 databaseGroup.add(stateArchiveDatabase);
 
                 stateWithArchive = new ArchivedDataSource(stateDatabase, stateArchiveDatabase);
-                stateDSPrune = new JournalPruneDataSource(stateWithArchive);
+                stateDSPrune = new JournalPruneDataSource(stateWithArchive, pruneJournalDatabase);
 
                 LOGGEN.info(
                         "Pruning and archiving ENABLED. Top block count set to {} and archive rate set to {}.",
@@ -305,7 +351,7 @@ public abstract class AbstractRepository<
             } else {
                 stateArchiveDatabase = null;
                 stateWithArchive = null;
-                stateDSPrune = new JournalPruneDataSource(stateDatabase);
+                stateDSPrune = new JournalPruneDataSource(stateDatabase, pruneJournalDatabase);
 
                 if (pruneEnabled) {
                     LOGGEN.info("Pruning ENABLED. Top block count set to {}.", pruneBlockCount);
@@ -313,6 +359,42 @@ public abstract class AbstractRepository<
             }
 
             stateDSPrune.setPruneEnabled(pruneEnabled);
+
+            // decoded state and storage trie nodes shared by the tries of this repository and its
+            // snapshots
+            String nodeCacheSize =
+                    cfg.getDatabaseConfig(Names.DEFAULT).getProperty(Props.NODE_CACHE_SIZE);
+            long nodeCacheBytes =
+                    nodeCacheSize == null
+                            ? NodeCache.DEFAULT_MAX_BYTES
+                            : Long.parseLong(nodeCacheSize) * Utils.MEGA_BYTE;
+            if (nodeCacheBytes > 0) {
+                NodeCache nodeCache = new NodeCache(nodeCacheBytes);
+                stateDSPrune.setNodeCache(nodeCache);
+                detailsDS.getStorageDSPrune().setNodeCache(nodeCache);
+            }
+
+            if (Boolean.valueOf(
+                    cfg.getDatabaseConfig(Names.DEFAULT).getProperty(Props.FLAT_STATE))) {
+                // using state config for the flat state
+                sharedProps = cfg.getDatabaseConfig(STATE_DB);
+                sharedProps.setProperty(Props.ENABLE_LOCKING, "false");
+                sharedProps.setProperty(Props.DB_PATH, cfg.getDbPath());
+                sharedProps.setProperty(Props.DB_NAME, FLAT_STATE_DB);
+                this.flatStateDatabase = connectAndOpen(sharedProps, LOG);
+                if (flatStateDatabase == null || flatStateDatabase.isClosed()) {
+                    throw newException(FLAT_STATE_DB, sharedProps);
+                }
+                databaseGroup.add(flatStateDatabase);
+
+                flatState =
+                        new FlatStateStore(flatStateDatabase, FlatStateStore.DEFAULT_MAX_LAYERS);
+
+                LOGGEN.info("Flat state ENABLED.");
+            } else {
+                flatStateDatabase = null;
+                flatState = null;
+            }
         } catch (Exception e) { // Setting up databases and caches went wrong.
             throw e;
         }
@@ -340,4 +422,9 @@ public abstract class AbstractRepository<
     public boolean isSnapshot() {
         return isSnapshot;
     }
+
+    /** @return the repository lock, which also reports the time spent waiting for it */
+    public TimedReadWriteLock getLock() {
+        return rwLock;
+    }
 }
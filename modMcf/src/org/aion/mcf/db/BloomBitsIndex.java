@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.db;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.util.ByteUtil;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.mcf.vm.types.Bloom;
+import org.slf4j.Logger;
+
+/**
+ * Bit-sliced index of the block log blooms used to find the blocks that may contain logs matching
+ * a filter without loading each block.
+ *
+ * <p>The chain is split in sections of {@link #SECTION_SIZE} blocks. For every section and every
+ * bloom bit the index stores a vector with one bit per block of the section, set when the bloom of
+ * that block has the bloom bit set. Matching a filter against a section then only reads the vectors
+ * of the bloom bits used by the filter instead of the blooms of all the blocks in the section.
+ * Vectors without any bit set are not stored.
+ *
+ * <p>Sections are added in order once all their blocks are final enough. The bits of a block that
+ * replaced an indexed one can be added with {@link #addBloom(long, byte[])}. Bits are never cleared
+ * by this operation, so the index may report blocks that do not match, but never misses a block
+ * that does. Callers must always check the candidate blocks.
+ */
+public class BloomBitsIndex {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** Number of blocks covered by one section. */
+    public static final int SECTION_SIZE = 4096;
+
+    /** Number of bits in a block log bloom. */
+    public static final int BLOOM_BITS = 2048;
+
+    private static final int VECTOR_LONGS = SECTION_SIZE / Long.SIZE;
+    private static final int VECTOR_SIZE = SECTION_SIZE / Byte.SIZE;
+
+    /** Key of the number of indexed sections; its length differs from the vector keys. */
+    private static final byte[] META_KEY = "bloombits-meta".getBytes();
+
+    private final IByteArrayKeyValueDatabase database;
+
+    private volatile long sections;
+
+    public BloomBitsIndex(IByteArrayKeyValueDatabase database) {
+        this.database = database;
+
+        Optional<byte[]> meta = database.get(META_KEY);
+        if (meta.isPresent() && meta.get().length == Long.BYTES) {
+            sections = ByteUtil.byteArrayToLong(meta.get());
+        } else {
+            sections = 0;
+        }
+    }
+
+    /** @return the number of sections in the index */
+    public long getSections() {
+        return sections;
+    }
+
+    /** @return the number of blocks covered by the index, starting from the genesis */
+    public long getIndexedBlocks() {
+        return sections * SECTION_SIZE;
+    }
+
+    /**
+     * Adds the next section to the index.
+     *
+     * @param section the section number, must be equal to {@link #getSections()}
+     * @param blooms the log blooms of the {@link #SECTION_SIZE} blocks of the section, in order
+     * @throws IllegalArgumentException if the section is not the next one or the number of blooms
+     *     does not match the section size
+     */
+    public synchronized void addSection(long section, byte[][] blooms) {
+        if (section != sections) {
+            throw new IllegalArgumentException(
+                    "Expected section " + sections + " but got section " + section + ".");
+        }
+        if (blooms.length != SECTION_SIZE) {
+            throw new IllegalArgumentException(
+                    "Expected " + SECTION_SIZE + " blooms but got " + blooms.length + ".");
+        }
+
+        long[][] vectors = new long[BLOOM_BITS][];
+        for (int offset = 0; offset < SECTION_SIZE; offset++) {
+            byte[] bloom = blooms[offset];
+            for (int i = 0; i < bloom.length; i++) {
+                int b = bloom[i] & 0xff;
+                while (b != 0) {
+                    int bit = i * Byte.SIZE + Integer.numberOfTrailingZeros(b);
+                    if (vectors[bit] == null) {
+                        vectors[bit] = new long[VECTOR_LONGS];
+                    }
+                    vectors[bit][offset >>> 6] |= 1L << offset;
+                    b &= b - 1;
+                }
+            }
+        }
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int bit = 0; bit < BLOOM_BITS; bit++) {
+            if (vectors[bit] != null) {
+                batch.put(vectorKey(section, bit), encode(vectors[bit]));
+            }
+        }
+        batch.put(META_KEY, ByteUtil.longToBytes(section + 1));
+        database.putBatch(batch);
+
+        sections = section + 1;
+    }
+
+    /**
+     * Adds the bits of the given bloom to an indexed block. Used when the block at the given height
+     * is replaced by a chain reorganization. Does nothing if the block is not indexed.
+     *
+     * @param number the block number
+     * @param bloom the log bloom of the new block at that height
+     */
+    public synchronized void addBloom(long number, byte[] bloom) {
+        long section = number / SECTION_SIZE;
+        if (section >= sections) {
+            return;
+        }
+        int offset = (int) (number % SECTION_SIZE);
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (int bit : setBits(bloom)) {
+            long[] vector = readVector(section, bit);
+            if (vector == null) {
+                vector = new long[VECTOR_LONGS];
+            }
+            if ((vector[offset >>> 6] & (1L << offset)) == 0) {
+                vector[offset >>> 6] |= 1L << offset;
+                batch.put(vectorKey(section, bit), encode(vector));
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            database.putBatch(batch);
+        }
+    }
+
+    /**
+     * Removes the sections starting from the given one, e.g. after the chain was reverted below
+     * them.
+     *
+     * @param fromSection the first section to remove
+     */
+    public synchronized void truncate(long fromSection) {
+        if (fromSection >= sections) {
+            return;
+        }
+
+        for (long section = fromSection; section < sections; section++) {
+            List<byte[]> keys = new ArrayList<>(BLOOM_BITS);
+            for (int bit = 0; bit < BLOOM_BITS; bit++) {
+                keys.add(vectorKey(section, bit));
+            }
+            database.deleteBatch(keys);
+        }
+        database.put(META_KEY, ByteUtil.longToBytes(fromSection));
+
+        LOG.info("Bloom bits index truncated from {} to {} sections.", sections, fromSection);
+        sections = fromSection;
+    }
+
+    /**
+     * Finds the blocks of a section whose log bloom may match the filter. The filter is a
+     * conjunction of disjunctions: a block matches if for each entry of the filter its bloom
+     * contains at least one of the blooms of the entry. An empty bloom matches any block.
+     *
+     * @param section an indexed section
+     * @param filter the blooms to match
+     * @return the offsets within the section of the candidate blocks
+     * @throws IllegalArgumentException if the section is not indexed
+     */
+    public BitSet matchSection(long section, Bloom[][] filter) {
+        if (section < 0 || section >= sections) {
+            throw new IllegalArgumentException("Section " + section + " is not indexed.");
+        }
+
+        // vectors shared by several filter blooms are read only once
+        Map<Integer, long[]> loaded = new HashMap<>();
+
+        long[] result = null;
+        for (Bloom[] alternatives : filter) {
+            long[] any = new long[VECTOR_LONGS];
+            boolean matchesAll = false;
+
+            for (Bloom alternative : alternatives) {
+                int[] bits = setBits(alternative.getData());
+                if (bits.length == 0) {
+                    matchesAll = true;
+                    break;
+                }
+
+                long[] all = null;
+                for (int bit : bits) {
+                    long[] vector = loaded.computeIfAbsent(bit, b -> readVector(section, b));
+                    if (vector == null) {
+                        all = null;
+                        break;
+                    }
+                    if (all == null) {
+                        all = vector.clone();
+                    } else {
+                        for (int i = 0; i < VECTOR_LONGS; i++) {
+                            all[i] &= vector[i];
+                        }
+                    }
+                }
+
+                if (all != null) {
+                    for (int i = 0; i < VECTOR_LONGS; i++) {
+                        any[i] |= all[i];
+                    }
+                }
+            }
+
+            if (matchesAll) {
+                continue;
+            }
+            if (result == null) {
+                result = any;
+            } else {
+                for (int i = 0; i < VECTOR_LONGS; i++) {
+                    result[i] &= any[i];
+                }
+            }
+        }
+
+        if (result == null) {
+            BitSet everything = new BitSet(SECTION_SIZE);
+            everything.set(0, SECTION_SIZE);
+            return everything;
+        }
+        return BitSet.valueOf(result);
+    }
+
+    private long[] readVector(long section, int bit) {
+        Optional<byte[]> data = database.get(vectorKey(section, bit));
+        return data.isPresent() ? decode(data.get()) : null;
+    }
+
+    private static int[] setBits(byte[] bloom) {
+        int count = 0;
+        for (byte b : bloom) {
+            count += Integer.bitCount(b & 0xff);
+        }
+
+        int[] bits = new int[count];
+        int n = 0;
+        for (int i = 0; i < bloom.length; i++) {
+            int b = bloom[i] & 0xff;
+            while (b != 0) {
+                bits[n++] = i * Byte.SIZE + Integer.numberOfTrailingZeros(b);
+                b &= b - 1;
+            }
+        }
+        return bits;
+    }
+
+    private static byte[] vectorKey(long section, int bit) {
+        return ByteBuffer.allocate(Long.BYTES + Short.BYTES)
+                .putLong(section)
+                .putShort((short) bit)
+                .array();
+    }
+
+    private static byte[] encode(long[] vector) {
+        ByteBuffer buf = ByteBuffer.allocate(VECTOR_SIZE);
+        for (long l : vector) {
+            buf.putLong(l);
+        }
+        return buf.array();
+    }
+
+    private static long[] decode(byte[] data) {
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        long[] vector = new long[VECTOR_LONGS];
+        for (int i = 0; i < VECTOR_LONGS; i++) {
+            vector[i] = buf.getLong();
+        }
+        return vector;
+    }
+}
@@ -222,9 +222,7 @@ public class ContractDetailsCacheImpl extends AbstractContractDetails<IDataWord>
             return;
         }
 
-        for (IDataWord key : storage.keySet()) {
-            origContract.put(key, storage.get(key));
-        }
+        origContract.setStorage(storage);
 
         if (origContract instanceof AbstractContractDetails) {
             ((AbstractContractDetails) origContract).appendCodes(getCodes());
@@ -32,6 +32,7 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Properties;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.db.impl.DatabaseFactory;
 import org.aion.db.impl.DatabaseFactory.Props;
 import org.aion.mcf.db.exception.InvalidFilePathException;
@@ -41,8 +42,10 @@ import org.slf4j.Logger;
 public class DatabaseUtils {
 
     public static IByteArrayKeyValueDatabase connectAndOpen(Properties info, Logger LOG) {
-        // get the database object
-        IByteArrayKeyValueDatabase db = DatabaseFactory.connect(info, LOG.isDebugEnabled());
+        // get the database object, timed when debugging or exposing metrics
+        IByteArrayKeyValueDatabase db =
+                DatabaseFactory.connect(
+                        info, LOG.isDebugEnabled() || MetricRegistry.getInstance().isEnabled());
 
         // open the database connection
         db.open();
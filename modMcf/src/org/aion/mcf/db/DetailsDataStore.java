@@ -38,11 +38,14 @@ import static org.aion.base.util.ByteArrayWrapper.wrap;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.db.IContractDetails;
 import org.aion.base.db.IRepositoryConfig;
 import org.aion.base.type.Address;
@@ -64,6 +67,12 @@ public class DetailsDataStore<
     private IByteArrayKeyValueDatabase storageSrc;
     private Set<ByteArrayWrapper> removes = new HashSet<>();
 
+    // contracts updated since the last storage sync
+    private Set<ByteArrayWrapper> unsynced = new HashSet<>();
+    // encoded size of the contracts updated or removed since the last flush
+    private Map<ByteArrayWrapper, Integer> unflushed = new HashMap<>();
+    private long unflushedSize = 0;
+
     public DetailsDataStore() {}
 
     public DetailsDataStore(
@@ -106,11 +115,25 @@ public class DetailsDataStore<
         }
 
         // Found something from cache or database, return it by decoding it.
+        return decode(rawDetails.get());
+    }
+
+    /**
+     * Fetches the ContractDetails without locking this store. Used by the read-only views of the
+     * repository so that queries never wait for an ongoing {@link #flush()}.
+     *
+     * @param key the contract address
+     * @return the decoded details or {@code null} if not stored
+     */
+    public IContractDetails<IDataWord> read(byte[] key) {
+        Optional<byte[]> rawDetails = detailsSrc.get(key);
+        return rawDetails.isPresent() ? decode(rawDetails.get()) : null;
+    }
+
+    private IContractDetails<IDataWord> decode(byte[] rawDetails) {
         IContractDetails<IDataWord> detailsImpl = repoConfig.contractDetailsImpl();
         detailsImpl.setDataSource(storageDSPrune);
-        detailsImpl.decode(rawDetails.get()); // We can safely get as we checked
-        // if it is present.
-
+        detailsImpl.decode(rawDetails);
         return detailsImpl;
     }
 
@@ -127,6 +150,9 @@ public class DetailsDataStore<
 
         // Remove from the remove set.
         removes.remove(wrappedKey);
+
+        unsynced.add(wrappedKey);
+        trackSize(wrappedKey, rawDetails == null ? 0 : rawDetails.length);
     }
 
     public synchronized void remove(byte[] key) {
@@ -134,41 +160,51 @@ public class DetailsDataStore<
         detailsSrc.put(key, null);
 
         removes.add(wrappedKey);
+
+        unsynced.remove(wrappedKey);
+        trackSize(wrappedKey, 0);
     }
 
-    public synchronized void flush() {
-        flushInternal();
+    /** Replaces the size previously recorded for the key since the last flush. */
+    private void trackSize(ByteArrayWrapper key, int size) {
+        Integer previous = unflushed.put(key, size);
+        unflushedSize += size - (previous == null ? 0 : previous);
     }
 
-    private long flushInternal() {
-        long totalSize = 0;
+    /**
+     * Commits the updated details and their storage.
+     *
+     * @return the encoded size of the details updated since the previous flush
+     */
+    public synchronized long flush() {
+        return flushInternal();
+    }
 
+    private long flushInternal() {
         syncLargeStorage();
 
-        // Get everything from the cache and calculate the size.
-        Set<byte[]> keysFromSource = detailsSrc.keys();
-        for (byte[] keyInSource : keysFromSource) {
-            // Fetch the value given the keys.
-            Optional<byte[]> valFromKey = detailsSrc.get(keyInSource);
-
-            // Add to total size given size of the value
-            totalSize += valFromKey.map(rawDetails -> rawDetails.length).orElse(0);
-        }
+        long totalSize = unflushedSize;
 
         // Flushes both details and storage.
         detailsSrc.commit();
         storageSrc.commit();
 
+        unflushed.clear();
+        unflushedSize = 0;
+
         return totalSize;
     }
 
-    public void syncLargeStorage() {
+    /**
+     * Syncs the storage of the contracts updated since the previous call. The cost depends only on
+     * the number of updated contracts, not on the number of contracts in the database.
+     */
+    public synchronized void syncLargeStorage() {
 
-        Set<byte[]> keysFromSource = detailsSrc.keys();
-        for (byte[] keyInSource : keysFromSource) {
+        for (ByteArrayWrapper key : unsynced) {
 
             // Fetch the value given the keys.
-            Optional<byte[]> rawDetails = detailsSrc.get(keyInSource);
+            Optional<byte[]> rawDetails = detailsSrc.get(key.getData());
 
             // If it is null, just continue
             if (!rawDetails.isPresent()) {
@@ -184,6 +220,7 @@ public class DetailsDataStore<
             // IContractDetails details = entry.getValue();
             detailsImpl.syncStorage();
         }
+        unsynced.clear();
     }
 
     public JournalPruneDataSource getStorageDSPrune() {
@@ -193,8 +230,10 @@ public class DetailsDataStore<
     public synchronized Set<ByteArrayWrapper> keys() {
         // TODO - @yao do we wanted a sorted set?
         Set<ByteArrayWrapper> keys = new HashSet<>();
-        for (byte[] key : detailsSrc.keys()) {
-            keys.add(wrap(key));
+        try (IByteArrayKeyValueIterator itr = detailsSrc.iterator()) {
+            while (itr.hasNext()) {
+                keys.add(wrap(itr.next().getKey()));
+            }
         }
         return keys;
     }
@@ -211,8 +250,10 @@ public class DetailsDataStore<
     public static List<ByteArrayWrapper> dumpKeys(IByteArrayKeyValueDatabase ds) {
         ArrayList<ByteArrayWrapper> keys = new ArrayList<>();
 
-        for (byte[] key : ds.keys()) {
-            keys.add(wrap(key));
+        try (IByteArrayKeyValueIterator itr = ds.iterator()) {
+            while (itr.hasNext()) {
+                keys.add(wrap(itr.next().getKey()));
+            }
         }
 
         Collections.sort(keys);
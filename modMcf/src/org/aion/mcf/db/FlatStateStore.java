@@ -0,0 +1,425 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.db;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.ByteUtil;
+import org.aion.base.util.Hex;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
+
+/**
+ * Flat key-value view of the world state used to answer account and storage reads without walking
+ * the state trie. The trie remains the source of truth for root hashes; this store only mirrors
+ * the values reachable from a single state root.
+ *
+ * <p>Account entries are stored under the account address and reflect the state at {@link
+ * #getRoot()}. They are written through by the repository when the world state is updated and
+ * populated on read misses. Every update is recorded as a diff layer holding the addresses it
+ * touched, so that moving to a different root within the last {@code maxLayers} updates only
+ * invalidates the affected accounts. Moving to an unknown root invalidates all the account entries
+ * by starting a new generation.
+ *
+ * <p>Storage entries are stored under the account address concatenated with the storage key and
+ * tagged with the storage root they were read at. Since the storage root identifies the storage
+ * content, an entry is valid whenever its tag matches the current storage root of the account and
+ * never needs to be invalidated.
+ *
+ * @implNote Each write is applied to the database together with the current root and generation,
+ *     so the persisted data is consistent with the persisted root at any point in time.
+ */
+public class FlatStateStore {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
+
+    /** Default number of state updates that can be reverted without invalidating all entries. */
+    public static final int DEFAULT_MAX_LAYERS = 128;
+
+    /** Key of the root and generation information; shorter than any account or storage key. */
+    private static final byte[] META_KEY = "flat-meta".getBytes();
+
+    private static final int GEN_SIZE = 8;
+    private static final int ROOT_SIZE = 32;
+    private static final int ADDRESS_SIZE = 32;
+
+    private final IByteArrayKeyValueDatabase database;
+    private final int maxLayers;
+
+    /** Diff layers indexed by the root obtained after applying them. */
+    private final LinkedHashMap<ByteArrayWrapper, Layer> layers = new LinkedHashMap<>();
+
+    private byte[] root;
+    private long generation;
+
+    private final AtomicLong accountHits = new AtomicLong();
+    private final AtomicLong accountMisses = new AtomicLong();
+    private final AtomicLong storageHits = new AtomicLong();
+    private final AtomicLong storageMisses = new AtomicLong();
+
+    private static class Layer {
+        final ByteArrayWrapper parent;
+        final Set<ByteArrayWrapper> accounts;
+
+        Layer(ByteArrayWrapper parent, Set<ByteArrayWrapper> accounts) {
+            this.parent = parent;
+            this.accounts = accounts;
+        }
+    }
+
+    public FlatStateStore(IByteArrayKeyValueDatabase database, int maxLayers) {
+        this.database = database;
+        this.maxLayers = maxLayers;
+
+        Optional<byte[]> meta = database.get(META_KEY);
+        if (meta.isPresent() && meta.get().length == GEN_SIZE + ROOT_SIZE) {
+            generation = ByteUtil.byteArrayToLong(Arrays.copyOfRange(meta.get(), 0, GEN_SIZE));
+            root = Arrays.copyOfRange(meta.get(), GEN_SIZE, GEN_SIZE + ROOT_SIZE);
+        } else {
+            generation = 0;
+            root = null;
+        }
+    }
+
+    /** @return the state root reflected by the account entries or {@code null} if not set */
+    public synchronized byte[] getRoot() {
+        return root;
+    }
+
+    /**
+     * Retrieves the encoded account state for the given address.
+     *
+     * @param stateRoot the state root at which the account is read
+     * @param address the account address
+     * @return the encoded account state, an empty array when the account is known not to exist, or
+     *     {@code null} when the store cannot answer for the given root and address
+     */
+    public synchronized byte[] getAccount(byte[] stateRoot, byte[] address) {
+        if (root == null || !Arrays.equals(root, stateRoot)) {
+            return null;
+        }
+
+        Optional<byte[]> data = database.get(address);
+        if (data.isPresent()
+                && data.get().length >= GEN_SIZE
+                && readGeneration(data.get()) == generation) {
+            accountHits.incrementAndGet();
+            return Arrays.copyOfRange(data.get(), GEN_SIZE, data.get().length);
+        }
+
+        accountMisses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores an account state read from the trie at the given root. Ignored when the root is not
+     * the one reflected by the store.
+     *
+     * @param encoded the encoded account state or an empty array if the account does not exist
+     */
+    public synchronized void putAccount(byte[] stateRoot, byte[] address, byte[] encoded) {
+        if (root != null && Arrays.equals(root, stateRoot)) {
+            database.put(address, ByteUtil.merge(ByteUtil.longToBytes(generation), encoded));
+        }
+    }
+
+    /**
+     * Retrieves the value of a storage key.
+     *
+     * @param address the contract address
+     * @param storageRoot the current storage root of the contract
+     * @param key the storage key
+     * @return the storage value, an empty array when the key is known not to be set, or {@code
+     *     null} when the store cannot answer for the given storage root
+     */
+    public byte[] getStorage(byte[] address, byte[] storageRoot, byte[] key) {
+        Optional<byte[]> data = database.get(ByteUtil.merge(address, key));
+        if (data.isPresent()
+                && data.get().length >= ROOT_SIZE
+                && Arrays.equals(Arrays.copyOfRange(data.get(), 0, ROOT_SIZE), storageRoot)) {
+            storageHits.incrementAndGet();
+            return Arrays.copyOfRange(data.get(), ROOT_SIZE, data.get().length);
+        }
+
+        storageMisses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores a storage value read at the given storage root.
+     *
+     * @param value the storage value or an empty array if the key is not set
+     */
+    public void putStorage(byte[] address, byte[] storageRoot, byte[] key, byte[] value) {
+        database.put(ByteUtil.merge(address, key), ByteUtil.merge(storageRoot, value));
+    }
+
+    /**
+     * Applies the account changes of a world state update and records them as a diff layer.
+     *
+     * @param rootBefore the state root before the update
+     * @param rootAfter the state root after the update
+     * @param accounts the encoded account states by address, with empty arrays for deleted
+     *     accounts
+     */
+    public synchronized void update(
+            byte[] rootBefore, byte[] rootAfter, Map<ByteArrayWrapper, byte[]> accounts) {
+        moveTo(rootBefore);
+
+        byte[] gen = ByteUtil.longToBytes(generation);
+        Map<byte[], byte[]> batch = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : accounts.entrySet()) {
+            batch.put(e.getKey().getData(), ByteUtil.merge(gen, e.getValue()));
+        }
+
+        if (!Arrays.equals(rootBefore, rootAfter)) {
+            ByteArrayWrapper after = ByteArrayWrapper.wrap(rootAfter);
+            layers.remove(after);
+            layers.put(
+                    after,
+                    new Layer(ByteArrayWrapper.wrap(rootBefore), new HashSet<>(accounts.keySet())));
+            trimLayers();
+            root = rootAfter;
+        }
+
+        batch.put(META_KEY, encodeMeta());
+        database.putBatch(batch);
+    }
+
+    /**
+     * Makes the store reflect the given state root. When the root is reachable through the known
+     * diff layers only the accounts touched on the path are invalidated, otherwise all the account
+     * entries are invalidated.
+     */
+    public synchronized void moveTo(byte[] target) {
+        if (root != null && Arrays.equals(root, target)) {
+            return;
+        }
+
+        Set<ByteArrayWrapper> touched = root == null ? null : findTouched(target);
+
+        if (touched == null) {
+            generation++;
+            layers.clear();
+            LOG.debug(
+                    "Flat state reset to root={} generation={}.", Hex.toHexString(target), generation);
+        } else {
+            LOG.debug(
+                    "Flat state moved to root={} invalidating {} accounts.",
+                    Hex.toHexString(target),
+                    touched.size());
+        }
+
+        root = target;
+
+        Map<byte[], byte[]> batch = new HashMap<>();
+        if (touched != null) {
+            for (ByteArrayWrapper address : touched) {
+                batch.put(address.getData(), null);
+            }
+        }
+        batch.put(META_KEY, encodeMeta());
+        database.putBatch(batch);
+    }
+
+    /**
+     * Collects the accounts touched between the current root and the given target through their
+     * closest common ancestor in the diff layers.
+     *
+     * @return the touched accounts or {@code null} if the target is not connected to the current
+     *     root
+     */
+    private Set<ByteArrayWrapper> findTouched(byte[] target) {
+        // ancestors of the current root, in order
+        Map<ByteArrayWrapper, Integer> ancestors = new HashMap<>();
+        ByteArrayWrapper node = ByteArrayWrapper.wrap(root);
+        int depth = 0;
+        ancestors.put(node, depth);
+        Layer layer;
+        while ((layer = layers.get(node)) != null && !ancestors.containsKey(layer.parent)) {
+            node = layer.parent;
+            ancestors.put(node, ++depth);
+        }
+
+        Set<ByteArrayWrapper> touched = new HashSet<>();
+
+        // walk up from the target until reaching an ancestor of the current root
+        node = ByteArrayWrapper.wrap(target);
+        Set<ByteArrayWrapper> visited = new HashSet<>();
+        while (!ancestors.containsKey(node)) {
+            layer = layers.get(node);
+            if (layer == null || !visited.add(node)) {
+                return null;
+            }
+            touched.addAll(layer.accounts);
+            node = layer.parent;
+        }
+        ByteArrayWrapper common = node;
+
+        // walk up from the current root until reaching the common ancestor
+        node = ByteArrayWrapper.wrap(root);
+        while (!node.equals(common)) {
+            layer = layers.get(node);
+            touched.addAll(layer.accounts);
+            node = layer.parent;
+        }
+
+        return touched;
+    }
+
+    /** Invalidates all the account entries. */
+    public synchronized void clear() {
+        generation++;
+        layers.clear();
+        database.putBatch(Collections.singletonMap(META_KEY, encodeMeta()));
+    }
+
+    private void trimLayers() {
+        Iterator<ByteArrayWrapper> it = layers.keySet().iterator();
+        while (layers.size() > maxLayers && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private byte[] encodeMeta() {
+        return ByteUtil.merge(
+                ByteUtil.longToBytes(generation), root == null ? new byte[ROOT_SIZE] : root);
+    }
+
+    private static long readGeneration(byte[] data) {
+        return ByteUtil.byteArrayToLong(Arrays.copyOfRange(data, 0, GEN_SIZE));
+    }
+
+    /**
+     * Lists the valid account entries of the current generation.
+     *
+     * @implNote Iterates over all the entries of the underlying database; intended for offline
+     *     checks.
+     */
+    public synchronized Map<ByteArrayWrapper, byte[]> getAccounts() {
+        Map<ByteArrayWrapper, byte[]> accounts = new HashMap<>();
+        try (IByteArrayKeyValueIterator itr = database.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = itr.next();
+                byte[] key = entry.getKey();
+                byte[] data = entry.getValue();
+                if (key.length == ADDRESS_SIZE
+                        && data.length >= GEN_SIZE
+                        && readGeneration(data) == generation) {
+                    accounts.put(
+                            ByteArrayWrapper.wrap(key),
+                            Arrays.copyOfRange(data, GEN_SIZE, data.length));
+                }
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Lists the storage entries for all contracts, including entries tagged with outdated storage
+     * roots.
+     *
+     * @return the entries indexed by address and storage key, with values composed of the storage
+     *     root tag followed by the storage value
+     * @implNote Iterates over all the entries of the underlying database; intended for offline
+     *     checks.
+     */
+    public Map<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> getStorageEntries() {
+        Map<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> entries = new HashMap<>();
+        try (IByteArrayKeyValueIterator itr = database.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = itr.next();
+                byte[] key = entry.getKey();
+                if (key.length > ADDRESS_SIZE && entry.getValue().length >= ROOT_SIZE) {
+                    entries.computeIfAbsent(
+                                    ByteArrayWrapper.wrap(Arrays.copyOfRange(key, 0, ADDRESS_SIZE)),
+                                    k -> new HashMap<>())
+                            .put(
+                                    ByteArrayWrapper.wrap(
+                                            Arrays.copyOfRange(key, ADDRESS_SIZE, key.length)),
+                                    entry.getValue());
+                }
+            }
+        }
+        return entries;
+    }
+
+    /** @return the storage root tag of an entry returned by {@link #getStorageEntries()} */
+    public static byte[] getStorageRootTag(byte[] entry) {
+        return Arrays.copyOfRange(entry, 0, ROOT_SIZE);
+    }
+
+    /** @return the storage value of an entry returned by {@link #getStorageEntries()} */
+    public static byte[] getStorageValue(byte[] entry) {
+        return Arrays.copyOfRange(entry, ROOT_SIZE, entry.length);
+    }
+
+    public long getAccountHits() {
+        return accountHits.get();
+    }
+
+    public long getAccountMisses() {
+        return accountMisses.get();
+    }
+
+    public long getStorageHits() {
+        return storageHits.get();
+    }
+
+    public long getStorageMisses() {
+        return storageMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "FlatStateStore{ root="
+                + (root == null ? "null" : Hex.toHexString(root))
+                + ", generation="
+                + generation
+                + ", layers="
+                + layers.size()
+                + ", accountHits="
+                + accountHits.get()
+                + ", accountMisses="
+                + accountMisses.get()
+                + ", storageHits="
+                + storageHits.get()
+                + ", storageMisses="
+                + storageMisses.get()
+                + '}';
+    }
+}
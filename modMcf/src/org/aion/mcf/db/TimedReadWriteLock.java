@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.db;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * {@link ReentrantReadWriteLock} that records how long threads wait to acquire the read and the
+ * write lock. The locks are always acquired through the blocking calls, so readers cannot barge
+ * past a queued writer. The clock is only read when the lock looks busy before the call.
+ */
+public class TimedReadWriteLock implements ReadWriteLock {
+
+    private final TimedLock readLock;
+    private final TimedLock writeLock;
+
+    public TimedReadWriteLock() {
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock =
+                new TimedLock(
+                        lock.readLock(),
+                        () ->
+                                (lock.isWriteLocked() && !lock.isWriteLockedByCurrentThread())
+                                        || lock.hasQueuedThreads());
+        this.writeLock =
+                new TimedLock(
+                        lock.writeLock(),
+                        () ->
+                                !lock.isWriteLockedByCurrentThread()
+                                        && (lock.isWriteLocked()
+                                                || lock.getReadLockCount() > 0
+                                                || lock.hasQueuedThreads()));
+    }
+
+    @Override
+    public TimedLock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public TimedLock writeLock() {
+        return writeLock;
+    }
+
+    @Override
+    public String toString() {
+        return "TimedReadWriteLock[read: "
+                + readLock.toString()
+                + ", write: "
+                + writeLock.toString()
+                + "]";
+    }
+
+    /** Lock that delegates to another lock and records the time spent waiting to acquire it. */
+    public static class TimedLock implements Lock {
+
+        private final Lock lock;
+        // true when an acquisition is likely to wait for another thread
+        private final BooleanSupplier busy;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        private TimedLock(Lock lock, BooleanSupplier busy) {
+            this.lock = lock;
+            this.busy = busy;
+        }
+
+        @Override
+        public void lock() {
+            if (busy.getAsBoolean()) {
+                long start = System.nanoTime();
+                lock.lock();
+                waitNanos.add(System.nanoTime() - start);
+                contended.increment();
+            } else {
+                lock.lock();
+            }
+            acquired.increment();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (busy.getAsBoolean()) {
+                long start = System.nanoTime();
+                lock.lockInterruptibly();
+                waitNanos.add(System.nanoTime() - start);
+                contended.increment();
+            } else {
+                lock.lockInterruptibly();
+            }
+            acquired.increment();
+        }
+
+        @Override
+        public boolean tryLock() {
+            boolean locked = lock.tryLock();
+            if (locked) {
+                acquired.increment();
+            }
+            return locked;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            boolean locked;
+            if (busy.getAsBoolean()) {
+                long start = System.nanoTime();
+                locked = lock.tryLock(time, unit);
+                waitNanos.add(System.nanoTime() - start);
+                contended.increment();
+            } else {
+                locked = lock.tryLock(time, unit);
+            }
+            if (locked) {
+                acquired.increment();
+            }
+            return locked;
+        }
+
+        @Override
+        public void unlock() {
+            lock.unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return lock.newCondition();
+        }
+
+        /** @return the number of times the lock was acquired */
+        public long getAcquiredCount() {
+            return acquired.sum();
+        }
+
+        /** @return the number of acquisitions that found the lock held or queued for */
+        public long getContendedCount() {
+            return contended.sum();
+        }
+
+        /** @return the total time spent waiting for the lock in nanoseconds */
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "acquired="
+                    + getAcquiredCount()
+                    + " contended="
+                    + getContendedCount()
+                    + " waitMs="
+                    + TimeUnit.NANOSECONDS.toMillis(getWaitNanos());
+        }
+    }
+}
@@ -28,7 +28,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.util.ByteArrayWrapper;
 
 /**
  * A data source with archived data that must no be deleted.
@@ -59,6 +61,16 @@ public class ArchivedDataSource implements IByteArrayKeyValueStore {
         return data.get(key);
     }
 
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys) {
+        return data.getMany(keys);
+    }
+
+    @Override
+    public IByteArrayKeyValueIterator iterator(byte[] from, byte[] to) {
+        return data.iterator(from, to);
+    }
+
     @Override
     public void put(byte[] key, byte[] value) {
         if (value != null) {
@@ -23,9 +23,13 @@
 package org.aion.mcf.ds;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import org.aion.base.db.Flushable;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.util.ByteArrayWrapper;
 
 /**
  * Object Datasource.
@@ -82,6 +86,19 @@ public class ObjectDataSource<V> implements Flushable, Closeable {
         return val.map(serializer::deserialize).orElse(null);
     }
 
+    /**
+     * Retrieves the values for the given keys with a single multi-get from the underlying source.
+     *
+     * @return the deserialized values of the keys that exist, the missing keys are omitted
+     */
+    public Map<ByteArrayWrapper, V> getMany(Collection<byte[]> keys) {
+        Map<ByteArrayWrapper, V> values = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : src.getMany(keys).entrySet()) {
+            values.put(e.getKey(), serializer.deserialize(e.getValue()));
+        }
+        return values;
+    }
+
     /**
      * Returns the underlying cache source.
      *
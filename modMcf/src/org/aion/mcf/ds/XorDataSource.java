@@ -34,15 +34,22 @@
  */
 package org.aion.mcf.ds;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.base.util.ByteUtil;
+import org.aion.mcf.trie.JournalPruneDataSource;
+import org.aion.mcf.trie.NodeCache;
 
 public class XorDataSource implements IByteArrayKeyValueStore {
     IByteArrayKeyValueStore source;
@@ -57,6 +64,20 @@ public class XorDataSource implements IByteArrayKeyValueStore {
         return ByteUtil.xorAlignRight(key, subKey);
     }
 
+    /**
+     * @return a view of the node cache attached to the source that stores the nodes under the
+     *     converted keys, or {@code null} if the source has no node cache
+     */
+    public NodeCache getNodeCache() {
+        if (source instanceof JournalPruneDataSource) {
+            NodeCache nodeCache = ((JournalPruneDataSource) source).getNodeCache();
+            if (nodeCache != null) {
+                return nodeCache.withKeyMapping(this::convertKey);
+            }
+        }
+        return null;
+    }
+
     @Override
     public Optional<byte[]> get(byte[] key) {
         return source.get(convertKey(key));
@@ -74,14 +95,52 @@ public class XorDataSource implements IByteArrayKeyValueStore {
 
     @Override
     public Set<byte[]> keys() {
-        Set<byte[]> keys = source.keys();
-        Set<byte[]> ret = new HashSet<>(keys.size());
+        Set<byte[]> ret = new HashSet<>();
+        try (IByteArrayKeyValueIterator itr = source.iterator()) {
+            while (itr.hasNext()) {
+                ret.add(convertKey(itr.next().getKey()));
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys) {
+        Map<ByteArrayWrapper, ByteArrayWrapper> original = new HashMap<>(keys.size());
+        List<byte[]> converted = new ArrayList<>(keys.size());
         for (byte[] key : keys) {
-            ret.add(convertKey(key));
+            byte[] convertedKey = convertKey(key);
+            original.put(ByteArrayWrapper.wrap(convertedKey), ByteArrayWrapper.wrap(key));
+            converted.add(convertedKey);
+        }
+
+        Map<ByteArrayWrapper, byte[]> ret = new HashMap<>();
+        for (Map.Entry<ByteArrayWrapper, byte[]> e : source.getMany(converted).entrySet()) {
+            ret.put(original.get(e.getKey()), e.getValue());
         }
         return ret;
     }
 
+    /**
+     * @implNote The conversion of the keys does not preserve their order, so the source is scanned
+     *     in full and the entries inside the range are sorted before being returned.
+     */
+    @Override
+    public IByteArrayKeyValueIterator iterator(byte[] from, byte[] to) {
+        List<Map.Entry<byte[], byte[]>> entries = new ArrayList<>();
+        try (IByteArrayKeyValueIterator itr = source.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = itr.next();
+                byte[] key = convertKey(entry.getKey());
+                if (IByteArrayKeyValueStore.isInRange(key, from, to)) {
+                    entries.add(new SimpleImmutableEntry<>(key, entry.getValue()));
+                }
+            }
+        }
+        entries.sort((e1, e2) -> Arrays.compareUnsigned(e1.getKey(), e2.getKey()));
+        return IByteArrayKeyValueIterator.of(entries.iterator());
+    }
+
     @Override
     public void putBatch(Map<byte[], byte[]> rows) {
         Map<byte[], byte[]> converted = new HashMap<>(rows.size());
@@ -22,17 +22,20 @@
  */
 package org.aion.mcf.manager;
 
-import java.util.LinkedList;
-import java.util.List;
+import org.aion.base.metrics.Histogram;
+import org.aion.base.metrics.MetricRegistry;
 
 /** Chain statistics. */
 public class ChainStatistics {
 
-    private static final int ExecTimeListLimit = 10000;
+    private final Histogram blockExecTime =
+            MetricRegistry.getInstance()
+                    .timer(
+                            "aion_block_execution_seconds",
+                            "Time spent executing the transactions of a block.");
 
     private long startupTimeStamp;
     private boolean consensus = true;
-    private List<Long> blockExecTime = new LinkedList<>();
 
     public void init() {
         startupTimeStamp = System.currentTimeMillis();
@@ -50,28 +53,13 @@ public class ChainStatistics {
         consensus = false;
     }
 
+    /** @param time the execution time in nanoseconds */
     public void addBlockExecTime(long time) {
-        while (blockExecTime.size() > ExecTimeListLimit) {
-            blockExecTime.remove(0);
-        }
-        blockExecTime.add(time);
+        blockExecTime.record(time);
     }
 
+    /** @return the mean block execution time in nanoseconds */
     public Long getExecAvg() {
-
-        if (blockExecTime.isEmpty()) {
-            return 0L;
-        }
-
-        long sum = 0;
-        for (int i = 0; i < blockExecTime.size(); ++i) {
-            sum += blockExecTime.get(i);
-        }
-
-        return sum / blockExecTime.size();
-    }
-
-    public List<Long> getBlockExecTime() {
-        return blockExecTime;
+        return blockExecTime.getMean();
     }
 }
@@ -41,14 +41,19 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.metrics.Counter;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.crypto.HashUtil;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
+import org.aion.mcf.ds.XorDataSource;
 import org.aion.rlp.Value;
 import org.slf4j.Logger;
 
@@ -57,13 +62,92 @@ public class Cache {
 
     private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.DB.name());
 
+    private static final Counter CACHE_HITS = requests("hit");
+    private static final Counter NODE_CACHE_HITS = requests("node_cache");
+    private static final Counter DB_HITS = requests("db");
+    private static final Counter MISSES = requests("miss");
+
     private IByteArrayKeyValueStore dataSource;
     private Map<ByteArrayWrapper, Node> nodes = new LinkedHashMap<>();
     private Set<ByteArrayWrapper> removedNodes = new HashSet<>();
     private boolean isDirty;
+    // persisted nodes shared with other tries, can be null
+    private final NodeCache nodeCache;
+    // the cache this one was forked from, can be null
+    private final Cache parent;
 
+    /**
+     * Creates a cache reading the missing nodes through the {@link NodeCache} attached to the data
+     * source, when it is a {@link JournalPruneDataSource} or an {@link XorDataSource} over one.
+     *
+     * @param dataSource the database storing the trie nodes
+     */
     public Cache(IByteArrayKeyValueStore dataSource) {
+        this(dataSource, nodeCacheOf(dataSource));
+    }
+
+    /**
+     * @param dataSource the database storing the trie nodes
+     * @param nodeCache the cache of persisted nodes or {@code null} to read all the nodes
+     *     missing from this cache from the data source
+     */
+    public Cache(IByteArrayKeyValueStore dataSource, NodeCache nodeCache) {
         this.dataSource = dataSource;
+        this.nodeCache = nodeCache;
+        this.parent = null;
+    }
+
+    private static NodeCache nodeCacheOf(IByteArrayKeyValueStore dataSource) {
+        if (dataSource instanceof JournalPruneDataSource) {
+            return ((JournalPruneDataSource) dataSource).getNodeCache();
+        }
+        if (dataSource instanceof XorDataSource) {
+            return ((XorDataSource) dataSource).getNodeCache();
+        }
+        return null;
+    }
+
+    private Cache(Cache parent) {
+        this.dataSource = null;
+        this.nodeCache = null;
+        this.parent = parent;
+    }
+
+    /**
+     * Creates a cache that keeps the new and removed nodes to itself and reads the missing nodes
+     * from this cache. Used for updating a subtree on another thread without locking this cache for
+     * the whole update. The changes are applied to this cache by {@link #merge(Cache)}.
+     *
+     * @return a new cache forked from this one
+     */
+    public Cache fork() {
+        return new Cache(this);
+    }
+
+    /**
+     * Applies the changes recorded by caches created with {@link #fork()}. The removed nodes of all
+     * the forks are applied before their new nodes, so a node removed by one fork and put by
+     * another one is kept regardless of the order of the forks.
+     *
+     * @param forks caches forked from this one
+     */
+    public synchronized void merge(List<Cache> forks) {
+        for (Cache fork : forks) {
+            synchronized (fork) {
+                for (ByteArrayWrapper key : fork.removedNodes) {
+                    markRemoved(key.getData());
+                }
+            }
+        }
+        for (Cache fork : forks) {
+            synchronized (fork) {
+                for (Map.Entry<ByteArrayWrapper, Node> entry : fork.nodes.entrySet()) {
+                    this.nodes.put(entry.getKey(), entry.getValue());
+                    this.removedNodes.remove(entry.getKey());
+                }
+                this.isDirty |= fork.isDirty;
+            }
+        }
     }
 
     public synchronized void markRemoved(byte[] key) {
@@ -82,7 +166,7 @@ public class Cache {
         Value value = new Value(o);
         byte[] enc = value.encode();
         if (enc.length >= 32) {
-            byte[] sha = HashUtil.h256(value.encode());
+            byte[] sha = HashUtil.h256(enc);
             ByteArrayWrapper key = wrap(sha);
             this.nodes.put(key, new Node(value, true));
             this.removedNodes.remove(key);
@@ -98,26 +182,69 @@ public class Cache {
         ByteArrayWrapper wrappedKey = wrap(key);
         Node node = nodes.get(wrappedKey);
         if (node != null) {
-            // cachehits++;
+            CACHE_HITS.inc();
             return node.getValue();
         }
         if (this.dataSource != null) {
+            if (nodeCache != null) {
+                Value val = nodeCache.get(wrappedKey);
+                if (val != null) {
+                    NODE_CACHE_HITS.inc();
+                    return val;
+                }
+            }
+
             Optional<byte[]> data =
                     (this.dataSource == null) ? Optional.empty() : this.dataSource.get(key);
             if (data.isPresent()) {
-                // dbhits++;
+                DB_HITS.inc();
                 Value val = fromRlpEncoded(data.get());
                 nodes.put(wrappedKey, new Node(val, false));
+                if (nodeCache != null) {
+                    nodeCache.put(wrappedKey, val);
+                }
                 return val;
             }
         }
 
+        if (parent != null) {
+            // counted by the parent
+            return parent.get(key);
+        }
+
+        MISSES.inc();
         return null;
     }
 
+    private static Counter requests(String result) {
+        return MetricRegistry.getInstance()
+                .counter(
+                        "aion_trie_cache_requests_total",
+                        "Trie node lookups by where the node was found.",
+                        "result",
+                        result);
+    }
+
+    /**
+     * Checks if the node is present in this cache or in the data source, ignoring the {@link
+     * NodeCache} so that only the nodes actually stored are reported.
+     *
+     * @param key the hash of the node
+     * @return {@code true} if the node can be retrieved, {@code false} otherwise
+     */
+    public synchronized boolean contains(byte[] key) {
+        if (nodes.containsKey(wrap(key))) {
+            return true;
+        }
+        return dataSource != null && dataSource.get(key).isPresent();
+    }
+
     public synchronized void delete(byte[] key) {
         ByteArrayWrapper wrappedKey = wrap(key);
         this.nodes.remove(wrappedKey);
+        if (nodeCache != null) {
+            nodeCache.invalidate(wrappedKey);
+        }
 
         if (dataSource != null) {
             this.dataSource.delete(key);
@@ -164,6 +291,20 @@ public class Cache {
         }
 
         this.dataSource.putBatch(batch);
+
+        // the committed nodes are now persisted and can be shared
+        if (nodeCache != null) {
+            for (Map.Entry<byte[], byte[]> entry : batch.entrySet()) {
+                ByteArrayWrapper key = wrap(entry.getKey());
+                Node node = entry.getValue() == null ? null : this.nodes.get(key);
+                if (node == null) {
+                    nodeCache.invalidate(key);
+                } else {
+                    nodeCache.put(key, node.getValue());
+                }
+            }
+        }
+
         this.isDirty = false;
         if (flushCache) {
             this.nodes.clear();
@@ -229,8 +370,11 @@ public class Cache {
                 }
             }
         } else {
-            for (byte[] key : this.dataSource.keys()) {
-                rows.put(key, this.dataSource.get(key).get());
+            try (IByteArrayKeyValueIterator itr = this.dataSource.iterator()) {
+                while (itr.hasNext()) {
+                    Map.Entry<byte[], byte[]> entry = itr.next();
+                    rows.put(entry.getKey(), entry.getValue());
+                }
             }
 
             try {
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.trie;
+
+import static java.util.Arrays.copyOfRange;
+import static org.aion.base.util.ByteArrayWrapper.wrap;
+import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
+import static org.aion.crypto.HashUtil.EMPTY_TRIE_HASH;
+import static org.aion.crypto.HashUtil.h256;
+import static org.aion.rlp.CompactEncoder.binToNibbles;
+import static org.aion.rlp.CompactEncoder.unpackToNibbles;
+import static org.aion.rlp.Value.fromRlpEncoded;
+
+import java.util.Arrays;
+import java.util.Optional;
+import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.rlp.Value;
+
+/**
+ * Read-only view of a trie at a committed root that can be shared by multiple threads.
+ *
+ * <p>A {@link TrieImpl} synchronizes every lookup on its {@link Cache} because the cache also holds
+ * the dirty nodes of pending updates. This view only reads persisted nodes, first from the given
+ * {@link NodeCache} and then from the database. Nodes are stored under the hash of their encoding,
+ * so the nodes reachable from a committed root never change and lookups need no locking.
+ *
+ * @implNote Nodes removed from the database by pruning are reported as missing values.
+ */
+public class ImmutableTrie {
+
+    private static final int PAIR_SIZE = 2;
+
+    private final IByteArrayKeyValueStore db;
+    private final NodeCache nodeCache;
+    private final byte[] root;
+    private final boolean secure;
+
+    /**
+     * Creates a view reading all the nodes from the database.
+     *
+     * @param db the database storing the trie nodes
+     * @param root the root hash of the trie
+     * @param secure {@code true} if the keys are hashed before insertion, as done by {@link
+     *     SecureTrie}
+     */
+    public ImmutableTrie(IByteArrayKeyValueStore db, byte[] root, boolean secure) {
+        this(db, null, root, secure);
+    }
+
+    /**
+     * @param db the database storing the trie nodes
+     * @param nodeCache the cache of persisted nodes or {@code null} to read all the nodes
+     *     from the database
+     * @param root the root hash of the trie
+     * @param secure {@code true} if the keys are hashed before insertion, as done by {@link
+     *     SecureTrie}
+     */
+    public ImmutableTrie(
+            IByteArrayKeyValueStore db, NodeCache nodeCache, byte[] root, boolean secure) {
+        this.db = db;
+        this.nodeCache = nodeCache;
+        this.root = root;
+        this.secure = secure;
+    }
+
+    public byte[] getRootHash() {
+        return root;
+    }
+
+    /**
+     * Retrieves the value stored under the given key.
+     *
+     * @param key the key of the value
+     * @return the stored value or an empty array if the key is not present
+     */
+    public byte[] get(byte[] key) {
+        if (Arrays.equals(root, EMPTY_TRIE_HASH)) {
+            return EMPTY_BYTE_ARRAY;
+        }
+
+        byte[] nibbles = binToNibbles(secure ? h256(key) : key);
+        Object node = root;
+        int pos = 0;
+
+        while (pos < nibbles.length && !isEmptyNode(node)) {
+            Value currentNode = getNode(node);
+            if (currentNode == null) {
+                return EMPTY_BYTE_ARRAY;
+            }
+
+            if (currentNode.length() == PAIR_SIZE) {
+                byte[] k = unpackToNibbles(currentNode.get(0).asBytes());
+
+                if (nibbles.length - pos < k.length
+                        || !Arrays.equals(k, copyOfRange(nibbles, pos, pos + k.length))) {
+                    return EMPTY_BYTE_ARRAY;
+                }
+                node = currentNode.get(1).asObj();
+                pos += k.length;
+            } else {
+                node = currentNode.get(nibbles[pos]).asObj();
+                pos++;
+            }
+        }
+        return new Value(node).asBytes();
+    }
+
+    private Value getNode(Object node) {
+        Value val = new Value(node);
+
+        // embedded nodes are already decoded
+        if (!val.isBytes()) {
+            return val;
+        }
+
+        byte[] hash = val.asBytes();
+        if (hash.length < 32) {
+            return val;
+        }
+
+        ByteArrayWrapper key = wrap(hash);
+        if (nodeCache != null) {
+            Value cached = nodeCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Optional<byte[]> data = db.get(hash);
+        if (!data.isPresent()) {
+            return null;
+        }
+
+        Value decoded = fromRlpEncoded(data.get());
+        if (nodeCache != null) {
+            nodeCache.put(key, decoded);
+        }
+        return decoded;
+    }
+
+    private static boolean isEmptyNode(Object node) {
+        Value n = new Value(node);
+        return (node == null
+                || (n.isString() && (n.asString().isEmpty() || n.get(0).isNull()))
+                || n.length() == 0);
+    }
+}
@@ -36,6 +36,7 @@ package org.aion.mcf.trie;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -47,11 +48,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.db.IByteArrayKeyValueIterator;
 import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.util.ByteArrayWrapper;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.mcf.ds.ArchivedDataSource;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPView;
 import org.slf4j.Logger;
 
 /**
@@ -60,6 +64,9 @@ import org.slf4j.Logger;
  * [storeBlockChanges] call). When the [prune] is called for a block the deletes for this block are
  * submitted to the underlying DataSource with respect to following inserts. E.g. if the key was
  * deleted at block N and then inserted at block N + 10 this delete is not passed.
+ *
+ * <p>When created with a journal store, the changes of each block are also written to the journal
+ * so that the pending deletes survive a restart.
  */
 public class JournalPruneDataSource implements IByteArrayKeyValueStore {
 
@@ -73,37 +80,126 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
         Set<ByteArrayWrapper> deletedKeys = new HashSet<>();
     }
 
-    private static class Ref {
-
-        boolean dbRef;
-        int journalRefs;
-
-        public Ref(boolean dbRef) {
-            this.dbRef = dbRef;
-        }
-
-        public int getTotRefs() {
-            return journalRefs + (dbRef ? 1 : 0);
-        }
-
-        @Override
-        public String toString() {
-            return "refs: " + String.valueOf(journalRefs) + " db: " + String.valueOf(dbRef);
-        }
-    }
-
-    Map<ByteArrayWrapper, Ref> refCount = new HashMap<>();
+    // journal references and db reference of each key, packed as journalRefs << 1 | dbRef
+    private final RefCountMap refCount = new RefCountMap();
 
     private IByteArrayKeyValueStore src;
+    // block hash => encoded updates, null when the journal is kept only in memory
+    private final IByteArrayKeyValueStore journal;
     // block hash => updates
     private LinkedHashMap<ByteArrayWrapper, Updates> blockUpdates = new LinkedHashMap<>();
     private Updates currentUpdates = new Updates();
     private AtomicBoolean enabled = new AtomicBoolean(false);
     private final boolean hasArchive;
+    // decoded nodes read through this data source, can be null
+    private volatile NodeCache nodeCache;
 
     public JournalPruneDataSource(IByteArrayKeyValueStore src) {
+        this(src, null);
+    }
+
+    /**
+     * Creates a data source that persists the changes of each block to the given journal and
+     * reloads the changes already present in it.
+     *
+     * @param src the data source holding the trie nodes
+     * @param journal the store for the block changes, or {@code null} to keep them only in memory
+     */
+    public JournalPruneDataSource(IByteArrayKeyValueStore src, IByteArrayKeyValueStore journal) {
         this.src = src;
+        this.journal = journal;
         this.hasArchive = src instanceof ArchivedDataSource;
+        if (journal != null) {
+            loadJournal();
+        }
+    }
+
+    /**
+     * Reloads the block changes from the journal. The database reference of the journaled keys
+     * cannot be recovered, so the keys are considered referenced by the database. This may keep
+     * the keys inserted only by a discarded fork, but never deletes a key still in use.
+     */
+    private void loadJournal() {
+        List<Updates> loaded = new ArrayList<>();
+        List<byte[]> unreadable = new ArrayList<>();
+        try (IByteArrayKeyValueIterator itr = journal.iterator()) {
+            while (itr.hasNext()) {
+                Map.Entry<byte[], byte[]> entry = itr.next();
+                try {
+                    loaded.add(decodeUpdates(entry.getKey(), entry.getValue()));
+                } catch (Exception e) {
+                    LOG.error("Dropping unreadable prune journal entry.", e);
+                    unreadable.add(entry.getKey());
+                }
+            }
+        }
+        if (!unreadable.isEmpty()) {
+            journal.deleteBatch(unreadable);
+        }
+        loaded.sort(Comparator.comparingLong(u -> u.blockNumber));
+
+        for (Updates updates : loaded) {
+            blockUpdates.put(updates.blockHeader, updates);
+            for (ByteArrayWrapper key : updates.insertedKeys) {
+                int ref = refCount.get(key.getData());
+                refCount.put(key.getData(), (ref < 0 ? 1 : ref) + 2);
+            }
+        }
+
+        if (!loaded.isEmpty()) {
+            LOG.info(
+                    "Loaded the prune journal of {} blocks with {} tracked keys.",
+                    loaded.size(),
+                    refCount.size());
+        }
+    }
+
+    private static byte[] encodeUpdates(Updates updates) {
+        byte[][] inserted = new byte[updates.insertedKeys.size()][];
+        int i = 0;
+        for (ByteArrayWrapper key : updates.insertedKeys) {
+            inserted[i++] = RLP.encodeElement(key.getData());
+        }
+        byte[][] deleted = new byte[updates.deletedKeys.size()][];
+        i = 0;
+        for (ByteArrayWrapper key : updates.deletedKeys) {
+            deleted[i++] = RLP.encodeElement(key.getData());
+        }
+        return RLP.encodeList(
+                RLP.encodeLong(updates.blockNumber),
+                RLP.encodeList(inserted),
+                RLP.encodeList(deleted));
+    }
+
+    private Updates decodeUpdates(byte[] blockHash, byte[] encoded) {
+        RLPView list = RLPView.wrap(encoded);
+        Updates updates = new Updates();
+        updates.blockHeader = ByteArrayWrapper.wrap(blockHash);
+        updates.blockNumber = list.get(0).getLong();
+        RLPView inserted = list.get(1);
+        for (int i = 0; i < inserted.size(); i++) {
+            updates.insertedKeys.add(ByteArrayWrapper.wrap(inserted.get(i).getBytes()));
+        }
+        RLPView deleted = list.get(2);
+        for (int i = 0; i < deleted.size(); i++) {
+            updates.deletedKeys.add(ByteArrayWrapper.wrap(deleted.get(i).getBytes()));
+        }
+        return updates;
+    }
+
+    /**
+     * Attaches the cache of decoded nodes used by the tries reading from this data source. The
+     * keys deleted from the source when pruning are also removed from the cache.
+     *
+     * @param nodeCache the node cache or {@code null} to read all the nodes from the source
+     */
+    public void setNodeCache(NodeCache nodeCache) {
+        this.nodeCache = nodeCache;
+    }
+
+    /** @return the cache of decoded nodes read through this data source, can be {@code null} */
+    public NodeCache getNodeCache() {
+        return nodeCache;
     }
 
     public void setPruneEnabled(boolean _enabled) {
@@ -222,21 +318,29 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
     }
 
     private void incRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
-        if (cnt == null) {
-            cnt = new Ref(src.get(keyW.getData()).isPresent());
-            refCount.put(keyW, cnt);
+        byte[] key = keyW.getData();
+        int ref = refCount.get(key);
+        if (ref < 0) {
+            ref = src.get(key).isPresent() ? 1 : 0;
         }
-        cnt.journalRefs++;
+        refCount.put(key, ref + 2);
     }
 
-    private Ref decRef(ByteArrayWrapper keyW) {
-        Ref cnt = refCount.get(keyW);
-        cnt.journalRefs -= 1;
-        if (cnt.journalRefs == 0) {
-            refCount.remove(keyW);
+    /** @return the packed references left after removing one journal reference */
+    private int decRef(ByteArrayWrapper keyW) {
+        byte[] key = keyW.getData();
+        int ref = refCount.get(key);
+        if (ref < 0) {
+            // not tracked, considered referenced by the database
+            return 1;
         }
-        return cnt;
+        ref -= 2;
+        if ((ref >> 1) == 0) {
+            refCount.remove(key);
+        } else {
+            refCount.put(key, ref);
+        }
+        return ref;
     }
 
     public void storeBlockChanges(byte[] blockHash, long blockNumber) {
@@ -251,6 +355,9 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
             currentUpdates.blockHeader = hash;
             currentUpdates.blockNumber = blockNumber;
             blockUpdates.put(hash, currentUpdates);
+            if (journal != null) {
+                journal.put(blockHash, encodeUpdates(currentUpdates));
+            }
             currentUpdates = new Updates();
         } finally {
             lock.writeLock().unlock();
@@ -269,55 +376,119 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
             Updates updates = blockUpdates.remove(blockHashW);
             if (updates != null) {
                 for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
-                    decRef(insertedKey).dbRef = true;
+                    int ref = decRef(insertedKey);
+                    if ((ref >> 1) > 0) {
+                        refCount.put(insertedKey.getData(), ref | 1);
+                    }
                 }
 
                 List<byte[]> batchRemove = new ArrayList<>();
                 for (ByteArrayWrapper key : updates.deletedKeys) {
-                    Ref ref = refCount.get(key);
-                    if (ref == null || ref.journalRefs == 0) {
+                    int ref = refCount.get(key.getData());
+                    if ((ref >> 1) <= 0) {
                         batchRemove.add(key.getData());
-                    } else if (ref != null) {
-                        ref.dbRef = false;
+                    } else {
+                        refCount.put(key.getData(), ref & ~1);
                     }
                 }
-                src.deleteBatch(batchRemove);
+                deleteFromSource(batchRemove);
 
-                rollbackForkBlocks(blockNumber);
+                List<byte[]> removedBlocks = rollbackForkBlocks(blockNumber);
+                if (journal != null) {
+                    removedBlocks.add(blockHash);
+                    journal.deleteBatch(removedBlocks);
+                }
             }
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    private void rollbackForkBlocks(long blockNum) {
+    /** @return the hashes of the rolled back blocks */
+    private List<byte[]> rollbackForkBlocks(long blockNum) {
+        List<byte[]> rolledBack = new ArrayList<>();
         for (Updates updates : new ArrayList<>(blockUpdates.values())) {
             if (updates.blockNumber == blockNum) {
                 rollback(updates.blockHeader);
+                rolledBack.add(updates.blockHeader.getData());
             }
         }
+        return rolledBack;
     }
 
     private void rollback(ByteArrayWrapper blockHashW) {
         Updates updates = blockUpdates.remove(blockHashW);
         List<byte[]> batchRemove = new ArrayList<>();
         for (ByteArrayWrapper insertedKey : updates.insertedKeys) {
-            Ref ref = decRef(insertedKey);
-            if (ref.getTotRefs() == 0) {
+            // no journal or db references left
+            if (decRef(insertedKey) == 0) {
                 batchRemove.add(insertedKey.getData());
             }
         }
-        src.deleteBatch(batchRemove);
+        deleteFromSource(batchRemove);
     }
 
-    public Map<ByteArrayWrapper, Ref> getRefCount() {
-        return refCount;
+    private void deleteFromSource(List<byte[]> keys) {
+        src.deleteBatch(keys);
+        NodeCache cache = nodeCache;
+        if (cache != null) {
+            cache.invalidateAll(keys);
+        }
     }
 
     public LinkedHashMap<ByteArrayWrapper, Updates> getBlockUpdates() {
         return blockUpdates;
     }
 
+    /** @return the number of keys with tracked references */
+    public int getRefCountSize() {
+        lock.readLock().lock();
+        try {
+            return refCount.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return an estimate of the heap used by the reference counts, in bytes */
+    public long getRefCountFootprint() {
+        lock.readLock().lock();
+        try {
+            return refCount.footprint();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the number of blocks whose changes are waiting to be pruned */
+    public int getJournalSize() {
+        lock.readLock().lock();
+        try {
+            return blockUpdates.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the lowest block number with changes waiting to be pruned, or {@code -1} if there
+     *     are none
+     */
+    public long getOldestBlockNumber() {
+        lock.readLock().lock();
+        try {
+            long oldest = -1;
+            for (Updates updates : blockUpdates.values()) {
+                if (oldest < 0 || updates.blockNumber < oldest) {
+                    oldest = updates.blockNumber;
+                }
+            }
+            return oldest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     public int getDeletedKeysCount() {
         lock.readLock().lock();
         try {
@@ -360,6 +531,33 @@ public class JournalPruneDataSource implements IByteArrayKeyValueStore {
         }
     }
 
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getMany(Collection<byte[]> keys) {
+        lock.readLock().lock();
+        try {
+            return src.getMany(keys);
+        } catch (Exception e) {
+            LOG.error("Could not get keys due to ", e);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @implNote The delayed deletes are not applied to the iterated entries. */
+    @Override
+    public IByteArrayKeyValueIterator iterator(byte[] from, byte[] to) {
+        lock.readLock().lock();
+        try {
+            return src.iterator(from, to);
+        } catch (Exception e) {
+            LOG.error("Could not iterate over keys due to ", e);
+            throw e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public void close() {
         lock.writeLock().lock();
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.trie;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import java.util.Collection;
+import java.util.function.UnaryOperator;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.rlp.Value;
+
+/**
+ * Size-bounded cache of decoded trie nodes that outlives the per-trie {@link Cache}.
+ *
+ * <p>Trie nodes are stored under the hash of their encoding, so a cached node is valid for every
+ * trie that references its hash. The repository attaches an instance to the {@link
+ * JournalPruneDataSource} of its state database and of its storage database, so that it is shared
+ * by the world state trie, the contract storage tries and their snapshots, and the nodes deleted by
+ * the pruner are also removed from it. Only nodes that are already persisted are kept here; dirty
+ * nodes remain in the {@link Cache} of the trie that created them until commit.
+ *
+ * <p>The storage tries of all contracts share one database and store their nodes under keys derived
+ * from the contract address. They use views of the cache created by {@link
+ * #withKeyMapping(UnaryOperator)}, which store the nodes under the same keys as the database, so
+ * the nodes of different contracts never collide and the pruner removes them by their stored keys.
+ *
+ * @implNote The weight of each entry approximates the memory used by the node in bytes.
+ */
+public class NodeCache {
+
+    /** Default capacity of the cache in bytes. */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** Approximate memory overhead per entry: key, map entry and {@link Value} wrappers. */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    // shared with the views of this cache
+    private final com.google.common.cache.Cache<ByteArrayWrapper, Value> nodes;
+    // converts the keys used by the tries to the keys of the entries, null if they are the same
+    private final UnaryOperator<byte[]> keyMapping;
+
+    public NodeCache(long maxBytes) {
+        this(
+                CacheBuilder.newBuilder()
+                        .maximumWeight(maxBytes)
+                        .weigher(
+                                (ByteArrayWrapper k, Value v) ->
+                                        ENTRY_OVERHEAD + 2 * v.encode().length)
+                        .recordStats()
+                        .build(),
+                null);
+    }
+
+    private NodeCache(
+            com.google.common.cache.Cache<ByteArrayWrapper, Value> nodes,
+            UnaryOperator<byte[]> keyMapping) {
+        this.nodes = nodes;
+        this.keyMapping = keyMapping;
+    }
+
+    /**
+     * Creates a view of this cache that stores the nodes under converted keys. The view shares the
+     * entries and the capacity of this cache.
+     *
+     * @param mapping converts the keys used by the view to the keys used by this cache
+     * @return the view of this cache
+     */
+    public NodeCache withKeyMapping(UnaryOperator<byte[]> mapping) {
+        UnaryOperator<byte[]> outer = keyMapping;
+        return new NodeCache(
+                nodes, outer == null ? mapping : key -> outer.apply(mapping.apply(key)));
+    }
+
+    private ByteArrayWrapper entryKey(ByteArrayWrapper key) {
+        return keyMapping == null ? key : ByteArrayWrapper.wrap(keyMapping.apply(key.getData()));
+    }
+
+    /**
+     * Retrieves the node stored under the given hash.
+     *
+     * @param hash the hash of the node encoding
+     * @return the decoded node or {@code null} if not cached
+     */
+    public Value get(ByteArrayWrapper hash) {
+        return nodes.getIfPresent(entryKey(hash));
+    }
+
+    /**
+     * Stores a persisted node.
+     *
+     * @param hash the hash of the node encoding
+     * @param node the node
+     */
+    public void put(ByteArrayWrapper hash, Value node) {
+        // complete the lazy decoding and encoding so that the cached instance is never modified
+        // and can be safely read by multiple threads
+        node.asObj();
+        node.encode();
+        nodes.put(entryKey(hash), node);
+    }
+
+    /**
+     * Removes the node stored under the given hash.
+     *
+     * @param hash the hash of the node encoding
+     */
+    public void invalidate(ByteArrayWrapper hash) {
+        nodes.invalidate(entryKey(hash));
+    }
+
+    /**
+     * Removes the nodes stored under the given hashes.
+     *
+     * @param hashes the hashes of the node encodings
+     */
+    public void invalidateAll(Collection<byte[]> hashes) {
+        for (byte[] hash : hashes) {
+            nodes.invalidate(entryKey(ByteArrayWrapper.wrap(hash)));
+        }
+    }
+
+    /** Removes all the cached nodes, including the ones stored through other views. */
+    public void clear() {
+        nodes.invalidateAll();
+    }
+
+    /** @return the number of cached nodes, including the ones stored through other views */
+    public long size() {
+        return nodes.size();
+    }
+
+    /** @return the hit, miss and eviction counts of the cache */
+    public CacheStats getStats() {
+        return nodes.stats();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = nodes.stats();
+        return String.format(
+                "NodeCache[size=%d hits=%d misses=%d hit-rate=%.2f evictions=%d]",
+                nodes.size(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.trie;
+
+import java.util.Arrays;
+
+/**
+ * Reference counts of the keys tracked by {@link JournalPruneDataSource}, stored in an open
+ * addressing table of parallel arrays. Each entry keeps the number of journal references and
+ * whether the key is referenced by the database, packed in a single int as {@code journalRefs << 1
+ * | dbRef}. Compared to a {@code HashMap<ByteArrayWrapper, Ref>} this avoids three objects per key.
+ *
+ * @implNote This class is not thread safe. The owning data source handles the locking.
+ */
+final class RefCountMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // object header and length of an array, and reference size assuming compressed oops
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private byte[][] keys;
+    private int[] values;
+    private int size;
+    private long keyBytes;
+
+    RefCountMap() {
+        this(MIN_CAPACITY);
+    }
+
+    RefCountMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new byte[capacity][];
+        values = new int[capacity];
+    }
+
+    /** @return the number of keys in the map */
+    int size() {
+        return size;
+    }
+
+    /** @return the packed value for the key or {@code -1} if the key is not present */
+    int get(byte[] key) {
+        int index = find(key);
+        return index < 0 ? -1 : values[index];
+    }
+
+    /** Sets the packed value for the key. The value must not be negative. */
+    void put(byte[] key, int value) {
+        int index = find(key);
+        if (index >= 0) {
+            values[index] = value;
+            return;
+        }
+
+        if ((size + 1) > keys.length * 3 / 4) {
+            resize(keys.length << 1);
+        }
+        index = slot(key, keys.length);
+        while (keys[index] != null) {
+            index = (index + 1) & (keys.length - 1);
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        keyBytes += arraySize(key.length);
+    }
+
+    /** Removes the key using backward shift deletion so that no tombstones are needed. */
+    void remove(byte[] key) {
+        int index = find(key);
+        if (index < 0) {
+            return;
+        }
+        keyBytes -= arraySize(keys[index].length);
+        size--;
+
+        int mask = keys.length - 1;
+        int hole = index;
+        int next = (hole + 1) & mask;
+        while (keys[next] != null) {
+            int home = slot(keys[next], keys.length);
+            // moves the entry if its home slot is not between the hole and its position
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = null;
+        values[hole] = 0;
+    }
+
+    void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+        keyBytes = 0;
+    }
+
+    /** @return an estimate of the heap used by the map, in bytes */
+    long footprint() {
+        return 2L * ARRAY_HEADER + (long) keys.length * (REFERENCE + Integer.BYTES) + keyBytes;
+    }
+
+    private int find(byte[] key) {
+        int mask = keys.length - 1;
+        int index = slot(key, keys.length);
+        while (keys[index] != null) {
+            if (Arrays.equals(keys[index], key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        byte[][] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new byte[capacity][];
+        values = new int[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int index = slot(oldKeys[i], capacity);
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(byte[] key, int capacity) {
+        int h = Arrays.hashCode(key);
+        // spreads the bits since the capacity is a power of two
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h & (capacity - 1);
+    }
+
+    private static long arraySize(int length) {
+        // arrays are aligned to 8 bytes
+        return (ARRAY_HEADER + length + 7) & ~7L;
+    }
+}
@@ -37,8 +37,12 @@ package org.aion.mcf.trie;
 
 import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
 import static org.aion.crypto.HashUtil.h256;
+import static org.aion.crypto.HashUtil.h256Batch;
 
+import java.util.HashMap;
+import java.util.Map;
 import org.aion.base.db.IByteArrayKeyValueStore;
+import org.aion.base.util.ByteArrayWrapper;
 
 public class SecureTrie extends TrieImpl implements Trie {
 
@@ -60,6 +64,26 @@ public class SecureTrie extends TrieImpl implements Trie {
         super.update(h256(key), value);
     }
 
+    @Override
+    public void updateBatch(Map<ByteArrayWrapper, byte[]> updates) {
+        byte[][] keys = new byte[updates.size()][];
+        byte[][] values = new byte[updates.size()][];
+        int i = 0;
+        for (Map.Entry<ByteArrayWrapper, byte[]> entry : updates.entrySet()) {
+            keys[i] = entry.getKey().getData();
+            values[i] = entry.getValue();
+            i++;
+        }
+
+        // all the keys are hashed with a single call
+        byte[][] hashedKeys = h256Batch(keys);
+        Map<ByteArrayWrapper, byte[]> hashed = new HashMap<>();
+        for (i = 0; i < hashedKeys.length; i++) {
+            hashed.put(ByteArrayWrapper.wrap(hashedKeys[i]), values[i]);
+        }
+        super.updateBatch(hashed);
+    }
+
     @Override
     public void delete(byte[] key) {
         this.update(key, EMPTY_BYTE_ARRAY);
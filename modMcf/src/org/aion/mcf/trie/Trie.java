@@ -34,7 +34,9 @@
  */
 package org.aion.mcf.trie;
 
+import java.util.Map;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
+import org.aion.base.util.ByteArrayWrapper;
 
 /**
  * Trie interface for the main data structure in Ethereum which is used to store both the account
@@ -58,6 +60,14 @@ public interface Trie {
      */
     void update(byte[] key, byte[] value);
 
+    /**
+     * Inserts, updates or deletes the given key/value pairs. The resulting trie is the same as the
+     * one obtained by calling {@link #update(byte[], byte[])} for each pair.
+     *
+     * @param updates the values to store by key, where empty or {@code null} values delete the key
+     */
+    void updateBatch(Map<ByteArrayWrapper, byte[]> updates);
+
     /**
      * Deletes a key/value from the trie for a given key
      *
@@ -107,4 +117,14 @@ public interface Trie {
     long saveFullStateToDatabase(byte[] stateRoot, IByteArrayKeyValueDatabase db);
 
     long saveDiffStateToDatabase(byte[] stateRoot, IByteArrayKeyValueDatabase db);
+
+    /**
+     * Collects the nodes below the given node in breadth-first order, skipping the ones that
+     * cannot be found.
+     *
+     * @param value the encoding of a trie node
+     * @param limit the maximum number of nodes to collect
+     * @return the encodings of the collected nodes by their hash
+     */
+    Map<ByteArrayWrapper, byte[]> getReferencedTrieNodes(byte[] value, int limit);
 }
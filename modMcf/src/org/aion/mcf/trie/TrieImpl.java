@@ -52,12 +52,16 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 import org.aion.base.db.IByteArrayKeyValueDatabase;
 import org.aion.base.db.IByteArrayKeyValueStore;
 import org.aion.base.util.ByteArrayWrapper;
@@ -104,6 +108,8 @@ public class TrieImpl implements Trie {
     private static byte PAIR_SIZE = 2;
     private static byte LIST_SIZE = 17;
     private static int MAX_SIZE = 20;
+    // minimum number of updates for applying a batch to the subtrees of the root in parallel
+    private static int PARALLEL_BATCH_SIZE = 64;
 
     @Deprecated private Object prevRoot;
     private Object root;
@@ -121,6 +127,13 @@ public class TrieImpl implements Trie {
         this.prevRoot = root;
     }
 
+    private TrieImpl(Cache cache, Object root, boolean pruningEnabled) {
+        this.cache = cache;
+        this.root = root;
+        this.prevRoot = root;
+        this.pruningEnabled = pruningEnabled;
+    }
+
     public TrieIterator getIterator() {
         return new TrieIterator(this);
     }
@@ -200,18 +213,131 @@ public class TrieImpl implements Trie {
             throw new NullPointerException("key should not be null");
         }
         synchronized (cache) {
-            byte[] k = binToNibbles(key);
+            updateRoot(key, value);
+        }
+    }
+
+    /** @implNote The method calling this method must synchronize on the cache. */
+    private void updateRoot(byte[] key, byte[] value) {
+        byte[] k = binToNibbles(key);
+
+        if (isEmptyNode(root)) {
+            cache.markRemoved(getRootHash());
+        }
 
-            if (isEmptyNode(root)) {
-                cache.markRemoved(getRootHash());
+        this.root = this.insertOrDelete(this.root, k, value);
+    }
+
+    /**
+     * @implNote When the root is a 17 length node and the batch is large enough, the updates for
+     *     each of its 16 subtrees are applied in parallel, each subtree recording its nodes in a
+     *     {@link Cache#fork()} of this trie's cache. The updates are sorted within each subtree and
+     *     the forks are merged together, so the resulting nodes do not depend on the scheduling.
+     *     Falls back to sequential updates if the root is changed concurrently.
+     */
+    @Override
+    public void updateBatch(Map<ByteArrayWrapper, byte[]> updates) {
+        Object batchRoot;
+        Value rootNode = null;
+        synchronized (cache) {
+            batchRoot = this.root;
+            if (updates.size() >= PARALLEL_BATCH_SIZE && !isEmptyNode(batchRoot)) {
+                rootNode = this.getNode(batchRoot);
             }
+        }
 
-            this.root = this.insertOrDelete(this.root, k, value);
+        // group the updates by the first nibble of the key
+        List<List<byte[][]>> subtrees = null;
+        if (rootNode != null && rootNode.length() == LIST_SIZE) {
+            subtrees = new ArrayList<>(LIST_SIZE - 1);
+            for (int i = 0; i < LIST_SIZE - 1; i++) {
+                subtrees.add(new ArrayList<>());
+            }
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : updates.entrySet()) {
+                byte[] k = binToNibbles(entry.getKey().getData());
+                if (k[0] == 16) {
+                    // updates the value stored in the root
+                    subtrees = null;
+                    break;
+                }
+                byte[] value = entry.getValue() == null ? EMPTY_BYTE_ARRAY : entry.getValue();
+                subtrees.get(k[0]).add(new byte[][] {copyOfRange(k, 1, k.length), value});
+            }
+        }
+
+        if (subtrees == null || !applyToSubtrees(batchRoot, rootNode, subtrees)) {
+            synchronized (cache) {
+                for (Map.Entry<ByteArrayWrapper, byte[]> entry : updates.entrySet()) {
+                    byte[] value = entry.getValue() == null ? EMPTY_BYTE_ARRAY : entry.getValue();
+                    updateRoot(entry.getKey().getData(), value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the grouped updates to the subtrees of the given 17 length root node in parallel.
+     *
+     * @return {@code true} if the updates were applied, {@code false} if the root was changed
+     *     concurrently and nothing was applied
+     */
+    private boolean applyToSubtrees(
+            Object batchRoot, Value rootNode, List<List<byte[][]>> subtrees) {
+        Object[] itemList = copyNode(rootNode);
+        Cache[] forks = new Cache[subtrees.size()];
+
+        IntStream.range(0, subtrees.size())
+                .parallel()
+                .filter(i -> !subtrees.get(i).isEmpty())
+                .forEach(
+                        i -> {
+                            TrieImpl subtree = new TrieImpl(cache.fork(), "", pruningEnabled);
+                            itemList[i] = subtree.applyToNode(itemList[i], subtrees.get(i));
+                            forks[i] = subtree.cache;
+                        });
+
+        synchronized (cache) {
+            if (this.root != batchRoot) {
+                return false;
+            }
+            List<Cache> changed = new ArrayList<>(forks.length);
+            for (Cache fork : forks) {
+                if (fork != null) {
+                    changed.add(fork);
+                }
+            }
+            cache.merge(changed);
+            this.root = collapseBranch(rootNode, itemList);
+            return true;
         }
     }
 
+    /**
+     * Applies the updates in key order starting from the given node and returns the new node.
+     *
+     * @implNote The node is a child of the root, so the replaced versions of it are marked as
+     *     removed the same way the root marks its child on a sequential insert.
+     */
+    private Object applyToNode(Object node, List<byte[][]> updates) {
+        updates.sort((a, b) -> FastByteComparisons.compareTo(a[0], b[0]));
+        for (byte[][] update : updates) {
+            boolean insert = update[1].length != 0 && !isEmptyNode(node);
+            byte[] previous = insert ? getNode(node).encode() : null;
+            Object updated = this.insertOrDelete(node, update[0], update[1]);
+            if (insert && !FastByteComparisons.equal(getNode(updated).encode(), previous)) {
+                markRemoved(new Value(node).asBytes());
+            }
+            node = updated;
+        }
+        return node;
+    }
+
     @Override
     public synchronized boolean isValidRoot(byte[] root) {
+        if (root != null && root.length >= 32) {
+            // checked against the data source since the node cache may hold deleted nodes
+            return this.cache.contains(root);
+        }
         return !(this.getNode(root) == null);
     }
 
@@ -361,10 +487,9 @@ public class TrieImpl implements Trie {
                             copyOfRange(key, 1, key.length),
                             value);
 
-            if (!FastByteComparisons.equal(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+            byte[] currentEncoding = currentNode.encode();
+            if (!FastByteComparisons.equal(getNode(newNode).encode(), currentEncoding)) {
+                markRemoved(HashUtil.h256(currentEncoding));
                 if (!isEmptyNode(currentNode.get(key[0]))) {
                     markRemoved(currentNode.get(key[0]).asBytes());
                 }
@@ -418,40 +543,57 @@ public class TrieImpl implements Trie {
             // Replace the first nibble in the key
             itemList[key[0]] = this.delete(itemList[key[0]], copyOfRange(key, 1, key.length));
 
-            byte amount = -1;
-            for (byte i = 0; i < LIST_SIZE; i++) {
-                if (itemList[i] != "") {
-                    if (amount == -1) {
-                        amount = i;
-                    } else {
-                        amount = -2;
-                    }
-                }
-            }
+            return collapseBranch(currentNode, itemList);
+        }
+    }
 
-            Object[] newNode = null;
-            if (amount == 16) {
-                newNode = new Object[] {packNibbles(new byte[] {16}), itemList[amount]};
-            } else if (amount >= 0) {
-                Value child = this.getNode(itemList[amount]);
-                if (child.length() == PAIR_SIZE) {
-                    key = concatenate(new byte[] {amount}, unpackToNibbles(child.get(0).asBytes()));
-                    newNode = new Object[] {packNibbles(key), child.get(1).asObj()};
-                } else if (child.length() == LIST_SIZE) {
-                    newNode = new Object[] {packNibbles(new byte[] {amount}), itemList[amount]};
+    /**
+     * Stores the updated version of a 17 length node, replacing it with a 2 length node when it is
+     * left with a single item.
+     *
+     * @param currentNode the node before the update
+     * @param itemList the items of the updated node
+     * @return the updated node with rlp encoded
+     */
+    private Object collapseBranch(Value currentNode, Object[] itemList) {
+        byte amount = -1;
+        for (byte i = 0; i < LIST_SIZE; i++) {
+            if (itemList[i] != "") {
+                if (amount == -1) {
+                    amount = i;
+                } else {
+                    amount = -2;
                 }
-            } else {
-                newNode = itemList;
             }
+        }
 
-            if (!FastByteComparisons.equal(
-                    HashUtil.h256(getNode(newNode).encode()),
-                    HashUtil.h256(currentNode.encode()))) {
-                markRemoved(HashUtil.h256(currentNode.encode()));
+        Object[] newNode = null;
+        if (amount == -1) {
+            // all the items were deleted
+            markRemoved(HashUtil.h256(currentNode.encode()));
+            return "";
+        } else if (amount == 16) {
+            newNode = new Object[] {packNibbles(new byte[] {16}), itemList[amount]};
+        } else if (amount >= 0) {
+            Value child = this.getNode(itemList[amount]);
+            if (child.length() == PAIR_SIZE) {
+                byte[] key =
+                        concatenate(new byte[] {amount}, unpackToNibbles(child.get(0).asBytes()));
+                newNode = new Object[] {packNibbles(key), child.get(1).asObj()};
+            } else if (child.length() == LIST_SIZE) {
+                newNode = new Object[] {packNibbles(new byte[] {amount}), itemList[amount]};
             }
+        } else {
+            newNode = itemList;
+        }
 
-            return this.putToCache(newNode);
+        // equal encodings have equal hashes, only the removed node needs hashing
+        byte[] currentEncoding = currentNode.encode();
+        if (!FastByteComparisons.equal(getNode(newNode).encode(), currentEncoding)) {
+            markRemoved(HashUtil.h256(currentEncoding));
         }
+
+        return this.putToCache(newNode);
     }
 
     private void markRemoved(byte[] hash) {
@@ -711,6 +853,54 @@ public class TrieImpl implements Trie {
         }
     }
 
+    @Override
+    public Map<ByteArrayWrapper, byte[]> getReferencedTrieNodes(byte[] value, int limit) {
+        Map<ByteArrayWrapper, byte[]> nodes = new LinkedHashMap<>();
+        Deque<byte[]> hashes = new ArrayDeque<>(getReferencedHashes(Value.fromRlpEncoded(value)));
+
+        while (!hashes.isEmpty() && nodes.size() < limit) {
+            ByteArrayWrapper hash = wrap(hashes.poll());
+            if (nodes.containsKey(hash)) {
+                continue;
+            }
+
+            Value node = this.getCache().get(hash.getData());
+            if (node != null) {
+                nodes.put(hash, node.encode());
+                hashes.addAll(getReferencedHashes(node));
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the hashes of the nodes referenced by the given node, following the same rules as
+     * {@link #scanTreeLoop(byte[], ScanAction)}.
+     *
+     * @param node a decoded trie node
+     * @return the hashes of its children, empty for leaves
+     */
+    public static List<byte[]> getReferencedHashes(Value node) {
+        List<byte[]> hashes = new ArrayList<>();
+        if (node.isList()) {
+            List<Object> siblings = node.asList();
+            if (siblings.size() == PAIR_SIZE) {
+                Value val = new Value(siblings.get(1));
+                if (val.isHashCode() && !hasTerminator((byte[]) siblings.get(0))) {
+                    hashes.add(val.asBytes());
+                }
+            } else {
+                for (int j = 0; j < LIST_SIZE; ++j) {
+                    Value val = new Value(siblings.get(j));
+                    if (val.isHashCode()) {
+                        hashes.add(val.asBytes());
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
     public void deserialize(byte[] data) {
         synchronized (cache) {
             RLPList rlpList = (RLPList) RLP.decode2(data).get(0);
@@ -28,7 +28,7 @@ import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import org.aion.base.type.IBlock;
 import org.aion.base.type.IBlockHeader;
-import org.aion.rlp.RLP;
+import org.aion.rlp.RLPWriter;
 
 /** Abstract Block class. */
 public abstract class AbstractBlock<BH extends IBlockHeader, TX extends AbstractTransaction>
@@ -58,9 +58,9 @@ public abstract class AbstractBlock<BH extends IBlockHeader, TX extends Abstract
     }
 
     public byte[] getEncodedBody() {
-        List<byte[]> body = getBodyElements();
-        byte[][] elements = body.toArray(new byte[body.size()][]);
-        return RLP.encodeList(elements);
+        return writeTransactions(new RLPWriter(transactionsList.size() + 2).beginList())
+                .endList()
+                .toByteArray();
     }
 
     public List<byte[]> getBodyElements() {
@@ -72,13 +72,19 @@ public abstract class AbstractBlock<BH extends IBlockHeader, TX extends Abstract
     }
 
     public byte[] getTransactionsEncoded() {
+        return writeTransactions(new RLPWriter(transactionsList.size() + 1)).toByteArray();
+    }
 
-        byte[][] transactionsEncoded = new byte[transactionsList.size()][];
-        int i = 0;
+    /**
+     * Writes the list of the transaction encodings, which lets the block and body encodings nest
+     * it without building it separately first.
+     */
+    protected RLPWriter writeTransactions(RLPWriter writer) {
+        parseRLP();
+        writer.beginList();
         for (TX tx : transactionsList) {
-            transactionsEncoded[i] = tx.getEncoded();
-            ++i;
+            writer.writeEncoded(tx.getEncoded());
         }
-        return RLP.encodeList(transactionsEncoded);
+        return writer.endList();
     }
 }
@@ -27,10 +27,8 @@ import java.util.List;
 import org.aion.base.type.Address;
 import org.aion.base.util.Hex;
 import org.aion.crypto.HashUtil;
-import org.aion.rlp.RLP;
-import org.aion.rlp.RLPElement;
-import org.aion.rlp.RLPItem;
-import org.aion.rlp.RLPList;
+import org.aion.rlp.RLPView;
+import org.aion.rlp.RLPWriter;
 
 /** A log is emitted by the LOGX vm instruction. It's composed of address, topics and data. */
 public class Log {
@@ -40,19 +38,17 @@ public class Log {
     private byte[] data;
 
     public Log(byte[] rlp) {
-        RLPList params = RLP.decode2(rlp);
-        RLPList logInfo = (RLPList) params.get(0);
+        this(RLPView.wrap(rlp));
+    }
 
-        RLPItem address = (RLPItem) logInfo.get(0);
-        RLPList topics = (RLPList) logInfo.get(1);
-        RLPItem data = (RLPItem) logInfo.get(2);
+    public Log(RLPView logInfo) {
+        RLPView topics = logInfo.get(1);
 
-        this.addr = address.getRLPData() != null ? Address.wrap(address.getRLPData()) : null;
-        this.data = data.getRLPData() != null ? data.getRLPData() : new byte[] {};
+        this.addr = Address.wrap(logInfo.get(0).getBytes());
+        this.data = logInfo.get(2).getBytes();
 
-        for (RLPElement topic1 : topics) {
-            byte[] topic = topic1.getRLPData();
-            this.topics.add(topic);
+        for (int i = 0; i < topics.size(); i++) {
+            this.topics.add(topics.get(i).getBytes());
         }
     }
 
@@ -76,26 +72,18 @@ public class Log {
 
     /* [address, [topic, topic ...] data] */
     public byte[] getEncoded() {
+        RLPWriter writer = new RLPWriter(5 + (topics == null ? 0 : topics.size()));
+        writer.beginList().writeElement(this.addr == null ? null : this.addr.toBytes());
 
-        byte[] addressEncoded;
-        if (this.addr == null) {
-            addressEncoded = RLP.encodeElement(null);
-        } else {
-            addressEncoded = RLP.encodeElement(this.addr.toBytes());
-        }
-
-        byte[][] topicsEncoded = null;
+        writer.beginList();
         if (topics != null) {
-            topicsEncoded = new byte[topics.size()][];
-            int i = 0;
             for (byte[] topic : topics) {
-                topicsEncoded[i] = RLP.encodeElement(topic);
-                ++i;
+                writer.writeElement(topic);
             }
         }
+        writer.endList();
 
-        byte[] dataEncoded = RLP.encodeElement(data);
-        return RLP.encodeList(addressEncoded, RLP.encodeList(topicsEncoded), dataEncoded);
+        return writer.writeElement(data).endList().toByteArray();
     }
 
     public Bloom getBloom() {
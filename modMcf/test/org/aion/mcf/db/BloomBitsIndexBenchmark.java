@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.mcf.db.BloomBitsIndex.SECTION_SIZE;
+
+import java.util.Random;
+import org.aion.base.util.ByteUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.vm.types.Bloom;
+import org.junit.Test;
+
+/**
+ * Compares finding the blocks matching a log filter by reading the bloom of every block with the
+ * lookup in the bloom bits index.
+ */
+public class BloomBitsIndexBenchmark {
+
+    private static final int SECTIONS = 50;
+    private static final int BLOCKS = SECTIONS * SECTION_SIZE;
+
+    /** One block out of this many contains a log of the filtered contract. */
+    private static final int MATCH_RATE = 500;
+
+    private static Bloom randomBloom(Random random) {
+        Bloom bloom = new Bloom();
+        for (int i = 0; i < 3; i++) {
+            int bit = random.nextInt(BloomBitsIndex.BLOOM_BITS);
+            bloom.data[bit / 8] |= 1 << (bit % 8);
+        }
+        return bloom;
+    }
+
+    @Test
+    public void benchmarkLogFilter() {
+        Random random = new Random(42);
+        Bloom target = randomBloom(random);
+
+        MockDB blooms = new MockDB("blooms");
+        blooms.open();
+        MockDB bloomBits = new MockDB("bloombits");
+        bloomBits.open();
+        BloomBitsIndex index = new BloomBitsIndex(bloomBits);
+
+        int expected = 0;
+        byte[][] section = new byte[SECTION_SIZE][];
+        for (int n = 0; n < BLOCKS; n++) {
+            Bloom bloom = new Bloom();
+            // most blocks carry a few unrelated logs
+            for (int i = random.nextInt(3); i > 0; i--) {
+                bloom.or(randomBloom(random));
+            }
+            if (random.nextInt(MATCH_RATE) == 0) {
+                bloom.or(target);
+            }
+            if (bloom.matches(target)) {
+                expected++;
+            }
+            blooms.put(ByteUtil.longToBytes(n), bloom.getData());
+
+            section[n % SECTION_SIZE] = bloom.getData();
+            if (n % SECTION_SIZE == SECTION_SIZE - 1) {
+                index.addSection(n / SECTION_SIZE, section);
+                section = new byte[SECTION_SIZE][];
+            }
+        }
+
+        Bloom[][] filter = new Bloom[][] {{target}};
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int linear = 0;
+            for (int n = 0; n < BLOCKS; n++) {
+                if (new Bloom(blooms.get(ByteUtil.longToBytes(n)).get()).matches(target)) {
+                    linear++;
+                }
+            }
+            long linearTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int indexed = 0;
+            for (int s = 0; s < SECTIONS; s++) {
+                indexed += index.matchSection(s, filter).cardinality();
+            }
+            long indexedTime = System.nanoTime() - start;
+
+            assertThat(linear).isEqualTo(expected);
+            assertThat(indexed).isEqualTo(expected);
+
+            System.out.format(
+                    "%d blocks, %d matches: linear scan %d ms, bloom bits index %d ms%n",
+                    BLOCKS, expected, linearTime / 1_000_000, indexedTime / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.mcf.db.BloomBitsIndex.SECTION_SIZE;
+
+import java.util.BitSet;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.vm.types.Bloom;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BloomBitsIndexTest {
+
+    private static final Bloom[][] MATCH_ALL = new Bloom[][] {{new Bloom()}};
+
+    private MockDB db;
+    private BloomBitsIndex index;
+
+    @Before
+    public void setup() {
+        db = new MockDB("bloombits");
+        db.open();
+        index = new BloomBitsIndex(db);
+    }
+
+    private static Bloom bloom(int... bits) {
+        Bloom bloom = new Bloom();
+        for (int bit : bits) {
+            bloom.data[bit / 8] |= 1 << (bit % 8);
+        }
+        return bloom;
+    }
+
+    private static byte[][] emptySection() {
+        byte[][] blooms = new byte[SECTION_SIZE][];
+        for (int i = 0; i < SECTION_SIZE; i++) {
+            blooms[i] = new byte[256];
+        }
+        return blooms;
+    }
+
+    private static BitSet bits(int... offsets) {
+        BitSet set = new BitSet();
+        for (int offset : offsets) {
+            set.set(offset);
+        }
+        return set;
+    }
+
+    @Test
+    public void testMatchSection() {
+        byte[][] blooms = emptySection();
+        blooms[1] = bloom(3, 500, 2047).getData();
+        blooms[70] = bloom(3, 500).getData();
+        blooms[4095] = bloom(3, 800, 2047).getData();
+        index.addSection(0, blooms);
+
+        assertThat(index.getSections()).isEqualTo(1);
+        assertThat(index.getIndexedBlocks()).isEqualTo(SECTION_SIZE);
+
+        // a bloom matches the blocks containing all its bits
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(3, 500)}}))
+                .isEqualTo(bits(1, 70));
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(3, 2047)}}))
+                .isEqualTo(bits(1, 4095));
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(4)}})).isEqualTo(bits());
+
+        // alternatives of an entry
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(500, 2047), bloom(800)}}))
+                .isEqualTo(bits(1, 4095));
+
+        // entries must all match
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(500)}, {bloom(2047)}}))
+                .isEqualTo(bits(1));
+
+        // an empty bloom matches everything
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(500)}, {new Bloom()}}))
+                .isEqualTo(bits(1, 70));
+        assertThat(index.matchSection(0, MATCH_ALL).cardinality()).isEqualTo(SECTION_SIZE);
+    }
+
+    @Test
+    public void testAddBloom() {
+        index.addSection(0, emptySection());
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(10, 20)}})).isEqualTo(bits());
+
+        index.addBloom(5, bloom(10, 20).getData());
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(10, 20)}})).isEqualTo(bits(5));
+
+        // bits are never cleared
+        index.addBloom(5, bloom(30).getData());
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(10, 20)}})).isEqualTo(bits(5));
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(30)}})).isEqualTo(bits(5));
+
+        // blocks that are not indexed are ignored
+        index.addBloom(SECTION_SIZE, bloom(10).getData());
+        assertThat(index.getSections()).isEqualTo(1);
+    }
+
+    @Test
+    public void testReloadAndTruncate() {
+        byte[][] blooms = emptySection();
+        blooms[7] = bloom(42).getData();
+        index.addSection(0, blooms);
+        index.addSection(1, blooms);
+
+        index = new BloomBitsIndex(db);
+        assertThat(index.getSections()).isEqualTo(2);
+        assertThat(index.matchSection(1, new Bloom[][] {{bloom(42)}})).isEqualTo(bits(7));
+
+        index.truncate(1);
+        assertThat(index.getSections()).isEqualTo(1);
+        assertThat(new BloomBitsIndex(db).getSections()).isEqualTo(1);
+
+        // the rebuilt section does not keep the removed bits
+        index.addSection(1, emptySection());
+        assertThat(index.matchSection(1, new Bloom[][] {{bloom(42)}})).isEqualTo(bits());
+        assertThat(index.matchSection(0, new Bloom[][] {{bloom(42)}})).isEqualTo(bits(7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddSectionOutOfOrder() {
+        index.addSection(1, emptySection());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMatchSectionNotIndexed() {
+        index.matchSection(0, MATCH_ALL);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.db;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.base.util.ByteArrayWrapper.wrap;
+import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlatStateStoreTest {
+
+    private static final byte[] ROOT_0 = HashUtil.h256("root-0".getBytes());
+    private static final byte[] ROOT_1 = HashUtil.h256("root-1".getBytes());
+    private static final byte[] ROOT_2 = HashUtil.h256("root-2".getBytes());
+    private static final byte[] ROOT_3 = HashUtil.h256("root-3".getBytes());
+
+    private static final byte[] ADDRESS_A = HashUtil.h256("address-a".getBytes());
+    private static final byte[] ADDRESS_B = HashUtil.h256("address-b".getBytes());
+
+    private MockDB db;
+    private FlatStateStore store;
+
+    @Before
+    public void setup() {
+        db = new MockDB("flat");
+        db.open();
+        store = new FlatStateStore(db, FlatStateStore.DEFAULT_MAX_LAYERS);
+    }
+
+    private static Map<ByteArrayWrapper, byte[]> changes(byte[] address, byte[] value) {
+        Map<ByteArrayWrapper, byte[]> map = new HashMap<>();
+        map.put(wrap(address), value);
+        return map;
+    }
+
+    @Test
+    public void testReadThroughAtCurrentRootOnly() {
+        assertThat(store.getRoot()).isNull();
+        store.putAccount(ROOT_0, ADDRESS_A, "a0".getBytes());
+        assertThat(store.getAccount(ROOT_0, ADDRESS_A)).isNull();
+
+        store.moveTo(ROOT_0);
+        store.putAccount(ROOT_0, ADDRESS_A, "a0".getBytes());
+        store.putAccount(ROOT_0, ADDRESS_B, EMPTY_BYTE_ARRAY);
+
+        assertThat(store.getAccount(ROOT_0, ADDRESS_A)).isEqualTo("a0".getBytes());
+        assertThat(store.getAccount(ROOT_0, ADDRESS_B)).isEqualTo(EMPTY_BYTE_ARRAY);
+        assertThat(store.getAccount(ROOT_1, ADDRESS_A)).isNull();
+        assertThat(store.getAccountHits()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRevertInvalidatesTouchedAccounts() {
+        store.moveTo(ROOT_0);
+        store.putAccount(ROOT_0, ADDRESS_A, "a0".getBytes());
+        store.putAccount(ROOT_0, ADDRESS_B, "b0".getBytes());
+
+        store.update(ROOT_0, ROOT_1, changes(ADDRESS_A, "a1".getBytes()));
+        assertThat(store.getRoot()).isEqualTo(ROOT_1);
+        assertThat(store.getAccount(ROOT_1, ADDRESS_A)).isEqualTo("a1".getBytes());
+        assertThat(store.getAccount(ROOT_1, ADDRESS_B)).isEqualTo("b0".getBytes());
+
+        store.moveTo(ROOT_0);
+        assertThat(store.getAccount(ROOT_0, ADDRESS_A)).isNull();
+        assertThat(store.getAccount(ROOT_0, ADDRESS_B)).isEqualTo("b0".getBytes());
+    }
+
+    @Test
+    public void testSwitchBranchInvalidatesBothPaths() {
+        store.moveTo(ROOT_0);
+        store.update(ROOT_0, ROOT_1, changes(ADDRESS_A, "a1".getBytes()));
+        store.update(ROOT_0, ROOT_2, changes(ADDRESS_B, "b2".getBytes()));
+        store.putAccount(ROOT_2, ADDRESS_A, "a0".getBytes());
+
+        // moving from the second branch to the first one
+        store.moveTo(ROOT_1);
+        assertThat(store.getAccount(ROOT_1, ADDRESS_A)).isNull();
+        assertThat(store.getAccount(ROOT_1, ADDRESS_B)).isNull();
+    }
+
+    @Test
+    public void testUnknownRootInvalidatesAll() {
+        store.moveTo(ROOT_0);
+        store.putAccount(ROOT_0, ADDRESS_A, "a0".getBytes());
+        store.update(ROOT_0, ROOT_1, changes(ADDRESS_B, "b1".getBytes()));
+
+        store.moveTo(ROOT_3);
+        store.moveTo(ROOT_1);
+        assertThat(store.getAccount(ROOT_1, ADDRESS_A)).isNull();
+        assertThat(store.getAccount(ROOT_1, ADDRESS_B)).isNull();
+    }
+
+    @Test
+    public void testLayerLimit() {
+        store = new FlatStateStore(db, 1);
+        store.moveTo(ROOT_0);
+        store.putAccount(ROOT_0, ADDRESS_A, "a0".getBytes());
+        store.update(ROOT_0, ROOT_1, changes(ADDRESS_B, "b1".getBytes()));
+        store.update(ROOT_1, ROOT_2, changes(ADDRESS_B, "b2".getBytes()));
+
+        // the first layer was dropped so the first root is no longer reachable
+        store.moveTo(ROOT_0);
+        assertThat(store.getAccount(ROOT_0, ADDRESS_A)).isNull();
+    }
+
+    @Test
+    public void testStorageTaggedWithStorageRoot() {
+        byte[] key = new byte[16];
+        store.putStorage(ADDRESS_A, ROOT_0, key, "v0".getBytes());
+
+        assertThat(store.getStorage(ADDRESS_A, ROOT_0, key)).isEqualTo("v0".getBytes());
+        assertThat(store.getStorage(ADDRESS_A, ROOT_1, key)).isNull();
+        assertThat(store.getStorage(ADDRESS_B, ROOT_0, key)).isNull();
+
+        Map<ByteArrayWrapper, Map<ByteArrayWrapper, byte[]>> entries = store.getStorageEntries();
+        byte[] entry = entries.get(wrap(ADDRESS_A)).get(wrap(key));
+        assertThat(FlatStateStore.getStorageRootTag(entry)).isEqualTo(ROOT_0);
+        assertThat(FlatStateStore.getStorageValue(entry)).isEqualTo("v0".getBytes());
+    }
+
+    @Test
+    public void testReopen() {
+        store.moveTo(ROOT_0);
+        store.update(ROOT_0, ROOT_1, changes(ADDRESS_A, "a1".getBytes()));
+
+        FlatStateStore reopened = new FlatStateStore(db, FlatStateStore.DEFAULT_MAX_LAYERS);
+        assertThat(reopened.getRoot()).isEqualTo(ROOT_1);
+        assertThat(reopened.getAccount(ROOT_1, ADDRESS_A)).isEqualTo("a1".getBytes());
+        assertThat(reopened.getAccounts()).hasSize(1);
+
+        // the diff layers are not persisted
+        reopened.moveTo(ROOT_0);
+        assertThat(reopened.getAccount(ROOT_0, ADDRESS_A)).isNull();
+        assertThat(reopened.getAccounts()).isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.mcf.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class TimedReadWriteLockTest {
+
+    @Test
+    public void testUncontendedAcquisition() {
+        TimedReadWriteLock lock = new TimedReadWriteLock();
+
+        lock.readLock().lock();
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        lock.writeLock().unlock();
+
+        assertThat(lock.readLock().getAcquiredCount()).isEqualTo(1);
+        assertThat(lock.readLock().getContendedCount()).isEqualTo(0);
+        assertThat(lock.writeLock().getAcquiredCount()).isEqualTo(1);
+        assertThat(lock.writeLock().getContendedCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testReaderDoesNotBargePastQueuedWriter() throws InterruptedException {
+        TimedReadWriteLock lock = new TimedReadWriteLock();
+        lock.readLock().lock();
+
+        CountDownLatch writerDone = new CountDownLatch(1);
+        Thread writer =
+                new Thread(
+                        () -> {
+                            lock.writeLock().lock();
+                            lock.writeLock().unlock();
+                            writerDone.countDown();
+                        });
+        writer.start();
+
+        // wait for the writer to queue behind the held read lock
+        while (writer.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        AtomicBoolean readerAcquired = new AtomicBoolean(false);
+        Thread reader =
+                new Thread(
+                        () -> {
+                            lock.readLock().lock();
+                            readerAcquired.set(true);
+                            lock.readLock().unlock();
+                        });
+        reader.start();
+        reader.join(200);
+        assertThat(readerAcquired.get()).isFalse();
+
+        lock.readLock().unlock();
+        assertThat(writerDone.await(5, TimeUnit.SECONDS)).isTrue();
+        reader.join(5000);
+        assertThat(readerAcquired.get()).isTrue();
+
+        assertThat(lock.writeLock().getContendedCount()).isEqualTo(1);
+        assertThat(lock.readLock().getContendedCount()).isEqualTo(1);
+    }
+}
@@ -1559,4 +1559,100 @@ public class JournalPruneDataSourceTest {
         assertThat(source_db.get(k5).get()).isEqualTo(v5);
         assertThat(source_db.get(k6).get()).isEqualTo(v6);
     }
+
+    @Test
+    public void testPruningWithJournalReload() {
+        IByteArrayKeyValueDatabase journal_db = DatabaseFactory.connect("JournalDB");
+        assertThat(journal_db.open()).isTrue();
+        db = new JournalPruneDataSource(source_db, journal_db);
+        db.setPruneEnabled(true);
+
+        // block 0
+        db.put(k1, v1);
+        db.put(k2, v2);
+        db.put(k3, v3);
+        db.storeBlockChanges(b0, 0);
+
+        // block 1
+        db.put(k4, v4);
+        db.delete(k2);
+        db.storeBlockChanges(b1, 1);
+
+        // block 2
+        db.put(k2, v3);
+        db.delete(k3);
+        db.storeBlockChanges(b2, 2);
+
+        // block 3
+        db.put(k5, v5);
+        db.put(k6, v6);
+        db.delete(k2);
+        db.storeBlockChanges(b3, 3);
+        assertThat(journal_db.keys().size()).isEqualTo(4);
+
+        // restart with the persisted journal
+        db = new JournalPruneDataSource(source_db, journal_db);
+        db.setPruneEnabled(true);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(4);
+        assertThat(db.getOldestBlockNumber()).isEqualTo(0L);
+        assertThat(db.getRefCountSize()).isEqualTo(6);
+        assertThat(db.getRefCountFootprint()).isGreaterThan(0L);
+
+        // prune block 0
+        db.prune(b0, 0);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(3);
+        assertThat(db.getOldestBlockNumber()).isEqualTo(1L);
+        assertThat(source_db.get(k1).get()).isEqualTo(v1);
+        assertThat(source_db.get(k2).get()).isEqualTo(v3);
+        assertThat(source_db.get(k3).get()).isEqualTo(v3);
+
+        // prune block 1, not deleted due to block 2 insert
+        db.prune(b1, 1);
+        assertThat(source_db.get(k4).get()).isEqualTo(v4);
+        assertThat(source_db.get(k2).get()).isEqualTo(v3);
+
+        // prune block 2
+        db.prune(b2, 2);
+        assertThat(source_db.get(k2).get()).isEqualTo(v3);
+        assertThat(source_db.get(k3).isPresent()).isFalse();
+
+        // prune block 3
+        db.prune(b3, 3);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(0);
+        assertThat(db.getOldestBlockNumber()).isEqualTo(-1L);
+        assertThat(db.getRefCountSize()).isEqualTo(0);
+        assertThat(source_db.get(k5).get()).isEqualTo(v5);
+        assertThat(source_db.get(k6).get()).isEqualTo(v6);
+        assertThat(source_db.get(k2).isPresent()).isFalse();
+
+        // the journal entries are removed once pruned
+        assertThat(journal_db.keys()).isEmpty();
+        journal_db.close();
+    }
+
+    @Test
+    public void testJournalReloadKeepsForkInserts() {
+        IByteArrayKeyValueDatabase journal_db = DatabaseFactory.connect("JournalDB");
+        assertThat(journal_db.open()).isTrue();
+        db = new JournalPruneDataSource(source_db, journal_db);
+        db.setPruneEnabled(true);
+
+        // block b0 on the main chain and b1 on a fork at the same level
+        db.put(k1, v1);
+        db.storeBlockChanges(b0, 0);
+        db.put(k2, v2);
+        db.storeBlockChanges(b1, 0);
+
+        // restart with the persisted journal
+        db = new JournalPruneDataSource(source_db, journal_db);
+        db.setPruneEnabled(true);
+
+        // the fork is rolled back, but its insert is conservatively kept
+        db.prune(b0, 0);
+        assertThat(db.getBlockUpdates().size()).isEqualTo(0);
+        assertThat(source_db.get(k1).get()).isEqualTo(v1);
+        assertThat(source_db.get(k2).get()).isEqualTo(v2);
+        assertThat(journal_db.keys()).isEmpty();
+        journal_db.close();
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.mcf.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.base.util.ByteArrayWrapper.wrap;
+
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.ds.XorDataSource;
+import org.junit.Test;
+
+public class NodeCacheTest {
+
+    private static final int COUNT = 100;
+
+    private static byte[] key(int i) {
+        return ("key-" + i).getBytes();
+    }
+
+    private static byte[] value(int i) {
+        return ("value-0123456789abcdefghijklmnopqrstuvwxyz-" + i).getBytes();
+    }
+
+    private static TrieImpl createTrie(MockDB db, NodeCache nodeCache) {
+        TrieImpl trie = new TrieImpl(db);
+        trie.setCache(new Cache(db, nodeCache));
+        for (int i = 0; i < COUNT; i++) {
+            trie.update(key(i), value(i));
+        }
+        trie.sync();
+        return trie;
+    }
+
+    @Test
+    public void testNodesSharedAfterCommit() {
+        MockDB db = new MockDB("db");
+        db.open();
+        NodeCache nodeCache = new NodeCache(NodeCache.DEFAULT_MAX_BYTES);
+
+        byte[] root = createTrie(db, nodeCache).getRootHash();
+        assertThat(nodeCache.size()).isGreaterThan(0L);
+
+        // the second trie reads from an empty database, so all nodes must come from the cache
+        MockDB empty = new MockDB("empty");
+        empty.open();
+        TrieImpl trie = new TrieImpl(empty, root);
+        trie.setCache(new Cache(empty, nodeCache));
+
+        for (int i = 0; i < COUNT; i++) {
+            assertThat(trie.get(key(i))).isEqualTo(value(i));
+        }
+        assertThat(nodeCache.getStats().hitCount()).isGreaterThan(0L);
+
+        // root validity is not decided by the shared cache
+        assertThat(trie.isValidRoot(root)).isFalse();
+        TrieImpl stored = new TrieImpl(db, root);
+        stored.setCache(new Cache(db, nodeCache));
+        assertThat(stored.isValidRoot(root)).isTrue();
+    }
+
+    @Test
+    public void testNodesReadFromDatabase() {
+        MockDB db = new MockDB("db");
+        db.open();
+        byte[] root = createTrie(db, null).getRootHash();
+
+        NodeCache nodeCache = new NodeCache(NodeCache.DEFAULT_MAX_BYTES);
+        TrieImpl trie = new TrieImpl(db, root);
+        trie.setCache(new Cache(db, nodeCache));
+        for (int i = 0; i < COUNT; i++) {
+            assertThat(trie.get(key(i))).isEqualTo(value(i));
+        }
+
+        // the loaded nodes are available to other tries
+        assertThat(nodeCache.size()).isGreaterThan(0L);
+        assertThat(nodeCache.getStats().missCount()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void testSizeBound() {
+        MockDB db = new MockDB("db");
+        db.open();
+        NodeCache nodeCache = new NodeCache(1024);
+
+        createTrie(db, nodeCache);
+        assertThat(nodeCache.getStats().evictionCount()).isGreaterThan(0L);
+    }
+
+    @Test
+    public void testDeleteInvalidates() {
+        MockDB db = new MockDB("db");
+        db.open();
+        NodeCache nodeCache = new NodeCache(NodeCache.DEFAULT_MAX_BYTES);
+
+        byte[] root = createTrie(db, nodeCache).getRootHash();
+        assertThat(nodeCache.get(wrap(root))).isNotNull();
+
+        Cache cache = new Cache(db, nodeCache);
+        cache.delete(root);
+        assertThat(nodeCache.get(wrap(root))).isNull();
+        assertThat(cache.get(root)).isNull();
+    }
+
+    @Test
+    public void testPruneInvalidates() {
+        MockDB db = new MockDB("db");
+        db.open();
+        NodeCache nodeCache = new NodeCache(NodeCache.DEFAULT_MAX_BYTES);
+        JournalPruneDataSource pruneDS = new JournalPruneDataSource(db);
+        pruneDS.setPruneEnabled(true);
+        pruneDS.setNodeCache(nodeCache);
+
+        TrieImpl trie = new TrieImpl(pruneDS).withPruningEnabled(true);
+        for (int i = 0; i < COUNT; i++) {
+            trie.update(key(i), value(i));
+        }
+        trie.sync();
+        byte[] oldRoot = trie.getRootHash();
+        pruneDS.storeBlockChanges(key(1), 1);
+
+        trie.update(key(0), value(COUNT));
+        trie.sync();
+        pruneDS.storeBlockChanges(key(2), 2);
+
+        // the old root is still stored until pruned
+        assertThat(new Cache(pruneDS).get(oldRoot)).isNotNull();
+        assertThat(nodeCache.get(wrap(oldRoot))).isNotNull();
+
+        pruneDS.prune(key(1), 1);
+        pruneDS.prune(key(2), 2);
+        assertThat(db.get(oldRoot).isPresent()).isFalse();
+        assertThat(nodeCache.get(wrap(oldRoot))).isNull();
+    }
+
+    @Test
+    public void testStorageTriesSharingDatabase() {
+        MockDB db = new MockDB("db");
+        db.open();
+        NodeCache nodeCache = new NodeCache(NodeCache.DEFAULT_MAX_BYTES);
+        JournalPruneDataSource pruneDS = new JournalPruneDataSource(db);
+        pruneDS.setPruneEnabled(true);
+        pruneDS.setNodeCache(nodeCache);
+
+        // two storage tries with the same content stored under different keys
+        XorDataSource first = new XorDataSource(pruneDS, "first".getBytes());
+        XorDataSource second = new XorDataSource(pruneDS, "second".getBytes());
+        TrieImpl firstTrie = new TrieImpl(first).withPruningEnabled(true);
+        TrieImpl secondTrie = new TrieImpl(second);
+        for (int i = 0; i < COUNT; i++) {
+            firstTrie.update(key(i), value(i));
+            secondTrie.update(key(i), value(i));
+        }
+        firstTrie.sync();
+        secondTrie.sync();
+        byte[] root = firstTrie.getRootHash();
+        assertThat(secondTrie.getRootHash()).isEqualTo(root);
+        pruneDS.storeBlockChanges(key(1), 1);
+
+        // the nodes are cached under the database keys
+        assertThat(nodeCache.get(wrap(root))).isNull();
+        assertThat(first.getNodeCache().get(wrap(root))).isNotNull();
+        assertThat(second.getNodeCache().get(wrap(root))).isNotNull();
+
+        firstTrie.update(key(0), value(COUNT));
+        firstTrie.sync();
+        pruneDS.storeBlockChanges(key(2), 2);
+        pruneDS.prune(key(1), 1);
+        pruneDS.prune(key(2), 2);
+
+        // pruning the first trie does not affect the nodes of the second one
+        assertThat(first.get(root).isPresent()).isFalse();
+        assertThat(first.getNodeCache().get(wrap(root))).isNull();
+        assertThat(second.getNodeCache().get(wrap(root))).isNotNull();
+
+        TrieImpl reloaded = new TrieImpl(second, root);
+        for (int i = 0; i < COUNT; i++) {
+            assertThat(reloaded.get(key(i))).isEqualTo(value(i));
+        }
+    }
+}
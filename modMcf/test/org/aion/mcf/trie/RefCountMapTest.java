@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.mcf.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.aion.base.util.ByteArrayWrapper;
+import org.junit.Test;
+
+public class RefCountMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        RefCountMap map = new RefCountMap();
+        byte[] key = "key".getBytes();
+
+        assertThat(map.get(key)).isEqualTo(-1);
+        map.put(key, 3);
+        assertThat(map.size()).isEqualTo(1);
+        // lookups compare the content of the keys
+        assertThat(map.get("key".getBytes())).isEqualTo(3);
+
+        map.put(key, 4);
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(key)).isEqualTo(4);
+
+        map.remove("key".getBytes());
+        assertThat(map.size()).isEqualTo(0);
+        assertThat(map.get(key)).isEqualTo(-1);
+
+        // removing a missing key has no effect
+        map.remove(key);
+        assertThat(map.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        RefCountMap map = new RefCountMap();
+        Map<ByteArrayWrapper, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            byte[] key = new byte[1 + random.nextInt(32)];
+            random.nextBytes(key);
+            keys.add(key);
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            byte[] key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(3) == 0) {
+                map.remove(key);
+                expected.remove(ByteArrayWrapper.wrap(key));
+            } else {
+                int value = random.nextInt(1000);
+                map.put(key, value);
+                expected.put(ByteArrayWrapper.wrap(key), value);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (byte[] key : keys) {
+            Integer value = expected.get(ByteArrayWrapper.wrap(key));
+            assertThat(map.get(key)).isEqualTo(value == null ? -1 : value);
+        }
+    }
+
+    @Test
+    public void testFootprint() {
+        RefCountMap map = new RefCountMap();
+        long empty = map.footprint();
+
+        for (int i = 0; i < 1_000; i++) {
+            map.put(Integer.toString(i).getBytes(), 2);
+        }
+        long full = map.footprint();
+        assertThat(full).isGreaterThan(empty);
+
+        for (int i = 0; i < 1_000; i++) {
+            map.remove(Integer.toString(i).getBytes());
+        }
+        assertThat(map.footprint()).isLessThan(full);
+
+        map.clear();
+        assertThat(map.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.base.util.ByteUtil.EMPTY_BYTE_ARRAY;
+import static org.aion.base.util.ByteUtil.intToBytes;
+import static org.aion.crypto.HashUtil.EMPTY_TRIE_HASH;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.trie.ImmutableTrie;
+import org.aion.mcf.trie.NodeCache;
+import org.aion.mcf.trie.SecureTrie;
+import org.aion.mcf.trie.TrieImpl;
+import org.junit.Test;
+
+public class ImmutableTrieTest {
+
+    private static final int KEYS = 500;
+
+    private static MockDB newDatabase() {
+        MockDB db = new MockDB("ImmutableTrieTest");
+        db.open();
+        return db;
+    }
+
+    @Test
+    public void testGetMatchesTrie() {
+        MockDB db = newDatabase();
+        TrieImpl trie = new TrieImpl(db);
+
+        for (int i = 0; i < KEYS; i++) {
+            trie.update(intToBytes(i), HashUtil.h256(intToBytes(i)));
+        }
+        // values shorter than 32 bytes are embedded in their parent nodes
+        trie.update("short".getBytes(), "v".getBytes());
+        trie.sync();
+
+        ImmutableTrie view = new ImmutableTrie(db, null, trie.getRootHash(), false);
+        assertThat(view.getRootHash()).isEqualTo(trie.getRootHash());
+
+        for (int i = 0; i < KEYS; i++) {
+            assertThat(view.get(intToBytes(i))).isEqualTo(trie.get(intToBytes(i)));
+        }
+        assertThat(view.get("short".getBytes())).isEqualTo("v".getBytes());
+        assertThat(view.get(intToBytes(KEYS))).isEqualTo(EMPTY_BYTE_ARRAY);
+        assertThat(view.get("sh".getBytes())).isEqualTo(EMPTY_BYTE_ARRAY);
+    }
+
+    @Test
+    public void testGetSecureTrie() {
+        MockDB db = newDatabase();
+        SecureTrie trie = new SecureTrie(db);
+
+        for (int i = 0; i < KEYS; i++) {
+            trie.update(intToBytes(i), HashUtil.h256(intToBytes(-i)));
+        }
+        trie.sync();
+
+        ImmutableTrie view =
+                new ImmutableTrie(db, new NodeCache(1024 * 1024), trie.getRootHash(), true);
+
+        for (int i = 0; i < KEYS; i++) {
+            assertThat(view.get(intToBytes(i))).isEqualTo(HashUtil.h256(intToBytes(-i)));
+        }
+    }
+
+    @Test
+    public void testEmptyRoot() {
+        ImmutableTrie view = new ImmutableTrie(newDatabase(), null, EMPTY_TRIE_HASH, true);
+        assertThat(view.get(intToBytes(0))).isEqualTo(EMPTY_BYTE_ARRAY);
+    }
+
+    @Test
+    public void testViewUnaffectedByLaterUpdates() throws Exception {
+        MockDB db = newDatabase();
+        TrieImpl trie = new TrieImpl(db);
+
+        for (int i = 0; i < KEYS; i++) {
+            trie.update(intToBytes(i), HashUtil.h256(intToBytes(i)));
+        }
+        trie.sync();
+        ImmutableTrie view =
+                new ImmutableTrie(db, new NodeCache(1024 * 1024), trie.getRootHash(), false);
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Callable<Boolean> read =
+                        () -> {
+                            for (int i = 0; i < KEYS; i++) {
+                                byte[] expected = HashUtil.h256(intToBytes(i));
+                                if (!Arrays.equals(view.get(intToBytes(i)), expected)) {
+                                    return false;
+                                }
+                            }
+                            return true;
+                        };
+                results.add(readers.submit(read));
+            }
+
+            // the writer keeps modifying the trie while the view is read
+            for (int i = 0; i < KEYS; i++) {
+                trie.update(intToBytes(i), HashUtil.h256(intToBytes(-i)));
+            }
+            trie.sync();
+
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+}
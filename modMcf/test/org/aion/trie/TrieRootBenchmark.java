@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.trie;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.aion.base.util.ByteUtil.intToBytes;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.crypto.HashUtil;
+import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.trie.SecureTrie;
+import org.junit.Test;
+
+/**
+ * Compares the time for applying a block worth of updated keys to a populated state trie and
+ * computing the new root one key at a time and as a batch hashed in parallel.
+ */
+public class TrieRootBenchmark {
+
+    private static final int EXISTING_KEYS = 100_000;
+
+    private static SecureTrie populatedTrie() {
+        MockDB db = new MockDB("state");
+        db.open();
+        SecureTrie trie = new SecureTrie(db);
+        Map<ByteArrayWrapper, byte[]> keys = new HashMap<>();
+        for (int i = 0; i < EXISTING_KEYS; i++) {
+            keys.put(ByteArrayWrapper.wrap(intToBytes(i)), HashUtil.h256(intToBytes(i)));
+        }
+        trie.updateBatch(keys);
+        trie.sync();
+        return trie;
+    }
+
+    @Test
+    public void benchmarkRootComputation() {
+        SecureTrie sequential = populatedTrie();
+        SecureTrie batched = populatedTrie();
+
+        int round = 0;
+        for (int updated : new int[] {1_000, 10_000, 100_000}) {
+            for (int repeat = 0; repeat < 2; repeat++, round++) {
+                Map<ByteArrayWrapper, byte[]> updates = new HashMap<>();
+                for (int i = 0; i < updated; i++) {
+                    // updates existing keys and inserts new ones
+                    int key = (i * 7 + round * 1_000_003) % (2 * EXISTING_KEYS);
+                    updates.put(
+                            ByteArrayWrapper.wrap(intToBytes(key)),
+                            HashUtil.h256(intToBytes(key + round)));
+                }
+
+                long start = System.nanoTime();
+                for (Map.Entry<ByteArrayWrapper, byte[]> entry : updates.entrySet()) {
+                    sequential.update(entry.getKey().getData(), entry.getValue());
+                }
+                byte[] sequentialRoot = sequential.getRootHash();
+                sequential.sync();
+                long sequentialTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                batched.updateBatch(updates);
+                byte[] batchedRoot = batched.getRootHash();
+                batched.sync();
+                long batchedTime = System.nanoTime() - start;
+
+                assertThat(batchedRoot).isEqualTo(sequentialRoot);
+
+                System.out.format(
+                        "%d updated keys: sequential %d ms, parallel batch %d ms%n",
+                        updated, sequentialTime / 1_000_000, batchedTime / 1_000_000);
+            }
+        }
+    }
+}
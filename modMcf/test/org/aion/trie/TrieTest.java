@@ -31,17 +31,27 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
+import org.aion.base.util.ByteArrayWrapper;
 import org.aion.crypto.HashUtil;
 import org.aion.db.impl.mockdb.MockDB;
+import org.aion.mcf.trie.JournalPruneDataSource;
 import org.aion.mcf.trie.TrieImpl;
+import org.aion.rlp.RLP;
+import org.aion.rlp.RLPElement;
+import org.aion.rlp.RLPList;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -877,4 +887,199 @@ public class TrieTest {
         assertEquals(Hex.toHexString(trie.getRootHash()), Hex.toHexString(trie2.getRootHash()));
         assertTrue(trie.equals(trie2));
     }
+
+    @Test
+    public void testUpdateBatchMatchesSequentialUpdates() {
+        MockDB db = new MockDB("batch");
+        db.open();
+        TrieImpl sequential = new TrieImpl(null).withPruningEnabled(true);
+        TrieImpl batched = new TrieImpl(db).withPruningEnabled(true);
+
+        // small batches are applied sequentially, the following ones in parallel
+        Random generator = new Random(42);
+        for (int round = 0; round < 6; round++) {
+            Map<ByteArrayWrapper, byte[]> updates = new HashMap<>();
+            int size = round == 0 ? 10 : 1000;
+            for (int i = 0; i < size; i++) {
+                byte[] key = HashUtil.h256(intToBytes(generator.nextInt(3000)));
+                // a third of the updates are deletes
+                byte[] value = i % 3 == 0 ? new byte[0] : HashUtil.h256(intToBytes(i + round));
+                updates.put(ByteArrayWrapper.wrap(key), value);
+            }
+
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : updates.entrySet()) {
+                sequential.update(entry.getKey().getData(), entry.getValue());
+            }
+            batched.updateBatch(updates);
+            assertThat(batched.getRootHash()).isEqualTo(sequential.getRootHash());
+
+            batched.sync();
+            for (Map.Entry<ByteArrayWrapper, byte[]> entry : updates.entrySet()) {
+                assertThat(batched.get(entry.getKey().getData())).isEqualTo(entry.getValue());
+            }
+        }
+
+        // deleting everything empties the trie
+        Map<ByteArrayWrapper, byte[]> deletes = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            deletes.put(ByteArrayWrapper.wrap(HashUtil.h256(intToBytes(i))), null);
+        }
+        batched.updateBatch(deletes);
+        assertThat(batched.getRootHash()).isEqualTo(EMPTY_TRIE_HASH);
+    }
+
+    @Test
+    public void testUpdateBatchPersistsSameNodesAsSequentialUpdates() {
+        MockDB sequentialDb = new MockDB("sequential");
+        MockDB sequentialJournal = new MockDB("sequential-journal");
+        MockDB batchedDb = new MockDB("batched");
+        MockDB batchedJournal = new MockDB("batched-journal");
+        sequentialDb.open();
+        sequentialJournal.open();
+        batchedDb.open();
+        batchedJournal.open();
+        JournalPruneDataSource sequentialSource =
+                new JournalPruneDataSource(sequentialDb, sequentialJournal);
+        JournalPruneDataSource batchedSource = new JournalPruneDataSource(batchedDb, batchedJournal);
+        sequentialSource.setPruneEnabled(true);
+        batchedSource.setPruneEnabled(true);
+        TrieImpl sequential = new TrieImpl(sequentialSource).withPruningEnabled(true);
+        TrieImpl batched = new TrieImpl(batchedSource).withPruningEnabled(true);
+
+        Random generator = new Random(7);
+        for (int round = 0; round < 5; round++) {
+            Map<ByteArrayWrapper, byte[]> updates = new HashMap<>();
+            for (int i = 0; i < 500; i++) {
+                byte[] key = HashUtil.h256(intToBytes(generator.nextInt(2000)));
+                byte[] value = i % 3 == 0 ? new byte[0] : HashUtil.h256(intToBytes(i + round));
+                updates.put(ByteArrayWrapper.wrap(key), value);
+            }
+
+            // the batch applies the updates in unsigned key order
+            List<ByteArrayWrapper> keys = new ArrayList<>(updates.keySet());
+            keys.sort(Comparator.comparing(ByteArrayWrapper::toString));
+            for (ByteArrayWrapper key : keys) {
+                sequential.update(key.getData(), updates.get(key));
+            }
+            batched.updateBatch(updates);
+
+            sequential.sync();
+            batched.sync();
+            byte[] block = HashUtil.h256(intToBytes(-round));
+            sequentialSource.storeBlockChanges(block, round);
+            batchedSource.storeBlockChanges(block, round);
+        }
+
+        assertThat(batched.getRootHash()).isEqualTo(sequential.getRootHash());
+        assertThat(contents(batchedDb)).isEqualTo(contents(sequentialDb));
+        assertThat(journal(batchedJournal)).isEqualTo(journal(sequentialJournal));
+    }
+
+    @Test
+    public void testUpdateBatchKeepsNodeRemovedAndPutByDifferentSubtrees() {
+        MockDB db = new MockDB("shared");
+        db.open();
+        TrieImpl trie = new TrieImpl(db).withPruningEnabled(true);
+
+        // keys that differ only in the first nibble end in identical leaf nodes
+        byte[] suffix = HashUtil.h256(intToBytes(1));
+        byte[] first = suffix.clone();
+        first[0] = (byte) (0x0F & suffix[0]);
+        byte[] second = suffix.clone();
+        second[0] = (byte) (0x10 | (0x0F & suffix[0]));
+        byte[] value = HashUtil.h256(intToBytes(2));
+
+        // the other keys avoid the first two subtrees, which hold a single leaf each
+        Map<ByteArrayWrapper, byte[]> inserts = new HashMap<>();
+        Random generator = new Random(11);
+        while (inserts.size() < 100) {
+            byte[] key = HashUtil.h256(intToBytes(generator.nextInt()));
+            if ((key[0] & 0xF0) >= 0x20) {
+                inserts.put(ByteArrayWrapper.wrap(key), HashUtil.h256(key));
+            }
+        }
+        inserts.put(ByteArrayWrapper.wrap(second), value);
+        trie.updateBatch(inserts);
+        trie.sync();
+
+        // the first subtree puts the leaf node that the second subtree removes
+        Map<ByteArrayWrapper, byte[]> updates = new HashMap<>();
+        for (ByteArrayWrapper key : inserts.keySet()) {
+            updates.put(key, HashUtil.h256(key.getData()));
+        }
+        updates.put(ByteArrayWrapper.wrap(first), value);
+        updates.put(ByteArrayWrapper.wrap(second), HashUtil.h256(intToBytes(3)));
+        trie.updateBatch(updates);
+        trie.sync();
+
+        TrieImpl reloaded = new TrieImpl(db, trie.getRootHash());
+        assertThat(reloaded.get(first)).isEqualTo(value);
+        assertThat(reloaded.get(second)).isEqualTo(HashUtil.h256(intToBytes(3)));
+    }
+
+    private static Map<String, String> contents(MockDB db) {
+        Map<String, String> contents = new HashMap<>();
+        for (byte[] key : db.keys()) {
+            contents.put(Hex.toHexString(key), Hex.toHexString(db.get(key).get()));
+        }
+        return contents;
+    }
+
+    /**
+     * Decodes the journal into the sets of inserted and deleted keys of each block. Only the
+     * deleted keys that were stored by the same or an earlier block are kept, since sequential
+     * updates also delete each intermediate root, which is never stored.
+     */
+    private static Map<String, Set<String>> journal(MockDB db) {
+        List<RLPList> blocks = new ArrayList<>();
+        for (byte[] key : db.keys()) {
+            blocks.add((RLPList) RLP.decode2(db.get(key).get()).get(0));
+        }
+        blocks.sort(Comparator.comparing(b -> new BigInteger(1, b.get(0).getRLPData())));
+
+        Map<String, Set<String>> changes = new HashMap<>();
+        Set<String> stored = new HashSet<>();
+        for (RLPList updates : blocks) {
+            String number = new BigInteger(1, updates.get(0).getRLPData()).toString();
+            Set<String> inserted = keySet((RLPList) updates.get(1));
+            stored.addAll(inserted);
+            Set<String> deleted = keySet((RLPList) updates.get(2));
+            deleted.retainAll(stored);
+            changes.put(number + "-inserted", inserted);
+            changes.put(number + "-deleted", deleted);
+        }
+        return changes;
+    }
+
+    private static Set<String> keySet(RLPList list) {
+        Set<String> keys = new HashSet<>();
+        for (RLPElement element : list) {
+            keys.add(Hex.toHexString(element.getRLPData()));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testUpdateBatchCollapsesRoot() {
+        TrieImpl sequential = new TrieImpl(null);
+        TrieImpl batched = new TrieImpl(null);
+
+        Map<ByteArrayWrapper, byte[]> inserts = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+            inserts.put(
+                    ByteArrayWrapper.wrap(HashUtil.h256(intToBytes(i))),
+                    HashUtil.h256(intToBytes(-i)));
+        }
+        batched.updateBatch(inserts);
+
+        // delete all keys except for one
+        Map<ByteArrayWrapper, byte[]> deletes = new HashMap<>();
+        for (int i = 1; i < 200; i++) {
+            deletes.put(ByteArrayWrapper.wrap(HashUtil.h256(intToBytes(i))), new byte[0]);
+        }
+        batched.updateBatch(deletes);
+
+        sequential.update(HashUtil.h256(intToBytes(0)), HashUtil.h256(intToBytes(0)));
+        assertThat(batched.getRootHash()).isEqualTo(sequential.getRootHash());
+    }
 }
@@ -83,6 +83,15 @@ public class Header {
         return ByteBuffer.allocate(LEN).putInt(this.getRoute()).putInt(len).array();
     }
 
+    /**
+     * Writes the encoded header at the current position of the buffer.
+     *
+     * @param _buf ByteBuffer with at least {@link #LEN} bytes remaining
+     */
+    public void encode(ByteBuffer _buf) {
+        _buf.putInt(this.getRoute()).putInt(len);
+    }
+
     /**
      * @param _headerBytes byte[]
      * @return Header
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.p2p.impl.comm;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct byte buffers shared by the p2p read and write paths.
+ *
+ * <p>Buffers are grouped in power of two size classes. Released buffers are kept for reuse
+ * while the pooled bytes stay under the pool limit; requests larger than the biggest size
+ * class are not pooled and must be served by the caller.
+ */
+public final class DirectBufferPool {
+
+    private static final int MIN_SHIFT = 3;
+
+    /** largest pooled buffer: 1 MB */
+    public static final int MAX_POOLED_SIZE = 1 << 20;
+
+    private static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+    private final Queue<ByteBuffer>[] free;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    private static class PoolHolder {
+        private static final DirectBufferPool INST =
+                new DirectBufferPool(DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    /** @return the buffer pool shared by the p2p tasks */
+    public static DirectBufferPool inst() {
+        return PoolHolder.INST;
+    }
+
+    public DirectBufferPool(long _maxPooledBytes) {
+        int classes = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE) - MIN_SHIFT + 1;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Queue<ByteBuffer>[] queues = new Queue[classes];
+        for (int i = 0; i < classes; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.free = queues;
+        this.maxPooledBytes = _maxPooledBytes;
+    }
+
+    private static int sizeClass(int _size) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(_size, 1) - 1);
+        return Math.max(shift, MIN_SHIFT) - MIN_SHIFT;
+    }
+
+    /**
+     * @param _size int the number of bytes needed, at most {@link #MAX_POOLED_SIZE}
+     * @return ByteBuffer a cleared direct buffer with its limit set to {@code _size}
+     */
+    public ByteBuffer acquire(int _size) {
+        if (_size < 0 || _size > MAX_POOLED_SIZE) {
+            throw new IllegalArgumentException("invalid-buffer-size " + _size);
+        }
+
+        int cls = sizeClass(_size);
+        ByteBuffer buf = free[cls].poll();
+        if (buf != null) {
+            pooledBytes.addAndGet(-buf.capacity());
+            reused.incrementAndGet();
+        } else {
+            int capacity = 1 << (cls + MIN_SHIFT);
+            buf = ByteBuffer.allocateDirect(capacity);
+            allocated.incrementAndGet();
+            allocatedBytes.addAndGet(capacity);
+        }
+
+        buf.clear().limit(_size);
+        return buf;
+    }
+
+    /**
+     * Returns a buffer to the pool. Buffers that were not handed out by {@link #acquire(int)}
+     * or that would grow the pool over its limit are left to the garbage collector.
+     *
+     * @param _buf ByteBuffer
+     */
+    public void release(ByteBuffer _buf) {
+        if (_buf == null || !_buf.isDirect()) {
+            return;
+        }
+
+        int capacity = _buf.capacity();
+        if (Integer.bitCount(capacity) != 1
+                || capacity < (1 << MIN_SHIFT)
+                || capacity > MAX_POOLED_SIZE) {
+            return;
+        }
+
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        free[sizeClass(capacity)].offer(_buf);
+    }
+
+    /** @return long the number of direct buffers allocated by the pool */
+    public long getAllocated() {
+        return allocated.get();
+    }
+
+    /** @return long the number of direct bytes allocated by the pool */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /** @return long the number of requests served by a pooled buffer */
+    public long getReused() {
+        return reused.get();
+    }
+
+    /** @return long the number of bytes currently held for reuse */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "buffer-pool allocated="
+                + allocated.get()
+                + " allocated-bytes="
+                + allocatedBytes.get()
+                + " reused="
+                + reused.get()
+                + " pooled-bytes="
+                + pooledBytes.get();
+    }
+}
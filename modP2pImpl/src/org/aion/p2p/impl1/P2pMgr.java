@@ -45,6 +45,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import org.aion.base.metrics.MetricRegistry;
 import org.aion.log.AionLoggerFactory;
 import org.aion.log.LogEnum;
 import org.aion.p2p.Ctrl;
@@ -70,6 +71,7 @@ import org.aion.p2p.impl1.tasks.TaskInbound;
 import org.aion.p2p.impl1.tasks.TaskReceive;
 import org.aion.p2p.impl1.tasks.TaskSend;
 import org.aion.p2p.impl1.tasks.TaskStatus;
+import org.aion.p2p.impl2.selector.MainIOLoop;
 import org.apache.commons.collections4.map.LRUMap;
 import org.slf4j.Logger;
 
@@ -91,7 +93,7 @@ public final class P2pMgr implements IP2pMgr {
     private final int SOCKET_BACKLOG = 1024;
 
     private int maxTempNodes, maxActiveNodes, selfNetId, selfNodeIdHash, selfPort;
-    private boolean syncSeedsOnly, upnpEnable;
+    private boolean syncSeedsOnly, upnpEnable, selectorLoop;
     private String selfRevision, selfShortId;
     private byte[] selfNodeId, selfIp;
     private INodeMgr nodeMgr;
@@ -102,6 +104,7 @@ public final class P2pMgr implements IP2pMgr {
 
     private ServerSocketChannel tcpServer;
     private Selector selector;
+    private volatile MainIOLoop ioLoop;
     private ScheduledExecutorService scheduledWorkers;
     private int errTolerance;
     private BlockingQueue<MsgOut> sendMsgQue = new LinkedBlockingQueue<>();
@@ -139,6 +142,38 @@ public final class P2pMgr implements IP2pMgr {
             final int _maxActiveNodes,
             final boolean _bootlistSyncOnly,
             final int _errorTolerance) {
+        this(
+                _netId,
+                _revision,
+                _nodeId,
+                _ip,
+                _port,
+                _bootNodes,
+                _upnpEnable,
+                _maxTempNodes,
+                _maxActiveNodes,
+                _bootlistSyncOnly,
+                _errorTolerance,
+                false);
+    }
+
+    /**
+     * @param _selectorLoop boolean serve the sockets from a blocking selector loop with queued
+     *     writes instead of the polling inbound thread and writing lanes
+     */
+    public P2pMgr(
+            final int _netId,
+            final String _revision,
+            final String _nodeId,
+            final String _ip,
+            final int _port,
+            final String[] _bootNodes,
+            final boolean _upnpEnable,
+            final int _maxTempNodes,
+            final int _maxActiveNodes,
+            final boolean _bootlistSyncOnly,
+            final int _errorTolerance,
+            final boolean _selectorLoop) {
 
         this.selfNetId = _netId;
         this.selfRevision = _revision;
@@ -152,6 +187,7 @@ public final class P2pMgr implements IP2pMgr {
         this.maxActiveNodes = _maxActiveNodes;
         this.syncSeedsOnly = _bootlistSyncOnly;
         this.errTolerance = _errorTolerance;
+        this.selectorLoop = _selectorLoop;
 
         nodeMgr = new NodeMgr(this, _maxActiveNodes, _maxTempNodes, p2pLOG);
 
@@ -173,6 +209,18 @@ public final class P2pMgr implements IP2pMgr {
         // rem out for bug:
         // nodeMgr.loadPersistedNodes();
         cachedResHandshake1 = new ResHandshake1(true, this.selfRevision);
+
+        MetricRegistry metrics = MetricRegistry.getInstance();
+        metrics.gauge(
+                "aion_p2p_send_queue_size",
+                "Number of messages waiting to be sent.",
+                () -> sendMsgQue.size());
+        metrics.gauge(
+                "aion_p2p_receive_queue_size",
+                "Number of received messages waiting to be handled.",
+                () -> receiveMsgQue.size());
+        metrics.gauge(
+                "aion_p2p_active_nodes", "Number of active peers.", nodeMgr::activeNodesSize);
     }
 
     @Override
@@ -196,9 +244,16 @@ public final class P2pMgr implements IP2pMgr {
                             SOCKET_BACKLOG);
             tcpServer.register(selector, SelectionKey.OP_ACCEPT);
 
-            Thread thrdIn = new Thread(getInboundInstance(), "p2p-in");
-            thrdIn.setPriority(Thread.NORM_PRIORITY);
-            thrdIn.start();
+            if (selectorLoop) {
+                ioLoop = new MainIOLoop(selector, getInboundInstance());
+                Thread thrdIo = new Thread(ioLoop, "p2p-io");
+                thrdIo.setPriority(Thread.NORM_PRIORITY);
+                thrdIo.start();
+            } else {
+                Thread thrdIn = new Thread(getInboundInstance(), "p2p-in");
+                thrdIn.setPriority(Thread.NORM_PRIORITY);
+                thrdIn.start();
+            }
 
             if (p2pLOG.isDebugEnabled()) {
                 this.handlers.forEach(
@@ -300,6 +355,10 @@ public final class P2pMgr implements IP2pMgr {
             scheduledWorkers.shutdownNow();
         }
 
+        if (ioLoop != null) {
+            ioLoop.shutdown();
+        }
+
         for (List<Handler> hdrs : handlers.values()) {
             hdrs.forEach(Handler::shutDown);
         }
@@ -349,6 +408,10 @@ public final class P2pMgr implements IP2pMgr {
             if (sk != null) {
                 sk.cancel();
                 sk.attach(null);
+                if (ioLoop != null) {
+                    // let the blocked loop deregister the key so the channel can be closed
+                    ioLoop.wakeup();
+                }
             }
 
             try {
@@ -466,7 +529,8 @@ public final class P2pMgr implements IP2pMgr {
     }
 
     private TaskSend getSendInstance(int i) {
-        return new TaskSend(this, i, this.sendMsgQue, this.start, this.nodeMgr, this.selector);
+        return new TaskSend(
+                this, i, this.sendMsgQue, this.start, this.nodeMgr, this.selector, this.ioLoop);
     }
 
     private TaskReceive getReceiveInstance() {
@@ -489,7 +553,8 @@ public final class P2pMgr implements IP2pMgr {
                 this.maxActiveNodes,
                 this.selector,
                 this.sendMsgQue,
-                cachedReqHandshake1);
+                cachedReqHandshake1,
+                this.ioLoop);
     }
 
     private ReqHandshake1 getReqHandshake1Instance(List<Short> versions) {
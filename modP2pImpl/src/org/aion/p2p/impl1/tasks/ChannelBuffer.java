@@ -26,8 +26,10 @@ package org.aion.p2p.impl1.tasks;
 import static org.aion.p2p.impl1.P2pMgr.p2pLOG;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -39,16 +41,21 @@ class ChannelBuffer {
     byte[] body = null;
     Lock lock = new ReentrantLock();
     private Header header = null;
-    // buffer for buffer remaining after NIO select read.
-    private byte[] remainBuffer;
-    private int buffRemain = 0;
+    // header and body bytes received so far for the message being read.
+    private byte[] bsHead = new byte[Header.LEN];
+    private int headPos = 0;
+    private byte[] bsBody = null;
+    private int bodyPos = 0;
     private int nodeIdHash;
     private String displayId;
-    private byte[] bsHead = new byte[Header.LEN];
     private AtomicBoolean closed = new AtomicBoolean(false);
 
     private Map<Integer, RouteStatus> routes = new HashMap<>();
 
+    // messages waiting for the socket, only used by the selector loop thread
+    final Queue<ByteBuffer[]> writeQueue = new ArrayDeque<>();
+    long pendingWriteBytes = 0;
+
     ChannelBuffer() {}
 
     public String getDisplayId() {
@@ -76,14 +83,6 @@ class ChannelBuffer {
         this.closed.set(true);
     }
 
-    int getBuffRemain() {
-        return buffRemain;
-    }
-
-    void setBuffRemain(int buffRemain) {
-        this.buffRemain = buffRemain;
-    }
-
     /**
      * @param _route int
      * @param _maxReqsPerSec int requests within 1 s
@@ -121,15 +120,19 @@ class ChannelBuffer {
         return routes.get(_route);
     }
 
+    /**
+     * Reads the header bytes available in the buffer. The header is decoded once all {@link
+     * Header#LEN} bytes have been received, possibly over several reads.
+     */
     void readHead(ByteBuffer buf) {
-        if (buf.array().length < bsHead.length) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readHead short buffer size");
-            }
+        int cnt = Math.min(buf.remaining(), Header.LEN - headPos);
+        buf.get(bsHead, headPos, cnt);
+        headPos += cnt;
+        if (headPos < Header.LEN) {
             return;
         }
 
-        buf.get(bsHead);
+        headPos = 0;
         try {
             header = Header.decode(bsHead);
         } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
@@ -139,6 +142,10 @@ class ChannelBuffer {
         }
     }
 
+    /**
+     * Copies the body bytes available in the buffer straight into the body array. The body is
+     * published once it holds the length given by the header, possibly over several reads.
+     */
     void readBody(ByteBuffer buf) {
         if (isHeaderNotCompleted()) {
             if (p2pLOG.isDebugEnabled()) {
@@ -147,23 +154,31 @@ class ChannelBuffer {
             return;
         }
 
-        if (buf.array().length < header.getLen()) {
-            if (p2pLOG.isDebugEnabled()) {
-                p2pLOG.debug("ChannelBuffer readBody short buffer size.");
-            }
-            return;
+        int len = header.getLen();
+        if (bsBody == null) {
+            bsBody = new byte[len];
+            bodyPos = 0;
         }
 
-        body = new byte[header.getLen()];
-        buf.get(body);
+        int cnt = Math.min(buf.remaining(), len - bodyPos);
+        buf.get(bsBody, bodyPos, cnt);
+        bodyPos += cnt;
+        if (bodyPos == len) {
+            body = bsBody;
+            bsBody = null;
+            bodyPos = 0;
+        }
     }
 
     void refreshHeader() {
         header = null;
+        headPos = 0;
     }
 
     void refreshBody() {
         body = null;
+        bsBody = null;
+        bodyPos = 0;
     }
 
     /** @return boolean */
@@ -176,14 +191,6 @@ class ChannelBuffer {
         return header == null || body == null || body.length != header.getLen();
     }
 
-    byte[] getRemainBuffer() {
-        return remainBuffer;
-    }
-
-    void setRemainBuffer(byte[] remainBuffer) {
-        this.remainBuffer = remainBuffer;
-    }
-
     public Header getHeader() {
         return header;
     }
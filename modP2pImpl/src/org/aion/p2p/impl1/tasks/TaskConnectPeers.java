@@ -37,6 +37,7 @@ import org.aion.p2p.INodeMgr;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.impl.zero.msg.ReqHandshake1;
 import org.aion.p2p.impl1.P2pMgr.Dest;
+import org.aion.p2p.impl2.selector.MainIOLoop;
 
 public class TaskConnectPeers implements Runnable {
 
@@ -50,6 +51,7 @@ public class TaskConnectPeers implements Runnable {
     private final BlockingQueue<MsgOut> sendMsgQue;
     private final Selector selector;
     private final ReqHandshake1 cachedReqHS;
+    private final MainIOLoop ioLoop;
 
     public TaskConnectPeers(
             final IP2pMgr _mgr,
@@ -59,7 +61,24 @@ public class TaskConnectPeers implements Runnable {
             final Selector _selector,
             final BlockingQueue<MsgOut> _sendMsgQue,
             final ReqHandshake1 _cachedReqHS) {
+        this(_mgr, _start, _nodeMgr, _maxActiveNodes, _selector, _sendMsgQue, _cachedReqHS, null);
+    }
+
+    /**
+     * @param _ioLoop MainIOLoop the selector loop serving the new channels, or {@code null} to
+     *     register them with the selector directly
+     */
+    public TaskConnectPeers(
+            final IP2pMgr _mgr,
+            final AtomicBoolean _start,
+            final INodeMgr _nodeMgr,
+            final int _maxActiveNodes,
+            final Selector _selector,
+            final BlockingQueue<MsgOut> _sendMsgQue,
+            final ReqHandshake1 _cachedReqHS,
+            final MainIOLoop _ioLoop) {
 
+        this.ioLoop = _ioLoop;
         this.start = _start;
         this.nodeMgr = _nodeMgr;
         this.maxActiveNodes = _maxActiveNodes;
@@ -119,11 +138,15 @@ public class TaskConnectPeers implements Runnable {
                         }
 
                         channel.configureBlocking(false);
-                        SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
                         ChannelBuffer rb = new ChannelBuffer();
                         rb.setDisplayId(node.getIdShort());
                         rb.setNodeIdHash(nodeIdHash);
-                        sk.attach(rb);
+                        if (this.ioLoop != null) {
+                            this.ioLoop.register(channel, SelectionKey.OP_READ, rb);
+                        } else {
+                            SelectionKey sk = channel.register(this.selector, SelectionKey.OP_READ);
+                            sk.attach(rb);
+                        }
 
                         node.refreshTimestamp();
                         node.setChannel(channel);
@@ -50,15 +50,19 @@ import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.P2pConstant;
 import org.aion.p2p.Ver;
 import org.aion.p2p.impl.comm.Act;
+import org.aion.p2p.impl.comm.DirectBufferPool;
 import org.aion.p2p.impl.zero.msg.ReqHandshake;
 import org.aion.p2p.impl.zero.msg.ReqHandshake1;
 import org.aion.p2p.impl.zero.msg.ResActiveNodes;
 import org.aion.p2p.impl.zero.msg.ResHandshake;
 import org.aion.p2p.impl.zero.msg.ResHandshake1;
-import org.aion.p2p.impl1.P2pException;
 import org.aion.p2p.impl1.P2pMgr.Dest;
+import org.aion.p2p.impl2.selector.Task;
 
-public class TaskInbound implements Runnable {
+public class TaskInbound implements Runnable, Task {
+
+    private static final int READ_BUFFER_SIZE = DirectBufferPool.MAX_POOLED_SIZE;
+    private static final int MAX_PENDING_WRITE = P2pConstant.MAX_BODY_SIZE;
 
     private final IP2pMgr mgr;
     private final Selector selector;
@@ -69,6 +73,9 @@ public class TaskInbound implements Runnable {
     private final ResHandshake1 cachedResHandshake1;
     private final BlockingQueue<MsgIn> receiveMsgQue;
 
+    // read buffer of the selector loop thread
+    private ByteBuffer loopReadBuf;
+
     public TaskInbound(
             final IP2pMgr _mgr,
             final Selector _selector,
@@ -92,8 +99,8 @@ public class TaskInbound implements Runnable {
     @Override
     public void run() {
 
-        // readBuffer buffer pre-alloc. @ max_body_size
-        ByteBuffer readBuf = ByteBuffer.allocate(P2pConstant.MAX_BODY_SIZE);
+        // pooled direct read buffer, message bodies are assembled in their channel buffers
+        ByteBuffer readBuf = DirectBufferPool.inst().acquire(READ_BUFFER_SIZE);
 
         while (start.get()) {
             try {
@@ -113,34 +120,9 @@ public class TaskInbound implements Runnable {
             try {
                 Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
                 while (keys.hasNext()) {
-                    ChannelBuffer cb = null;
-                    SelectionKey key = null;
+                    SelectionKey key = keys.next();
                     try {
-                        key = keys.next();
-                        if (!key.isValid()) {
-                            continue;
-                        }
-
-                        if (key.isAcceptable()) {
-                            accept((ServerSocketChannel) key.channel());
-                        }
-
-                        if (key.isReadable()) {
-                            cb = (ChannelBuffer) key.attachment();
-                            if (cb == null) {
-                                p2pLOG.error("inbound exception: attachment is null");
-                                continue;
-                            }
-                            readBuffer(key, cb, readBuf);
-                        }
-                    } catch (Exception e) {
-                        this.mgr.closeSocket(
-                                key != null ? (SocketChannel) key.channel() : null,
-                                (cb != null ? cb.getDisplayId() : null) + "-read-msg-exception ",
-                                e);
-                        if (cb != null) {
-                            cb.setClosed();
-                        }
+                        processKey(key, readBuf);
                     } finally {
                         keys.remove();
                     }
@@ -150,9 +132,145 @@ public class TaskInbound implements Runnable {
             }
         }
 
+        DirectBufferPool.inst().release(readBuf);
         p2pLOG.info("p2p-pi shutdown");
     }
 
+    private void processKey(final SelectionKey _key, final ByteBuffer _readBuf) {
+        ChannelBuffer cb = null;
+        try {
+            if (!_key.isValid()) {
+                return;
+            }
+
+            if (_key.isAcceptable()) {
+                accept((ServerSocketChannel) _key.channel());
+            }
+
+            if (_key.isReadable()) {
+                cb = (ChannelBuffer) _key.attachment();
+                if (cb == null) {
+                    p2pLOG.error("inbound exception: attachment is null");
+                    return;
+                }
+                readBuffer(_key, cb, _readBuf);
+            }
+
+            if (_key.isValid() && _key.isWritable()) {
+                cb = (ChannelBuffer) _key.attachment();
+                if (cb != null) {
+                    flush(_key, cb);
+                }
+            }
+        } catch (Exception e) {
+            this.mgr.closeSocket(
+                    (SocketChannel) _key.channel(),
+                    (cb != null ? cb.getDisplayId() : null) + "-read-msg-exception ",
+                    e);
+            if (cb != null) {
+                cb.setClosed();
+            }
+        }
+    }
+
+    // ---------------------------------------------------- selector loop, see MainIOLoop
+
+    @Override
+    public void channelReady(SelectableChannel _channel, SelectionKey _key) {
+        if (loopReadBuf == null) {
+            loopReadBuf = DirectBufferPool.inst().acquire(READ_BUFFER_SIZE);
+        }
+        processKey(_key, loopReadBuf);
+    }
+
+    /** Queues the buffers on the channel and writes as much as the socket accepts. */
+    @Override
+    public void acceptMessage(SelectableChannel _channel, SelectionKey _key, ByteBuffer[] _bufs) {
+        ChannelBuffer cb = (ChannelBuffer) _key.attachment();
+        if (cb == null || cb.isClosed()) {
+            release(_bufs);
+            return;
+        }
+
+        long len = 0;
+        for (ByteBuffer buf : _bufs) {
+            len += buf.remaining();
+        }
+
+        if (cb.pendingWriteBytes + len > MAX_PENDING_WRITE) {
+            if (p2pLOG.isDebugEnabled()) {
+                p2pLOG.debug(
+                        "write-queue-full node={} pending={}",
+                        cb.getDisplayId(),
+                        cb.pendingWriteBytes);
+            }
+            release(_bufs);
+            return;
+        }
+
+        cb.writeQueue.add(_bufs);
+        cb.pendingWriteBytes += len;
+
+        try {
+            flush(_key, cb);
+        } catch (IOException e) {
+            this.mgr.closeSocket(
+                    (SocketChannel) _channel, cb.getDisplayId() + "-write-msg-exception ", e);
+            cb.setClosed();
+        }
+    }
+
+    @Override
+    public void channelUnregistered(SelectableChannel _channel, Throwable _cause) {
+        if (_channel instanceof SocketChannel) {
+            this.mgr.closeSocket(
+                    (SocketChannel) _channel,
+                    "io-loop-unregistered",
+                    _cause instanceof Exception ? (Exception) _cause : null);
+        }
+    }
+
+    /**
+     * Writes the queued messages of the channel. When the socket buffer is full the key is
+     * switched to OP_WRITE and the remaining messages are written once the channel is writable.
+     */
+    private void flush(final SelectionKey _key, final ChannelBuffer _cb) throws IOException {
+        SocketChannel sc = (SocketChannel) _key.channel();
+
+        ByteBuffer[] bufs;
+        while ((bufs = _cb.writeQueue.peek()) != null) {
+            long wrote = sc.write(bufs);
+            _cb.pendingWriteBytes -= wrote;
+
+            if (hasRemaining(bufs)) {
+                _key.interestOps(_key.interestOps() | SelectionKey.OP_WRITE);
+                return;
+            }
+
+            _cb.writeQueue.poll();
+            release(bufs);
+        }
+
+        if ((_key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+            _key.interestOps(_key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] _bufs) {
+        for (ByteBuffer buf : _bufs) {
+            if (buf.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void release(ByteBuffer[] _bufs) {
+        for (ByteBuffer buf : _bufs) {
+            DirectBufferPool.inst().release(buf);
+        }
+    }
+
     private void accept(ServerSocketChannel _channel) throws Exception {
         if (this.nodeMgr.activeNodesSize() >= this.mgr.getMaxActiveNodes()) {
             return;
@@ -199,119 +317,40 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private int readHeader(final ChannelBuffer _cb, final ByteBuffer _readBuf, int cnt) {
-
-        if (cnt < Header.LEN) {
-            return cnt;
-        }
-
-        int origPos = _readBuf.position();
-
-        int startP = origPos - cnt;
-
-        _readBuf.position(startP);
-
-        _cb.readHead(_readBuf);
-
-        _readBuf.position(origPos);
-
-        return cnt - Header.LEN;
-    }
-
-    private int readBody(final ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-
-        int bodyLen = _cb.getHeader().getLen();
-
-        // some msg have nobody.
-        if (bodyLen == 0) {
-            _cb.body = new byte[0];
-            return _cnt;
-        }
-
-        if (_cnt < bodyLen) {
-            return _cnt;
-        }
-
-        int origPos = _readBuf.position();
-        int startP = origPos - _cnt;
-        _readBuf.position(startP);
-        _cb.readBody(_readBuf);
-        _readBuf.position(origPos);
-        return _cnt - bodyLen;
-    }
-
     private void readBuffer(
             final SelectionKey _sk, final ChannelBuffer _cb, final ByteBuffer _readBuf)
             throws Exception {
 
-        _readBuf.rewind();
-
         SocketChannel sc = (SocketChannel) _sk.channel();
 
         int r;
-        int cnt = 0;
         do {
+            _readBuf.clear();
             r = sc.read(_readBuf);
-            cnt += r;
-        } while (r > 0);
-
-        if (cnt < 1) {
-            return;
-        }
-
-        int remainBufAll = _cb.getBuffRemain() + cnt;
-        ByteBuffer bufferAll = calBuffer(_cb, _readBuf, cnt);
-
-        do {
-            r = readMsg(_sk, bufferAll, remainBufAll);
-            if (remainBufAll == r) {
-                break;
-            } else {
-                remainBufAll = r;
+            if (r > 0) {
+                _readBuf.flip();
+                readMsg(_sk, _cb, _readBuf);
             }
         } while (r > 0);
-
-        _cb.setBuffRemain(r);
-
-        if (r != 0) {
-            // there are no perfect cycling buffer in jdk
-            // yet.
-            // simply just buff move for now.
-            // @TODO: looking for more efficient way.
-
-            int currPos = bufferAll.position();
-            _cb.setRemainBuffer(new byte[r]);
-            bufferAll.position(currPos - r);
-            bufferAll.get(_cb.getRemainBuffer());
-        }
-
-        _readBuf.rewind();
     }
 
-    private int readMsg(SelectionKey _sk, ByteBuffer _readBuf, int _cnt) throws IOException {
-        ChannelBuffer cb = (ChannelBuffer) _sk.attachment();
-        if (cb == null) {
-            throw new P2pException("attachment is null");
-        }
-
-        int readCnt;
-        if (cb.isHeaderNotCompleted()) {
-            readCnt = readHeader(cb, _readBuf, _cnt);
-        } else {
-            readCnt = _cnt;
-        }
+    /** Consumes the bytes of the read buffer, handling every message that is completed. */
+    private void readMsg(SelectionKey _sk, ChannelBuffer _cb, ByteBuffer _readBuf) {
+        while (_readBuf.hasRemaining()) {
+            if (_cb.isHeaderNotCompleted()) {
+                _cb.readHead(_readBuf);
+                if (_cb.isHeaderNotCompleted()) {
+                    continue;
+                }
+            }
 
-        if (cb.isBodyNotCompleted()) {
-            readCnt = readBody(cb, _readBuf, readCnt);
-        }
+            _cb.readBody(_readBuf);
+            if (_cb.isBodyNotCompleted()) {
+                return;
+            }
 
-        if (cb.isBodyNotCompleted()) {
-            return readCnt;
+            handleMsg(_sk, _cb);
         }
-
-        handleMsg(_sk, cb);
-
-        return readCnt;
     }
 
     private void handleMsg(SelectionKey _sk, ChannelBuffer _cb) {
@@ -390,22 +429,6 @@ public class TaskInbound implements Runnable {
         }
     }
 
-    private ByteBuffer calBuffer(ChannelBuffer _cb, ByteBuffer _readBuf, int _cnt) {
-        ByteBuffer r;
-        if (_cb.getBuffRemain() != 0) {
-            byte[] alreadyRead = new byte[_cnt];
-            _readBuf.position(0);
-            _readBuf.get(alreadyRead);
-            r = ByteBuffer.allocate(_cb.getBuffRemain() + _cnt);
-            r.put(_cb.getRemainBuffer());
-            r.put(alreadyRead);
-        } else {
-            r = _readBuf;
-        }
-
-        return r;
-    }
-
     /**
      * @param _sk SelectionKey
      * @param _act ACT
@@ -37,6 +37,7 @@ import org.aion.p2p.INode;
 import org.aion.p2p.INodeMgr;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.P2pConstant;
+import org.aion.p2p.impl2.selector.MainIOLoop;
 
 public class TaskSend implements Runnable {
 
@@ -47,6 +48,7 @@ public class TaskSend implements Runnable {
     private final Selector selector;
     private final int lane;
     private final ThreadPoolExecutor tpe;
+    private final MainIOLoop ioLoop;
     private static final int THREAD_Q_LIMIT = 20000;
 
     public TaskSend(
@@ -56,8 +58,24 @@ public class TaskSend implements Runnable {
             final AtomicBoolean _start,
             final INodeMgr _nodeMgr,
             final Selector _selector) {
+        this(_mgr, _lane, _sendMsgQue, _start, _nodeMgr, _selector, null);
+    }
+
+    /**
+     * @param _ioLoop MainIOLoop the selector loop writing the messages, or {@code null} when the
+     *     lane writes to the sockets itself
+     */
+    public TaskSend(
+            final IP2pMgr _mgr,
+            final int _lane,
+            final BlockingQueue<MsgOut> _sendMsgQue,
+            final AtomicBoolean _start,
+            final INodeMgr _nodeMgr,
+            final Selector _selector,
+            final MainIOLoop _ioLoop) {
 
         this.mgr = _mgr;
+        this.ioLoop = _ioLoop;
         this.lane = _lane;
         this.sendMsgQue = _sendMsgQue;
         this.start = _start;
@@ -118,7 +136,8 @@ public class TaskSend implements Runnable {
                                             node.getChannel(),
                                             mo.getMsg(),
                                             (ChannelBuffer) attachment,
-                                            this.mgr));
+                                            this.mgr,
+                                            this.ioLoop));
                         }
                     }
                 } else {
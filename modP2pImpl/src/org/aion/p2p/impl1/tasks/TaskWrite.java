@@ -31,15 +31,20 @@ import java.nio.channels.SocketChannel;
 import org.aion.p2p.Header;
 import org.aion.p2p.IP2pMgr;
 import org.aion.p2p.Msg;
+import org.aion.p2p.impl.comm.DirectBufferPool;
+import org.aion.p2p.impl2.selector.MainIOLoop;
 
 /** @author chris */
 public class TaskWrite implements Runnable {
 
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
     private final String nodeShortId;
     private final SocketChannel sc;
     private final Msg msg;
     private final ChannelBuffer channelBuffer;
     private final IP2pMgr p2pMgr;
+    private final MainIOLoop ioLoop;
 
     TaskWrite(
             final String _nodeShortId,
@@ -47,11 +52,26 @@ public class TaskWrite implements Runnable {
             final Msg _msg,
             final ChannelBuffer _cb,
             final IP2pMgr _p2pMgr) {
+        this(_nodeShortId, _sc, _msg, _cb, _p2pMgr, null);
+    }
+
+    /**
+     * @param _ioLoop MainIOLoop the selector loop that writes the message, or {@code null} to
+     *     write from the calling thread
+     */
+    TaskWrite(
+            final String _nodeShortId,
+            final SocketChannel _sc,
+            final Msg _msg,
+            final ChannelBuffer _cb,
+            final IP2pMgr _p2pMgr,
+            final MainIOLoop _ioLoop) {
         this.nodeShortId = _nodeShortId;
         this.sc = _sc;
         this.msg = _msg;
         this.channelBuffer = _cb;
         this.p2pMgr = _p2pMgr;
+        this.ioLoop = _ioLoop;
     }
 
     @Override
@@ -64,6 +84,8 @@ public class TaskWrite implements Runnable {
             return;
         }
 
+        ByteBuffer headerBuf = null;
+        ByteBuffer bodyBuf = null;
         try {
             channelBuffer.lock.lock();
 
@@ -74,7 +96,6 @@ public class TaskWrite implements Runnable {
             int bodyLen = bodyBytes == null ? 0 : bodyBytes.length;
             Header h = msg.getHeader();
             h.setLen(bodyLen);
-            byte[] headerBytes = h.encode();
 
             if (p2pLOG.isTraceEnabled()) {
                 p2pLOG.trace(
@@ -85,18 +106,38 @@ public class TaskWrite implements Runnable {
                         h.getAction());
             }
 
-            ByteBuffer buf = ByteBuffer.allocate(headerBytes.length + bodyLen);
-            buf.put(headerBytes);
-            if (bodyBytes != null) {
-                buf.put(bodyBytes);
+            // header and body are written with one gathering write, bodies up to the pooled
+            // size are staged in direct buffers to avoid the channel's temporary copies
+            DirectBufferPool pool = DirectBufferPool.inst();
+            headerBuf = pool.acquire(Header.LEN);
+            h.encode(headerBuf);
+            headerBuf.flip();
+
+            ByteBuffer body;
+            if (bodyLen == 0) {
+                body = EMPTY;
+            } else if (bodyLen <= DirectBufferPool.MAX_POOLED_SIZE) {
+                bodyBuf = pool.acquire(bodyLen);
+                bodyBuf.put(bodyBytes).flip();
+                body = bodyBuf;
+            } else {
+                body = ByteBuffer.wrap(bodyBytes);
+            }
+            ByteBuffer[] bufs = new ByteBuffer[] {headerBuf, body};
+
+            if (ioLoop != null) {
+                // queued on the channel, the selector loop releases the buffers once written
+                ioLoop.write(sc, bufs);
+                headerBuf = null;
+                bodyBuf = null;
+                return;
             }
-            buf.flip();
 
             long t1 = System.nanoTime(), t2;
-            int wrote = 0;
+            long wrote = 0;
             try {
                 do {
-                    int result = sc.write(buf);
+                    long result = sc.write(bufs);
                     wrote += result;
 
                     if (result == 0) {
@@ -106,7 +147,8 @@ public class TaskWrite implements Runnable {
                     }
 
                     t2 = System.nanoTime() - t1;
-                } while (buf.hasRemaining() && (t2 < 100_000_000));
+                } while ((headerBuf.hasRemaining() || body.hasRemaining())
+                        && (t2 < 100_000_000));
 
                 if (p2pLOG.isTraceEnabled() && (t2 > 10_000_000)) {
                     p2pLOG.trace(
@@ -114,7 +156,7 @@ public class TaskWrite implements Runnable {
                             nodeShortId,
                             wrote,
                             t2,
-                            buf.array().length);
+                            Header.LEN + bodyLen);
                 }
 
             } catch (ClosedChannelException ex1) {
@@ -129,7 +171,7 @@ public class TaskWrite implements Runnable {
                             "write-msg-io-exception node="
                                     + this.nodeShortId
                                     + " headerBytes="
-                                    + String.valueOf(headerBytes.length)
+                                    + String.valueOf(Header.LEN)
                                     + " bodyLen="
                                     + String.valueOf(bodyLen)
                                     + " time="
@@ -146,6 +188,8 @@ public class TaskWrite implements Runnable {
             p2pLOG.error("TaskWrite exception.", e);
         } finally {
             channelBuffer.lock.unlock();
+            DirectBufferPool.inst().release(headerBuf);
+            DirectBufferPool.inst().release(bodyBuf);
         }
     }
 }
@@ -74,7 +74,7 @@ public class TaskWrite implements Runnable {
             buf.flip();
 
             // send outbound event to ioLoop for I/O
-            this.ioLoop.write(buf, this.sc);
+            this.ioLoop.write(this.sc, buf);
         } catch (Exception e) {
             System.out.println("<p2p-taskWrite-throw>" + e.toString());
         }
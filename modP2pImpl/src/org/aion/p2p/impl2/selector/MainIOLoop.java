@@ -26,24 +26,38 @@ package org.aion.p2p.impl2.selector;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.nio.channels.spi.SelectorProvider;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import org.aion.p2p.impl.comm.ChannelBuffer;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.slf4j.Logger;
 
+/**
+ * Single threaded NIO event loop. The loop blocks in {@link Selector#select(long)} until a
+ * channel is ready or another thread submits work, so an idle node does not consume cpu.
+ *
+ * <p>Every selected key is dispatched to the loop {@link Task}; the key attachment is left to
+ * the task. Registrations, writes and other channel operations from other threads are queued on
+ * the event bus and executed by the loop thread.
+ */
 public class MainIOLoop implements Runnable {
 
-    private Selector currSelector;
+    private static final Logger p2pLOG = AionLoggerFactory.getLogger(LogEnum.P2P.name());
 
-    private final SelectorProvider selectorProvider;
+    private final Selector currSelector;
 
-    private volatile boolean isRunning = false;
+    private final Task task;
+
+    private volatile boolean isRunning = true;
 
     private volatile Thread eventLoopThread;
 
@@ -51,39 +65,28 @@ public class MainIOLoop implements Runnable {
 
     private final AtomicBoolean wakenUp = new AtomicBoolean();
 
-    private long timeoutMillis = 5000L; // 1s
+    private long timeoutMillis = 5000L;
 
     private volatile boolean needsToSelectAgain = false;
 
-    // private static final Logger log = LoggerFactory.getLogger("NET");
-
-    // event-bus related
-
-    public MainIOLoop(SelectorProvider selectorProvider) {
-        this.selectorProvider = selectorProvider;
+    /**
+     * @param selector the selector owned by this loop, channels registered with it are served
+     *     by the loop thread
+     * @param task handles the selected keys and the queued writes of all channels
+     */
+    public MainIOLoop(Selector selector, Task task) {
+        if (selector == null || task == null) throw new NullPointerException();
 
-        try {
-            this.currSelector = selectorProvider.openSelector();
-        } catch (IOException e) {
-            // failed to create a selector, try again before loop
-        }
+        this.currSelector = selector;
+        this.task = task;
     }
 
-    // implements the bare minimum required to achieve a stable
-    // NIO loop
     @Override
     public void run() {
         registerEventLoopThread(Thread.currentThread());
-        this.isRunning = true;
-        try {
-            this.currSelector = selectorProvider.openSelector();
-        } catch (IOException e) {
-            // failed to create selector
-            return;
-        }
 
-        try {
-            while (!Thread.currentThread().isInterrupted()) {
+        while (this.isRunning && !Thread.currentThread().isInterrupted()) {
+            try {
                 select(this.wakenUp.getAndSet(false));
 
                 // see: <a
@@ -95,27 +98,26 @@ public class MainIOLoop implements Runnable {
                     processSelectedKeys();
                     long endTime = System.currentTimeMillis();
                     if ((endTime - startTime) > 1000) {
-                        System.out.println(
-                                "warning, selector thread key proc took: "
-                                        + (endTime - startTime)
-                                        + "ms");
+                        p2pLOG.warn("io-loop key proc took: {}ms", endTime - startTime);
                     }
                 } finally {
                     long startTime = System.currentTimeMillis();
                     runAllTasks();
                     long endTime = System.currentTimeMillis();
-
                     if ((endTime - startTime) > 1000) {
-                        System.out.println(
-                                "warning, selector thread task took: "
-                                        + (endTime - startTime)
-                                        + "ms");
+                        p2pLOG.warn("io-loop task took: {}ms", endTime - startTime);
                     }
                 }
+            } catch (ClosedSelectorException e) {
+                p2pLOG.debug("io-loop selector closed.", e);
+                break;
+            } catch (Throwable t) {
+                // the loop should not die, log and keep serving the other channels
+                p2pLOG.error("io-loop exception.", t);
             }
-        } catch (Throwable t) {
-            // loop should not die for now just log out the throw
         }
+
+        p2pLOG.info("p2p-io shutdown");
     }
 
     // -------------------------------------------------------------- internal
@@ -127,7 +129,7 @@ public class MainIOLoop implements Runnable {
     private void select(boolean oldWakenUp) throws IOException {
         Selector selector = this.currSelector;
 
-        while (true) {
+        while (this.isRunning) {
 
             // from netty docs:
             // If a task was submitted when wakenUp value was true, the task didn't get a chance to
@@ -156,10 +158,6 @@ public class MainIOLoop implements Runnable {
                 break;
             }
         }
-
-        // TODO: handle spin lock (epoll error)
-        // see: <a
-        // href="https://github.com/netty/netty/blob/4.1/transport/src/main/java/io/netty/channel/nio/NioEventLoop.java#L738"></a>
     }
 
     private void processSelectedKeys() {
@@ -169,56 +167,37 @@ public class MainIOLoop implements Runnable {
         Iterator<SelectionKey> it = selectedKeys.iterator();
         while (true) {
             final SelectionKey key = it.next();
-            final ChannelBuffer buffer = (ChannelBuffer) key.attachment();
-            processSelectedKey(key, buffer);
             // remove the current key
             it.remove();
+            processSelectedKey(key);
 
             if (!it.hasNext()) break;
 
             if (this.needsToSelectAgain) {
                 selectAgain();
-                Set<SelectionKey> keys = this.currSelector.selectedKeys();
-                if (keys.isEmpty()) break;
+                selectedKeys = this.currSelector.selectedKeys();
+                if (selectedKeys.isEmpty()) break;
                 else it = selectedKeys.iterator();
             }
         }
     }
 
-    private static void processSelectedKey(SelectionKey key, ChannelBuffer buffer) {
-        Task t = buffer.task;
-        int state = 0;
-        try {
-            t.channelReady(key.channel(), key);
-            state = 1;
-        } catch (Throwable th) {
-
-            // if this was an excepted exception
-            if (th instanceof Exception) {
-                // on any exception, drop
-                key.cancel();
-                t.channelUnregistered(key.channel(), th);
-                state = 2;
-            }
+    private void processSelectedKey(SelectionKey key) {
+        if (!key.isValid()) {
+            task.channelUnregistered(key.channel(), null);
+            return;
+        }
 
-            // otherwise if this was a runtime exception, it could be that
-            // our decoding logic is currently flawed, log out and ignore
-            System.out.println("Selector caught unhandled exception");
-            th.printStackTrace();
-        } finally {
-            // this should not happen, but handle anyways
-            if (state == 0) {
-                key.cancel();
-                t.channelUnregistered(key.channel(), null);
-            } else if (state == 1) {
-                // if the task cancelled the key
-                if (!key.isValid()) t.channelUnregistered(key.channel(), null);
-            }
+        try {
+            task.channelReady(key.channel(), key);
+        } catch (Exception e) {
+            // on any exception, drop the channel
+            key.cancel();
+            task.channelUnregistered(key.channel(), e);
         }
     }
 
     private boolean runAllTasks() {
-        assert isEventLoopThread();
         List<Runnable> tasks = this.eventBus.retrieveAllEvents();
 
         if (tasks.isEmpty()) return false;
@@ -233,7 +212,7 @@ public class MainIOLoop implements Runnable {
         try {
             task.run();
         } catch (Throwable t) {
-            t.printStackTrace();
+            p2pLOG.error("io-loop task exception.", t);
         }
     }
 
@@ -242,8 +221,7 @@ public class MainIOLoop implements Runnable {
         try {
             this.currSelector.selectNow();
         } catch (IOException e) {
-            // TODO: this needs formatting
-            e.printStackTrace();
+            p2pLOG.debug("io-loop select-again exception.", e);
         }
     }
 
@@ -257,19 +235,35 @@ public class MainIOLoop implements Runnable {
         return Thread.currentThread() == this.eventLoopThread;
     }
 
+    /** Wakes up the loop when called from another thread, e.g. after a key was cancelled. */
+    public void wakeup() {
+        wakeup(isEventLoopThread());
+    }
+
+    /** Queues a task to be run by the loop thread. */
+    public void execute(Runnable run) {
+        if (run == null) throw new NullPointerException();
+
+        this.eventBus.addEvent(run);
+        wakeup(isEventLoopThread());
+    }
+
     public void cancel(SelectionKey key) {
         key.cancel();
         this.needsToSelectAgain = true;
     }
 
     /**
-     * Called to attach a new channel to the event loop
+     * Registers a channel with the loop selector. Called from another thread, the registration
+     * is made by the loop thread and this call waits for it to complete.
      *
-     * @param channel a selectable channel that is active
-     * @param buffer associated buffer attached with channel
+     * @param channel a selectable channel in non-blocking mode
+     * @param interestOps the initial interest set
+     * @param attachment the key attachment
+     * @return the selection key of the channel
      */
-    public void attachChannel(
-            SelectableChannel channel, int interestOps, ChannelBuffer buffer, Task task) {
+    public SelectionKey register(SelectableChannel channel, int interestOps, Object attachment)
+            throws IOException {
         if (channel == null) throw new NullPointerException();
 
         if (interestOps == 0) throw new IllegalArgumentException();
@@ -278,68 +272,79 @@ public class MainIOLoop implements Runnable {
             throw new IllegalArgumentException();
         }
 
-        if (buffer == null) throw new NullPointerException();
-
-        if (task == null) throw new NullPointerException();
-
-        // just in case the user forgets to set it
-        if (buffer.task == null) buffer.task = task;
+        if (isEventLoopThread() || this.eventLoopThread == null) {
+            return channel.register(this.currSelector, interestOps, attachment);
+        }
 
-        // schedule an event for the channel to be attached
-        this.eventBus.addEvent(
+        CompletableFuture<SelectionKey> future = new CompletableFuture<>();
+        execute(
                 () -> {
                     try {
-                        SelectionKey key = channel.register(this.currSelector, interestOps, buffer);
-                        key.attach(buffer);
+                        future.complete(
+                                channel.register(this.currSelector, interestOps, attachment));
                     } catch (ClosedChannelException e) {
-                        buffer.task.channelUnregistered(channel, e);
+                        future.completeExceptionally(e);
                     }
                 });
-        wakeup(isEventLoopThread());
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClosedChannelException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
     }
 
-    /** Submit a new task (this is a write task the base class to serialize messages) */
-    public void write(ByteBuffer buffer, SocketChannel channel) {
-        this.eventBus.addEvent(
+    /**
+     * Submits buffers to be written to the channel by the loop thread, see {@link
+     * Task#acceptMessage(SelectableChannel, SelectionKey, ByteBuffer[])}.
+     */
+    public void write(SocketChannel channel, ByteBuffer... buffers) {
+        execute(
                 () -> {
                     SelectionKey key = channel.keyFor(this.currSelector);
-                    if (key == null) {
+                    if (key == null || !key.isValid()) {
                         try {
                             channel.close();
                         } catch (IOException e) {
-                            // do nothing here for now, just exit
+                            p2pLOG.debug("io-loop close-channel exception.", e);
                         }
                         return;
                     }
 
-                    ((ChannelBuffer) key.attachment()).task.acceptMessage(channel, key, buffer);
+                    this.task.acceptMessage(channel, key, buffers);
                 });
-        wakeup(isEventLoopThread());
-    }
-
-    private void resubmitWrite(ByteBuffer buffer, SelectionKey key, SocketChannel channel) {
-        // theres probably better ways to do this but for now the simplest
-        //
-    }
-
-    public SelectorProvider getSelectorProvider() {
-        return this.selectorProvider;
     }
 
     public void cancelChannel(SocketChannel channel) {
-        this.eventBus.addEvent(
+        execute(
                 () -> {
                     SelectionKey key = channel.keyFor(this.currSelector);
                     if (key != null) {
                         key.cancel();
-                        ((ChannelBuffer) key.attachment()).task.channelUnregistered(channel, null);
+                        this.task.channelUnregistered(channel, null);
                     } else {
                         try {
                             channel.close();
                         } catch (IOException e) {
-                            // log.error("failed to close channel", e);
+                            p2pLOG.debug("io-loop close-channel exception.", e);
                         }
                     }
                 });
     }
+
+    /** Stops the loop after the current iteration. */
+    public void shutdown() {
+        this.isRunning = false;
+        this.currSelector.wakeup();
+    }
+
+    public Selector getSelector() {
+        return this.currSelector;
+    }
 }
@@ -42,7 +42,7 @@ public interface Task {
 
                 @Override
                 public void acceptMessage(
-                        SelectableChannel channel, SelectionKey key, ByteBuffer buffer) {}
+                        SelectableChannel channel, SelectionKey key, ByteBuffer[] buffers) {}
 
                 @Override
                 public void channelUnregistered(SelectableChannel channel, Throwable cause) {}
@@ -53,7 +53,7 @@ public interface Task {
     // sometimes, writes become pending in which case they must be accepted
     // by the channel, when OP_WRITE gets triggered, the channel is responsible for
     // writing the message to the buffer
-    void acceptMessage(SelectableChannel channel, SelectionKey key, ByteBuffer buffer);
+    void acceptMessage(SelectableChannel channel, SelectionKey key, ByteBuffer[] buffers);
 
     void channelUnregistered(SelectableChannel channel, Throwable cause);
 }
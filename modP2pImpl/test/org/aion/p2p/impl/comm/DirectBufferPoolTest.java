@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.p2p.impl.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class DirectBufferPoolTest {
+
+    @Test
+    public void testAcquire() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+
+        ByteBuffer buf = pool.acquire(1000);
+        assertTrue(buf.isDirect());
+        assertEquals(1024, buf.capacity());
+        assertEquals(0, buf.position());
+        assertEquals(1000, buf.limit());
+
+        assertEquals(8, pool.acquire(0).capacity());
+        assertEquals(8, pool.acquire(8).capacity());
+        assertEquals(16, pool.acquire(9).capacity());
+        assertEquals(
+                DirectBufferPool.MAX_POOLED_SIZE,
+                pool.acquire(DirectBufferPool.MAX_POOLED_SIZE).capacity());
+        assertEquals(5, pool.getAllocated());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireTooLarge() {
+        new DirectBufferPool(1 << 20).acquire(DirectBufferPool.MAX_POOLED_SIZE + 1);
+    }
+
+    @Test
+    public void testReuse() {
+        DirectBufferPool pool = new DirectBufferPool(1 << 20);
+
+        ByteBuffer buf = pool.acquire(100);
+        buf.put((byte) 1);
+        pool.release(buf);
+        assertEquals(128, pool.getPooledBytes());
+
+        ByteBuffer again = pool.acquire(120);
+        assertSame(buf, again);
+        assertEquals(0, again.position());
+        assertEquals(120, again.limit());
+        assertEquals(1, pool.getAllocated());
+        assertEquals(1, pool.getReused());
+        assertEquals(0, pool.getPooledBytes());
+
+        // different size class
+        assertNotSame(buf, pool.acquire(200));
+    }
+
+    @Test
+    public void testReleaseLimit() {
+        DirectBufferPool pool = new DirectBufferPool(1024);
+
+        ByteBuffer b1 = pool.acquire(1024);
+        ByteBuffer b2 = pool.acquire(1024);
+        pool.release(b1);
+        pool.release(b2);
+        assertEquals(1024, pool.getPooledBytes());
+
+        // foreign buffers are not pooled
+        pool.release(ByteBuffer.allocate(8));
+        pool.release(ByteBuffer.allocateDirect(100));
+        pool.release(null);
+        assertEquals(1024, pool.getPooledBytes());
+    }
+}
@@ -165,6 +165,46 @@ public class ChannelBufferTest {
         }
     }
 
+    @Test
+    public void testReadSplitMessage() {
+        byte[] body = new byte[1000];
+        r.nextBytes(body);
+        ByteBuffer msg = ByteBuffer.allocate(LEN + body.length);
+        msg.put(genHeader(body.length)).put(body).flip();
+        Header expect = Header.decode(genHeaderBytes(msg));
+
+        // deliver the message in chunks that split both the header and the body
+        int[] chunks = {3, 7, 500, 498};
+        for (int chunk : chunks) {
+            ByteBuffer bb = ByteBuffer.allocateDirect(chunk);
+            msg.limit(msg.position() + chunk);
+            bb.put(msg).flip();
+
+            if (cb.isHeaderNotCompleted()) {
+                cb.readHead(bb);
+            }
+            if (!cb.isHeaderNotCompleted()) {
+                cb.readBody(bb);
+            }
+            assertFalse(bb.hasRemaining());
+        }
+
+        assertArrayEquals(expect.encode(), cb.getHeader().encode());
+        assertFalse(cb.isBodyNotCompleted());
+        assertArrayEquals(body, cb.body);
+
+        cb.refreshHeader();
+        cb.refreshBody();
+        assertTrue(cb.isHeaderNotCompleted());
+        assertTrue(cb.isBodyNotCompleted());
+    }
+
+    private static byte[] genHeaderBytes(ByteBuffer msg) {
+        byte[] bs = new byte[LEN];
+        msg.duplicate().get(bs);
+        return bs;
+    }
+
     @Test
     public void testReadBodyNotCompleted() {
         ByteBuffer bb = genBuffer();
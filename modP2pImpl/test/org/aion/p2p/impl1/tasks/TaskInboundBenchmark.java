@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.p2p.impl1.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.log.LogLevel;
+import org.aion.p2p.Ctrl;
+import org.aion.p2p.Handler;
+import org.aion.p2p.INode;
+import org.aion.p2p.INodeMgr;
+import org.aion.p2p.IP2pMgr;
+import org.aion.p2p.Msg;
+import org.aion.p2p.Ver;
+import org.aion.p2p.impl.zero.msg.ResHandshake1;
+import org.aion.p2p.impl2.selector.MainIOLoop;
+import org.junit.Test;
+
+/**
+ * Synthetic many-peer load over local sockets: writer threads push messages through {@link
+ * TaskWrite} while {@link TaskInbound} reads them, either from its polling thread or from a
+ * {@link MainIOLoop}. Reports the cpu used by the idle I/O thread, the time to deliver the load,
+ * the bytes allocated per payload byte and the collector activity during the run.
+ */
+public class TaskInboundBenchmark {
+
+    private static final int PEERS = 32;
+    private static final int MSGS_PER_PEER = 500;
+    private static final int BODY_SIZE = 16 * 1024;
+    private static final byte ACT_BULK = 100;
+    private static final byte ACT_LAST = 101;
+
+    private static class BenchMsg extends Msg {
+        private final byte[] body;
+
+        BenchMsg(byte _act, byte[] _body) {
+            super(Ver.V0, Ctrl.SYNC, _act);
+            this.body = _body;
+        }
+
+        @Override
+        public byte[] encode() {
+            return body;
+        }
+    }
+
+    private static long gcCount() {
+        long cnt = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            cnt += Math.max(gc.getCollectionCount(), 0);
+        }
+        return cnt;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(gc.getCollectionTime(), 0);
+        }
+        return time;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    private static long allocated(Thread _t) {
+        return threadBean().getThreadAllocatedBytes(_t.getId());
+    }
+
+    private static long cpuTime(Thread _t) {
+        return threadBean().getThreadCpuTime(_t.getId());
+    }
+
+    @Test
+    public void benchmarkPollingInbound() throws Exception {
+        benchmarkManyPeers(false);
+    }
+
+    @Test
+    public void benchmarkSelectorLoop() throws Exception {
+        benchmarkManyPeers(true);
+    }
+
+    private void benchmarkManyPeers(boolean _selectorLoop) throws Exception {
+        Map<String, String> logMap = new HashMap<>();
+        logMap.put(LogEnum.P2P.name(), LogLevel.ERROR.name());
+        AionLoggerFactory.init(logMap);
+
+        IP2pMgr mgr = mock(IP2pMgr.class);
+        INodeMgr nodeMgr = mock(INodeMgr.class);
+        INode node = mock(INode.class);
+        when(nodeMgr.getActiveNode(anyInt())).thenReturn(node);
+
+        Map<Integer, List<Handler>> handlers = new HashMap<>();
+        int lastRoute = new BenchMsg(ACT_LAST, null).getHeader().getRoute();
+        handlers.put(new BenchMsg(ACT_BULK, null).getHeader().getRoute(), Collections.emptyList());
+        handlers.put(lastRoute, Collections.emptyList());
+        BlockingQueue<MsgIn> received = new LinkedBlockingQueue<>();
+
+        Selector selector = Selector.open();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+
+        List<SocketChannel> clients = new ArrayList<>();
+        List<ChannelBuffer> clientBuffers = new ArrayList<>();
+        for (int i = 0; i < PEERS; i++) {
+            SocketChannel client = SocketChannel.open(server.getLocalAddress());
+            SocketChannel accepted = server.accept();
+            accepted.configureBlocking(false);
+            ChannelBuffer cb = new ChannelBuffer();
+            cb.setNodeIdHash(i + 1);
+            accepted.register(selector, SelectionKey.OP_READ).attach(cb);
+
+            ChannelBuffer clientCb = new ChannelBuffer();
+            if (_selectorLoop) {
+                // the loop writes the queued messages of the sending side as well
+                client.configureBlocking(false);
+                client.register(selector, SelectionKey.OP_READ).attach(clientCb);
+            }
+            clients.add(client);
+            clientBuffers.add(clientCb);
+        }
+
+        AtomicBoolean start = new AtomicBoolean(true);
+        TaskInbound inbound =
+                new TaskInbound(
+                        mgr,
+                        selector,
+                        start,
+                        nodeMgr,
+                        handlers,
+                        new LinkedBlockingQueue<>(),
+                        mock(ResHandshake1.class),
+                        received);
+        MainIOLoop ioLoop = _selectorLoop ? new MainIOLoop(selector, inbound) : null;
+        Thread io = new Thread(_selectorLoop ? ioLoop : inbound, "p2p-io");
+        io.start();
+
+        // cpu used by the I/O thread without traffic
+        Thread.sleep(200);
+        long idleCpu = cpuTime(io);
+        Thread.sleep(1000);
+        idleCpu = cpuTime(io) - idleCpu;
+
+        byte[] body = new byte[BODY_SIZE];
+        AtomicLong writerAlloc = new AtomicLong();
+        List<Thread> writers = new ArrayList<>();
+        for (int p = 0; p < PEERS; p++) {
+            SocketChannel client = clients.get(p);
+            ChannelBuffer cb = clientBuffers.get(p);
+            Thread writer =
+                    new Thread(
+                            () -> {
+                                long a0 = allocated(Thread.currentThread());
+                                for (int i = 0; i < MSGS_PER_PEER; i++) {
+                                    Msg msg = new BenchMsg(ACT_BULK, body);
+                                    new TaskWrite("bench", client, msg, cb, mgr, ioLoop).run();
+                                }
+                                Msg last = new BenchMsg(ACT_LAST, new byte[0]);
+                                new TaskWrite("bench", client, last, cb, mgr, ioLoop).run();
+                                writerAlloc.addAndGet(allocated(Thread.currentThread()) - a0);
+                            });
+            writers.add(writer);
+        }
+
+        long ioStart = allocated(io);
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long t0 = System.nanoTime();
+
+        for (Thread writer : writers) {
+            writer.start();
+        }
+
+        // every peer ends its stream with one message on the last route
+        int delivered = 0;
+        while (delivered < PEERS) {
+            MsgIn msg = received.poll(30, TimeUnit.SECONDS);
+            if (msg == null) {
+                break;
+            }
+            if (msg.getRoute() == lastRoute) {
+                delivered++;
+            }
+        }
+        long time = System.nanoTime() - t0;
+        long ioAlloc = allocated(io) - ioStart;
+        long gcCountDiff = gcCount() - gcCount;
+        long gcTimeDiff = gcTime() - gcTime;
+
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        start.set(false);
+        if (ioLoop != null) {
+            ioLoop.shutdown();
+        }
+        io.join();
+        for (SocketChannel client : clients) {
+            client.close();
+        }
+        server.close();
+        selector.close();
+
+        long payload = (long) PEERS * MSGS_PER_PEER * BODY_SIZE;
+        System.out.format(
+                "%s: idle cpu %d ms/s; peers %d, msgs %d x %d bytes delivered in %d ms, "
+                        + "io alloc %.2f, write alloc %.2f bytes/payload byte, "
+                        + "gc %d collections %d ms%n",
+                _selectorLoop ? "selector-loop" : "polling",
+                idleCpu / 1_000_000,
+                PEERS,
+                PEERS * MSGS_PER_PEER,
+                BODY_SIZE,
+                time / 1_000_000,
+                (double) ioAlloc / payload,
+                (double) writerAlloc.get() / payload,
+                gcCountDiff,
+                gcTimeDiff);
+        assertEquals(PEERS, delivered);
+        assertTrue(ioAlloc > 0);
+    }
+}
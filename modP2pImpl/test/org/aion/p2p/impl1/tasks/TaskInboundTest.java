@@ -23,12 +23,14 @@
 
 package org.aion.p2p.impl1.tasks;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -450,13 +452,8 @@ public class TaskInboundTest {
         // settings for readBuffer
         when(sk.channel()).thenReturn(sc);
         int read = r.nextInt(10000);
-        int remain = r.nextInt(10000);
         when(sc.read(any(ByteBuffer.class))).thenReturn(read).thenReturn(0);
 
-        // settings for calBuffer
-        when(cb.getBuffRemain()).thenReturn(remain);
-        when(cb.getRemainBuffer()).thenReturn(new byte[remain]);
-
         // settings for readMsg
         when(cb.isHeaderNotCompleted()).thenReturn(true);
         when(cb.isBodyNotCompleted()).thenReturn(true);
@@ -486,4 +483,50 @@ public class TaskInboundTest {
             Thread.sleep(10);
         }
     }
+
+    @Test
+    public void testAcceptMessageBackpressure() throws IOException {
+        TaskInbound ti =
+                new TaskInbound(
+                        p2pMgr,
+                        selector,
+                        new AtomicBoolean(true),
+                        nodeMgr,
+                        hldrMap,
+                        msgOutQue,
+                        rhs1,
+                        msgInQue);
+
+        ChannelBuffer buffer = new ChannelBuffer();
+        when(sk.attachment()).thenReturn(buffer);
+        when(sk.channel()).thenReturn(sc);
+        when(sk.isValid()).thenReturn(true);
+        when(sk.interestOps()).thenReturn(SelectionKey.OP_READ);
+
+        // the socket buffer is full, the message stays queued and OP_WRITE is requested
+        when(sc.write(any(ByteBuffer[].class))).thenReturn(0L);
+        ByteBuffer[] msg = {ByteBuffer.wrap(new byte[Header.LEN]), ByteBuffer.wrap(new byte[10])};
+        ti.acceptMessage(sc, sk, msg);
+        assertEquals(1, buffer.writeQueue.size());
+        assertEquals(Header.LEN + 10, buffer.pendingWriteBytes);
+        verify(sk).interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+
+        // once writable the queue is drained and OP_WRITE is cleared
+        when(sc.write(any(ByteBuffer[].class)))
+                .thenAnswer(
+                        invocation -> {
+                            long n = 0;
+                            for (ByteBuffer b : (ByteBuffer[]) invocation.getArgument(0)) {
+                                n += b.remaining();
+                                b.position(b.limit());
+                            }
+                            return n;
+                        });
+        when(sk.interestOps()).thenReturn(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        when(sk.isWritable()).thenReturn(true);
+        ti.channelReady(sc, sk);
+        assertTrue(buffer.writeQueue.isEmpty());
+        assertEquals(0, buffer.pendingWriteBytes);
+        verify(sk).interestOps(SelectionKey.OP_READ);
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.p2p.impl2.selector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MainIOLoopTest {
+
+    private Selector selector;
+    private MainIOLoop loop;
+    private Thread thread;
+    private RecordingTask task;
+
+    private static class RecordingTask implements Task {
+        final CountDownLatch ready = new CountDownLatch(1);
+        final CountDownLatch accepted = new CountDownLatch(1);
+        volatile Thread readyThread;
+
+        @Override
+        public void channelReady(SelectableChannel channel, SelectionKey key) {
+            readyThread = Thread.currentThread();
+            ready.countDown();
+            if (key.isReadable()) {
+                key.interestOps(0);
+            }
+        }
+
+        @Override
+        public void acceptMessage(
+                SelectableChannel channel, SelectionKey key, ByteBuffer[] buffers) {
+            try {
+                ((SocketChannel) channel).write(buffers);
+                accepted.countDown();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void channelUnregistered(SelectableChannel channel, Throwable cause) {}
+    }
+
+    @Before
+    public void setup() throws IOException {
+        selector = Selector.open();
+        task = new RecordingTask();
+        loop = new MainIOLoop(selector, task);
+        thread = new Thread(loop, "p2p-io-test");
+        thread.start();
+    }
+
+    @After
+    public void teardown() throws Exception {
+        loop.shutdown();
+        thread.join(1000);
+        selector.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void testExecuteWakesUpLoop() throws Exception {
+        // let the loop block in select, its timeout is longer than the wait below
+        Thread.sleep(100);
+
+        CountDownLatch ran = new CountDownLatch(1);
+        loop.execute(
+                () -> {
+                    assertTrue(loop.isEventLoopThread());
+                    ran.countDown();
+                });
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10_000)
+    public void testRegisterAndWrite() throws Exception {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        SocketChannel client = SocketChannel.open(server.getLocalAddress());
+        SocketChannel accepted = server.accept();
+        accepted.configureBlocking(false);
+
+        Object attachment = new Object();
+        SelectionKey key = loop.register(accepted, SelectionKey.OP_READ, attachment);
+        assertNotNull(key);
+        assertSame(attachment, key.attachment());
+        assertSame(key, accepted.keyFor(selector));
+
+        // readiness is dispatched to the task on the loop thread
+        client.write(ByteBuffer.wrap(new byte[] {1}));
+        assertTrue(task.ready.await(1, TimeUnit.SECONDS));
+        assertSame(thread, task.readyThread);
+
+        // writes are handed to the task by the loop thread
+        byte[] msg = {1, 2, 3, 4};
+        loop.write(accepted, ByteBuffer.wrap(msg, 0, 2), ByteBuffer.wrap(msg, 2, 2));
+        assertTrue(task.accepted.await(1, TimeUnit.SECONDS));
+
+        ByteBuffer in = ByteBuffer.allocate(msg.length);
+        while (in.hasRemaining()) {
+            client.read(in);
+        }
+        assertArrayEquals(msg, in.array());
+
+        client.close();
+        accepted.close();
+        server.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void testShutdown() throws Exception {
+        Thread.sleep(100);
+        loop.shutdown();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertEquals(Thread.State.TERMINATED, thread.getState());
+    }
+}
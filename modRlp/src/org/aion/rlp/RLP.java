@@ -192,6 +192,55 @@ public class RLP {
         return rlpList.get(0);
     }
 
+    /**
+     * Returns the position of the first payload byte of the item starting at the given position
+     * without decoding the item. For lists, this is the position of the first list element.
+     *
+     * @param data RLP encoded byte-array
+     * @param pos position of the item prefix
+     * @return the position where the item payload starts
+     */
+    public static int getPayloadPos(byte[] data, int pos) {
+        int prefix = data[pos] & 0xFF;
+        if (prefix < OFFSET_SHORT_ITEM) {
+            // byte is its own RLP encoding
+            return pos;
+        } else if (prefix <= OFFSET_LONG_ITEM) {
+            return pos + 1;
+        } else if (prefix < OFFSET_SHORT_LIST) {
+            return pos + 1 + prefix - OFFSET_LONG_ITEM;
+        } else if (prefix <= OFFSET_LONG_LIST) {
+            return pos + 1;
+        } else {
+            return pos + 1 + prefix - OFFSET_LONG_LIST;
+        }
+    }
+
+    /**
+     * Returns the position right after the item starting at the given position without decoding
+     * the item, i.e. the position of the next item in the enclosing list.
+     *
+     * @param data RLP encoded byte-array
+     * @param pos position of the item prefix
+     * @return the position following the end of the item
+     */
+    public static int getNextItemPos(byte[] data, int pos) {
+        int prefix = data[pos] & 0xFF;
+        if (prefix < OFFSET_SHORT_ITEM) {
+            return pos + 1;
+        } else if (prefix <= OFFSET_LONG_ITEM) {
+            return pos + 1 + prefix - OFFSET_SHORT_ITEM;
+        } else if (prefix < OFFSET_SHORT_LIST) {
+            int lengthOfLength = prefix - OFFSET_LONG_ITEM;
+            return pos + 1 + lengthOfLength + calcLength(lengthOfLength, data, pos);
+        } else if (prefix <= OFFSET_LONG_LIST) {
+            return pos + 1 + prefix - OFFSET_SHORT_LIST;
+        } else {
+            int lengthOfLength = prefix - OFFSET_LONG_LIST;
+            return pos + 1 + lengthOfLength + calcLength(lengthOfLength, data, pos);
+        }
+    }
+
     /** Get exactly one message payload */
     private static void fullTraverse(
             byte[] msgData, int level, int startPos, int endPos, RLPList rlpList) {
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.rlp;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import org.aion.base.util.ByteUtil;
+import org.aion.base.util.Hex;
+
+/**
+ * A read-only view of an RLP encoded item or list that decodes lazily over the original buffer.
+ *
+ * <p>Unlike {@link RLP#decode2(byte[])}, which copies every element of the structure into a new
+ * array, a view only records the position of its element. The elements of a list are located the
+ * first time they are accessed and data is only copied when it is requested as a {@code byte[]}.
+ * Numbers are read straight from the buffer.
+ *
+ * <p>The values returned for each element match {@link RLPElement#getRLPData()} for the elements
+ * built by {@link RLP#decode2(byte[])}: the payload of an item, or the complete encoding of a list.
+ *
+ * <p>Views do not copy the buffer they were created from, so it must not be modified while they
+ * are in use.
+ */
+public final class RLPView {
+
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private final byte[] data;
+    private final int offset;
+    private final int payloadOffset;
+    private final int payloadLength;
+    private final boolean list;
+
+    // positions of the list elements, located on first access
+    private int[] elements;
+    private int size = -1;
+
+    private RLPView(byte[] data, int offset, int limit) {
+        if (data == null || offset >= limit || limit > data.length) {
+            throw new RuntimeException("RLP wrong encoding (no data at position " + offset + ")");
+        }
+
+        int prefix = data[offset] & 0xFF;
+        int length;
+        if (prefix < OFFSET_SHORT_ITEM) {
+            // byte is its own RLP encoding
+            this.list = false;
+            this.payloadOffset = offset;
+            length = 1;
+        } else if (prefix <= OFFSET_LONG_ITEM) {
+            this.list = false;
+            this.payloadOffset = offset + 1;
+            length = prefix - OFFSET_SHORT_ITEM;
+        } else if (prefix < OFFSET_SHORT_LIST) {
+            int lengthOfLength = prefix - OFFSET_LONG_ITEM;
+            this.list = false;
+            this.payloadOffset = offset + 1 + lengthOfLength;
+            length = readLength(data, offset, lengthOfLength, limit);
+        } else if (prefix <= OFFSET_LONG_LIST) {
+            this.list = true;
+            this.payloadOffset = offset + 1;
+            length = prefix - OFFSET_SHORT_LIST;
+        } else {
+            int lengthOfLength = prefix - OFFSET_LONG_LIST;
+            this.list = true;
+            this.payloadOffset = offset + 1 + lengthOfLength;
+            length = readLength(data, offset, lengthOfLength, limit);
+        }
+
+        if (length < 0 || payloadOffset > limit || length > limit - payloadOffset) {
+            throw new RuntimeException(
+                    "RLP wrong encoding ("
+                            + Hex.toHexString(data, offset, Math.min(limit - offset, 64))
+                            + ")");
+        }
+
+        this.data = data;
+        this.offset = offset;
+        this.payloadLength = length;
+    }
+
+    private static int readLength(byte[] data, int offset, int lengthOfLength, int limit) {
+        if (lengthOfLength > Integer.BYTES || offset + lengthOfLength >= limit) {
+            return -1;
+        }
+        int length = 0;
+        for (int i = 1; i <= lengthOfLength; i++) {
+            length = (length << 8) | (data[offset + i] & 0xFF);
+        }
+        return length;
+    }
+
+    /**
+     * Creates a view of the first item or list in the given encoding, i.e. the element {@code
+     * RLP.decode2(encoded).get(0)}. Any data following that element is ignored.
+     *
+     * @param encoded RLP encoded data
+     * @return a view of the element at the start of the data
+     * @throws RuntimeException if the data is empty or the element exceeds the data
+     */
+    public static RLPView wrap(byte[] encoded) {
+        return new RLPView(encoded, 0, encoded == null ? 0 : encoded.length);
+    }
+
+    /**
+     * Creates a view of the item or list starting at the given position.
+     *
+     * @param data RLP encoded data
+     * @param offset position of the element prefix
+     * @return a view of the element at the given position
+     * @throws RuntimeException if there is no data at the position or the element exceeds the data
+     */
+    public static RLPView wrap(byte[] data, int offset) {
+        return new RLPView(data, offset, data == null ? 0 : data.length);
+    }
+
+    public boolean isList() {
+        return list;
+    }
+
+    /** @return the number of elements in this list */
+    public int size() {
+        locateElements();
+        return size;
+    }
+
+    /**
+     * Returns a view of an element of this list.
+     *
+     * @param index position of the element in the list
+     * @return a view over the same buffer
+     * @throws IndexOutOfBoundsException if the list has no element at the given index
+     */
+    public RLPView get(int index) {
+        locateElements();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new RLPView(data, elements[index], payloadOffset + payloadLength);
+    }
+
+    private void locateElements() {
+        if (size >= 0) {
+            return;
+        }
+        if (!list) {
+            throw new IllegalStateException("The RLP element is not a list.");
+        }
+
+        int end = payloadOffset + payloadLength;
+        int[] positions = new int[8];
+        int count = 0;
+        int pos = payloadOffset;
+        while (pos < end) {
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = pos;
+            int next = RLP.getNextItemPos(data, pos);
+            if (next <= pos || next > end) {
+                throw new RuntimeException(
+                        "RLP wrong encoding (list elements exceed the list length "
+                                + payloadLength
+                                + ")");
+            }
+            pos = next;
+        }
+
+        this.elements = positions;
+        this.size = count;
+    }
+
+    // the range returned by getBytes(): the payload of an item or the encoding of a list
+    private int dataOffset() {
+        return list ? offset : payloadOffset;
+    }
+
+    private int dataLength() {
+        return list ? payloadOffset + payloadLength - offset : payloadLength;
+    }
+
+    /**
+     * Copies the data of this element: the payload for an item or the complete encoding for a
+     * list, as {@link RLPElement#getRLPData()} does.
+     *
+     * @return a new array, or an empty array for an empty item
+     */
+    public byte[] getBytes() {
+        int length = dataLength();
+        if (length == 0) {
+            return ByteUtil.EMPTY_BYTE_ARRAY;
+        }
+        int start = dataOffset();
+        return Arrays.copyOfRange(data, start, start + length);
+    }
+
+    /**
+     * Copies the complete encoding of this element, prefix included.
+     *
+     * @return the encoding, which can be stored or decoded on its own
+     */
+    public byte[] getEncoded() {
+        return Arrays.copyOfRange(data, offset, payloadOffset + payloadLength);
+    }
+
+    /** @return the length of the data returned by {@link #getBytes()} */
+    public int getLength() {
+        return dataLength();
+    }
+
+    /** @return {@code true} for an item without payload and for an empty list */
+    public boolean isEmpty() {
+        return payloadLength == 0;
+    }
+
+    /**
+     * Reads the data as an unsigned big-endian number, keeping the lowest 64 bits. This is the same
+     * as {@code new BigInteger(1, getBytes()).longValue()} without the copies.
+     */
+    public long getLong() {
+        int start = dataOffset();
+        int end = start + dataLength();
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = (value << 8) | (data[i] & 0xFF);
+        }
+        return value;
+    }
+
+    /** Reads the data as an unsigned big-endian number, keeping the lowest 32 bits. */
+    public int getInt() {
+        return (int) getLong();
+    }
+
+    /** Reads the data as an unsigned big-endian number, keeping the lowest 8 bits. */
+    public byte getByte() {
+        int length = dataLength();
+        return length == 0 ? 0 : data[dataOffset() + length - 1];
+    }
+
+    /** Reads the data as an unsigned big-endian number. */
+    public BigInteger getBigInteger() {
+        int length = dataLength();
+        return length == 0 ? BigInteger.ZERO : new BigInteger(1, data, dataOffset(), length);
+    }
+
+    /**
+     * Decodes this element into the representation used by {@link RLP#decode(byte[], int)}: an
+     * {@code Object[]} for lists, an empty string for the empty item and a {@code byte[]} for all
+     * other items.
+     */
+    Object toObject() {
+        if (list) {
+            Object[] values = new Object[size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = get(i).toObject();
+            }
+            return values;
+        } else if ((data[offset] & 0xFF) == OFFSET_SHORT_ITEM) {
+            return "";
+        } else {
+            return Arrays.copyOfRange(data, payloadOffset, payloadOffset + payloadLength);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Hex.toHexString(data, offset, payloadOffset + payloadLength - offset);
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.rlp;
+
+import static org.aion.rlp.Utils.asUnsignedByteArray;
+
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encodes an RLP structure into a single buffer.
+ *
+ * <p>Encoding with {@link RLP#encodeElement(byte[])} and {@link RLP#encodeList(byte[]...)}
+ * allocates an array for every element and copies each of them again into every enclosing list.
+ * The writer instead records the items and lists of the structure, keeping track of the length of
+ * each list as it is completed, so that the whole encoding can be written in one pass into one
+ * array of the exact size, or into a caller-supplied {@link ByteBuffer}.
+ *
+ * <p>The output is identical to that of the corresponding {@link RLP} methods:
+ *
+ * <pre>{@code
+ * byte[] encoded = new RLPWriter()
+ *         .beginList()
+ *         .writeElement(nonce)
+ *         .writeLong(nrg)
+ *         .endList()
+ *         .toByteArray();
+ * // same as RLP.encodeList(RLP.encodeElement(nonce), RLP.encodeLong(nrg))
+ * }</pre>
+ *
+ * <p>Instances are not thread safe. They can be reused after {@link #reset()}.
+ */
+public final class RLPWriter {
+
+    private static final int SIZE_THRESHOLD = 56;
+    private static final int OFFSET_SHORT_ITEM = 0x80;
+    private static final int OFFSET_LONG_ITEM = 0xb7;
+    private static final int OFFSET_SHORT_LIST = 0xc0;
+    private static final int OFFSET_LONG_LIST = 0xf7;
+
+    private static final byte ELEMENT = 0;
+    private static final byte LONG = 1;
+    private static final byte ENCODED = 2;
+    private static final byte LIST = 3;
+
+    // the recorded operations: their kind, data and value (the payload length for lists)
+    private byte[] kinds;
+    private byte[][] refs;
+    private long[] values;
+    private int count;
+
+    // the operation index of each open list and the payload length accumulated at each depth
+    private int[] openLists = new int[4];
+    private int[] lengths = new int[5];
+    private int depth;
+
+    public RLPWriter() {
+        this(16);
+    }
+
+    /** @param capacity the expected number of items and lists in the structure */
+    public RLPWriter(int capacity) {
+        capacity = Math.max(capacity, 1);
+        kinds = new byte[capacity];
+        refs = new byte[capacity][];
+        values = new long[capacity];
+    }
+
+    /** Discards everything written so far. */
+    public RLPWriter reset() {
+        Arrays.fill(refs, 0, count, null);
+        count = 0;
+        depth = 0;
+        lengths[0] = 0;
+        return this;
+    }
+
+    private int add(byte kind, byte[] ref, long value, int encodedLength) {
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            refs = Arrays.copyOf(refs, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        kinds[count] = kind;
+        refs[count] = ref;
+        values[count] = value;
+        lengths[depth] += encodedLength;
+        return count++;
+    }
+
+    /**
+     * Writes an item, encoded as by {@link RLP#encodeElement(byte[])}. The data is only copied
+     * when the output is written, so it must not be modified before that.
+     */
+    public RLPWriter writeElement(byte[] data) {
+        add(ELEMENT, data, 0, elementLength(data));
+        return this;
+    }
+
+    /** Writes a number, encoded as by {@link RLP#encodeLong(long)}. */
+    public RLPWriter writeLong(long value) {
+        add(LONG, null, value, longLength(value));
+        return this;
+    }
+
+    /** Writes a byte, encoded as by {@link RLP#encodeByte(byte)}. */
+    public RLPWriter writeByte(byte value) {
+        return writeLong(value & 0xFF);
+    }
+
+    /** Writes a number, encoded as by {@link RLP#encodeBigInteger(BigInteger)}. */
+    public RLPWriter writeBigInteger(BigInteger value) {
+        return writeElement(value.signum() == 0 ? null : asUnsignedByteArray(value));
+    }
+
+    /**
+     * Writes data that is already RLP encoded, such as the encoding of a nested structure that was
+     * cached elsewhere, without copying it until the output is written.
+     */
+    public RLPWriter writeEncoded(byte[] encoded) {
+        add(ENCODED, encoded, 0, encoded.length);
+        return this;
+    }
+
+    /** Starts a list. All the elements written until the matching {@link #endList()} belong to it. */
+    public RLPWriter beginList() {
+        int index = add(LIST, null, 0, 0);
+        if (depth == openLists.length) {
+            openLists = Arrays.copyOf(openLists, depth * 2);
+            lengths = Arrays.copyOf(lengths, depth * 2 + 1);
+        }
+        openLists[depth++] = index;
+        lengths[depth] = 0;
+        return this;
+    }
+
+    /** Completes the last list started with {@link #beginList()}. */
+    public RLPWriter endList() {
+        if (depth == 0) {
+            throw new IllegalStateException("No list to end.");
+        }
+        int payload = lengths[depth--];
+        values[openLists[depth]] = payload;
+        lengths[depth] += headerLength(payload) + payload;
+        return this;
+    }
+
+    /** @return the length of the encoding */
+    public int length() {
+        checkComplete();
+        return lengths[0];
+    }
+
+    /** @return the encoding in a new array of the exact length */
+    public byte[] toByteArray() {
+        byte[] out = new byte[length()];
+        writeTo(ByteBuffer.wrap(out));
+        return out;
+    }
+
+    /**
+     * Writes the encoding at the current position of the given buffer.
+     *
+     * @param buffer a buffer with at least {@link #length()} bytes remaining
+     * @throws BufferOverflowException if there is not enough room in the buffer
+     */
+    public void writeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < length()) {
+            throw new BufferOverflowException();
+        }
+        for (int i = 0; i < count; i++) {
+            switch (kinds[i]) {
+                case ELEMENT:
+                    putElement(buffer, refs[i]);
+                    break;
+                case LONG:
+                    putLong(buffer, values[i]);
+                    break;
+                case ENCODED:
+                    buffer.put(refs[i]);
+                    break;
+                default:
+                    putHeader(buffer, (int) values[i], OFFSET_SHORT_LIST, OFFSET_LONG_LIST);
+            }
+        }
+    }
+
+    private void checkComplete() {
+        if (depth != 0) {
+            throw new IllegalStateException(depth + " list(s) not ended.");
+        }
+    }
+
+    private static int elementLength(byte[] data) {
+        if (data == null || data.length == 0) {
+            return 1;
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            return 1;
+        } else {
+            return headerLength(data.length) + data.length;
+        }
+    }
+
+    private static int longLength(long value) {
+        if ((value & 0x00000000FFFFFFFFL) != value) {
+            // RLP.encodeLong always uses 8 bytes above the int range
+            return 1 + Long.BYTES;
+        } else if (value < OFFSET_SHORT_ITEM) {
+            return 1;
+        } else {
+            return 1 + byteCount(value);
+        }
+    }
+
+    private static int headerLength(int length) {
+        return length < SIZE_THRESHOLD ? 1 : 1 + byteCount(length);
+    }
+
+    private static int byteCount(long value) {
+        return (Long.SIZE - Long.numberOfLeadingZeros(value) + 7) / 8;
+    }
+
+    private static void putElement(ByteBuffer buffer, byte[] data) {
+        if (data == null || data.length == 0) {
+            buffer.put((byte) OFFSET_SHORT_ITEM);
+        } else if (data.length == 1 && (data[0] & 0xFF) < OFFSET_SHORT_ITEM) {
+            buffer.put(data[0]);
+        } else {
+            putHeader(buffer, data.length, OFFSET_SHORT_ITEM, OFFSET_LONG_ITEM);
+            buffer.put(data);
+        }
+    }
+
+    private static void putLong(ByteBuffer buffer, long value) {
+        if ((value & 0x00000000FFFFFFFFL) != value) {
+            buffer.put((byte) (OFFSET_SHORT_ITEM + Long.BYTES));
+            putBigEndian(buffer, value, Long.BYTES);
+        } else if (value == 0) {
+            buffer.put((byte) OFFSET_SHORT_ITEM);
+        } else if (value < OFFSET_SHORT_ITEM) {
+            buffer.put((byte) value);
+        } else {
+            int bytes = byteCount(value);
+            buffer.put((byte) (OFFSET_SHORT_ITEM + bytes));
+            putBigEndian(buffer, value, bytes);
+        }
+    }
+
+    private static void putHeader(ByteBuffer buffer, int length, int shortOffset, int longOffset) {
+        if (length < SIZE_THRESHOLD) {
+            buffer.put((byte) (shortOffset + length));
+        } else {
+            int bytes = byteCount(length);
+            buffer.put((byte) (longOffset + bytes));
+            putBigEndian(buffer, length, bytes);
+        }
+    }
+
+    private static void putBigEndian(ByteBuffer buffer, long value, int bytes) {
+        for (int i = bytes - 1; i >= 0; i--) {
+            buffer.put((byte) (value >>> (8 * i)));
+        }
+    }
+}
@@ -197,7 +197,7 @@ public class Value {
 
     private void decode() {
         if (!this.decoded) {
-            this.value = RLP.decode(rlp, 0).getDecoded();
+            this.value = RLPView.wrap(rlp).toObject();
             this.decoded = true;
         }
     }
@@ -1363,4 +1363,31 @@ public class RLPTest {
 
         System.out.println(out);
     }
+
+    @Test
+    public void testItemPositions() {
+        byte[] shortItem = encodeElement(Hex.decode("deadbeef"));
+        byte[] longItem = encodeElement(new byte[100]);
+        byte[] singleByte = encodeElement(new byte[] {0x01});
+        byte[] longList = encodeList(longItem, longItem);
+        byte[] rlp = encodeList(shortItem, longList, singleByte);
+
+        int pos = RLP.getPayloadPos(rlp, 0);
+        assertEquals(rlp.length - shortItem.length - longList.length - singleByte.length, pos);
+
+        // short item
+        assertEquals(pos + 1, RLP.getPayloadPos(rlp, pos));
+        pos = RLP.getNextItemPos(rlp, pos);
+
+        // long list with long items
+        int first = RLP.getPayloadPos(rlp, pos);
+        assertEquals(pos + longList.length - 2 * longItem.length, first);
+        assertEquals(first + 2, RLP.getPayloadPos(rlp, first));
+        assertEquals(first + longItem.length, RLP.getNextItemPos(rlp, first));
+        pos = RLP.getNextItemPos(rlp, pos);
+
+        // single byte item
+        assertEquals(pos, RLP.getPayloadPos(rlp, pos));
+        assertEquals(rlp.length, RLP.getNextItemPos(rlp, pos));
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class RLPViewTest {
+
+    private final Random random = new Random(7);
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    /** Builds a random nested structure with items of all the encoding forms. */
+    private byte[] randomStructure(int depth) {
+        int size = random.nextInt(depth == 0 ? 40 : 6);
+        byte[][] elements = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            if (depth < 3 && random.nextInt(4) == 0) {
+                elements[i] = randomStructure(depth + 1);
+            } else {
+                int[] lengths = {0, 1, 2, 32, 55, 56, 300};
+                elements[i] = RLP.encodeElement(randomBytes(lengths[random.nextInt(7)]));
+            }
+        }
+        return RLP.encodeList(elements);
+    }
+
+    private static void assertSameElement(RLPView view, RLPElement element) {
+        assertThat(view.getBytes()).isEqualTo(element.getRLPData());
+        assertThat(view.getLength()).isEqualTo(element.getRLPData().length);
+        assertThat(view.isList()).isEqualTo(element instanceof RLPList);
+
+        if (element instanceof RLPList) {
+            RLPList list = (RLPList) element;
+            assertThat(view.getEncoded()).isEqualTo(list.getRLPData());
+            assertThat(view.size()).isEqualTo(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                assertSameElement(view.get(i), list.get(i));
+            }
+        } else {
+            assertThat(view.getBigInteger())
+                    .isEqualTo(new BigInteger(1, element.getRLPData()));
+            assertThat(view.getLong())
+                    .isEqualTo(new BigInteger(1, element.getRLPData()).longValue());
+        }
+    }
+
+    @Test
+    public void testMatchesDecode2() {
+        for (int i = 0; i < 200; i++) {
+            byte[] encoded = randomStructure(0);
+            assertSameElement(RLPView.wrap(encoded), RLP.decode2(encoded).get(0));
+        }
+    }
+
+    @Test
+    public void testItems() {
+        RLPView single = RLPView.wrap(new byte[] {0x7f});
+        assertThat(single.isList()).isFalse();
+        assertThat(single.getBytes()).isEqualTo(new byte[] {0x7f});
+
+        RLPView empty = RLPView.wrap(RLP.encodeElement(null));
+        assertThat(empty.isEmpty()).isTrue();
+        assertThat(empty.getBytes()).isEmpty();
+        assertThat(empty.getLong()).isEqualTo(0L);
+        assertThat(empty.getBigInteger()).isEqualTo(BigInteger.ZERO);
+
+        byte[] payload = randomBytes(1024);
+        RLPView item = RLPView.wrap(RLP.encodeElement(payload));
+        assertThat(item.getBytes()).isEqualTo(payload);
+        assertThat(item.getEncoded()).isEqualTo(RLP.encodeElement(payload));
+    }
+
+    @Test
+    public void testNumbers() {
+        long[] values = {0, 1, 0x7f, 0x80, 0xff, 0x100, 0xffff, 1L << 32, Long.MAX_VALUE, -1};
+        for (long value : values) {
+            RLPView view = RLPView.wrap(RLP.encodeLong(value));
+            assertThat(view.getLong()).isEqualTo(value);
+            assertThat(view.getInt()).isEqualTo((int) value);
+            assertThat(view.getByte()).isEqualTo((byte) value);
+        }
+
+        BigInteger big = BigInteger.TWO.pow(200).add(BigInteger.TEN);
+        RLPView view = RLPView.wrap(RLP.encodeBigInteger(big));
+        assertThat(view.getBigInteger()).isEqualTo(big);
+        assertThat(view.getLong()).isEqualTo(big.longValue());
+    }
+
+    @Test
+    public void testWrapAtOffset() {
+        byte[] first = RLP.encodeElement(randomBytes(20));
+        byte[] second = RLP.encodeList(RLP.encodeLong(5), RLP.encodeElement(randomBytes(60)));
+        byte[] data = new byte[first.length + second.length];
+        System.arraycopy(first, 0, data, 0, first.length);
+        System.arraycopy(second, 0, data, first.length, second.length);
+
+        RLPView view = RLPView.wrap(data, first.length);
+        assertThat(view.getEncoded()).isEqualTo(second);
+        assertThat(view.get(0).getLong()).isEqualTo(5L);
+
+        // trailing data is ignored
+        assertThat(RLPView.wrap(data).getEncoded()).isEqualTo(first);
+    }
+
+    @Test
+    public void testToObjectMatchesDecode() {
+        for (int i = 0; i < 100; i++) {
+            byte[] encoded = randomStructure(0);
+            Object expected = RLP.decode(encoded, 0).getDecoded();
+            assertThat(RLPView.wrap(encoded).toObject()).isEqualTo(expected);
+            assertThat(Value.fromRlpEncoded(encoded).asObj()).isEqualTo(expected);
+        }
+        assertThat(RLPView.wrap(RLP.encodeElement(null)).toObject()).isEqualTo("");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTruncatedItem() {
+        byte[] encoded = RLP.encodeElement(randomBytes(100));
+        RLPView.wrap(Arrays.copyOf(encoded, 50));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testElementExceedingList() {
+        // a list of length 2 holding an item of length 3
+        RLPView.wrap(new byte[] {(byte) 0xc2, (byte) 0x83, 1, 2, 3}).size();
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testEmptyData() {
+        RLPView.wrap(new byte[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testItemIsNotList() {
+        RLPView.wrap(RLP.encodeElement(randomBytes(4))).get(0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        RLPView.wrap(RLP.encodeList(RLP.encodeLong(1))).get(1);
+    }
+}
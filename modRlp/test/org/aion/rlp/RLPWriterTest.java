@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+
+package org.aion.rlp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import org.junit.Test;
+
+public class RLPWriterTest {
+
+    private final Random random = new Random(11);
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] write(byte[] element) {
+        return new RLPWriter().writeElement(element).toByteArray();
+    }
+
+    private static byte[] write(long value) {
+        return new RLPWriter().writeLong(value).toByteArray();
+    }
+
+    @Test
+    public void testElements() {
+        assertThat(write(null)).isEqualTo(RLP.encodeElement(null));
+        assertThat(write(new byte[0])).isEqualTo(RLP.encodeElement(new byte[0]));
+        assertThat(write(new byte[] {0})).isEqualTo(RLP.encodeElement(new byte[] {0}));
+        assertThat(write(new byte[] {0x7f})).isEqualTo(RLP.encodeElement(new byte[] {0x7f}));
+        assertThat(write(new byte[] {(byte) 0x80}))
+                .isEqualTo(RLP.encodeElement(new byte[] {(byte) 0x80}));
+
+        for (int length : new int[] {2, 55, 56, 255, 256, 70_000}) {
+            byte[] data = randomBytes(length);
+            assertThat(write(data)).isEqualTo(RLP.encodeElement(data));
+        }
+    }
+
+    @Test
+    public void testNumbers() {
+        long[] values = {
+            0, 1, 0x7f, 0x80, 0xff, 0x100, 0xffff, 0x10000, 0xffffff, 0x1000000, 0xffffffffL,
+            1L << 32, Long.MAX_VALUE, -1, Long.MIN_VALUE
+        };
+        for (long value : values) {
+            assertThat(write(value)).isEqualTo(RLP.encodeLong(value));
+        }
+        for (int i = 0; i < 1000; i++) {
+            long value = random.nextLong() >>> random.nextInt(64);
+            assertThat(write(value)).isEqualTo(RLP.encodeLong(value));
+        }
+        for (int value = -128; value < 128; value++) {
+            assertThat(new RLPWriter().writeByte((byte) value).toByteArray())
+                    .isEqualTo(RLP.encodeByte((byte) value));
+        }
+
+        BigInteger[] bigs = {
+            BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(0x80), BigInteger.TWO.pow(255)
+        };
+        for (BigInteger value : bigs) {
+            assertThat(new RLPWriter().writeBigInteger(value).toByteArray())
+                    .isEqualTo(RLP.encodeBigInteger(value));
+        }
+    }
+
+    @Test
+    public void testLists() {
+        // empty list
+        assertThat(new RLPWriter().beginList().endList().toByteArray())
+                .isEqualTo(RLP.encodeList());
+
+        for (int size : new int[] {1, 5, 20, 300}) {
+            byte[][] items = new byte[size][];
+            byte[][] encodedItems = new byte[size][];
+            RLPWriter writer = new RLPWriter(2);
+            writer.beginList();
+            for (int i = 0; i < size; i++) {
+                items[i] = randomBytes(random.nextInt(60));
+                encodedItems[i] = RLP.encodeElement(items[i]);
+                writer.writeElement(items[i]);
+            }
+            writer.endList();
+
+            assertThat(writer.toByteArray()).isEqualTo(RLP.encodeList(encodedItems));
+        }
+    }
+
+    @Test
+    public void testNestedLists() {
+        byte[] data = randomBytes(100);
+        byte[] inner = RLP.encodeList(RLP.encodeElement(data), RLP.encodeLong(1L << 40));
+        byte[] expected =
+                RLP.encodeList(
+                        RLP.encodeLong(3),
+                        inner,
+                        RLP.encodeList(),
+                        RLP.encodeList(inner, RLP.encodeElement(null)),
+                        RLP.encodeElement(data));
+
+        byte[] actual =
+                new RLPWriter()
+                        .beginList()
+                        .writeLong(3)
+                        .writeEncoded(inner)
+                        .beginList()
+                        .endList()
+                        .beginList()
+                        .beginList()
+                        .writeElement(data)
+                        .writeLong(1L << 40)
+                        .endList()
+                        .writeElement(null)
+                        .endList()
+                        .writeElement(data)
+                        .endList()
+                        .toByteArray();
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(RLPView.wrap(actual).get(3).get(0).get(0).getBytes()).isEqualTo(data);
+    }
+
+    @Test
+    public void testWriteToBuffer() {
+        byte[] data = randomBytes(64);
+        RLPWriter writer = new RLPWriter().beginList().writeElement(data).writeLong(-1).endList();
+        byte[] expected = RLP.encodeList(RLP.encodeElement(data), RLP.encodeLong(-1));
+        assertThat(writer.length()).isEqualTo(expected.length);
+
+        // the byte order of the buffer does not matter
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length + 3).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 1);
+        writer.writeTo(buffer);
+        assertThat(buffer.position()).isEqualTo(expected.length + 1);
+
+        byte[] written = new byte[expected.length];
+        System.arraycopy(buffer.array(), 1, written, 0, expected.length);
+        assertThat(written).isEqualTo(expected);
+    }
+
+    @Test
+    public void testReset() {
+        RLPWriter writer = new RLPWriter();
+        writer.beginList().writeElement(randomBytes(10)).endList().toByteArray();
+
+        byte[] data = randomBytes(3);
+        assertThat(writer.reset().writeElement(data).toByteArray())
+                .isEqualTo(RLP.encodeElement(data));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnterminatedList() {
+        new RLPWriter().beginList().writeLong(1).toByteArray();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEndWithoutBegin() {
+        new RLPWriter().writeLong(1).endList();
+    }
+}
@@ -0,0 +1,516 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ * Contributors:
+ *     Aion foundation.
+ */
+package org.aion.txpool.zero;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.aion.base.Constant;
+import org.aion.base.type.Address;
+import org.aion.base.type.ITransaction;
+import org.aion.base.util.ByteArrayWrapper;
+import org.aion.base.util.TimeInstant;
+import org.aion.log.AionLoggerFactory;
+import org.aion.log.LogEnum;
+import org.aion.txpool.ITxPool;
+import org.slf4j.Logger;
+import org.spongycastle.pqc.math.linearalgebra.ByteUtils;
+
+/**
+ * Transaction pool keeping its sort order up to date on every insertion and removal.
+ *
+ * <p>The transactions of each sender are kept in a queue ordered by nonce. The first transaction of
+ * every sender is kept in a fee index ordered by energy cost (energy price * energy consumption)
+ * and then by timestamp. A {@link #snapshot()} merges the fee index with the following
+ * transactions of the senders already picked, so building a block template visits only the picked
+ * transactions instead of sorting the whole pool.
+ *
+ * <p>Readers do not lock. Updates are serialized per sender, so transactions from different
+ * senders are added and removed concurrently.
+ *
+ * @implNote Differently from {@link TxPoolA0}, transactions are prioritized individually rather
+ *     than in groups of sequential transactions with averaged fees: a sender's transaction is only
+ *     considered after all the transactions with lower nonces from the same sender were picked.
+ */
+@SuppressWarnings("unchecked")
+public class TxPoolA1<TX extends ITransaction> implements ITxPool<TX> {
+
+    private static final Logger LOG = AionLoggerFactory.getLogger(LogEnum.TXPOOL.toString());
+
+    private static final int MULTIPLY_M = 1_000_000;
+    private static final int TXN_TIMEOUT_MIN = 10; // 10s
+    private static final int TXN_TIMEOUT_MAX = 86_400; // 1 day
+    private static final int BLK_SIZE_MAX = 16 * 1024 * 1024; // 16MB
+    private static final int BLK_SIZE_MIN = 1024 * 1024; // 1MB
+    private static final int BLK_NRG_MAX = 100_000_000;
+    private static final int BLK_NRG_MIN = 1_000_000;
+
+    private int txn_timeout = 86_400; // 1 day by seconds
+    private int blkSizeLimit = Constant.MAX_BLK_SIZE; // 2MB
+    private final AtomicLong blkNrgLimit = new AtomicLong(10_000_000L);
+
+    /** Orders by energy cost descending, then by timestamp and insertion order. */
+    private final Comparator<PoolTx> feeOrder =
+            Comparator.comparing((PoolTx p) -> p.fee)
+                    .reversed()
+                    .thenComparingLong(p -> p.timestamp)
+                    .thenComparingLong(p -> p.seq);
+
+    /** Orders by timestamp, then by insertion order. */
+    private final Comparator<PoolTx> timeOrder =
+            Comparator.comparingLong((PoolTx p) -> p.timestamp).thenComparingLong(p -> p.seq);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<ByteArrayWrapper, PoolTx> byHash = new ConcurrentHashMap<>();
+    private final Map<Address, Sender> senders = new ConcurrentHashMap<>();
+    /** First transaction of every sender. */
+    private final ConcurrentSkipListSet<PoolTx> feeIndex = new ConcurrentSkipListSet<>(feeOrder);
+
+    private final ConcurrentSkipListSet<PoolTx> timeIndex = new ConcurrentSkipListSet<>(timeOrder);
+
+    private final List<TX> outDated = new ArrayList<>();
+
+    private class PoolTx {
+        final TX tx;
+        final ByteArrayWrapper hash;
+        final Address from;
+        final BigInteger nonce;
+        final BigInteger fee;
+        final long timestamp;
+        final long seq;
+
+        PoolTx(TX tx) {
+            this.tx = tx;
+            this.hash = ByteArrayWrapper.wrap(tx.getHash());
+            this.from = tx.getFrom();
+            this.nonce = tx.getNonceBI();
+            this.fee =
+                    BigInteger.valueOf(tx.getNrgPrice())
+                            .multiply(BigInteger.valueOf(tx.getNrgConsume()));
+            this.timestamp = tx.getTimeStampBI().longValue();
+            this.seq = sequence.getAndIncrement();
+        }
+    }
+
+    private class Sender {
+        final ConcurrentSkipListMap<BigInteger, PoolTx> txs = new ConcurrentSkipListMap<>();
+        /** Set when the sender was removed from {@link #senders} and must not be updated. */
+        boolean removed = false;
+    }
+
+    public TxPoolA1() {}
+
+    public TxPoolA1(Properties config) {
+        setPoolArgs(config);
+    }
+
+    private void setPoolArgs(Properties config) {
+        if (Optional.ofNullable(config.get(PROP_TX_TIMEOUT)).isPresent()) {
+            txn_timeout = Integer.valueOf(config.get(PROP_TX_TIMEOUT).toString());
+            if (txn_timeout < TXN_TIMEOUT_MIN) {
+                txn_timeout = TXN_TIMEOUT_MIN;
+            } else if (txn_timeout > TXN_TIMEOUT_MAX) {
+                txn_timeout = TXN_TIMEOUT_MAX;
+            }
+        }
+
+        txn_timeout--; // final timeout value sub -1 sec
+
+        if (Optional.ofNullable(config.get(PROP_BLOCK_SIZE_LIMIT)).isPresent()) {
+            blkSizeLimit = Integer.valueOf(config.get(PROP_BLOCK_SIZE_LIMIT).toString());
+            if (blkSizeLimit < BLK_SIZE_MIN) {
+                blkSizeLimit = BLK_SIZE_MIN;
+            } else if (blkSizeLimit > BLK_SIZE_MAX) {
+                blkSizeLimit = BLK_SIZE_MAX;
+            }
+        }
+
+        if (Optional.ofNullable(config.get(PROP_BLOCK_NRG_LIMIT)).isPresent()) {
+            updateBlkNrgLimit(Long.valueOf((String) config.get(PROP_BLOCK_NRG_LIMIT)));
+        }
+    }
+
+    /**
+     * Executes the given update on the sender of the transaction, creating the sender when missing.
+     * Updates of the same sender are serialized.
+     */
+    private <R> R updateSender(Address from, Function<Sender, R> update) {
+        while (true) {
+            Sender sender = senders.computeIfAbsent(from, k -> new Sender());
+            synchronized (sender) {
+                if (!sender.removed) {
+                    R result = update.apply(sender);
+                    if (sender.txs.isEmpty()) {
+                        sender.removed = true;
+                        senders.remove(from, sender);
+                    }
+                    return result;
+                }
+            }
+        }
+    }
+
+    /** @implNote Must be called while holding the lock of the sender. */
+    private void insert(Sender sender, PoolTx ptx) {
+        Map.Entry<BigInteger, PoolTx> first = sender.txs.firstEntry();
+        sender.txs.put(ptx.nonce, ptx);
+        byHash.put(ptx.hash, ptx);
+        timeIndex.add(ptx);
+
+        if (first == null || ptx.nonce.compareTo(first.getKey()) < 0) {
+            if (first != null) {
+                feeIndex.remove(first.getValue());
+            }
+            feeIndex.add(ptx);
+        }
+    }
+
+    /** @implNote Must be called while holding the lock of the sender. */
+    private void delete(Sender sender, PoolTx ptx) {
+        boolean wasFirst = sender.txs.firstKey().equals(ptx.nonce);
+        sender.txs.remove(ptx.nonce);
+        byHash.remove(ptx.hash);
+        timeIndex.remove(ptx);
+
+        if (wasFirst) {
+            feeIndex.remove(ptx);
+            Map.Entry<BigInteger, PoolTx> first = sender.txs.firstEntry();
+            if (first != null) {
+                feeIndex.add(first.getValue());
+            }
+        }
+    }
+
+    @Override
+    public TX add(TX tx) {
+        List<TX> rtn = this.add(Collections.singletonList(tx));
+        return rtn.isEmpty() ? null : rtn.get(0);
+    }
+
+    @Override
+    public List<TX> add(List<TX> txl) {
+        List<TX> newPendingTx = new ArrayList<>();
+
+        for (TX tx : txl) {
+            PoolTx ptx = new PoolTx(tx);
+
+            if (byHash.containsKey(ptx.hash)) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn(
+                            "The tx hash existed in the pool! [{}]",
+                            ByteUtils.toHexString(ptx.hash.getData()));
+                }
+                continue;
+            }
+
+            TX result =
+                    updateSender(
+                            ptx.from,
+                            sender -> {
+                                PoolTx old = sender.txs.get(ptx.nonce);
+                                if (old != null) {
+                                    if (LOG.isTraceEnabled()) {
+                                        LOG.trace("repay tx, remove previous tx!");
+                                    }
+                                    delete(sender, old);
+                                }
+                                insert(sender, ptx);
+                                return old == null ? tx : old.tx;
+                            });
+
+            newPendingTx.add(result);
+        }
+
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("new add tx! np[{}] tx[{}]", newPendingTx.size(), txl.size());
+        }
+
+        return newPendingTx;
+    }
+
+    @Override
+    public List<TX> remove(List<TX> txs) {
+        List<TX> removedTxl = new ArrayList<>();
+
+        for (TX tx : txs) {
+            PoolTx ptx = byHash.get(ByteArrayWrapper.wrap(tx.getHash()));
+            if (ptx == null) {
+                continue;
+            }
+
+            boolean removed =
+                    updateSender(
+                            ptx.from,
+                            sender -> {
+                                if (sender.txs.get(ptx.nonce) != ptx) {
+                                    return false;
+                                }
+                                delete(sender, ptx);
+                                return true;
+                            });
+
+            if (removed) {
+                removedTxl.add((TX) ptx.tx.clone());
+            }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.remove TX remove [{}] removed [{}]", txs.size(), removedTxl.size());
+        }
+
+        return removedTxl;
+    }
+
+    @Override
+    public List<TX> remove(Map<Address, BigInteger> accNonce) {
+        List<TX> removedTxl = new ArrayList<>();
+
+        for (Map.Entry<Address, BigInteger> e : accNonce.entrySet()) {
+            if (!senders.containsKey(e.getKey())) {
+                continue;
+            }
+
+            updateSender(
+                    e.getKey(),
+                    sender -> {
+                        for (PoolTx ptx :
+                                new ArrayList<>(sender.txs.headMap(e.getValue()).values())) {
+                            delete(sender, ptx);
+                            removedTxl.add((TX) ptx.tx.clone());
+                        }
+                        return null;
+                    });
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("TxPoolA1.remove {} TX", removedTxl.size());
+        }
+
+        return removedTxl;
+    }
+
+    @Override
+    public int size() {
+        return byHash.size();
+    }
+
+    @Override
+    public List<TX> snapshot() {
+        removeTimeoutTxn();
+
+        int cnt_txSz = 0;
+        long cnt_nrg = 0;
+        List<TX> rtn = new ArrayList<>();
+
+        // next transactions of the senders already picked
+        PriorityQueue<PoolTx> following = new PriorityQueue<>(feeOrder);
+        Set<Address> picked = new HashSet<>();
+
+        Iterator<PoolTx> firstTxs = feeIndex.iterator();
+        PoolTx nextFirst = nextFirst(firstTxs, picked);
+
+        while (nextFirst != null || !following.isEmpty()) {
+            PoolTx ptx;
+            if (nextFirst != null
+                    && (following.isEmpty() || feeOrder.compare(nextFirst, following.peek()) < 0)) {
+                ptx = nextFirst;
+                picked.add(ptx.from);
+                nextFirst = nextFirst(firstTxs, picked);
+            } else {
+                ptx = following.poll();
+            }
+
+            ITransaction itx = ptx.tx;
+            cnt_txSz += itx.getEncoded().length;
+            cnt_nrg += itx.getNrgConsume();
+            if (LOG.isTraceEnabled()) {
+                LOG.trace(
+                        "from:[{}] nonce:[{}] txSize: txSize[{}] nrgConsume[{}]",
+                        itx.getFrom().toString(),
+                        itx.getNonceBI().toString(),
+                        itx.getEncoded().length,
+                        itx.getNrgConsume());
+            }
+
+            if (cnt_txSz < blkSizeLimit && cnt_nrg < blkNrgLimit.get()) {
+                rtn.add((TX) itx.clone());
+            } else {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(
+                            "Reach blockLimit: txSize[{}], nrgConsume[{}], tx#[{}]",
+                            cnt_txSz,
+                            cnt_nrg,
+                            rtn.size());
+                }
+                return rtn;
+            }
+
+            Sender sender = senders.get(ptx.from);
+            if (sender != null) {
+                PoolTx next = sender.txs.get(ptx.nonce.add(BigInteger.ONE));
+                if (next != null) {
+                    following.add(next);
+                }
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("TxPoolA1.snapshot return [{}] TX, poolSize[{}]", rtn.size(), size());
+        }
+
+        return rtn;
+    }
+
+    /** @return the next entry of the fee index from a sender that was not picked yet */
+    private PoolTx nextFirst(Iterator<PoolTx> firstTxs, Set<Address> picked) {
+        while (firstTxs.hasNext()) {
+            PoolTx ptx = firstTxs.next();
+            if (!picked.contains(ptx.from)) {
+                return ptx;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<TX> snapshotAll() {
+        removeTimeoutTxn();
+
+        List<TX> rtn = new ArrayList<>();
+        for (Sender sender : senders.values()) {
+            for (PoolTx ptx : sender.txs.values()) {
+                rtn.add((TX) ptx.tx.clone());
+            }
+        }
+
+        if (LOG.isInfoEnabled()) {
+            LOG.info("TxPoolA1.snapshot All return [{}] TX, poolSize[{}]", rtn.size(), size());
+        }
+
+        return rtn;
+    }
+
+    private void removeTimeoutTxn() {
+        long ts = TimeInstant.now().toEpochSec() - txn_timeout;
+
+        List<TX> txl = new ArrayList<>();
+        for (PoolTx ptx : timeIndex) {
+            if (ptx.timestamp / MULTIPLY_M >= ts) {
+                break;
+            }
+            txl.add(ptx.tx);
+        }
+
+        if (txl.isEmpty()) {
+            return;
+        }
+
+        synchronized (outDated) {
+            outDated.addAll(txl);
+        }
+        this.remove(txl);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.remove return [{}] TX, poolSize[{}]", txl.size(), size());
+        }
+    }
+
+    @Override
+    public List<TX> getOutdatedList() {
+        synchronized (outDated) {
+            List<TX> rtn = new ArrayList<>(outDated);
+            outDated.clear();
+            return rtn;
+        }
+    }
+
+    @Override
+    public long getOutDateTime() {
+        return txn_timeout;
+    }
+
+    @Override
+    public BigInteger bestPoolNonce(Address addr) {
+        Sender sender = addr == null ? null : senders.get(addr);
+        if (sender != null) {
+            Map.Entry<BigInteger, PoolTx> last = sender.txs.lastEntry();
+            if (last != null) {
+                return last.getKey();
+            }
+        }
+        return BigInteger.ONE.negate();
+    }
+
+    @Override
+    public void updateBlkNrgLimit(long nrg) {
+        if (nrg < BLK_NRG_MIN) {
+            blkNrgLimit.set(BLK_NRG_MIN);
+        } else if (nrg > BLK_NRG_MAX) {
+            blkNrgLimit.set(BLK_NRG_MAX);
+        } else {
+            blkNrgLimit.set(nrg);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("TxPoolA1.updateBlkNrgLimit nrg[{}] blkNrgLimit[{}]", nrg, blkNrgLimit.get());
+        }
+    }
+
+    @Override
+    public String getVersion() {
+        return "0.2.0";
+    }
+
+    @Override
+    public TX getPoolTx(Address from, BigInteger txNonce) {
+        if (from == null || txNonce == null) {
+            LOG.error("TxPoolA1.getPoolTx null args");
+            return null;
+        }
+
+        Sender sender = senders.get(from);
+        PoolTx ptx = sender == null ? null : sender.txs.get(txNonce);
+        return ptx == null ? null : ptx.tx;
+    }
+
+    /** @return the nonces of the transactions from the given sender in ascending order */
+    public List<BigInteger> getNonceList(Address acc) {
+        Sender sender = senders.get(acc);
+        return sender == null ? new ArrayList<>() : new ArrayList<>(sender.txs.keySet());
+    }
+}
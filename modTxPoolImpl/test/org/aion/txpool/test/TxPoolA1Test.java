@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2017-2018 Aion foundation.
+ *
+ *     This file is part of the aion network project.
+ *
+ *     The aion network project is free software: you can redistribute it
+ *     and/or modify it under the terms of the GNU General Public License
+ *     as published by the Free Software Foundation, either version 3 of
+ *     the License, or any later version.
+ *
+ *     The aion network project is distributed in the hope that it will
+ *     be useful, but WITHOUT ANY WARRANTY; without even the implied
+ *     warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *     See the GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with the aion network project source files.
+ *     If not, see <https://www.gnu.org/licenses/>.
+ *
+ *     The aion network project leverages useful source code from other
+ *     open source projects. We greatly appreciate the effort that was
+ *     invested in these projects and we thank the individual contributors
+ *     for their work. For provenance information and contributors
+ *     please see <https://github.com/aionnetwork/aion/wiki/Contributors>.
+ *
+ * Contributors to the aion source files in decreasing order of code volume:
+ *     Aion foundation.
+ *     <ether.camp> team through the ethereumJ library.
+ *     Ether.Camp Inc. (US) team through Ethereum Harmony.
+ *     John Tromp through the Equihash solver.
+ *     Samuel Neves through the BLAKE2 implementation.
+ *     Zcash project team.
+ *     Bitcoinj team.
+ */
+
+package org.aion.txpool.test;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.aion.base.type.Address;
+import org.aion.base.type.ITransaction;
+import org.aion.crypto.ECKey;
+import org.aion.crypto.ECKeyFac;
+import org.aion.txpool.ITxPool;
+import org.aion.txpool.zero.TxPoolA0;
+import org.aion.txpool.zero.TxPoolA1;
+import org.aion.zero.types.AionTransaction;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TxPoolA1Test {
+
+    private static List<ECKey> key;
+
+    @Before
+    public void setup() {
+        ECKeyFac.setType(ECKeyFac.ECKeyType.ED25519);
+        if (key == null) {
+            key = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                key.add(ECKeyFac.inst().create());
+            }
+        }
+    }
+
+    private static ITxPool<ITransaction> createPool() {
+        Properties config = new Properties();
+        config.put(ITxPool.PROP_TX_TIMEOUT, "100");
+        return new TxPoolA1<>(config);
+    }
+
+    private static AionTransaction genTransaction(int nonce, int index, long price, long nrg) {
+        AionTransaction tx =
+                new AionTransaction(
+                        BigInteger.valueOf(nonce).toByteArray(),
+                        Address.wrap(key.get(index).getAddress()),
+                        Address.wrap(
+                                "0000000000000000000000000000000000000000000000000000000000000001"),
+                        BigInteger.ONE.toByteArray(),
+                        BigInteger.ONE.toByteArray(),
+                        10000L,
+                        price);
+        tx.sign(key.get(index));
+        tx.setNrgConsume(nrg);
+        return tx;
+    }
+
+    private static List<Long> nonces(List<ITransaction> txs) {
+        List<Long> nonces = new ArrayList<>();
+        for (ITransaction tx : txs) {
+            nonces.add(tx.getNonceBI().longValue());
+        }
+        return nonces;
+    }
+
+    @Test
+    public void testAddAndRemove() {
+        ITxPool<ITransaction> tp = createPool();
+        List<ITransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            txs.add(genTransaction(i, 0, 1L, 5000L));
+        }
+
+        assertThat(tp.add(txs)).hasSize(20);
+        assertThat(tp.size()).isEqualTo(20);
+        assertThat(tp.bestPoolNonce(txs.get(0).getFrom())).isEqualTo(BigInteger.valueOf(19));
+
+        // repeated transactions are ignored
+        assertThat(tp.add(txs.subList(0, 5))).isEmpty();
+        assertThat(tp.size()).isEqualTo(20);
+
+        assertThat(tp.remove(txs.subList(0, 10))).hasSize(10);
+        assertThat(tp.size()).isEqualTo(10);
+        assertThat(tp.getPoolTx(txs.get(0).getFrom(), BigInteger.ZERO)).isNull();
+        assertThat(tp.getPoolTx(txs.get(0).getFrom(), BigInteger.TEN)).isEqualTo(txs.get(10));
+    }
+
+    @Test
+    public void testRemoveByAccountNonce() {
+        ITxPool<ITransaction> tp = createPool();
+        List<ITransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txs.add(genTransaction(i, 0, 1L, 5000L));
+            txs.add(genTransaction(i, 1, 1L, 5000L));
+        }
+        tp.add(txs);
+
+        Map<Address, BigInteger> accountNonce = new HashMap<>();
+        accountNonce.put(Address.wrap(key.get(0).getAddress()), BigInteger.valueOf(4));
+        accountNonce.put(Address.wrap(key.get(1).getAddress()), BigInteger.valueOf(10));
+
+        assertThat(tp.remove(accountNonce)).hasSize(14);
+        assertThat(tp.size()).isEqualTo(6);
+        assertThat(tp.bestPoolNonce(Address.wrap(key.get(1).getAddress())))
+                .isEqualTo(BigInteger.ONE.negate());
+        assertThat(nonces(tp.snapshot())).containsExactly(4L, 5L, 6L, 7L, 8L, 9L).inOrder();
+    }
+
+    @Test
+    public void testReplaceSameNonce() {
+        ITxPool<ITransaction> tp = createPool();
+        AionTransaction tx = genTransaction(0, 0, 1L, 5000L);
+        AionTransaction repay = genTransaction(0, 0, 2L, 5000L);
+
+        assertThat(tp.add(tx)).isEqualTo(tx);
+        // the replaced transaction is returned
+        assertThat(tp.add(repay)).isEqualTo(tx);
+        assertThat(tp.size()).isEqualTo(1);
+        assertThat(tp.getPoolTx(tx.getFrom(), BigInteger.ZERO)).isEqualTo(repay);
+    }
+
+    @Test
+    public void testSnapshotByFee() {
+        ITxPool<ITransaction> tp = createPool();
+        List<ITransaction> txs = new ArrayList<>();
+        txs.add(genTransaction(0, 0, 1L, 5000L));
+        txs.add(genTransaction(1, 0, 5L, 5000L));
+        txs.add(genTransaction(0, 1, 3L, 5000L));
+        txs.add(genTransaction(1, 1, 2L, 5000L));
+        txs.add(genTransaction(0, 2, 4L, 5000L));
+        tp.add(txs);
+
+        List<ITransaction> snapshot = tp.snapshot();
+        assertThat(snapshot)
+                .containsExactly(txs.get(4), txs.get(2), txs.get(3), txs.get(0), txs.get(1))
+                .inOrder();
+        assertThat(tp.size()).isEqualTo(5);
+    }
+
+    @Test
+    public void testSnapshotSameFeeByTime() {
+        ITxPool<ITransaction> tp = createPool();
+        List<ITransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            txs.add(genTransaction(i, 0, 1L, 1L));
+        }
+        for (int i = 0; i < 16; i++) {
+            txs.add(genTransaction(i, 1, 1L, 1L));
+        }
+        tp.add(txs);
+
+        assertThat(tp.snapshot()).containsExactlyElementsIn(txs).inOrder();
+        assertThat(tp.snapshotAll()).hasSize(txs.size());
+    }
+
+    @Test
+    public void testSnapshotSkipsNonceGap() {
+        ITxPool<ITransaction> tp = createPool();
+        List<ITransaction> txs = new ArrayList<>();
+        txs.add(genTransaction(0, 0, 1L, 5000L));
+        txs.add(genTransaction(1, 0, 1L, 5000L));
+        txs.add(genTransaction(3, 0, 1L, 5000L));
+        tp.add(txs);
+
+        assertThat(nonces(tp.snapshot())).containsExactly(0L, 1L).inOrder();
+        assertThat(tp.snapshotAll()).hasSize(3);
+    }
+
+    @Test
+    public void testSnapshotEnergyLimit() {
+        ITxPool<ITransaction> tp = createPool();
+        tp.updateBlkNrgLimit(1_000_000L);
+        List<ITransaction> txs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            txs.add(genTransaction(i, 0, 1L, 300_000L));
+        }
+        tp.add(txs);
+
+        assertThat(nonces(tp.snapshot())).containsExactly(0L, 1L, 2L).inOrder();
+    }
+
+    /** Compares the time to build a block template from a large pool with {@link TxPoolA0}. */
+    @Test
+    public void benchmarkSnapshot() {
+        int cnt = 2000;
+        List<ITransaction> txs = new ArrayList<>();
+        for (int k = 0; k < key.size(); k++) {
+            for (int i = 0; i < cnt; i++) {
+                txs.add(genTransaction(i, k, 1L + k, 100L));
+            }
+        }
+        Collections.shuffle(txs);
+
+        Properties config = new Properties();
+        config.put(ITxPool.PROP_TX_TIMEOUT, "100");
+        List<ITxPool<ITransaction>> pools = new ArrayList<>();
+        pools.add(new TxPoolA0<>(config));
+        pools.add(new TxPoolA1<>(config));
+
+        for (ITxPool<ITransaction> tp : pools) {
+            long start = System.nanoTime();
+            tp.add(txs);
+            long add = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<ITransaction> first = tp.snapshot();
+            long firstSnapshot = System.nanoTime() - start;
+
+            // new transactions after the first template
+            List<ITransaction> more = new ArrayList<>();
+            for (int k = 0; k < key.size(); k++) {
+                more.add(genTransaction(cnt, k, 1L + k, 100L));
+            }
+            tp.add(more);
+
+            start = System.nanoTime();
+            List<ITransaction> second = tp.snapshot();
+            long secondSnapshot = System.nanoTime() - start;
+
+            System.out.format(
+                    "%s: %d txs, add %d ms, snapshot %d ms (%d txs), snapshot after update %d ms (%d txs)%n",
+                    tp.getClass().getSimpleName(),
+                    tp.size(),
+                    add / 1_000_000,
+                    firstSnapshot / 1_000_000,
+                    first.size(),
+                    secondSnapshot / 1_000_000,
+                    second.size());
+
+            assertThat(first).isNotEmpty();
+            assertThat(tp.size()).isEqualTo(txs.size() + more.size());
+        }
+    }
+}